@@ -0,0 +1,58 @@
+package sneps.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sneps.network.classes.setClasses.PropositionSet;
+import sneps.snebr.Context;
+import sneps.snebr.Controller;
+
+/**
+ * Measures Context.allAsserted in a context asserting the width hyps of the
+ * justification DAG built by SupportBenchmark, so that every proposition of the
+ * network is either a hyp or supported by the hyps. Run with -prof gc to report
+ * the allocation rate as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class AllAssertedBenchmark {
+
+	@Param({ "4", "8" })
+	public int layers;
+
+	@Param({ "16", "128" })
+	public int width;
+
+	private Context context;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Throwable {
+		SyntheticNetworks.reset();
+		int[] hyps = SyntheticKnowledgeBases.buildHyps("h", width);
+		SyntheticKnowledgeBases.buildJustificationDag("d", hyps, layers, width, SupportBenchmark.FAN_IN);
+		Controller.createContext("benchmark");
+		context = Controller.bulkAddPropsToContext("benchmark", new PropositionSet(hyps));
+	}
+
+	@Benchmark
+	public PropositionSet allAsserted() throws Exception {
+		return context.allAsserted();
+	}
+
+}
@@ -0,0 +1,91 @@
+package sneps.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sneps.network.classes.setClasses.PropositionSet;
+import sneps.snebr.Context;
+import sneps.snebr.Controller;
+
+/**
+ * Measures asserting hyps in a context already having hyps hyps, one at a time
+ * and as a batch of batch hyps. The asserted hyps are removed again after every
+ * invocation so that the context keeps its size. Run with -prof gc to report
+ * the allocation rate as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class ContextAssertionBenchmark {
+
+	private static final String CONTEXT = "benchmark";
+
+	@Param({ "100", "1000", "10000" })
+	public int hyps;
+
+	@Param({ "16" })
+	public int batch;
+
+	private int[] fresh;
+
+	private PropositionSet batchSet;
+
+	private PropositionSet added;
+
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Throwable {
+		SyntheticNetworks.reset();
+		int[] base = SyntheticKnowledgeBases.buildHyps("h", hyps);
+		fresh = SyntheticKnowledgeBases.buildHyps("f", batch);
+		Controller.createContext(CONTEXT);
+		Controller.bulkAddPropsToContext(CONTEXT, new PropositionSet(base));
+		batchSet = new PropositionSet(fresh);
+		next = 0;
+	}
+
+	@TearDown(Level.Invocation)
+	public void removeAdded() throws Throwable {
+		if (added != null) {
+			Controller.removeHypsFromContext(added, CONTEXT);
+			added = null;
+		}
+	}
+
+	@Benchmark
+	public Context addPropToContext() throws Throwable {
+		int hyp = fresh[next++ % fresh.length];
+		added = new PropositionSet(hyp);
+		return Controller.addPropToContext(CONTEXT, hyp);
+	}
+
+	@Benchmark
+	public Context addPropsToContext() throws Throwable {
+		added = batchSet;
+		return Controller.addPropsToContext(CONTEXT, batchSet);
+	}
+
+	@Benchmark
+	public Context bulkAddPropsToContext() throws Throwable {
+		added = batchSet;
+		return Controller.bulkAddPropsToContext(CONTEXT, batchSet);
+	}
+
+}
@@ -0,0 +1,92 @@
+package sneps.benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sneps.network.Network;
+import sneps.network.PropositionNode;
+import sneps.network.classes.setClasses.NodeSet;
+import sneps.network.classes.setClasses.PropositionSet;
+import sneps.snebr.Context;
+import sneps.snebr.Controller;
+
+/**
+ * Measures contradiction detection in a context asserting pairs propositions,
+ * each of which is negated by an andor node. checkForContradiction is measured
+ * once following the cables of the negation and once matching the minimal
+ * nogoods, which hold a nogood for every pair. accumulateNoGoods measures
+ * finding all the pairs nogoods starting with no nogoods at all. Run with
+ * -prof gc to report the allocation rate as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class ContradictionBenchmark {
+
+	private static final String CONTEXT = "benchmark";
+
+	@Param({ "100", "1000", "10000" })
+	public int pairs;
+
+	private PropositionNode[] negations;
+
+	private Context context;
+
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Throwable {
+		SyntheticNetworks.reset();
+		int[][] negationPairs = SyntheticKnowledgeBases.buildNegationPairs("p", pairs);
+		Controller.createContext(CONTEXT);
+		Controller.bulkAddPropsToContext(CONTEXT, new PropositionSet(negationPairs[0]));
+		negations = new PropositionNode[pairs];
+		for (int i = 0; i < pairs; i++) {
+			negations[i] = (PropositionNode) Network.getNodeById(negationPairs[1][i]);
+			negations[i].setHyp(true);
+		}
+		context = Controller.getContextByName(CONTEXT);
+		for (PropositionNode negation : negations)
+			Controller.checkForContradiction(negation, context, true);
+		next = 0;
+	}
+
+	@Benchmark
+	public ArrayList<NodeSet> checkForContradictionFromCables() throws Exception {
+		return Controller.checkForContradiction(negations[next++ % pairs], context, true);
+	}
+
+	@Benchmark
+	public ArrayList<NodeSet> checkForContradictionFromNoGoods() throws Exception {
+		return Controller.checkForContradiction(negations[next++ % pairs], context, false);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 5)
+	public int accumulateNoGoods() throws Exception {
+		Controller.getMinimalNoGoods().clear();
+		for (PropositionNode negation : negations)
+			Controller.checkForContradiction(negation, context, true);
+		return Controller.getMinimalNoGoods().size();
+	}
+
+}
@@ -0,0 +1,74 @@
+package sneps.benchmarks;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.classes.CaseFrame;
+import sneps.network.classes.Relation;
+import sneps.network.classes.setClasses.NodeSet;
+import sneps.network.paths.FUnitPath;
+import sneps.snebr.Context;
+import sneps.snebr.Controller;
+
+/**
+ * Measures Network.find over a star network of size molecular nodes with five
+ * relations, each target being pointed to by about 16 nodes. The query asks for
+ * the nodes pointing to the targets of one existing node by the first
+ * constraints relations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class FindBenchmark {
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int size;
+
+	@Param({ "1", "2", "3", "4", "5" })
+	public int constraints;
+
+	private Object[][] query;
+
+	private Context context;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		SyntheticNetworks.reset();
+		Relation[] relations = SyntheticNetworks.defineRelations("rel", 5);
+		CaseFrame caseFrame = SyntheticNetworks.defineCaseFrame(relations);
+		Node[][] targets = SyntheticNetworks.buildStarNetwork("s", relations, caseFrame, size, 16);
+		Node[] args = SyntheticNetworks.starArgs(targets, size / 2);
+		query = new Object[constraints][2];
+		for (int j = 0; j < constraints; j++) {
+			NodeSet nodeSet = new NodeSet();
+			nodeSet.addNode(args[j]);
+			query[j][0] = new FUnitPath(relations[j]);
+			query[j][1] = nodeSet;
+		}
+		context = Controller.getCurrentContext();
+	}
+
+	@Benchmark
+	public LinkedList<Object[]> find() {
+		return Network.find(query, context);
+	}
+
+}
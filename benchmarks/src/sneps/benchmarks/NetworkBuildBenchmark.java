@@ -0,0 +1,76 @@
+package sneps.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.classes.CaseFrame;
+import sneps.network.classes.Relation;
+import sneps.network.classes.Semantic;
+
+/**
+ * Measures building nodes in a network that already has size molecular nodes.
+ * A dedup hit rebuilds one of the existing molecular nodes, which must be found
+ * and returned. A dedup miss builds a molecular node over a fresh base node, so
+ * its score includes the cost measured by buildBaseNode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class NetworkBuildBenchmark {
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int size;
+
+	private Relation[] relations;
+
+	private CaseFrame caseFrame;
+
+	private Node[][] targets;
+
+	private int counter;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		SyntheticNetworks.reset();
+		relations = SyntheticNetworks.defineRelations("rel", 2);
+		caseFrame = SyntheticNetworks.defineCaseFrame(relations);
+		targets = SyntheticNetworks.buildStarNetwork("s", relations, caseFrame, size, 16);
+		counter = 0;
+	}
+
+	@Benchmark
+	public Node buildBaseNode() throws Exception {
+		return Network.buildBaseNode("b" + counter++, Semantic.proposition);
+	}
+
+	@Benchmark
+	public Node buildMolecularNodeHit() throws Exception {
+		return SyntheticNetworks.buildMolecularNode(caseFrame, relations,
+				SyntheticNetworks.starArgs(targets, counter++ % size));
+	}
+
+	@Benchmark
+	public Node buildMolecularNodeMiss() throws Exception {
+		Node fresh = Network.buildBaseNode("m" + counter, Semantic.proposition);
+		Node other = targets[1][counter++ % targets[1].length];
+		return SyntheticNetworks.buildMolecularNode(caseFrame, relations, new Node[] { fresh, other });
+	}
+
+}
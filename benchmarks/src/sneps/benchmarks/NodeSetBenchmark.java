@@ -0,0 +1,76 @@
+package sneps.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sneps.network.Node;
+import sneps.network.classes.setClasses.NodeSet;
+
+/**
+ * Measures the set algebra of NodeSet over two sets of size nodes sharing half
+ * of their nodes. NodeSet keeps its nodes in a Vector, so these operations are
+ * quadratic and the 1e6 size is left out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class NodeSetBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	public int size;
+
+	private NodeSet first;
+
+	private NodeSet second;
+
+	private Node missing;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		SyntheticNetworks.reset();
+		Node[] nodes = SyntheticNetworks.buildBaseNodes("n", size + size / 2 + 1);
+		first = new NodeSet();
+		second = new NodeSet();
+		for (int i = 0; i < size; i++) {
+			first.addNode(nodes[i]);
+			second.addNode(nodes[i + size / 2]);
+		}
+		missing = nodes[nodes.length - 1];
+	}
+
+	@Benchmark
+	public NodeSet union() {
+		return first.Union(second);
+	}
+
+	@Benchmark
+	public NodeSet intersection() {
+		return first.Intersection(second);
+	}
+
+	@Benchmark
+	public NodeSet difference() {
+		return first.difference(second);
+	}
+
+	@Benchmark
+	public boolean containsMissing() {
+		return first.contains(missing);
+	}
+
+}
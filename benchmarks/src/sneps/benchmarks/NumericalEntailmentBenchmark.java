@@ -0,0 +1,96 @@
+package sneps.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.classes.Relation;
+import sneps.network.classes.RelationsRestrictedCaseFrame;
+import sneps.network.classes.Semantic;
+import sneps.network.classes.Wire;
+import sneps.snebr.Support;
+import sneps.snip.Report;
+import sneps.snip.Runner;
+import sneps.snip.channels.AntecedentToRuleChannel;
+import sneps.snip.channels.RuleToConsequentChannel;
+import sneps.snip.matching.LinearSubstitutions;
+import sneps.snip.rules.NumericalEntailment;
+
+/**
+ * Measures a numerical entailment over n antecedents receiving a positive
+ * report from every one of them, i being percent of n. The rule fires at the
+ * i-th report, so the time per invocation should grow linearly with n whatever
+ * i is. Channel prints every report it accepts, so redirect the output when
+ * running this benchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class NumericalEntailmentBenchmark {
+
+	private static final String CONTEXT = "benchmark";
+
+	@Param({ "10", "100", "1000" })
+	public int n;
+
+	@Param({ "1", "50", "100" })
+	public int percent;
+
+	private NumericalEntailment rule;
+
+	private Node[] antecedents;
+
+	private RuleToConsequentChannel consequentChannel;
+
+	private Report report;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		SyntheticNetworks.reset();
+		antecedents = SyntheticNetworks.buildBaseNodes("a", n);
+		Node consequent = Network.buildBaseNode("c", Semantic.proposition);
+		ArrayList<Wire> wires = new ArrayList<Wire>();
+		for (Node antecedent : antecedents)
+			wires.add(new Wire(Relation.andAnt, antecedent));
+		wires.add(new Wire(Relation.cq, consequent));
+		int i = Math.max(1, n * percent / 100);
+		wires.add(new Wire(Relation.i, Network.buildBaseNode(String.valueOf(i), Semantic.infimum)));
+		rule = (NumericalEntailment) Network.buildMolecularNode(wires, RelationsRestrictedCaseFrame.numericalRule);
+		for (Node antecedent : antecedents)
+			rule.getIncomingChannels().addChannel(new AntecedentToRuleChannel(new LinearSubstitutions(),
+					new LinearSubstitutions(), CONTEXT, rule, antecedent, true));
+		consequentChannel = new RuleToConsequentChannel(new LinearSubstitutions(), new LinearSubstitutions(),
+				CONTEXT, consequent, rule, true);
+		rule.getOutgoingChannels().addChannel(consequentChannel);
+		report = new Report(new LinearSubstitutions(), new HashSet<Support>(), true, CONTEXT);
+	}
+
+	@Benchmark
+	public NumericalEntailment reportAllAntecedents() {
+		rule.clear();
+		Runner.initiate();
+		consequentChannel.clearReportsBuffer();
+		for (Node antecedent : antecedents)
+			rule.applyRuleHandler(report, antecedent);
+		return rule;
+	}
+
+}
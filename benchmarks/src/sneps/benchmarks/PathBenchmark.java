@@ -0,0 +1,107 @@
+package sneps.benchmarks;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sneps.network.Node;
+import sneps.network.classes.CaseFrame;
+import sneps.network.classes.PathTrace;
+import sneps.network.classes.Relation;
+import sneps.network.paths.ComposePath;
+import sneps.network.paths.FUnitPath;
+import sneps.network.paths.KStarPath;
+import sneps.network.paths.Path;
+import sneps.snebr.Context;
+import sneps.snebr.Controller;
+
+/**
+ * Measures following KStarPath and ComposePath from the head of a chain and
+ * from the root of a ternary tree, both embedded in a network of size other
+ * nodes. FUnitPath.follow prints every node it follows, so run these with the
+ * output of the forks discarded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class PathBenchmark {
+
+	@Param({ "1000", "10000", "100000", "1000000" })
+	public int size;
+
+	@Param({ "8", "32" })
+	public int chainLength;
+
+	@Param({ "3", "5" })
+	public int treeDepth;
+
+	private Node chainHead;
+
+	private Node treeRoot;
+
+	private Path kStar;
+
+	private Path chainCompose;
+
+	private Path treeCompose;
+
+	private Context context;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		SyntheticNetworks.reset();
+		SyntheticNetworks.buildBaseNodes("f", size);
+		Relation[] relations = SyntheticNetworks.defineRelations("rel", 1);
+		CaseFrame caseFrame = SyntheticNetworks.defineCaseFrame(relations);
+		Node[] chain = SyntheticNetworks.buildChain("c", relations[0], caseFrame, chainLength);
+		chainHead = chain[chainLength];
+		treeRoot = SyntheticNetworks.buildTree("t", relations[0], caseFrame, treeDepth, 3);
+		kStar = new KStarPath(new FUnitPath(relations[0]));
+		chainCompose = compose(relations[0], chainLength);
+		treeCompose = compose(relations[0], treeDepth);
+		context = Controller.getCurrentContext();
+	}
+
+	private static Path compose(Relation relation, int length) {
+		LinkedList<Path> paths = new LinkedList<Path>();
+		for (int i = 0; i < length; i++)
+			paths.add(new FUnitPath(relation));
+		return new ComposePath(paths);
+	}
+
+	@Benchmark
+	public LinkedList<Object[]> kStarChain() {
+		return kStar.follow(chainHead, new PathTrace(), context);
+	}
+
+	@Benchmark
+	public LinkedList<Object[]> composeChain() {
+		return chainCompose.follow(chainHead, new PathTrace(), context);
+	}
+
+	@Benchmark
+	public LinkedList<Object[]> kStarTree() {
+		return kStar.follow(treeRoot, new PathTrace(), context);
+	}
+
+	@Benchmark
+	public LinkedList<Object[]> composeTree() {
+		return treeCompose.follow(treeRoot, new PathTrace(), context);
+	}
+
+}
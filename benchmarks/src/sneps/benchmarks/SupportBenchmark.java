@@ -0,0 +1,53 @@
+package sneps.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building a layered justification DAG of layers layers of width
+ * propositions over width hyps, each proposition being justified by three
+ * propositions of the layer below it. Run with -prof gc to report the
+ * allocation rate as well.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class SupportBenchmark {
+
+	static final int FAN_IN = 3;
+
+	@Param({ "4", "8" })
+	public int layers;
+
+	@Param({ "16", "128" })
+	public int width;
+
+	private int[] hyps;
+
+	@Setup(Level.Iteration)
+	public void setUp() throws Exception {
+		SyntheticNetworks.reset();
+		hyps = SyntheticKnowledgeBases.buildHyps("h", width);
+	}
+
+	@Benchmark
+	public int[][] addJustificationBasedSupport() throws Exception {
+		return SyntheticKnowledgeBases.buildJustificationDag("d", hyps, layers, width, FAN_IN);
+	}
+
+}
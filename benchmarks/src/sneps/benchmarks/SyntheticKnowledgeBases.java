@@ -0,0 +1,112 @@
+package sneps.benchmarks;
+
+import java.util.ArrayList;
+
+import sneps.exceptions.CannotBuildNodeException;
+import sneps.exceptions.CannotInsertJustificationSupportException;
+import sneps.exceptions.CaseFrameMissMatchException;
+import sneps.exceptions.DuplicatePropositionException;
+import sneps.exceptions.EquivalentNodeException;
+import sneps.exceptions.IllegalIdentifierException;
+import sneps.exceptions.NodeNotFoundInNetworkException;
+import sneps.exceptions.NodeNotFoundInPropSetException;
+import sneps.exceptions.NotAPropositionNodeException;
+import sneps.exceptions.SemanticNotFoundInNetworkException;
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.PropositionNode;
+import sneps.network.classes.Relation;
+import sneps.network.classes.RelationsRestrictedCaseFrame;
+import sneps.network.classes.Semantic;
+import sneps.network.classes.Wire;
+import sneps.network.classes.setClasses.PropositionSet;
+
+/**
+ * Generators of the knowledge bases used by the SNeBR benchmarks: sets of
+ * hypotheses, negation pairs and layered justification DAGs.
+ */
+public final class SyntheticKnowledgeBases {
+
+	private SyntheticKnowledgeBases() {
+	}
+
+	/**
+	 * Builds count base propositions.
+	 *
+	 * @return the ids of the new propositions in ascending order.
+	 */
+	public static int[] buildHyps(String prefix, int count)
+			throws NotAPropositionNodeException, NodeNotFoundInNetworkException, IllegalIdentifierException {
+		Node[] nodes = SyntheticNetworks.buildBaseNodes(prefix, count);
+		int[] ids = new int[count];
+		for (int i = 0; i < count; i++)
+			ids[i] = nodes[i].getId();
+		return ids;
+	}
+
+	/**
+	 * Builds the negation of a proposition, an andor node with min and max 0
+	 * whose arg is the proposition.
+	 */
+	public static PropositionNode buildNegation(PropositionNode negated) throws IllegalIdentifierException,
+			CannotBuildNodeException, EquivalentNodeException, NotAPropositionNodeException,
+			NodeNotFoundInNetworkException, CaseFrameMissMatchException, SemanticNotFoundInNetworkException {
+		Node zero;
+		try {
+			zero = Network.getNode("0");
+		} catch (NodeNotFoundInNetworkException e) {
+			zero = Network.buildBaseNode("0", Semantic.infimum);
+		}
+		ArrayList<Wire> wires = new ArrayList<Wire>();
+		wires.add(new Wire(Relation.arg, negated));
+		wires.add(new Wire(Relation.max, zero));
+		wires.add(new Wire(Relation.min, zero));
+		return (PropositionNode) Network.buildMolecularNode(wires, RelationsRestrictedCaseFrame.andOrRule);
+	}
+
+	/**
+	 * Builds count base propositions and the negation of each of them.
+	 *
+	 * @return two arrays, the ids of the propositions and the ids of their
+	 *         negations.
+	 */
+	public static int[][] buildNegationPairs(String prefix, int count) throws IllegalIdentifierException,
+			CannotBuildNodeException, EquivalentNodeException, NotAPropositionNodeException,
+			NodeNotFoundInNetworkException, CaseFrameMissMatchException, SemanticNotFoundInNetworkException {
+		int[] props = buildHyps(prefix, count);
+		int[] negations = new int[count];
+		for (int i = 0; i < count; i++)
+			negations[i] = buildNegation((PropositionNode) Network.getNodeById(props[i])).getId();
+		return new int[][] { props, negations };
+	}
+
+	/**
+	 * Builds layers of width base propositions above the hyps, and justifies
+	 * every proposition of a layer by fanIn propositions of the layer below it,
+	 * chosen so that neighbouring propositions share justifiers. The hyps are
+	 * marked as hyps first so that the assumption supports are computed.
+	 *
+	 * @return the ids of the propositions of each layer, the hyps being layer 0.
+	 */
+	public static int[][] buildJustificationDag(String prefix, int[] hyps, int layers, int width, int fanIn)
+			throws NotAPropositionNodeException, NodeNotFoundInNetworkException, IllegalIdentifierException,
+			NodeNotFoundInPropSetException, DuplicatePropositionException,
+			CannotInsertJustificationSupportException {
+		for (int hyp : hyps)
+			((PropositionNode) Network.getNodeById(hyp)).setHyp(true);
+		int[][] dag = new int[layers + 1][];
+		dag[0] = hyps;
+		for (int l = 1; l <= layers; l++) {
+			dag[l] = buildHyps(prefix + l + "_", width);
+			for (int i = 0; i < width; i++) {
+				int[] justifiers = new int[fanIn];
+				for (int k = 0; k < fanIn; k++)
+					justifiers[k] = dag[l - 1][(i + k) % dag[l - 1].length];
+				((PropositionNode) Network.getNodeById(dag[l][i]))
+						.addJustificationBasedSupport(new PropositionSet(justifiers));
+			}
+		}
+		return dag;
+	}
+
+}
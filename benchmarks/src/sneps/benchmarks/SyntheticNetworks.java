@@ -0,0 +1,152 @@
+package sneps.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+import sneps.exceptions.CannotBuildNodeException;
+import sneps.exceptions.CaseFrameMissMatchException;
+import sneps.exceptions.EquivalentNodeException;
+import sneps.exceptions.IllegalIdentifierException;
+import sneps.exceptions.NodeNotFoundInNetworkException;
+import sneps.exceptions.NotAPropositionNodeException;
+import sneps.exceptions.SemanticNotFoundInNetworkException;
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.classes.CaseFrame;
+import sneps.network.classes.Relation;
+import sneps.network.classes.Semantic;
+import sneps.network.classes.Wire;
+import sneps.snebr.Controller;
+
+/**
+ * Generators of synthetic networks used by the benchmarks. All the generated
+ * nodes are propositions and every molecular node uses case frames whose
+ * relations are defined by these generators, so the networks do not depend on
+ * the default relations.
+ */
+public final class SyntheticNetworks {
+
+	public static final String SEMANTIC_TYPE = "Proposition";
+
+	private SyntheticNetworks() {
+	}
+
+	/**
+	 * Clears the network and SNeBR and defines the defaults again.
+	 */
+	public static void reset() {
+		Network.clearNetwork();
+		Controller.clearSNeBR();
+		Network.defineDefaults();
+	}
+
+	/**
+	 * Defines the relations prefix0 .. prefix(count - 1).
+	 */
+	public static Relation[] defineRelations(String prefix, int count) {
+		Relation[] relations = new Relation[count];
+		for (int i = 0; i < count; i++)
+			relations[i] = Network.defineRelation(prefix + i, SEMANTIC_TYPE);
+		return relations;
+	}
+
+	public static CaseFrame defineCaseFrame(Relation... relations) {
+		LinkedList<Relation> relationSet = new LinkedList<Relation>();
+		for (Relation r : relations)
+			relationSet.add(r);
+		return Network.defineCaseFrame(SEMANTIC_TYPE, relationSet);
+	}
+
+	/**
+	 * Builds the base nodes prefix0 .. prefix(count - 1).
+	 */
+	public static Node[] buildBaseNodes(String prefix, int count)
+			throws NotAPropositionNodeException, NodeNotFoundInNetworkException, IllegalIdentifierException {
+		Node[] result = new Node[count];
+		for (int i = 0; i < count; i++)
+			result[i] = Network.buildBaseNode(prefix + i, Semantic.proposition);
+		return result;
+	}
+
+	/**
+	 * Builds a molecular node pointing to args[i] by relations[i].
+	 */
+	public static Node buildMolecularNode(CaseFrame caseFrame, Relation[] relations, Node[] args)
+			throws CannotBuildNodeException, EquivalentNodeException, NotAPropositionNodeException,
+			NodeNotFoundInNetworkException, CaseFrameMissMatchException, SemanticNotFoundInNetworkException {
+		ArrayList<Wire> wires = new ArrayList<Wire>();
+		for (int i = 0; i < relations.length; i++)
+			wires.add(new Wire(relations[i], args[i]));
+		return Network.buildMolecularNode(wires, caseFrame);
+	}
+
+	/**
+	 * Builds a chain of molecular nodes over a base node, each node pointing to
+	 * the previous one by the relation.
+	 *
+	 * @return the nodes of the chain, the base node first and the head of the
+	 *         chain last.
+	 */
+	public static Node[] buildChain(String prefix, Relation relation, CaseFrame caseFrame, int length)
+			throws IllegalIdentifierException, CannotBuildNodeException, EquivalentNodeException,
+			NotAPropositionNodeException, NodeNotFoundInNetworkException, CaseFrameMissMatchException,
+			SemanticNotFoundInNetworkException {
+		Node[] chain = new Node[length + 1];
+		chain[0] = Network.buildBaseNode(prefix, Semantic.proposition);
+		Relation[] relations = { relation };
+		for (int i = 1; i <= length; i++)
+			chain[i] = buildMolecularNode(caseFrame, relations, new Node[] { chain[i - 1] });
+		return chain;
+	}
+
+	/**
+	 * Builds a complete tree whose leaves are base nodes and whose inner nodes
+	 * are molecular nodes pointing to all of their children by the relation.
+	 *
+	 * @return the root of the tree.
+	 */
+	public static Node buildTree(String prefix, Relation relation, CaseFrame caseFrame, int depth, int branching)
+			throws IllegalIdentifierException, CannotBuildNodeException, EquivalentNodeException,
+			NotAPropositionNodeException, NodeNotFoundInNetworkException, CaseFrameMissMatchException,
+			SemanticNotFoundInNetworkException {
+		if (depth == 0)
+			return Network.buildBaseNode(prefix, Semantic.proposition);
+		ArrayList<Wire> wires = new ArrayList<Wire>();
+		for (int i = 0; i < branching; i++)
+			wires.add(new Wire(relation, buildTree(prefix + "." + i, relation, caseFrame, depth - 1, branching)));
+		return Network.buildMolecularNode(wires, caseFrame);
+	}
+
+	/**
+	 * Builds count molecular nodes, each pointing by every one of the relations
+	 * to a base node. Relation j has count / fanIn + j targets and node i points
+	 * by it to target i modulo that number, so every target is pointed to by
+	 * about fanIn nodes and, as long as fanIn is at most the square root of
+	 * count, no two nodes have the same down cables.
+	 *
+	 * @return the targets of each relation.
+	 */
+	public static Node[][] buildStarNetwork(String prefix, Relation[] relations, CaseFrame caseFrame, int count,
+			int fanIn) throws IllegalIdentifierException, CannotBuildNodeException, EquivalentNodeException,
+			NotAPropositionNodeException, NodeNotFoundInNetworkException, CaseFrameMissMatchException,
+			SemanticNotFoundInNetworkException {
+		int targetsPerRelation = Math.max(1, count / fanIn);
+		Node[][] targets = new Node[relations.length][];
+		for (int j = 0; j < relations.length; j++)
+			targets[j] = buildBaseNodes(prefix + "t" + j + "_", targetsPerRelation + j);
+		for (int i = 0; i < count; i++)
+			buildMolecularNode(caseFrame, relations, starArgs(targets, i));
+		return targets;
+	}
+
+	/**
+	 * @return the nodes the i-th molecular node of a star network points to.
+	 */
+	public static Node[] starArgs(Node[][] targets, int i) {
+		Node[] args = new Node[targets.length];
+		for (int j = 0; j < targets.length; j++)
+			args[j] = targets[j][i % targets[j].length];
+		return args;
+	}
+
+}
@@ -0,0 +1,77 @@
+package sneps.benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.snebr.Controller;
+import sneps.snepslog.AP;
+import sneps.snip.Report;
+import sneps.snip.tabling.TableSpace;
+import sneps.snip.tabling.TabledDeduction;
+
+/**
+ * Measures the query anc(p0, ?z) over a chain of n parent facts and the two
+ * rules defining anc as the transitive closure of parent. The cold query
+ * discards the tables first and solves the n subgoals again, the repeated one
+ * reads the complete table of the query. The instances of anc are built by the
+ * first query, in the setup, so both measure inference alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+public class TabledDeductionBenchmark {
+
+	@Param({ "10", "25", "50" })
+	public int n;
+
+	private Node goal;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		Network.defineDefaults();
+		AP.executeSnepslogCommand("clearkb");
+		AP.executeSnepslogCommand("set-mode-1");
+		for (int i = 0; i < n; i++)
+			AP.executeSnepslogCommand("parent(p" + i + ",p" + (i + 1) + ").");
+		AP.executeSnepslogCommand("all(x,y)(parent(x,y) => anc(x,y)).");
+		AP.executeSnepslogCommand("all(x,y,z)({parent(x,y), anc(y,z)} &=> anc(x,z)).");
+		String output = AP.executeSnepslogCommand("list-terms anc(p0,?z).");
+		goal = Network.getNode(output.substring(0, output.indexOf(":")));
+		query();
+	}
+
+	private ArrayList<Report> query() throws Exception {
+		return new TabledDeduction(Controller.getCurrentContextName(), Controller.getCurrentContext())
+				.deduce(goal);
+	}
+
+	@Benchmark
+	public ArrayList<Report> coldQuery() throws Exception {
+		TableSpace.clearTableSpaces();
+		return query();
+	}
+
+	@Benchmark
+	public ArrayList<Report> repeatedQuery() throws Exception {
+		return query();
+	}
+
+}
@@ -1,24 +1,223 @@
 package sneps.network;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.HashSet;
 
+import sneps.network.cables.DownCable;
+import sneps.network.classes.setClasses.ChannelSet;
 import sneps.network.classes.Semantic;
+import sneps.network.classes.setClasses.NodeSet;
+import sneps.network.classes.term.Molecular;
 import sneps.network.classes.term.Term;
+import sneps.snebr.Support;
+import sneps.snip.Report;
+import sneps.snip.Runner;
+import sneps.snip.channels.Channel;
+import sneps.snip.acting.PrimitiveAction;
+import sneps.snip.acting.PrimitiveActions;
+import sneps.snip.matching.LinearSubstitutions;
 
 public class ActNode extends Node implements Serializable{
 
+	/**
+	 * The state of an intended act: waiting in the act queue, being performed,
+	 * or performed successfully or not.
+	 */
+	public enum Agenda {
+		START, EXECUTE, DONE, FAILED
+	}
+
+	/**
+	 * An intention of an act in a context, with the outcome of its
+	 * performance. Every intention carries its own outcome, so the intentions
+	 * of the same act performed at the same time do not overwrite each other.
+	 */
+	public static class Intention {
+		private final ActNode act;
+		private final String contextName;
+		private volatile Agenda agenda = Agenda.START;
+		private volatile Object result;
+		private volatile Throwable failure;
+
+		private Intention(ActNode act, String contextName) {
+			this.act = act;
+			this.contextName = contextName;
+		}
+
+		/**
+		 * Record the outcome of the performance, set by the thread completing
+		 * it and read by the Runner once it reported the completion
+		 */
+		public void completed(Object result, Throwable failure) {
+			this.result = result;
+			this.failure = failure;
+		}
+
+		public ActNode getAct() {
+			return act;
+		}
+
+		public String getContextName() {
+			return contextName;
+		}
+
+		public Agenda getAgenda() {
+			return agenda;
+		}
+
+		public Object getResult() {
+			return result;
+		}
+
+		public Throwable getFailure() {
+			return failure;
+		}
+	}
+
+	/**
+	 * the last intention of the act
+	 */
+	private transient volatile Intention last;
+
+	/**
+	 * the intentions whose performance completed, waiting for the Runner to
+	 * report them
+	 */
+	private transient ArrayDeque<Intention> completed;
+
+	/**
+	 * the reports of the completed performances of the act
+	 */
+	private transient HashSet<Report> reports;
+
+	/**
+	 * the channels of the nodes waiting for the act to be performed
+	 */
+	private transient ChannelSet outgoingChannels;
+
 	public ActNode(Semantic sem, Term term) {
 		super(sem, term);
 	}
 
-	public ActNode getAgenda() {
-		// TODO Auto-generated method stub
-		return null;
+	/**
+	 * Intend the act in a context: queue it in the act queue of the Runner
+	 */
+	public void intend(String contextName) {
+		last = new Intention(this, contextName);
+		Runner.addToActStack(last);
+	}
+
+	/**
+	 * Perform an intention of the act if its action is primitive. The Runner
+	 * performs it without waiting for it to complete, and processes this node
+	 * again once it does.
+	 */
+	public void processIntends(Intention intention) {
+		NodeSet action = getDownNodeSet("action");
+		PrimitiveAction primitive = action == null || action.size() != 1 ? null
+				: PrimitiveActions.get(action.getNode(0).getIdentifier());
+		if (primitive == null) {
+			intention.completed(null, new UnsupportedOperationException("The act " + this + " has no primitive action"));
+			completed(intention);
+			Runner.addToHighQueue(this);
+			return;
+		}
+		intention.agenda = Agenda.EXECUTE;
+		Runner.perform(intention, primitive);
+	}
+
+	/**
+	 * Keep an intention whose performance completed until the Runner
+	 * processes the node
+	 */
+	public void completed(Intention intention) {
+		if (completed == null)
+			completed = new ArrayDeque<Intention>();
+		completed.add(intention);
+	}
+
+	/**
+	 * Report the completion of every completed intention in the context it
+	 * was intended in, positively if it succeeded, to the nodes waiting for
+	 * the act
+	 */
+	@Override
+	public void processReports() {
+		if (completed == null)
+			return;
+		Intention intention;
+		while ((intention = completed.poll()) != null) {
+			intention.agenda = intention.failure == null ? Agenda.DONE : Agenda.FAILED;
+			Report report = new Report(new LinearSubstitutions(), new HashSet<Support>(), intention.failure == null,
+					intention.contextName);
+			getReports().add(report);
+			if (outgoingChannels != null)
+				for (Channel channel : outgoingChannels)
+					channel.addReport(report);
+		}
+	}
+
+	/**
+	 * Wait for the act to be performed: the reports of its completed
+	 * performances are sent through the channel, and so are the later ones
+	 */
+	@Override
+	public void receiveRequest(Channel channel) {
+		if (outgoingChannels == null)
+			outgoingChannels = new ChannelSet();
+		outgoingChannels.addChannel(channel);
+		for (Report report : getReports())
+			channel.addReport(report);
+	}
+
+	public HashSet<Report> getReports() {
+		if (reports == null)
+			reports = new HashSet<Report>();
+		return reports;
+	}
+
+	/**
+	 * Put the reports of the act in the buckets of their hashes again, once
+	 * Report.rehash changed them.
+	 */
+	public void rehashReports() {
+		if (reports != null)
+			reports = new HashSet<Report>(reports);
+	}
+
+	/**
+	 * @return the last intention of the act, or null if it was never intended.
+	 */
+	public Intention getLastIntention() {
+		return last;
+	}
+
+	public Agenda getAgenda() {
+		return last == null ? Agenda.START : last.agenda;
+	}
+
+	public Object getResult() {
+		return last == null ? null : last.result;
+	}
+
+	public Throwable getFailure() {
+		return last == null ? null : last.failure;
+	}
+
+	public String getContextName() {
+		return last == null ? null : last.contextName;
 	}
 
-	public void processIntends() {
-		// TODO Auto-generated method stub
-		
+	/**
+	 * Return the nodes the act points to by a relation, or null if it has no
+	 * such relation
+	 */
+	public NodeSet getDownNodeSet(String name) {
+		if (!(getTerm() instanceof Molecular))
+			return null;
+		DownCable cable = ((Molecular) getTerm()).getDownCableSet().getDownCable(name);
+		return cable == null ? null : cable.getNodeSet();
 	}
 
 }
@@ -0,0 +1,151 @@
+package sneps.network;
+
+import java.util.Hashtable;
+import java.util.function.Supplier;
+
+import sneps.network.classes.SemanticHierarchy;
+import sneps.snebr.Controller;
+import sneps.snepslog.AP;
+import sneps.snip.Runner;
+import sneps.snip.matching.MatchIndex;
+import sneps.snip.rete.ReteNetwork;
+import sneps.snip.tabling.TableSpace;
+
+/**
+ * A knowledge base: a network with its semantic types and match index, the
+ * contexts of SNeBR, the state of SNePSLOG and of the runner, and the Rete
+ * networks and table spaces of its contexts. Many knowledge bases can live in
+ * one process.
+ * The static API of Network, Controller, SemanticHierarchy, AP and Runner
+ * works on the knowledge base the current thread entered, or on the default
+ * one if it entered none. Every knowledge base holds its own state, with its
+ * own locks, so threads working on different knowledge bases run in parallel
+ * and a thread never sees the state of a knowledge base it did not enter.
+ * The relations, case frames and semantic types created by defineDefaults are
+ * kept in static fields shared by the knowledge bases; those of the different
+ * knowledge bases are equal since they have the same names.
+ */
+public class KnowledgeBase {
+
+	private static final KnowledgeBase defaultKnowledgeBase = new KnowledgeBase();
+
+	/**
+	 * The knowledge base every thread entered, unset for the threads working on
+	 * the default one.
+	 */
+	private static final ThreadLocal<KnowledgeBase> entered = new ThreadLocal<KnowledgeBase>();
+
+	/**
+	 * Whether a knowledge base was ever entered. Until one is, every thread
+	 * works on the default knowledge base without looking up the one it
+	 * entered.
+	 */
+	private static volatile boolean anyEntered;
+
+	final Network.State network = new Network.State();
+	private final SemanticHierarchy.State semanticHierarchy = new SemanticHierarchy.State();
+	private final MatchIndex.State matchIndex = new MatchIndex.State();
+	private final Controller.State contexts = new Controller.State();
+	private final AP.State snepslog = new AP.State();
+	private final Runner.State runner = new Runner.State();
+	private final Hashtable<String, ReteNetwork> reteNetworks = new Hashtable<String, ReteNetwork>();
+	private final Hashtable<String, TableSpace> tableSpaces = new Hashtable<String, TableSpace>();
+
+	/**
+	 * Creates an empty knowledge base, with no relations, case frames or
+	 * semantic types defined, and only the default context.
+	 */
+	public KnowledgeBase() {
+	}
+
+	/**
+	 * @return the knowledge base the static API works on when no other one is
+	 *         entered.
+	 */
+	public static KnowledgeBase getDefault() {
+		return defaultKnowledgeBase;
+	}
+
+	/**
+	 * @return the knowledge base the static API works on in the current thread.
+	 */
+	public static KnowledgeBase getActive() {
+		if (!anyEntered)
+			return defaultKnowledgeBase;
+		KnowledgeBase kb = entered.get();
+		return kb == null ? defaultKnowledgeBase : kb;
+	}
+
+	/**
+	 * Makes the current thread work on this knowledge base until exit is
+	 * called. Other threads are not affected, and knowledge bases can be
+	 * entered inside each other.
+	 *
+	 * @return the knowledge base the thread worked on, to be given to exit.
+	 */
+	public KnowledgeBase enter() {
+		KnowledgeBase previous = getActive();
+		anyEntered = true;
+		entered.set(this);
+		return previous;
+	}
+
+	/**
+	 * Makes the current thread leave this knowledge base.
+	 *
+	 * @param previous
+	 *            the knowledge base returned by enter.
+	 */
+	public void exit(KnowledgeBase previous) {
+		if (previous == defaultKnowledgeBase)
+			entered.remove();
+		else
+			entered.set(previous);
+	}
+
+	/**
+	 * Runs some code working on this knowledge base.
+	 *
+	 * @param task
+	 *            the code.
+	 *
+	 * @return the result of the code.
+	 */
+	public <T> T run(Supplier<T> task) {
+		KnowledgeBase previous = enter();
+		try {
+			return task.get();
+		} finally {
+			exit(previous);
+		}
+	}
+
+	public SemanticHierarchy.State getSemanticHierarchy() {
+		return semanticHierarchy;
+	}
+
+	public MatchIndex.State getMatchIndex() {
+		return matchIndex;
+	}
+
+	public Controller.State getContexts() {
+		return contexts;
+	}
+
+	public AP.State getSnepslog() {
+		return snepslog;
+	}
+
+	public Runner.State getRunner() {
+		return runner;
+	}
+
+	public Hashtable<String, ReteNetwork> getReteNetworks() {
+		return reteNetworks;
+	}
+
+	public Hashtable<String, TableSpace> getTableSpaces() {
+		return tableSpaces;
+	}
+
+}
@@ -0,0 +1,134 @@
+package sneps.network;
+
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * This class generates the names of the nodes of some kind: a prefix followed
+ * by an integer suffix, as in "M1", "P1" and "V1" for closed, pattern and
+ * variable nodes. The suffixes of the names the users give to base nodes that
+ * have the same form are reserved so that they are not generated.
+ * The suffix generated last only grows, and the reserved suffixes are kept in
+ * a bitmap, so every reserved suffix is skipped at most once and a name is
+ * generated in amortized constant time.
+ */
+public class NameAllocator implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The reserved suffixes further than this above the last generated one are
+	 * kept in a hash set rather than in the bitmap, so that a name like
+	 * "M1000000000" does not make the bitmap grow to match.
+	 */
+	private static final int window = 1 << 16;
+
+	private final String prefix;
+
+	/**
+	 * The suffix generated last, or 0 if no name was generated.
+	 */
+	private int last;
+
+	private final BitSet reserved = new BitSet();
+	private final HashSet<Integer> far = new HashSet<Integer>();
+
+	/**
+	 * @param prefix
+	 *            the prefix of the names generated.
+	 */
+	public NameAllocator(String prefix) {
+		this.prefix = prefix;
+	}
+
+	/**
+	 * Creates an allocator from the suffix generated last and the list of the
+	 * reserved suffixes, the form in which they used to be saved.
+	 */
+	static NameAllocator fromSuffixes(String prefix, int last, Collection<Integer> suffixes) {
+		NameAllocator allocator = new NameAllocator(prefix);
+		allocator.last = last;
+		for (Integer suffix : suffixes)
+			allocator.reserve(suffix);
+		return allocator;
+	}
+
+	/**
+	 * @return a new name, whose suffix is the smallest suffix above the last
+	 *         generated one that is not reserved.
+	 */
+	public String next() {
+		int suffix = last + 1;
+		while (true) {
+			suffix = reserved.nextClearBit(suffix);
+			if (far.isEmpty() || !far.contains(suffix))
+				break;
+			suffix++;
+		}
+		last = suffix;
+		return prefix + suffix;
+	}
+
+	/**
+	 * Reserves a suffix so that it is not generated.
+	 *
+	 * @param suffix
+	 *            the suffix of a name given by the user.
+	 *
+	 * @return true if the suffix was not already reserved.
+	 */
+	public boolean reserve(int suffix) {
+		if (suffix < 0 || isReserved(suffix))
+			return false;
+		if (suffix - last < window)
+			reserved.set(suffix);
+		else
+			far.add(suffix);
+		return true;
+	}
+
+	/**
+	 * Frees a reserved suffix, e.g. when the node named by the user is rolled
+	 * back.
+	 */
+	public void release(int suffix) {
+		if (suffix < 0)
+			return;
+		reserved.clear(suffix);
+		far.remove(suffix);
+	}
+
+	public boolean isReserved(int suffix) {
+		return reserved.get(suffix) || (!far.isEmpty() && far.contains(suffix));
+	}
+
+	/**
+	 * @return the suffix generated last, or 0 if no name was generated.
+	 */
+	public int getLast() {
+		return last;
+	}
+
+	/**
+	 * Makes the allocator generate the names following a given suffix again.
+	 */
+	public void setLast(int last) {
+		this.last = last;
+	}
+
+	/**
+	 * @return the number of the reserved suffixes.
+	 */
+	public int getReservedCount() {
+		return reserved.cardinality() + far.size();
+	}
+
+	public void clear() {
+		last = 0;
+		reserved.clear();
+		far.clear();
+	}
+
+}
@@ -8,11 +8,21 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
 
 import sneps.exceptions.*;
 import sneps.network.cables.Cable;
@@ -42,6 +52,12 @@ import sneps.network.paths.FUnitPath;
 import sneps.network.paths.Path;
 import sneps.snebr.Context;
 import sneps.snebr.Controller;
+import sneps.snebr.ControllerState;
+import sneps.snip.Pair;
+import sneps.snip.Report;
+import sneps.snip.matching.MatchIndex;
+import sneps.snip.matching.Matcher;
+import sneps.snip.rete.ReteNetwork;
 import sneps.snip.rules.AndEntailment;
 import sneps.snip.rules.AndOrNode;
 import sneps.snip.rules.DoIfNode;
@@ -49,98 +65,391 @@ import sneps.snip.rules.NumericalEntailment;
 import sneps.snip.rules.OrNode;
 import sneps.snip.rules.ThreshNode;
 import sneps.snip.rules.WhenDoNode;
+import sneps.snip.tabling.TableSpace;
 
 public class Network implements Serializable {
 
 	private static ArrayList<String> savedNetworks = new ArrayList<String>();
 
-	/*
-	 * A hash table that stores all the nodes defined(available) in the network.
-	 * Each entry is a 2-tuple having the name of the node as the key and the
-	 * corresponding node object as the value.
-	 */
-	private static Hashtable<String, Node> nodes = new Hashtable<String, Node>();
+	/**
+	 * The network of a knowledge base. Every knowledge base has its own, with
+	 * its own lock, so threads working on different knowledge bases do not wait
+	 * for each other. A new State is an empty network.
+	 */
+	static class State {
+
+		/*
+		 * A hash table that stores all the nodes defined(available) in the network.
+		 * Each entry is a 2-tuple having the name of the node as the key and the
+		 * corresponding node object as the value.
+		 */
+		Hashtable<String, Node> nodes = new Hashtable<String, Node>();
+
+		/*
+		 * A hash table that stores all the proposition nodes defined(available) in the
+		 * network. Each entry is a 2-tuple having the name of the node as the key and
+		 * the corresponding proposition node object as the value.
+		 */
+		Hashtable<String, PropositionNode> propositionNodes = new Hashtable<String, PropositionNode>();
+
+		/**
+		 * an array list that stores all the nodes defined in the network. Each node is
+		 * stored in the array list at the position corresponding to its ID.
+		 */
+		ArrayList<Node> nodesIndex = new ArrayList<Node>();
+
+		/**
+		 * A has hash table that contains all the molecular nodes defined in the network
+		 * along with their case frames. Each entry is a 2-tuple having the string id of
+		 * the case frame as the key and a node set containing the nodes that implement
+		 * this case frame as the value.
+		 */
+		Hashtable<String, NodeSet> molecularNodes = new Hashtable<String, NodeSet>();
+
+		/**
+		 * A hash table that stores all the case frames defined in the network. Each
+		 * entry is a 2-tuple having the string id of the case frame as the key and the
+		 * corresponding case frame object as the value.
+		 */
+		Hashtable<String, CaseFrame> caseFrames = new Hashtable<String, CaseFrame>();
+
+		/**
+		 * A hash table that stores all the relations defined in the network. Each entry
+		 * is a 2-tuple having the name of the relation as the key and the corresponding
+		 * relation object as the value.
+		 */
+		Hashtable<String, Relation> relations = new Hashtable<String, Relation>();
+
+		/**
+		 * The allocator of the identifiers of the closed nodes "Mi", which skips the
+		 * suffixes of the user-defined base node identifiers that have the same form.
+		 */
+		NameAllocator molNames = new NameAllocator("M");
+
+		/**
+		 * The allocator of the identifiers of the pattern nodes "Pi", which skips the
+		 * suffixes of the user-defined base node identifiers that have the same form.
+		 */
+		NameAllocator patNames = new NameAllocator("P");
+
+		/**
+		 * The allocator of the identifiers of the variable nodes "Vi", which skips the
+		 * suffixes of the user-defined base node identifiers that have the same form.
+		 */
+		NameAllocator varNames = new NameAllocator("V");
+
+		/**
+		 * The innermost open transaction, or null if there is none. A transaction
+		 * holds the lock of the network for writing from the time the outermost
+		 * transaction begins until it is committed or rolled back, so only the thread
+		 * that began it builds nodes while it is open. The nodes built while a
+		 * transaction is open are added to the nodes hash table and to the up cables
+		 * of the nodes they dominate right away, but are only added to the
+		 * propositionNodes hash table and to the molecular indexes when the outermost
+		 * transaction is committed.
+		 */
+		NetworkTransaction transaction;
+
+		/**
+		 * The lock guarding the network. Building, removing and defining take it for
+		 * writing. Lookups and path following read optimistically without taking it,
+		 * and only take it for reading if a write happened while they were reading.
+		 * Inside a snapshot they never take it. The thread holding the lock for
+		 * writing can take it again and read without it.
+		 */
+		final StampedLock lock = new StampedLock();
+		volatile Thread writer;
+
+		/**
+		 * The version of the network, bumped by every write, and the version the
+		 * write in progress publishes when it releases the lock.
+		 */
+		volatile long version;
+		long writing;
+
+		/**
+		 * The versions the open snapshots are pinned at, with the number of
+		 * snapshots pinned at each of them.
+		 */
+		final TreeMap<Long, Integer> pins = new TreeMap<Long, Integer>();
+
+		/**
+		 * The nodes removed from the network that open snapshots may still see, by
+		 * their identifiers. They are kept in the nodes index, in the molecular
+		 * indexes and in the up cables of the nodes they dominate until no such
+		 * snapshot is open.
+		 */
+		Hashtable<String, ArrayList<Node>> removedNodes = new Hashtable<String, ArrayList<Node>>();
+
+		/**
+		 * The number of nodes built, which is the id given to the next node.
+		 */
+		int nodeCount;
+	}
 
-	/*
-	 * A hash table that stores all the proposition nodes defined(available) in the
-	 * network. Each entry is a 2-tuple having the name of the node as the key and
-	 * the corresponding proposition node object as the value.
+	/**
+	 * @return the network of the knowledge base the current thread works on.
 	 */
-	private static Hashtable<String, PropositionNode> propositionNodes = new Hashtable<String, PropositionNode>();
+	static State state() {
+		return KnowledgeBase.getActive().network;
+	}
 
 	/**
-	 * an array list that stores all the nodes defined in the network. Each node is
-	 * stored in the array list at the position corresponding to its ID.
+	 * This method takes the lock of the network for writing, waiting for the
+	 * readers holding it to release it.
+	 *
+	 * @return the stamp to be given to unlockWrite, or 0 if the current thread
+	 *         already holds the lock.
 	 */
-	private static ArrayList<Node> nodesIndex = new ArrayList<Node>();
+	private static long lockWrite() {
+		State s = state();
+		if (s.writer == Thread.currentThread())
+			return 0L;
+		return lockedWrite(s, s.lock.writeLock());
+	}
+
+	private static long lockedWrite(State s, long stamp) {
+		s.writer = Thread.currentThread();
+		s.writing = s.version + 1;
+		return stamp;
+	}
+
+	private static void unlockWrite(long stamp) {
+		if (stamp == 0L)
+			return;
+		State s = state();
+		s.version = s.writing;
+		reclaim();
+		s.writer = null;
+		s.lock.unlockWrite(stamp);
+	}
 
 	/**
-	 * A has hash table that contains all the molecular nodes defined in the network
-	 * along with their case frames. Each entry is a 2-tuple having the string id of
-	 * the case frame as the key and a node set containing the nodes that implement
-	 * this case frame as the value.
-	 */
-	private static Hashtable<String, NodeSet> molecularNodes = new Hashtable<String, NodeSet>();
+	 * This method reads the network without blocking the writers. The reader is
+	 * run without the lock first, and run again holding the lock for reading if
+	 * a writer took the lock while it was running. Readers must not change the
+	 * network, and should not have effects beyond computing their result since
+	 * they may be run twice.
+	 * Inside a snapshot the reader never takes the lock, so it does not wait for
+	 * a writer or for an open transaction: the nodes it sees were all published
+	 * before the snapshot was pinned, and the ones built or removed since are
+	 * told apart by their versions. It is only run again if it trips over a
+	 * collection a writer is changing.
+	 *
+	 * @param reader
+	 *            the code reading the network.
+	 *
+	 * @return the result of the reader.
+	 */
+	public static <T> T read(Supplier<T> reader) {
+		State s = state();
+		if (s.writer == Thread.currentThread())
+			return reader.get();
+		NetworkSnapshot snapshot = NetworkSnapshot.current();
+		if (snapshot != null && snapshot.getKnowledgeBase() == KnowledgeBase.getActive())
+			while (true)
+				try {
+					return reader.get();
+				} catch (ConcurrentModificationException | IndexOutOfBoundsException e) {
+					// a writer changed a collection the reader was walking
+				}
+		long stamp = s.lock.tryOptimisticRead();
+		if (stamp != 0L) {
+			try {
+				T result = reader.get();
+				if (s.lock.validate(stamp))
+					return result;
+			} catch (RuntimeException e) {
+				if (s.lock.validate(stamp))
+					throw e;
+			}
+		}
+		stamp = s.lock.readLock();
+		try {
+			return reader.get();
+		} finally {
+			s.lock.unlockRead(stamp);
+		}
+	}
 
 	/**
-	 * A hash table that stores all the case frames defined in the network. Each
-	 * entry is a 2-tuple having the string id of the case frame as the key and the
-	 * corresponding case frame object as the value.
+	 * @return the version of the network, bumped by every write.
 	 */
-	private static Hashtable<String, CaseFrame> caseFrames = new Hashtable<String, CaseFrame>();
+	public static long getVersion() {
+		return state().version;
+	}
 
 	/**
-	 * A hash table that stores all the relations defined in the network. Each entry
-	 * is a 2-tuple having the name of the relation as the key and the corresponding
-	 * relation object as the value.
+	 * This method pins a snapshot of the network and of the contexts at the
+	 * current version. Pinning does not wait for the writers.
+	 *
+	 * @return the snapshot, to be closed once the query reading it is done.
 	 */
-	private static Hashtable<String, Relation> relations = new Hashtable<String, Relation>();
+	public static NetworkSnapshot pinSnapshot() {
+		ControllerState controllerState = Controller.saveState();
+		State s = state();
+		synchronized (s.pins) {
+			long pinned = s.version;
+			Integer count = s.pins.get(pinned);
+			s.pins.put(pinned, count == null ? 1 : count + 1);
+			return new NetworkSnapshot(KnowledgeBase.getActive(), pinned, controllerState);
+		}
+	}
 
 	/**
-	 * A counter used for generating the integer suffix that should be appended to
-	 * the identifier of the next closed node that will be defined in the network.
-	 */
-	private static int molCounter = 0;
+	 * This method unpins a snapshot, and takes the removed nodes no open snapshot
+	 * sees out of the network if the lock is free. Otherwise it does not wait for
+	 * the lock, and the next writer does it when it releases the lock. It is
+	 * called inside the knowledge base the snapshot was pinned in.
+	 */
+	static void unpin(NetworkSnapshot snapshot) {
+		State s = state();
+		synchronized (s.pins) {
+			int count = s.pins.get(snapshot.getVersion());
+			if (count == 1)
+				s.pins.remove(snapshot.getVersion());
+			else
+				s.pins.put(snapshot.getVersion(), count - 1);
+		}
+		if (s.writer == Thread.currentThread())
+			return;
+		long stamp = s.lock.tryWriteLock();
+		// unlockWrite reclaims the removed nodes
+		if (stamp != 0L)
+			unlockWrite(lockedWrite(s, stamp));
+	}
 
 	/**
-	 * A counter used for generating the integer suffix that should be appended to
-	 * the identifier of the next pattern node that will be defined in the network.
+	 * This method checks whether a node is in the network as seen by the current
+	 * thread: the snapshot it entered if any, or else the current network.
+	 *
+	 * @param node
+	 *            a node.
+	 *
+	 * @return true if the node is seen.
 	 */
-	private static int patternCounter = 0;
+	public static boolean isVisible(Node node) {
+		NetworkSnapshot snapshot = NetworkSnapshot.current();
+		if (snapshot == null || state().writer == Thread.currentThread())
+			return !node.isRemoved();
+		return snapshot.isVisible(node);
+	}
 
 	/**
-	 * A counter used for generating the integer suffix that should be appended to
-	 * the identifier of the next variable node that will be defined in the network.
-	 */
-	private static int varCounter = 0;
+	 * This method takes the removed nodes that no open snapshot sees out of the
+	 * nodes index, the molecular indexes and the up cables of the nodes they
+	 * dominate. It is called holding the lock for writing.
+	 */
+	private static void reclaim() {
+		State s = state();
+		if (s.removedNodes.isEmpty())
+			return;
+		long oldest;
+		synchronized (s.pins) {
+			oldest = s.pins.isEmpty() ? Long.MAX_VALUE : s.pins.firstKey();
+		}
+		ArrayList<Node> reclaimed = new ArrayList<Node>();
+		Iterator<ArrayList<Node>> named = s.removedNodes.values().iterator();
+		while (named.hasNext()) {
+			ArrayList<Node> sameIdentifier = named.next();
+			Iterator<Node> removed = sameIdentifier.iterator();
+			while (removed.hasNext()) {
+				Node node = removed.next();
+				if (node.getRemovedVersion() > oldest)
+					continue;
+				removed.remove();
+				if (node.getId() < s.nodesIndex.size() && s.nodesIndex.get(node.getId()) == node)
+					s.nodesIndex.set(node.getId(), null);
+				reclaimed.add(node);
+			}
+			if (sameIdentifier.isEmpty())
+				named.remove();
+		}
+		unlink(reclaimed);
+	}
 
 	/**
-	 * a linked list of integers that contains the integer suffix of the
-	 * user-defined base node identifiers that have the same form as the closed
-	 * nodes' identifiers.
+	 * This method keeps a removed node for the open snapshots that may still see
+	 * it. It is called holding the lock for writing.
 	 */
-	private static LinkedList<Integer> userDefinedMolSuffix = new LinkedList<Integer>();
+	private static void addRemoved(Node node) {
+		ArrayList<Node> sameIdentifier = state().removedNodes.get(node.getIdentifier());
+		if (sameIdentifier == null) {
+			sameIdentifier = new ArrayList<Node>(1);
+			state().removedNodes.put(node.getIdentifier(), sameIdentifier);
+		}
+		sameIdentifier.add(node);
+	}
 
 	/**
-	 * a linked list of integers that contains the integer suffix of the
-	 * user-defined base node identifiers that have the same form as the pattern
-	 * nodes' identifiers.
+	 * This method copies the nodes of a node set of the network, e.g. of an up
+	 * cable, holding the lock for reading if a writer changed the network while
+	 * they were being copied. The copy can be walked while the node set is
+	 * changed.
+	 *
+	 * @param nodeSet
+	 *            the node set.
+	 *
+	 * @return the nodes of the node set.
 	 */
-	private static LinkedList<Integer> userDefinedPatSuffix = new LinkedList<Integer>();
+	public static ArrayList<Node> copyOf(NodeSet nodeSet) {
+		return read(() -> {
+			ArrayList<Node> copy = new ArrayList<Node>(nodeSet.size());
+			for (Node node : nodeSet)
+				copy.add(node);
+			return copy;
+		});
+	}
 
 	/**
-	 * a linked list of integers that contains the integer suffix of the
-	 * user-defined base node identifiers that have the same form as the variable
-	 * nodes' identifiers.
-	 */
-	private static LinkedList<Integer> userDefinedVarSuffix = new LinkedList<Integer>();
+	 * This method takes molecular nodes out of the up cables of the nodes they
+	 * dominate, out of the molecular indexes and out of the match index. Every
+	 * up cable and every node set of the molecular indexes is filtered once
+	 * however many of the nodes it holds are taken out.
+	 *
+	 * @param unlinked
+	 *            the nodes, the ones that are not molecular are ignored.
+	 */
+	private static void unlink(Collection<Node> unlinked) {
+		Set<Node> molecular = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+		for (Node node : unlinked)
+			if (node.getTerm() instanceof Molecular)
+				molecular.add(node);
+		if (molecular.isEmpty())
+			return;
+		Set<Node> children = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+		Set<NodeSet> implementing = Collections.newSetFromMap(new IdentityHashMap<NodeSet, Boolean>());
+		for (Node node : molecular) {
+			DownCableSet downCables = ((Molecular) node.getTerm()).getDownCableSet();
+			for (DownCable downCable : downCables.getDownCables().values())
+				for (Node child : downCable.getNodeSet())
+					if (!molecular.contains(child))
+						children.add(child);
+			NodeSet sameCaseFrame = state().molecularNodes.get(downCables.getCaseFrame().getId());
+			if (sameCaseFrame != null)
+				implementing.add(sameCaseFrame);
+			MatchIndex.removeNode(node);
+		}
+		for (Node child : children) {
+			ArrayList<UpCable> emptied = new ArrayList<UpCable>();
+			for (UpCable upCable : child.getUpCableSet().getUpCables().values()) {
+				upCable.getNodeSet().removeAll(molecular);
+				if (upCable.getNodeSet().isEmpty())
+					emptied.add(upCable);
+			}
+			for (UpCable upCable : emptied)
+				child.getUpCableSet().removeUpCable(upCable);
+		}
+		for (NodeSet sameCaseFrame : implementing)
+			sameCaseFrame.removeAll(molecular);
+	}
 
 	/**
 	 *
 	 * @return the hash table that stores the nodes defined in the network.
 	 */
 	public static Hashtable<String, Node> getNodes() {
-		return nodes;
+		return state().nodes;
 	}
 
 	/**
@@ -151,7 +460,7 @@ public class Network implements Serializable {
 	 *         network.
 	 */
 	public static Hashtable<String, PropositionNode> getPropositionNodes() {
-		return propositionNodes;
+		return state().propositionNodes;
 	}
 
 	/**
@@ -159,7 +468,28 @@ public class Network implements Serializable {
 	 * @return the array list that stores the nodes defined in the network.
 	 */
 	public static ArrayList<Node> getNodesWithIDs() {
-		return nodesIndex;
+		return state().nodesIndex;
+	}
+
+	/**
+	 * This method returns the nodes whose semantic type is a given type or one of
+	 * its descendants. Every node is checked by a single lookup in the compiled
+	 * semantic hierarchy.
+	 *
+	 * @param type
+	 *            the name of the semantic type.
+	 *
+	 * @return a NodeSet of the nodes of the type or below it.
+	 */
+	public static NodeSet getNodesOfType(String type) {
+		return read(() -> {
+			NodeSet result = new NodeSet();
+			for (Node node : state().nodesIndex)
+				if (node != null && isVisible(node) && node.getSemantic() != null
+						&& node.getSemantic().isSubtypeOf(type))
+					result.addNode(node);
+			return result;
+		});
 	}
 
 	/**
@@ -168,7 +498,7 @@ public class Network implements Serializable {
 	 *         frames.
 	 */
 	public static Hashtable<String, NodeSet> getMolecularNodes() {
-		return molecularNodes;
+		return state().molecularNodes;
 	}
 
 	/**
@@ -176,7 +506,7 @@ public class Network implements Serializable {
 	 * @return the hash table that stores the case frames defined in the network.
 	 */
 	public static Hashtable<String, CaseFrame> getCaseFrames() {
-		return caseFrames;
+		return state().caseFrames;
 	}
 
 	/**
@@ -184,34 +514,31 @@ public class Network implements Serializable {
 	 * @return the hash table that stores the relations defined in the network.
 	 */
 	public static Hashtable<String, Relation> getRelations() {
-		return relations;
+		return state().relations;
 	}
 
 	/**
 	 *
-	 * @return the linked list of the suffix of the user-defined closed nodes'
-	 *         identifiers.
+	 * @return the allocator of the closed nodes' identifiers.
 	 */
-	public static LinkedList<Integer> getUserDefinedMolSuffix() {
-		return userDefinedMolSuffix;
+	public static NameAllocator getMolNames() {
+		return state().molNames;
 	}
 
 	/**
 	 *
-	 * @return the linked list of the suffix of the user-defined pattern nodes'
-	 *         identifiers.
+	 * @return the allocator of the pattern nodes' identifiers.
 	 */
-	public static LinkedList<Integer> getUserDefinedPatSuffix() {
-		return userDefinedPatSuffix;
+	public static NameAllocator getPatNames() {
+		return state().patNames;
 	}
 
 	/**
 	 *
-	 * @return the linked list of the suffix of the user-defined variable nodes'
-	 *         identifiers.
+	 * @return the allocator of the variable nodes' identifiers.
 	 */
-	public static LinkedList<Integer> getUserDefinedVarSuffix() {
-		return userDefinedVarSuffix;
+	public static NameAllocator getVarNames() {
+		return state().varNames;
 	}
 
 	/**
@@ -224,8 +551,8 @@ public class Network implements Serializable {
 	 *             if the requested relation does not exist.
 	 */
 	public static Relation getRelation(String name) throws RelationDoesntExistException {
-		if (relations.containsKey(name)) {
-			return relations.get(name);
+		if (state().relations.containsKey(name)) {
+			return state().relations.get(name);
 		} else {
 			throw new RelationDoesntExistException("There is no relation with the following name: " + name);
 		}
@@ -242,8 +569,8 @@ public class Network implements Serializable {
 	 *             if the requested frame does not exist.
 	 */
 	public static CaseFrame getCaseFrame(String id) throws CaseFrameWithSetOfRelationsNotFoundException {
-		if (caseFrames.containsKey(id)) {
-			return caseFrames.get(id);
+		if (state().caseFrames.containsKey(id)) {
+			return state().caseFrames.get(id);
 		} else {
 			throw new CaseFrameWithSetOfRelationsNotFoundException(
 					"There is no case frame defined with such set of relations");
@@ -261,16 +588,32 @@ public class Network implements Serializable {
 	 *             if the requested node does not exist.
 	 */
 	public static Node getNode(String identifier) throws NodeNotFoundInNetworkException {
-		if (nodes.containsKey(identifier)) {
-			return nodes.get(identifier);
+		Node node = read(() -> {
+			Node n = state().nodes.get(identifier);
+			if (n != null && isVisible(n))
+				return n;
+			// a snapshot may still see a node removed since it was pinned
+			ArrayList<Node> sameIdentifier = state().removedNodes.get(identifier);
+			if (NetworkSnapshot.current() != null && sameIdentifier != null)
+				for (Node removed : sameIdentifier)
+					if (isVisible(removed))
+						return removed;
+			return null;
+		});
+		if (node != null) {
+			return node;
 		} else {
 			throw new NodeNotFoundInNetworkException("There is no node named '" + identifier + "' in the network");
 		}
 	}
 
 	public static Node getNodeById(int id) throws NodeNotFoundInNetworkException {
-		if (nodesIndex.get(id) != null) {
-			return nodesIndex.get(id);
+		Node node = read(() -> {
+			Node n = state().nodesIndex.get(id);
+			return n != null && isVisible(n) ? n : null;
+		});
+		if (node != null) {
+			return node;
 		} else {
 			throw new NodeNotFoundInNetworkException("There is no node named '" + id + "' in the network");
 		}
@@ -297,25 +640,39 @@ public class Network implements Serializable {
 	 *             in the network.
 	 */
 	public static Relation defineRelation(String name, String type, String adjust, int limit) {
-		if (relations.containsKey(name)) {
-			return relations.get(name);
-			// throw new CustomException("The relation named " + name +
-			// " is already defined in the network");
-		} else {
-			relations.put(name, new Relation(name, type, adjust, limit));
+		long stamp = lockWrite();
+		try {
+			if (state().relations.containsKey(name)) {
+				return state().relations.get(name);
+				// throw new CustomException("The relation named " + name +
+				// " is already defined in the network");
+			} else {
+				state().relations.put(name, new Relation(name, type, adjust, limit));
+				if (state().transaction != null)
+					state().transaction.relations.add(name);
+			}
+			return state().relations.get(name);
+		} finally {
+			unlockWrite(stamp);
 		}
-		return relations.get(name);
 	}
 
 	public static Relation defineRelation(String name, String type) {
-		if (relations.containsKey(name)) {
-			return relations.get(name);
-			// throw new CustomException("The relation named " + name +
-			// " is already defined in the network");
-		} else {
-			relations.put(name, new Relation(name, type));
+		long stamp = lockWrite();
+		try {
+			if (state().relations.containsKey(name)) {
+				return state().relations.get(name);
+				// throw new CustomException("The relation named " + name +
+				// " is already defined in the network");
+			} else {
+				state().relations.put(name, new Relation(name, type));
+				if (state().transaction != null)
+					state().transaction.relations.add(name);
+			}
+			return state().relations.get(name);
+		} finally {
+			unlockWrite(stamp);
 		}
-		return relations.get(name);
 	}
 
 	/**
@@ -328,21 +685,26 @@ public class Network implements Serializable {
 	 *             that contains it cannot be removed.
 	 */
 	public static void undefineRelation(String name) throws CaseFrameCannotBeRemovedException {
-		Relation r = relations.get(name);
-
-		// removing the case frames that have this relation before removing the
-		// relation.
-		for (Enumeration<CaseFrame> e = caseFrames.elements(); e.hasMoreElements();) {
-			CaseFrame cf = e.nextElement();
-			for (int i = 0; i < cf.getRelations().size(); i++) {
-				if (cf.getRelations().get(i).equals(r)) {
-					undefineCaseFrame(cf.getId());
+		long stamp = lockWrite();
+		try {
+			Relation r = state().relations.get(name);
+
+			// removing the case frames that have this relation before removing the
+			// relation.
+			for (Enumeration<CaseFrame> e = state().caseFrames.elements(); e.hasMoreElements();) {
+				CaseFrame cf = e.nextElement();
+				for (int i = 0; i < cf.getRelations().size(); i++) {
+					if (cf.getRelations().get(i).equals(r)) {
+						undefineCaseFrame(cf.getId());
+					}
 				}
 			}
-		}
 
-		// removing the relation
-		relations.remove(name);
+			// removing the relation
+			state().relations.remove(name);
+		} finally {
+			unlockWrite(stamp);
+		}
 	}
 
 	// Assume the LinkedList<RCFP> is formulated in UI
@@ -360,30 +722,44 @@ public class Network implements Serializable {
 	 */
 	public static RelationsRestrictedCaseFrame defineCaseFrameWithConstraints(String semanticType,
 			LinkedList<RCFP> relationSet) {
-		RelationsRestrictedCaseFrame caseFrame = new RelationsRestrictedCaseFrame(semanticType, relationSet);
-		if (caseFrames.containsKey(caseFrame.getId())) {
-			return (RelationsRestrictedCaseFrame) caseFrames.get(caseFrame.getId());
-		} else {
-			caseFrames.put(caseFrame.getId(), caseFrame);
-			// this to avoid non perfect hashing
-			if (!molecularNodes.containsKey(caseFrame.getId()))
-				molecularNodes.put(caseFrame.getId(), new NodeSet());
+		long stamp = lockWrite();
+		try {
+			RelationsRestrictedCaseFrame caseFrame = new RelationsRestrictedCaseFrame(semanticType, relationSet);
+			if (state().caseFrames.containsKey(caseFrame.getId())) {
+				return (RelationsRestrictedCaseFrame) state().caseFrames.get(caseFrame.getId());
+			} else {
+				state().caseFrames.put(caseFrame.getId(), caseFrame);
+				if (state().transaction != null)
+					state().transaction.caseFrames.add(caseFrame.getId());
+				// this to avoid non perfect hashing
+				if (!state().molecularNodes.containsKey(caseFrame.getId()))
+					state().molecularNodes.put(caseFrame.getId(), new NodeSet());
+			}
+			return (RelationsRestrictedCaseFrame) state().caseFrames.get(caseFrame.getId());
+		} finally {
+			unlockWrite(stamp);
 		}
-		return (RelationsRestrictedCaseFrame) caseFrames.get(caseFrame.getId());
 	}
 
 	public static CaseFrame defineCaseFrame(String semanticType, LinkedList<Relation> relationSet) {
-		CaseFrame caseFrame = new CaseFrame(semanticType, relationSet);
-		if (caseFrames.containsKey(caseFrame.getId())) {
-			return caseFrames.get(caseFrame.getId());
+		long stamp = lockWrite();
+		try {
+			CaseFrame caseFrame = new CaseFrame(semanticType, relationSet);
+			if (state().caseFrames.containsKey(caseFrame.getId())) {
+				return state().caseFrames.get(caseFrame.getId());
 
-		} else {
-			caseFrames.put(caseFrame.getId(), caseFrame);
-			// this to avoid non perfect hashing
-			if (!molecularNodes.containsKey(caseFrame.getId()))
-				molecularNodes.put(caseFrame.getId(), new NodeSet());
+			} else {
+				state().caseFrames.put(caseFrame.getId(), caseFrame);
+				if (state().transaction != null)
+					state().transaction.caseFrames.add(caseFrame.getId());
+				// this to avoid non perfect hashing
+				if (!state().molecularNodes.containsKey(caseFrame.getId()))
+					state().molecularNodes.put(caseFrame.getId(), new NodeSet());
+			}
+			return state().caseFrames.get(caseFrame.getId());
+		} finally {
+			unlockWrite(stamp);
 		}
-		return caseFrames.get(caseFrame.getId());
 	}
 
 	/**
@@ -398,14 +774,19 @@ public class Network implements Serializable {
 	 *             first.
 	 */
 	public static void undefineCaseFrame(String id) throws CaseFrameCannotBeRemovedException {
-		// first check if there are nodes implementing this case frame .. they
-		// must be removed first
-		if (molecularNodes.get(id).isEmpty()) {
-			caseFrames.remove(id);
-			molecularNodes.remove(id);
-		} else {
-			throw new CaseFrameCannotBeRemovedException(
-					"Case frame can not be removed .. " + "remove the nodes implementing this case frame first");
+		long stamp = lockWrite();
+		try {
+			// first check if there are nodes implementing this case frame .. they
+			// must be removed first
+			if (state().molecularNodes.get(id).isEmpty()) {
+				state().caseFrames.remove(id);
+				state().molecularNodes.remove(id);
+			} else {
+				throw new CaseFrameCannotBeRemovedException(
+						"Case frame can not be removed .. " + "remove the nodes implementing this case frame first");
+			}
+		} finally {
+			unlockWrite(stamp);
 		}
 	}
 
@@ -418,7 +799,12 @@ public class Network implements Serializable {
 	 *            the path that will be defined for the given relation.
 	 */
 	public static void definePath(Relation relation, Path path) {
-		relation.setPath(path);
+		long stamp = lockWrite();
+		try {
+			relation.setPath(path);
+		} finally {
+			unlockWrite(stamp);
+		}
 	}
 
 	/**
@@ -428,7 +814,12 @@ public class Network implements Serializable {
 	 *            the relation that its path will be removed.
 	 */
 	public static void undefinePath(Relation relation) {
-		relation.setPath(null);
+		long stamp = lockWrite();
+		try {
+			relation.setPath(null);
+		} finally {
+			unlockWrite(stamp);
+		}
 	}
 
 	/**
@@ -442,48 +833,255 @@ public class Network implements Serializable {
 	 *             if the node cannot be removed because it is not isolated.
 	 */
 	public static void removeNode(Node node) throws NodeCannotBeRemovedException, NodeNotFoundInPropSetException, NotAPropositionNodeException, NodeNotFoundInNetworkException {
-		// check if the node is not isolated
-		if (!node.getUpCableSet().isEmpty()) {
-			throw new NodeCannotBeRemovedException(
-					"Cannot remove the node named '" + node.getIdentifier() + "' because it is not isolated");
-		}
-
-		// if the node is isolated:
-
-		// removing the node from the hash table
-		nodes.remove(node.getIdentifier());
-		// nullify entry of the removed node in the array list
-		nodesIndex.set(node.getId(), null);
-
-		// remove node from all contexts
-		Controller.removePropositionFromAllContexts((PropositionNode) node);
-		// removing child nodes that are dominated by the removed node and has
-		// no other parents
-		if (node.getTerm().getClass().getSuperclass().getSimpleName().equals("Molecular")) {
-			Molecular m = (Molecular) node.getTerm();
-			molecularNodes.get(m.getDownCableSet().getCaseFrame().getId()).removeNode(node);
-			DownCableSet dCableSet = m.getDownCableSet();
-			// loop for down cables
-			Enumeration<DownCable> dCables = dCableSet.getDownCables().elements();
-			while (dCables.hasMoreElements()) {
-				DownCable dCable = dCables.nextElement();
-				NodeSet ns = dCable.getNodeSet();
-				// loop for the nodes in the node set
-				for (int j = 0; j < ns.size(); j++) {
-					Node n = ns.getNode(j);
-					// loop for the upCables of the current node
-					Enumeration<UpCable> upCables = n.getUpCableSet().getUpCables().elements();
-					while (upCables.hasMoreElements()) {
-						UpCable upCable = upCables.nextElement();
-						upCable.removeNode(node);
-						if (upCable.getNodeSet().isEmpty())
-							n.getUpCableSet().removeUpCable(upCable);
-					}
-					// removing child nodes
-					if (n.getUpCableSet().isEmpty())
-						removeNode(n);
+		removeNodes(Collections.singletonList(node));
+	}
+
+	/**
+	 * This method is used to remove a set of nodes from the network and also
+	 * removes all the nodes that are only dominated by removed nodes. The nodes
+	 * to remove are found by counting, for every node reached from the given
+	 * ones, the arcs from its parents that are not removed, so a node is
+	 * removed once its count drops to zero. The removed nodes are then taken out
+	 * of the network, their up cables and the indexes together, and out of the
+	 * contexts of SNeBR in one step.
+	 *
+	 * @param roots
+	 *            the nodes that will be removed.
+	 *
+	 * @throws NodeCannotBeRemovedException
+	 *             if one of the nodes cannot be removed because it is dominated
+	 *             by a node that is not removed, in which case no node is
+	 *             removed.
+	 */
+	public static void removeNodes(Collection<? extends Node> roots) throws NodeCannotBeRemovedException, NodeNotFoundInPropSetException, NotAPropositionNodeException, NodeNotFoundInNetworkException {
+		ArrayList<PropositionNode> removed = new ArrayList<PropositionNode>();
+		long stamp = lockWrite();
+		try {
+			// removing the nodes from the hash table, they stay in the array list
+			// and in the up cables of their children until no snapshot sees them
+			for (Node node : collectRemoved(roots)) {
+				state().nodes.remove(node.getIdentifier());
+				node.setRemovedVersion(state().writing);
+				addRemoved(node);
+				if (node instanceof PropositionNode)
+					removed.add((PropositionNode) node);
+			}
+		} finally {
+			unlockWrite(stamp);
+		}
+		// the contexts are updated once the lock is released, since they may be
+		// updated by other threads looking nodes up
+		if (!removed.isEmpty())
+			Controller.removePropositionsFromAllContexts(removed);
+	}
+
+	/**
+	 * This method finds the nodes removed with a set of nodes without changing
+	 * the network.
+	 *
+	 * @return the given nodes that are not already removed and the nodes only
+	 *         dominated by removed nodes, every node before the nodes it
+	 *         dominates.
+	 *
+	 * @throws NodeCannotBeRemovedException
+	 *             if one of the given nodes is dominated by a node that is not
+	 *             removed.
+	 */
+	private static ArrayList<Node> collectRemoved(Collection<? extends Node> roots)
+			throws NodeCannotBeRemovedException {
+		// the number of arcs from the parents that are not removed, for every
+		// node reached
+		IdentityHashMap<Node, Integer> parents = new IdentityHashMap<Node, Integer>();
+		ArrayDeque<Node> pending = new ArrayDeque<Node>();
+		for (Node root : roots) {
+			if (root.isRemoved() || parents.containsKey(root))
+				continue;
+			int count = countParents(root);
+			parents.put(root, count);
+			if (count == 0)
+				pending.add(root);
+		}
+		ArrayList<Node> collected = new ArrayList<Node>();
+		while (!pending.isEmpty()) {
+			Node node = pending.poll();
+			collected.add(node);
+			if (!(node.getTerm() instanceof Molecular))
+				continue;
+			for (DownCable downCable : ((Molecular) node.getTerm()).getDownCableSet().getDownCables().values()) {
+				for (Node child : downCable.getNodeSet()) {
+					if (child.isRemoved())
+						continue;
+					Integer count = parents.get(child);
+					int left = (count == null ? countParents(child) : count) - 1;
+					parents.put(child, left);
+					if (left == 0)
+						pending.add(child);
+				}
+			}
+		}
+		for (Node root : roots) {
+			if (!root.isRemoved() && parents.get(root) != 0)
+				throw new NodeCannotBeRemovedException(
+						"Cannot remove the node named '" + root.getIdentifier() + "' because it is not isolated");
+		}
+		return collected;
+	}
+
+	/**
+	 * @return the number of arcs to a node from the nodes that were not removed.
+	 */
+	private static int countParents(Node node) {
+		int count = 0;
+		for (UpCable upCable : node.getUpCableSet().getUpCables().values())
+			for (Node parent : upCable.getNodeSet())
+				if (!parent.isRemoved())
+					count++;
+		return count;
+	}
+
+	/**
+	 * This method begins a transaction over the network. The nodes, relations and
+	 * case frames defined until the transaction is committed or rolled back, and
+	 * the changes the current thread makes to the contexts of SNeBR, are logged so
+	 * that they can be undone. The current thread holds the lock of the network
+	 * for writing until the outermost transaction is committed or rolled back, so
+	 * the other threads wait to read or change the network meanwhile.
+	 * Transactions can be nested, and are committed or rolled back by the thread
+	 * that began them.
+	 */
+	public static void beginTransaction() {
+		long stamp = lockWrite();
+		try {
+			state().transaction = new NetworkTransaction(state().transaction, stamp, state().nodesIndex.size(), state().molNames.getLast(),
+					state().patNames.getLast(), state().varNames.getLast());
+		} catch (RuntimeException e) {
+			unlockWrite(stamp);
+			throw e;
+		}
+	}
+
+	/**
+	 * This method commits the innermost open transaction. When the outermost
+	 * transaction is committed, the nodes built in it are added to the
+	 * propositionNodes hash table and to the molecular indexes at once.
+	 *
+	 * @throws IllegalStateException
+	 *             if the current thread has no transaction open.
+	 */
+	public static void commitTransaction() {
+		if (!inTransaction())
+			throw new IllegalStateException("No transaction is open");
+		NetworkTransaction committed = state().transaction;
+		try {
+			state().transaction = committed.parent;
+			Controller.commitLog(committed.controllerLog);
+			if (state().transaction != null) {
+				committed.mergeIntoParent();
+				return;
+			}
+			ArrayList<Node> molecular = new ArrayList<Node>();
+			for (Node node : committed.nodes) {
+				node.setCreatedVersion(state().writing);
+				if (state().nodes.get(node.getIdentifier()) != node)
+					continue;
+				if (node instanceof PropositionNode)
+					state().propositionNodes.put(node.getIdentifier(), (PropositionNode) node);
+				if (node.getTerm() instanceof Molecular) {
+					state().molecularNodes.get(((Molecular) node.getTerm()).getDownCableSet().getCaseFrame().getId())
+							.addNode(node);
+					molecular.add(node);
 				}
 			}
+			MatchIndex.addNodes(molecular);
+		} finally {
+			unlockWrite(committed.stamp);
+		}
+	}
+
+	/**
+	 * This method rolls the innermost open transaction back. The nodes built in
+	 * it are removed from the network and from the up cables of the nodes they
+	 * dominate, the relations and case frames defined in it are undefined, the
+	 * names given to new nodes are given again, and the changes the current thread
+	 * made to SNeBR in it are undone.
+	 *
+	 * @throws IllegalStateException
+	 *             if the current thread has no transaction open.
+	 */
+	public static void rollbackTransaction() throws NotAPropositionNodeException, NodeNotFoundInNetworkException {
+		if (!inTransaction())
+			throw new IllegalStateException("No transaction is open");
+		NetworkTransaction rolledBack = state().transaction;
+		try {
+			state().transaction = rolledBack.parent;
+			for (int i = rolledBack.nodes.size() - 1; i >= 0; i--) {
+				Node node = rolledBack.nodes.get(i);
+				ArrayList<Node> sameIdentifier = state().removedNodes.get(node.getIdentifier());
+				if (sameIdentifier != null && sameIdentifier.remove(node) && sameIdentifier.isEmpty())
+					state().removedNodes.remove(node.getIdentifier());
+				if (state().nodes.get(node.getIdentifier()) == node)
+					state().nodes.remove(node.getIdentifier());
+				if (node.getId() < state().nodesIndex.size() && state().nodesIndex.get(node.getId()) == node)
+					state().nodesIndex.set(node.getId(), null);
+				state().propositionNodes.remove(node.getIdentifier(), node);
+			}
+			unlink(rolledBack.nodes);
+			while (state().nodesIndex.size() > rolledBack.indexSize && state().nodesIndex.get(state().nodesIndex.size() - 1) == null)
+				state().nodesIndex.remove(state().nodesIndex.size() - 1);
+			if (state().nodesIndex.size() == rolledBack.indexSize)
+				Node.setCount(rolledBack.nodeCount);
+			state().molNames.setLast(rolledBack.molCounter);
+			state().patNames.setLast(rolledBack.patternCounter);
+			state().varNames.setLast(rolledBack.varCounter);
+			for (int suffix : rolledBack.molSuffixes)
+				state().molNames.release(suffix);
+			for (int suffix : rolledBack.patSuffixes)
+				state().patNames.release(suffix);
+			for (int suffix : rolledBack.varSuffixes)
+				state().varNames.release(suffix);
+			for (String id : rolledBack.caseFrames) {
+				state().caseFrames.remove(id);
+				state().molecularNodes.remove(id);
+			}
+			for (String name : rolledBack.relations)
+				state().relations.remove(name);
+			Controller.rollbackLog(rolledBack.controllerLog);
+		} finally {
+			unlockWrite(rolledBack.stamp);
+		}
+	}
+
+	/**
+	 * @return true if the current thread has a transaction open.
+	 */
+	public static boolean inTransaction() {
+		return state().writer == Thread.currentThread() && state().transaction != null;
+	}
+
+	/**
+	 * This method adds a node that was just built to the propositionNodes hash
+	 * table and to the molecular indexes, or logs it in the open transaction to be
+	 * added when the transaction is committed.
+	 *
+	 * @param node
+	 *            the node that was built.
+	 */
+	private static void added(Node node) {
+		NetworkSnapshot snapshot = NetworkSnapshot.current();
+		if (snapshot != null)
+			snapshot.built(node);
+		if (state().transaction != null) {
+			// no snapshot sees the node before the transaction is committed
+			node.setCreatedVersion(Long.MAX_VALUE);
+			state().transaction.nodes.add(node);
+			return;
+		}
+		node.setCreatedVersion(state().writing);
+		if (node instanceof PropositionNode)
+			state().propositionNodes.put(node.getIdentifier(), (PropositionNode) node);
+		if (node.getTerm() instanceof Molecular) {
+			state().molecularNodes.get(((Molecular) node.getTerm()).getDownCableSet().getCaseFrame().getId()).addNode(node);
+			MatchIndex.addNode(node);
 		}
 	}
 
@@ -494,11 +1092,17 @@ public class Network implements Serializable {
 	 * @return the newly created variable node.
 	 */
 	public static VariableNode buildVariableNode() {
-		Variable v = new Variable(getNextVarName());
-		VariableNode node = new VariableNode(v);
-		nodes.put(node.getIdentifier(), node);
-		nodesIndex.add(node.getId(), node);
-		return node;
+		long stamp = lockWrite();
+		try {
+			Variable v = new Variable(getNextVarName());
+			VariableNode node = new VariableNode(v);
+			state().nodes.put(node.getIdentifier(), node);
+			state().nodesIndex.add(node.getId(), node);
+			added(node);
+			return node;
+		} finally {
+			unlockWrite(stamp);
+		}
 	}
 
 	/**
@@ -512,19 +1116,25 @@ public class Network implements Serializable {
 	 */
 	public static VariableNode buildVariableNode(String identifier)
 			throws IllegalIdentifierException {
-		if (nodes.containsKey(identifier)) {
-			if (nodes.get(identifier).getTerm() instanceof Variable) {
-				VariableNode vNode = (VariableNode) nodes.get(identifier);
-				return vNode;
+		long stamp = lockWrite();
+		try {
+			if (state().nodes.containsKey(identifier)) {
+				if (state().nodes.get(identifier).getTerm() instanceof Variable) {
+					VariableNode vNode = (VariableNode) state().nodes.get(identifier);
+					return vNode;
+				} else {
+					throw new IllegalIdentifierException("A base node already exists with this identifier.");
+				}
 			} else {
-				throw new IllegalIdentifierException("A base node already exists with this identifier.");
+				Variable v = new Variable(identifier);
+				VariableNode node = new VariableNode(v);
+				state().nodes.put(node.getIdentifier(), node);
+				state().nodesIndex.add(node.getId(), node);
+				added(node);
+				return node;
 			}
-		} else {
-			Variable v = new Variable(identifier);
-			VariableNode node = new VariableNode(v);
-			nodes.put(node.getIdentifier(), node);
-			nodesIndex.add(node.getId(), node);
-			return node;
+		} finally {
+			unlockWrite(stamp);
 		}
 	}
 
@@ -543,11 +1153,17 @@ public class Network implements Serializable {
 	 * @return the newly created variable node.
 	 */
 	public static VariableNode buildVariableNode(Semantic semantic) {
-		Variable v = new Variable(getNextVarName());
-		VariableNode node = new VariableNode(semantic, v);
-		nodes.put(node.getIdentifier(), node);
-		nodesIndex.add(node.getId(), node);
-		return node;
+		long stamp = lockWrite();
+		try {
+			Variable v = new Variable(getNextVarName());
+			VariableNode node = new VariableNode(semantic, v);
+			state().nodes.put(node.getIdentifier(), node);
+			state().nodesIndex.add(node.getId(), node);
+			added(node);
+			return node;
+		} finally {
+			unlockWrite(stamp);
+		}
 	}
 
 	/**
@@ -570,54 +1186,63 @@ public class Network implements Serializable {
 	 */
 	public static Node buildBaseNode(String identifier, Semantic semantic)
 			throws NotAPropositionNodeException, NodeNotFoundInNetworkException, IllegalIdentifierException {
-		if (semantic.getSemanticType().equals("Act")) {
-			// System.out.print("ERROR: Acts cannot be base nodes!!!");
-			return null;
-		}
-
-		if (nodes.containsKey(identifier)) {
-			if (nodes.get(identifier).getTerm() instanceof Base) {
-				return nodes.get(identifier);
+		long stamp = lockWrite();
+		try {
+			if (semantic.getSemanticType().equals("Act")) {
+				// System.out.print("ERROR: Acts cannot be base nodes!!!");
+				return null;
 			}
-			if (nodes.get(identifier) instanceof VariableNode) {
-				VariableNode vNode = (VariableNode) nodes.get(identifier);
-				if (vNode.isSnepslogFlag()) {
-					return nodes.get(identifier);
-				} 
+
+			if (state().nodes.containsKey(identifier)) {
+				if (state().nodes.get(identifier).getTerm() instanceof Base) {
+					return state().nodes.get(identifier);
+				}
+				if (state().nodes.get(identifier) instanceof VariableNode) {
+					VariableNode vNode = (VariableNode) state().nodes.get(identifier);
+					if (vNode.isSnepslogFlag()) {
+						return state().nodes.get(identifier);
+					} 
+				}
+				throw new IllegalIdentifierException("A variable node already exists with this identifier.");
 			}
-			throw new IllegalIdentifierException("A variable node already exists with this identifier.");
-		}
 		
-		Base b = new Base(identifier);
-		if (semantic.getSemanticType().equals("Proposition") || semantic.getSuperClassesNames().contains("Proposition")) {
-			PropositionNode propNode = new PropositionNode(b);
-			nodes.put(identifier, propNode);
-			propositionNodes.put(identifier, propNode);
-			try {
-				nodesIndex.add(propNode.getId(), propNode);
-				propNode.setBasicSupport();
-			} catch (IndexOutOfBoundsException e) {
-				// System.out.println("wohoo");
+			Base b = new Base(identifier);
+			if (semantic.isSubtypeOf("Proposition")) {
+				PropositionNode propNode = new PropositionNode(b);
+				state().nodes.put(identifier, propNode);
+				try {
+					state().nodesIndex.add(propNode.getId(), propNode);
+					propNode.setBasicSupport();
+				} catch (IndexOutOfBoundsException e) {
+					// System.out.println("wohoo");
+				}
+				added(propNode);
+			} else {
+				Node node;
+				/*
+				 * if (semantic.getSemanticType().equals("Action")) { if
+				 * (semantic.getSemanticType().equals("ControlAction")) { node = new
+				 * ControlActionNode(semantic, b); } else { node = new ActionNode(semantic, b);
+				 * } } else { node = new Node(semantic, b); }
+				 */
+				node = new Node(semantic, b);
+				state().nodes.put(identifier, node);
+				state().nodesIndex.add(node.getId(), node);
+				added(node);
 			}
-		} else {
-			Node node;
-			/*
-			 * if (semantic.getSemanticType().equals("Action")) { if
-			 * (semantic.getSemanticType().equals("ControlAction")) { node = new
-			 * ControlActionNode(semantic, b); } else { node = new ActionNode(semantic, b);
-			 * } } else { node = new Node(semantic, b); }
-			 */
-			node = new Node(semantic, b);
-			nodes.put(identifier, node);
-			nodesIndex.add(node.getId(), node);
-		}
-		if (isMolName(identifier) > -1)
-			userDefinedMolSuffix.add(new Integer(isMolName(identifier)));
-		if (isPatName(identifier) > -1)
-			userDefinedPatSuffix.add(new Integer(isPatName(identifier)));
-		if (isVarName(identifier) > -1)
-			userDefinedVarSuffix.add(new Integer(isVarName(identifier)));
-		return nodes.get(identifier);
+			int suffix = isMolName(identifier);
+			if (state().molNames.reserve(suffix) && state().transaction != null)
+				state().transaction.molSuffixes.add(suffix);
+			suffix = isPatName(identifier);
+			if (state().patNames.reserve(suffix) && state().transaction != null)
+				state().transaction.patSuffixes.add(suffix);
+			suffix = isVarName(identifier);
+			if (state().varNames.reserve(suffix) && state().transaction != null)
+				state().transaction.varSuffixes.add(suffix);
+			return state().nodes.get(identifier);
+		} finally {
+			unlockWrite(stamp);
+		}
 	}
 
 	/**
@@ -641,115 +1266,117 @@ public class Network implements Serializable {
 	 */
 	public static Node buildMolecularNode(ArrayList<Wire> wires, CaseFrame caseFrame) throws CannotBuildNodeException,
 			EquivalentNodeException, NotAPropositionNodeException, NodeNotFoundInNetworkException, CaseFrameMissMatchException, SemanticNotFoundInNetworkException {
-		Object[][] array = turnWiresIntoArray(wires);
-		// this node is either null, or an equivalent node to the one this method is tryin to build
-		// if an equivalent node is found, it is returned and no new node is built.
-		Node equivalentNodeInNetwork = downCableSetExists(array);
-		// System.out.println("Downcable set exists > "+ downCableSetExists(array));
-
-		if (equivalentNodeInNetwork != null) {
-			return equivalentNodeInNetwork;
-		}
-		// check the validity of the relation-node pairs
-		// System.out.println("done 1st");
-		if (!validRelNodePairs(array))
-			throw new CannotBuildNodeException("Cannot build the node .. the relation node pairs are not valid");
-		// System.out.println("done 2nd");
-		Object[][] relNodeSet = turnIntoRelNodeSet(array);
-		// check that the down cable set is following the case frame
-		if (!followingCaseFrame(relNodeSet, caseFrame))
-			throw new CaseFrameMissMatchException(
-					"Not following the case frame .. wrong node set size or wrong set of relations");
-		// create the Molecular Node
-		if (caseFrame.getSemanticClass().equals("Proposition") 
-				|| SemanticHierarchy.getSemantic(caseFrame.getSemanticClass()).getSuperClassesNames().contains("Proposition")) {
-			PropositionNode propNode;
-			if (isToBePattern(array)) {
-				// System.out.println("building patt");
-				propNode = (PropositionNode) createPatNode(relNodeSet, caseFrame);
-			} else {
-				// System.out.println("building closed");
-				propNode = (PropositionNode) createClosedNode(relNodeSet, caseFrame);
+		long stamp = lockWrite();
+		try {
+			Object[][] array = turnWiresIntoArray(wires);
+			// this node is either null, or an equivalent node to the one this method is tryin to build
+			// if an equivalent node is found, it is returned and no new node is built.
+			Node equivalentNodeInNetwork = downCableSetExists(array);
+			// System.out.println("Downcable set exists > "+ downCableSetExists(array));
+
+			if (equivalentNodeInNetwork != null) {
+				return equivalentNodeInNetwork;
 			}
-			nodes.put(propNode.getIdentifier(), propNode);
-			propositionNodes.put(propNode.getIdentifier(), propNode);
-			nodesIndex.add(propNode.getId(), propNode);
-			Molecular molecular = (Molecular) propNode.getTerm();
-			molecularNodes.get(molecular.getDownCableSet().getCaseFrame().getId()).addNode(propNode);
-			propNode.setBasicSupport();
-			return propNode;
-		} else {
-			Node mNode;
-			if (isToBePattern(array)) {
-				// System.out.println("building patt");
-				mNode = createPatNode(relNodeSet, caseFrame);
+			// check the validity of the relation-node pairs
+			// System.out.println("done 1st");
+			if (!validRelNodePairs(array))
+				throw new CannotBuildNodeException("Cannot build the node .. the relation node pairs are not valid");
+			// System.out.println("done 2nd");
+			Object[][] relNodeSet = turnIntoRelNodeSet(array);
+			// check that the down cable set is following the case frame
+			if (!followingCaseFrame(relNodeSet, caseFrame))
+				throw new CaseFrameMissMatchException(
+						"Not following the case frame .. wrong node set size or wrong set of relations");
+			// create the Molecular Node
+			if (SemanticHierarchy.isSubtypeOf(caseFrame.getSemanticClass(), "Proposition")) {
+				PropositionNode propNode;
+				if (isToBePattern(array)) {
+					// System.out.println("building patt");
+					propNode = (PropositionNode) createPatNode(relNodeSet, caseFrame);
+				} else {
+					// System.out.println("building closed");
+					propNode = (PropositionNode) createClosedNode(relNodeSet, caseFrame);
+				}
+				state().nodes.put(propNode.getIdentifier(), propNode);
+				state().nodesIndex.add(propNode.getId(), propNode);
+				propNode.setBasicSupport();
+				added(propNode);
+				return propNode;
 			} else {
-				// System.out.println("building closed");
-				mNode = createClosedNode(relNodeSet, caseFrame);
+				Node mNode;
+				if (isToBePattern(array)) {
+					// System.out.println("building patt");
+					mNode = createPatNode(relNodeSet, caseFrame);
+				} else {
+					// System.out.println("building closed");
+					mNode = createClosedNode(relNodeSet, caseFrame);
+				}
+				state().nodes.put(mNode.getIdentifier(), mNode);
+				state().nodesIndex.add(mNode.getId(), mNode);
+				added(mNode);
+				return mNode;
 			}
-			nodes.put(mNode.getIdentifier(), mNode);
-			nodesIndex.add(mNode.getId(), mNode);
-			Molecular molecular = (Molecular) mNode.getTerm();
-			molecularNodes.get(molecular.getDownCableSet().getCaseFrame().getId()).addNode(mNode);
-			return mNode;
+		} finally {
+			unlockWrite(stamp);
 		}
 	}
 
 	public static Node buildMolecularNode(ArrayList<Wire> wires, RelationsRestrictedCaseFrame caseFrame)
 			throws CannotBuildNodeException, EquivalentNodeException, CaseFrameMissMatchException,
 			NotAPropositionNodeException, NodeNotFoundInNetworkException, SemanticNotFoundInNetworkException {
-		Object[][] array = turnWiresIntoArray(wires);
-		// this node is either null, or an equivalent node to the one this method is tryin to build
-		// if an equivalent node is found, it is returned and no new node is built.
-		Node equivalentNodeInNetwork = downCableSetExists(array);
-		// System.out.println("Downcable set exists > "+ downCableSetExists(array));
-
-		if (equivalentNodeInNetwork != null) {
-			return equivalentNodeInNetwork;
-		}
-		// check the validity of the relation-node pairs
-		// System.out.println("done 1st");
-		if (!validRelNodePairs(array))
-			throw new CannotBuildNodeException("Cannot build the node .. the relation node pairs are not valid");
-		// System.out.println("done 2nd");
-		Object[][] relNodeSet = turnIntoRelNodeSet(array);
-		// check that the down cable set is following the case frame
-		if (!followingCaseFrame(relNodeSet, caseFrame))
-			throw new CaseFrameMissMatchException(
-					"Not following the case frame .. wrong node set size or wrong set of relations");
-		// System.out.println("done 3rd");
-		// create the Molecular Node
-		if (caseFrame.getSemanticClass().equals("Proposition")
-				|| SemanticHierarchy.getSemantic(caseFrame.getSemanticClass()).getSuperClassesNames().contains("Proposition")) {
-			PropositionNode propNode;
-			if (isToBePattern(array)) {
-				// System.out.println("building patt");
-				propNode = (PropositionNode) createPatNode(relNodeSet, caseFrame);
-			} else {
-				// System.out.println("building closed");
-				propNode = (PropositionNode) createClosedNode(relNodeSet, caseFrame);
+		long stamp = lockWrite();
+		try {
+			Object[][] array = turnWiresIntoArray(wires);
+			// this node is either null, or an equivalent node to the one this method is tryin to build
+			// if an equivalent node is found, it is returned and no new node is built.
+			Node equivalentNodeInNetwork = downCableSetExists(array);
+			// System.out.println("Downcable set exists > "+ downCableSetExists(array));
+
+			if (equivalentNodeInNetwork != null) {
+				return equivalentNodeInNetwork;
 			}
-			nodes.put(propNode.getIdentifier(), propNode);
-			propositionNodes.put(propNode.getIdentifier(), propNode);
-			nodesIndex.add(propNode.getId(), propNode);
-			Molecular molecular = (Molecular) propNode.getTerm();
-			molecularNodes.get(molecular.getDownCableSet().getCaseFrame().getId()).addNode(propNode);
-			propNode.setBasicSupport();
-			return propNode;
-		} else {
-			Node mNode;
-			if (isToBePattern(array)) {
-				// System.out.println("building patt");
-				mNode = createPatNode(relNodeSet, caseFrame);
+			// check the validity of the relation-node pairs
+			// System.out.println("done 1st");
+			if (!validRelNodePairs(array))
+				throw new CannotBuildNodeException("Cannot build the node .. the relation node pairs are not valid");
+			// System.out.println("done 2nd");
+			Object[][] relNodeSet = turnIntoRelNodeSet(array);
+			// check that the down cable set is following the case frame
+			if (!followingCaseFrame(relNodeSet, caseFrame))
+				throw new CaseFrameMissMatchException(
+						"Not following the case frame .. wrong node set size or wrong set of relations");
+			// System.out.println("done 3rd");
+			// create the Molecular Node
+			if (SemanticHierarchy.isSubtypeOf(caseFrame.getSemanticClass(), "Proposition")) {
+				PropositionNode propNode;
+				if (isToBePattern(array)) {
+					// System.out.println("building patt");
+					propNode = (PropositionNode) createPatNode(relNodeSet, caseFrame);
+				} else {
+					// System.out.println("building closed");
+					propNode = (PropositionNode) createClosedNode(relNodeSet, caseFrame);
+				}
+				state().nodes.put(propNode.getIdentifier(), propNode);
+				state().nodesIndex.add(propNode.getId(), propNode);
+				propNode.setBasicSupport();
+				added(propNode);
+				return propNode;
 			} else {
-				// System.out.println("building closed");
-				mNode = createClosedNode(relNodeSet, caseFrame);
+				Node mNode;
+				if (isToBePattern(array)) {
+					// System.out.println("building patt");
+					mNode = createPatNode(relNodeSet, caseFrame);
+				} else {
+					// System.out.println("building closed");
+					mNode = createClosedNode(relNodeSet, caseFrame);
+				}
+				state().nodes.put(mNode.getIdentifier(), mNode);
+				state().nodesIndex.add(mNode.getId(), mNode);
+				added(mNode);
+				return mNode;
 			}
-			nodes.put(mNode.getIdentifier(), mNode);
-			nodesIndex.add(mNode.getId(), mNode);
-			Molecular molecular = (Molecular) mNode.getTerm();
-			molecularNodes.get(molecular.getDownCableSet().getCaseFrame().getId()).addNode(mNode);
-			return mNode;
+		} finally {
+			unlockWrite(stamp);
 		}
 	}
 	
@@ -901,9 +1528,9 @@ public class Network implements Serializable {
 				if (array[i][1].getClass().getSimpleName().equals("VariableNode")) {
 					continue;
 				} else {
-					if (!(((Relation) array[i][0]).getType().equals(((Node) array[i][1]).getSemantic().getSemanticType())
-							|| ((Node) array[i][1]).getSemantic().getSemanticType().contains(((Relation) array[i][0]).getType())
-							|| ((Node) array[i][1]).getSemantic().getSuperClassesNames().contains(((Relation) array[i][0]).getType()))) {
+					Semantic semantic = ((Node) array[i][1]).getSemantic();
+					String type = ((Relation) array[i][0]).getType();
+					if (!(semantic.isSubtypeOf(type) || semantic.getSemanticType().contains(type))) {
 						return false;
 
 					}
@@ -1089,7 +1716,7 @@ public class Network implements Serializable {
 		Semantic semantic = new Semantic(temp);
 		// builds a proposition node if the semantic class is proposition or one of its children, and
 		// pattern node otherwise
-		if (semantic.getSemanticType().equals("Proposition") || semantic.getSuperClassesNames().contains("Proposition")) {
+		if (semantic.isSubtypeOf("Proposition")) {
 			PropositionNode propNode;
 			if (caseFrame == RelationsRestrictedCaseFrame.andRule)
 				propNode = new AndEntailment(open);
@@ -1129,7 +1756,7 @@ public class Network implements Serializable {
 		Semantic semantic = new Semantic(temp);
 		// builds a proposition node if the semantic class is proposition or one of its children, and
 		// pattern node otherwise
-		if (semantic.getSemanticType().equals("Proposition") || semantic.getSuperClassesNames().contains("Proposition")) {
+		if (semantic.isSubtypeOf("Proposition")) {
 			PropositionNode propNode;
 			if (caseFrame == RelationsRestrictedCaseFrame.andRule)
 				propNode = new AndEntailment(open);
@@ -1187,7 +1814,7 @@ public class Network implements Serializable {
 		Semantic semantic = new Semantic(temp);
 		// builds a proposition node if the semantic class is proposition, and
 		// closed node otherwise
-		if (semantic.getSemanticType().equals("Proposition") || semantic.getSuperClassesNames().contains("Proposition")) {
+		if (semantic.isSubtypeOf("Proposition")) {
 			PropositionNode propNode;
 			if (caseFrame == RelationsRestrictedCaseFrame.andRule) {
 				propNode = new AndEntailment(c);
@@ -1199,6 +1826,10 @@ public class Network implements Serializable {
 				propNode = new ThreshNode(c);
 			} else if (caseFrame == RelationsRestrictedCaseFrame.numericalRule) {
 				propNode = new NumericalEntailment(c);
+			} else if (caseFrame == RelationsRestrictedCaseFrame.doIf) {
+				propNode = new DoIfNode(c);
+			} else if (caseFrame == RelationsRestrictedCaseFrame.whenDo) {
+				propNode = new WhenDoNode(c);
 			} else
 				propNode = new PropositionNode(c);
 			return propNode;
@@ -1223,7 +1854,7 @@ public class Network implements Serializable {
 		Semantic semantic = new Semantic(temp);
 		// builds a proposition node if the semantic class is proposition, and
 		// closed node otherwise
-		if (semantic.getSemanticType().equals("Proposition") || semantic.getSuperClassesNames().contains("Proposition")) {
+		if (semantic.isSubtypeOf("Proposition")) {
 			PropositionNode propNode;
 			if (caseFrame == RelationsRestrictedCaseFrame.andRule) {
 				propNode = new AndEntailment(c);
@@ -1235,6 +1866,10 @@ public class Network implements Serializable {
 				propNode = new ThreshNode(c);
 			} else if (caseFrame == RelationsRestrictedCaseFrame.numericalRule) {
 				propNode = new NumericalEntailment(c);
+			} else if (caseFrame == RelationsRestrictedCaseFrame.doIf) {
+				propNode = new DoIfNode(c);
+			} else if (caseFrame == RelationsRestrictedCaseFrame.whenDo) {
+				propNode = new WhenDoNode(c);
 			} else
 				propNode = new PropositionNode(c);
 			return propNode;
@@ -1281,63 +1916,11 @@ public class Network implements Serializable {
 	 * @return the (case frame signature) semantic type specified by the given case
 	 *         frame based on the given down cable set specifications.
 	 */
-	@SuppressWarnings("unchecked")
 	public static String getCFSignature(Hashtable<String, NodeSet> relNodeSet, RelationsRestrictedCaseFrame caseframe) {
-		LinkedList<String> signatureIds = caseframe.getSignatureIDs();
-		Hashtable<String, CFSignature> signatures = caseframe.getSignatures();
-		for (int i = 0; i < signatureIds.size(); i++) {
-			String currentId = signatureIds.get(i);
-			if (signatures.containsKey(currentId)) {
-				LinkedList<SubDomainConstraint> rules = (LinkedList<SubDomainConstraint>) signatures.get(currentId)
-						.getSubDomainConstraints().clone();
-				for (int j = 0; j < rules.size(); j++) {
-					SubDomainConstraint c = rules.get(j);
-					LinkedList<CableTypeConstraint> checks = (LinkedList<CableTypeConstraint>) c.getNodeChecks()
-							.clone();
-					NodeSet ns = relNodeSet.get(c.getRelation());
-					for (int k = 0; k < checks.size(); k++) {
-						CableTypeConstraint check = checks.get(k);
-						int counter = 0;
-						for (int l = 0; l < ns.size(); l++) {
-							if (ns.getNode(l).getSemanticType().equals(check.getSemanticType())
-									|| ns.getNode(l).getSemanticSuperClass().equals(check.getSemanticType())) {
-								counter++;
-							}
-						}
-						if (check.getLowerLimit() == null && check.getUpperLimit() == null) {
-							if (counter == ns.size()) {
-								checks.remove(k);
-								k--;
-							}
-						} else {
-							if (check.getUpperLimit() == null) {
-								if (counter >= check.getLowerLimit()) {
-									checks.remove(k);
-									k--;
-								}
-							} else {
-								if (counter >= check.getLowerLimit() && counter <= check.getUpperLimit()) {
-									checks.remove(k);
-									k--;
-								}
-							}
-						}
-					}
-					if (checks.isEmpty()) {
-						// System.out.println("empty checks");
-						rules.remove(j);
-						j--;
-					} else {
-						break;
-					}
-				}
-				if (rules.isEmpty()) {
-					// System.out.println("Satisfied");
-					return signatures.get(currentId).getResultingType();
-				}
-			}
+		String result = caseframe.getSignatureMatcher().match(relNodeSet);
+		if (result != null) {
+			return result;
 		}
-		// System.out.println("Not Satisfied");
 		return caseframe.getSemanticClass();
 	}
 
@@ -1352,7 +1935,7 @@ public class Network implements Serializable {
 	 *         all entries of the array.
 	 */
 	public static LinkedList<Object[]> find(Object[][] array, Context context) {
-		return findIntersection(array, context, 0);
+		return read(() -> findIntersection(array, context, 0));
 	}
 
 	/**
@@ -1527,22 +2110,24 @@ public class Network implements Serializable {
 	// used by the UI (if needed)
 
 	public static NodeSet getNodesHavingCF(CaseFrame caseFrame) {
-		NodeSet ns = new NodeSet();
-		if (molecularNodes.containsKey(caseFrame.getId())) {
-			NodeSet temp = molecularNodes.get(caseFrame.getId());
-			if (temp.isEmpty())
-				return ns;
-			else {
-				// to handle if the hashing is not perfect
-				for (int i = 0; i < temp.size(); i++) {
-					if (((Molecular) temp.getNode(i).getTerm()).getDownCableSet().getCaseFrame().getId()
-							.equals(caseFrame.getId())) {
-						ns.addNode(temp.getNode(i));
+		return read(() -> {
+			NodeSet ns = new NodeSet();
+			if (state().molecularNodes.containsKey(caseFrame.getId())) {
+				NodeSet temp = state().molecularNodes.get(caseFrame.getId());
+				if (temp.isEmpty())
+					return ns;
+				else {
+					// to handle if the hashing is not perfect
+					for (int i = 0; i < temp.size(); i++) {
+						if (isVisible(temp.getNode(i)) && ((Molecular) temp.getNode(i).getTerm()).getDownCableSet()
+								.getCaseFrame().getId().equals(caseFrame.getId())) {
+							ns.addNode(temp.getNode(i));
+						}
 					}
 				}
 			}
-		}
-		return ns;
+			return ns;
+		});
 	}
 
 	// helper methods that generate the names for the
@@ -1553,18 +2138,7 @@ public class Network implements Serializable {
 	 *         "Mi" and i is an integer suffix.
 	 */
 	private static String getNexMolName() {
-		molCounter++;
-		String molName = "M";
-		for (int i = 0; i < userDefinedMolSuffix.size(); i++) {
-			if (userDefinedMolSuffix.get(i).intValue() == molCounter) {
-				molCounter++;
-				i = -1;
-			}
-		}
-
-		molName += "" + molCounter;
-
-		return molName;
+		return state().molNames.next();
 	}
 
 	/**
@@ -1572,17 +2146,7 @@ public class Network implements Serializable {
 	 *         "Pi" and i is an integer suffix.
 	 */
 	private static String getNextPatName() {
-		patternCounter++;
-		String patName = "P";
-		for (int i = 0; i < userDefinedPatSuffix.size(); i++) {
-			if (userDefinedPatSuffix.get(i).intValue() == patternCounter) {
-				patternCounter++;
-				i = -1;
-			}
-		}
-		patName += "" + patternCounter;
-
-		return patName;
+		return state().patNames.next();
 	}
 
 	/**
@@ -1590,17 +2154,7 @@ public class Network implements Serializable {
 	 *         "Vi" and i is an integer suffix.
 	 */
 	private static String getNextVarName() {
-		varCounter++;
-		String varName = "V";
-		for (int i = 0; i < userDefinedVarSuffix.size(); i++) {
-			if (userDefinedVarSuffix.get(i).intValue() == varCounter) {
-				varCounter++;
-				i = -1;
-			}
-		}
-		varName += "" + varCounter;
-
-		return varName;
+		return state().varNames.next();
 	}
 
 	// Methods that update the lists
@@ -1804,10 +2358,10 @@ public class Network implements Serializable {
 	 */
 	private static Hashtable<String, RCFP> getIntersectingRelations(Hashtable<String, RCFP> list1,
 			Hashtable<String, RCFP> list2) {
-		Enumeration<RCFP> relations = list1.elements();
+		Enumeration<RCFP> rcfps = list1.elements();
 		Hashtable<String, RCFP> result = new Hashtable<String, RCFP>();
-		while (relations.hasMoreElements()) {
-			RCFP r = relations.nextElement();
+		while (rcfps.hasMoreElements()) {
+			RCFP r = rcfps.nextElement();
 			if (list2.containsKey(r.getRelation().getName())) {
 				result.put(r.getRelation().getName(), r);
 			}
@@ -1820,40 +2374,68 @@ public class Network implements Serializable {
 	/**
 	 * This method compacts the nodesIndex array-list by removing the null entries.
 	 * (when a node is removed from the network its entry in the nodesIndex
-	 * array-list is nullified). The method then adjust the count of the nodes and
-	 * the id of the nodes accordingly.
-	 *
-	 * V.Imp Note: - This method is not used anywhere yet.
+	 * array-list is nullified). The ids of the nodes are mapped to their new
+	 * values in one scan of the index, and the map is then used to renumber
+	 * every structure that holds node ids: the supports of the proposition
+	 * nodes, the ids the rule nodes keep of their antecedents and the hyps and
+	 * nogoods of SNeBR. The new ids keep the order of the old ones, so the
+	 * sorted proposition sets stay sorted. The rule use infos, the match index,
+	 * the Rete networks and the table spaces are rebuilt on demand from the
+	 * renumbered nodes.
+	 *
+	 * @throws IllegalStateException
+	 *             if a transaction is open or a snapshot is pinned, since they
+	 *             keep the old ids.
 	 */
 	public static void compact() {
-		int nodes = 0;
-		int empty = 0;
-		for (int i = 0; i < nodesIndex.size(); i++) {
-			if (nodesIndex.get(i) == null) {
-				empty++;
-			} else {
-				if (empty > 0) {
-					Node n = nodesIndex.get(i);
-					int oldID = n.getId();
-					n.setId(oldID - empty);
-					nodesIndex.set(n.getId(), n);
-					nodesIndex.set(oldID, null);
-					// System.out.println("old id: " + oldID + " new id: " + (oldID - empty) + "
-					// empty: " + empty);
+		long stamp = lockWrite();
+		try {
+			if (state().transaction != null)
+				throw new IllegalStateException("Cannot compact the network while a transaction is open");
+			synchronized (state().pins) {
+				if (!state().pins.isEmpty())
+					throw new IllegalStateException("Cannot compact the network while a snapshot is pinned");
+			}
+			reclaim();
+			int[] newIds = new int[state().nodesIndex.size()];
+			ArrayList<Node> compacted = new ArrayList<Node>(state().nodesIndex.size());
+			for (int i = 0; i < state().nodesIndex.size(); i++) {
+				Node n = state().nodesIndex.get(i);
+				if (n == null) {
+					newIds[i] = -1;
+				} else {
+					newIds[i] = compacted.size();
+					n.setId(compacted.size());
+					compacted.add(n);
 				}
-				nodes++;
 			}
+			if (compacted.size() == state().nodesIndex.size())
+				return;
+			state().nodesIndex.clear();
+			state().nodesIndex.addAll(compacted);
+			Node.setCount(compacted.size());
+
+			for (Node n : compacted) {
+				if (n instanceof PropositionNode && ((PropositionNode) n).getBasicSupport() != null)
+					((PropositionNode) n).getBasicSupport().renumber(newIds);
+				if (n instanceof RuleNode)
+					((RuleNode) n).renumbered();
+			}
+			Controller.renumber(newIds);
+			// the hashes of the reports are computed from the ids of the nodes
+			Report.rehash();
+			for (Node n : compacted) {
+				if (n instanceof PropositionNode)
+					((PropositionNode) n).rehashReports();
+				if (n instanceof ActNode)
+					((ActNode) n).rehashReports();
+			}
+			MatchIndex.clear();
+			ReteNetwork.clearNetworks();
+			TableSpace.clearTableSpaces();
+		} finally {
+			unlockWrite(stamp);
 		}
-		for (int i = nodes; i < nodesIndex.size(); i++) {
-			nodesIndex.remove(i);
-			i--;
-		}
-		// System.out.println("");
-		// System.out.println("previous count of nodes before deletion: " +
-		// Node.getCount());
-		Node.setCount(nodes);
-		// System.out.println("current count of nodes before deletion: " +
-		// Node.getCount());
 	}
 
 	// Other Methods
@@ -1954,8 +2536,21 @@ public class Network implements Serializable {
 		return result;
 	}
 
+	/**
+	 * This method is used to find the nodes of the network that unify with a
+	 * given node.
+	 *
+	 * @param x
+	 *            the node to be matched.
+	 *
+	 * @return a NodeSet of the nodes, other than x, unifying with x.
+	 */
 	public static NodeSet match(Node x) {
-		return new NodeSet();
+		NodeSet result = new NodeSet();
+		for (Pair match : Matcher.match(x))
+			if (!result.contains(match.getNode()))
+				result.addNode(match.getNode());
+		return result;
 	}
 
 	public static void defineDefaults() {
@@ -1969,52 +2564,52 @@ public class Network implements Serializable {
 	
 	public static void save(String relationsData, String caseFramesData, String nodesData, String molData, String mcd, String pcd, String vcd, String pNData, String nodesIndexData, String userDefinedMolSuffixData, String userDefinedPatSuffixData, String userDefinedVarSuffixData) throws IOException {
 		ObjectOutputStream ros = new ObjectOutputStream(new FileOutputStream(new File(relationsData)));
-		ros.writeObject(relations);
+		ros.writeObject(state().relations);
 		ros.close();
 		
 		ObjectOutputStream cFos = new ObjectOutputStream(new FileOutputStream(new File(caseFramesData)));
-		cFos.writeObject(caseFrames);
+		cFos.writeObject(state().caseFrames);
 		cFos.close();
 		
 		
 		ObjectOutputStream nodesOS = new ObjectOutputStream(new FileOutputStream(new File(nodesData)));
-		nodesOS.writeObject(nodes);
+		nodesOS.writeObject(state().nodes);
 		nodesOS.close();
 		
 		ObjectOutputStream molNodesOs = new ObjectOutputStream(new FileOutputStream(new File(molData)));
-		molNodesOs.writeObject(molecularNodes);
+		molNodesOs.writeObject(state().molecularNodes);
 		molNodesOs.close();
 		
 		ObjectOutputStream mc = new ObjectOutputStream(new FileOutputStream(new File(mcd)));
-		mc.writeObject(molCounter);
+		mc.writeObject(state().molNames.getLast());
 		mc.close();
 		
 		ObjectOutputStream pc = new ObjectOutputStream(new FileOutputStream(new File(pcd)));
-		pc.writeObject(patternCounter);
+		pc.writeObject(state().patNames.getLast());
 		pc.close();
 		
 		ObjectOutputStream vc = new ObjectOutputStream(new FileOutputStream(new File(vcd)));
-		vc.writeObject(varCounter);
+		vc.writeObject(state().varNames.getLast());
 		vc.close();
 
 		ObjectOutputStream pnd = new ObjectOutputStream(new FileOutputStream(new File(pNData)));
-		pnd.writeObject(propositionNodes);
+		pnd.writeObject(state().propositionNodes);
 		pnd.close();
 
 		ObjectOutputStream ni = new ObjectOutputStream(new FileOutputStream(new File(nodesIndexData)));
-		ni.writeObject(nodesIndex);
+		ni.writeObject(state().nodesIndex);
 		ni.close();
 
 		ObjectOutputStream udms = new ObjectOutputStream(new FileOutputStream(new File(userDefinedMolSuffixData)));
-		udms.writeObject(userDefinedMolSuffix);
+		udms.writeObject(state().molNames);
 		udms.close();
 
 		ObjectOutputStream udps = new ObjectOutputStream(new FileOutputStream(new File(userDefinedPatSuffixData)));
-		udps.writeObject(userDefinedPatSuffix);
+		udps.writeObject(state().patNames);
 		udps.close();
 
 		ObjectOutputStream udvs = new ObjectOutputStream(new FileOutputStream(new File(userDefinedVarSuffixData)));
-		udvs.writeObject(userDefinedVarSuffix);
+		udvs.writeObject(state().varNames);
 		udvs.close();
 	}
 	
@@ -2057,93 +2652,129 @@ public class Network implements Serializable {
 	}
 
 	public static void load(String relationsData, String caseFramesData, String nodesData, String molData, String mcd, String pcd, String vcd, String pNData, String nodesIndexData, String userDefinedMolSuffixData, String userDefinedPatSuffixData, String userDefinedVarSuffixData) throws IOException, ClassNotFoundException {
-		ObjectInputStream ris= new ObjectInputStream(new FileInputStream(new File(relationsData)));
-		Hashtable<String, Relation> tempRelations = (Hashtable<String, Relation>) ris.readObject();
-		Network.relations = tempRelations;
-		ris.close();
-		tempRelations = null;
+		long stamp = lockWrite();
+		try {
+			ObjectInputStream ris= new ObjectInputStream(new FileInputStream(new File(relationsData)));
+			Hashtable<String, Relation> tempRelations = (Hashtable<String, Relation>) ris.readObject();
+			state().relations = tempRelations;
+			ris.close();
+			tempRelations = null;
 		
-		ObjectInputStream cFis= new ObjectInputStream(new FileInputStream(new File(caseFramesData)));
-		Hashtable<String, CaseFrame> tempcF = (Hashtable<String, CaseFrame>) cFis.readObject();
-		Network.caseFrames = tempcF;
-		cFis.close();
-		tempcF = null;
+			ObjectInputStream cFis= new ObjectInputStream(new FileInputStream(new File(caseFramesData)));
+			Hashtable<String, CaseFrame> tempcF = (Hashtable<String, CaseFrame>) cFis.readObject();
+			state().caseFrames = tempcF;
+			cFis.close();
+			tempcF = null;
 		
 		
-		ObjectInputStream nodesis= new ObjectInputStream(new FileInputStream(new File(nodesData)));
-		Hashtable<String, Node> tempNodes = (Hashtable<String, Node>) nodesis.readObject();
-		Network.nodes = tempNodes;
-		nodesis.close();
-		tempNodes = null;
+			ObjectInputStream nodesis= new ObjectInputStream(new FileInputStream(new File(nodesData)));
+			Hashtable<String, Node> tempNodes = (Hashtable<String, Node>) nodesis.readObject();
+			state().nodes = tempNodes;
+			nodesis.close();
+			tempNodes = null;
 		
 
-		ObjectInputStream molNodesis= new ObjectInputStream(new FileInputStream(new File(molData)));
-		Hashtable<String, NodeSet> tempMolNodes = (Hashtable<String, NodeSet>) molNodesis.readObject();
-		Network.molecularNodes = tempMolNodes;
-		molNodesis.close();
-		tempMolNodes = null;
+			ObjectInputStream molNodesis= new ObjectInputStream(new FileInputStream(new File(molData)));
+			Hashtable<String, NodeSet> tempMolNodes = (Hashtable<String, NodeSet>) molNodesis.readObject();
+			state().molecularNodes = tempMolNodes;
+			molNodesis.close();
+			tempMolNodes = null;
 		
-		ObjectInputStream mc= new ObjectInputStream(new FileInputStream(new File(mcd)));
-		int tempMC = (int) mc.readObject();
-		Network.molCounter = tempMC;
-		mc.close();
+			ObjectInputStream mc= new ObjectInputStream(new FileInputStream(new File(mcd)));
+			int tempMC = (int) mc.readObject();
+			mc.close();
 		
-		ObjectInputStream pc= new ObjectInputStream(new FileInputStream(new File(pcd)));
-		int tempPC = (int) pc.readObject();
-		Network.patternCounter = tempPC;
-		pc.close();
+			ObjectInputStream pc= new ObjectInputStream(new FileInputStream(new File(pcd)));
+			int tempPC = (int) pc.readObject();
+			pc.close();
 		
-		ObjectInputStream vc= new ObjectInputStream(new FileInputStream(new File(vcd)));
-		int tempVC = (int) vc.readObject();
-		Network.varCounter = tempVC;
-		vc.close();
+			ObjectInputStream vc= new ObjectInputStream(new FileInputStream(new File(vcd)));
+			int tempVC = (int) vc.readObject();
+			vc.close();
+
+			ObjectInputStream pn= new ObjectInputStream(new FileInputStream(new File(pNData)));
+			Hashtable<String, PropositionNode> temppn = (Hashtable<String, PropositionNode>) pn.readObject();
+			state().propositionNodes = temppn;
+			pn.close();
+
+			ObjectInputStream niis= new ObjectInputStream(new FileInputStream(new File(nodesIndexData)));
+			ArrayList<Node> tempni = (ArrayList<Node>) niis.readObject();
+			state().nodesIndex = tempni;
+			niis.close();
+			state().removedNodes.clear();
+			for (Node node : state().nodesIndex) {
+				if (node == null)
+					continue;
+				node.setCreatedVersion(state().writing);
+				if (node.isRemoved()) {
+					node.setRemovedVersion(state().writing);
+					addRemoved(node);
+				}
+			}
 
-		ObjectInputStream pn= new ObjectInputStream(new FileInputStream(new File(pNData)));
-		Hashtable<String, PropositionNode> temppn = (Hashtable<String, PropositionNode>) pn.readObject();
-		Network.propositionNodes = temppn;
-		pn.close();
-
-		ObjectInputStream niis= new ObjectInputStream(new FileInputStream(new File(nodesIndexData)));
-		ArrayList<Node> tempni = (ArrayList<Node>) niis.readObject();
-		Network.nodesIndex = tempni;
-		niis.close();
-
-		ObjectInputStream udmsis= new ObjectInputStream(new FileInputStream(new File(userDefinedMolSuffixData)));
-		LinkedList<Integer> tempudms = (LinkedList<Integer>) udmsis.readObject();
-		Network.userDefinedMolSuffix = tempudms;
-		udmsis.close();
-
-		ObjectInputStream udpsis= new ObjectInputStream(new FileInputStream(new File(userDefinedPatSuffixData)));
-		LinkedList<Integer> tempudps = (LinkedList<Integer>) udpsis.readObject();
-		Network.userDefinedPatSuffix = tempudps;
-		udpsis.close();
-
-		ObjectInputStream udvsis= new ObjectInputStream(new FileInputStream(new File(userDefinedVarSuffixData)));
-		LinkedList<Integer> tempudvs = (LinkedList<Integer>) udvsis.readObject();
-		Network.userDefinedVarSuffix = tempudvs;
-		udvsis.close();
+			ObjectInputStream udmsis= new ObjectInputStream(new FileInputStream(new File(userDefinedMolSuffixData)));
+			state().molNames = readNames(udmsis, "M", tempMC);
+			udmsis.close();
+
+			ObjectInputStream udpsis= new ObjectInputStream(new FileInputStream(new File(userDefinedPatSuffixData)));
+			state().patNames = readNames(udpsis, "P", tempPC);
+			udpsis.close();
+
+			ObjectInputStream udvsis= new ObjectInputStream(new FileInputStream(new File(userDefinedVarSuffixData)));
+			state().varNames = readNames(udvsis, "V", tempVC);
+			udvsis.close();
 		
-		Node.setCount(nodes.size());
+			Node.setCount(state().nodes.size());
+			MatchIndex.clear();
 		
+		} finally {
+			unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * This method reads a saved name allocator, or builds one from the list of
+	 * the user-defined suffixes saved by the earlier versions.
+	 */
+	@SuppressWarnings("unchecked")
+	private static NameAllocator readNames(ObjectInputStream in, String prefix, int last)
+			throws IOException, ClassNotFoundException {
+		Object saved = in.readObject();
+		if (saved instanceof NameAllocator)
+			return (NameAllocator) saved;
+		return NameAllocator.fromSuffixes(prefix, last, (LinkedList<Integer>) saved);
 	}
 
 	/**
 	 * This method is used to clear the network entirely.
 	 */
 	public static void clearNetwork() {
-		nodes.clear();
-		propositionNodes.clear();
-		nodesIndex.clear();
-		molecularNodes.clear();
-		caseFrames.clear();
-		relations.clear();
-		molCounter = 0;
-		patternCounter = 0;
-		varCounter = 0;
-		Node.setCount(0);
-		userDefinedMolSuffix.clear();
-		userDefinedPatSuffix.clear();
-		userDefinedVarSuffix.clear();
+		long stamp = lockWrite();
+		NetworkTransaction open = state().transaction;
+		try {
+			state().nodes.clear();
+			state().propositionNodes.clear();
+			state().nodesIndex.clear();
+			state().removedNodes.clear();
+			state().molecularNodes.clear();
+			MatchIndex.clear();
+			state().transaction = null;
+			state().caseFrames.clear();
+			state().relations.clear();
+			Node.setCount(0);
+			state().molNames.clear();
+			state().patNames.clear();
+			state().varNames.clear();
+		} finally {
+			unlockWrite(stamp);
+			// a transaction the current thread left open is dropped with the lock it holds
+			if (open != null) {
+				while (open.parent != null)
+					open = open.parent;
+				Controller.commitLog(open.controllerLog);
+				unlockWrite(open.stamp);
+			}
+		}
 	}
 
 }
@@ -0,0 +1,154 @@
+package sneps.network;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import sneps.snebr.Context;
+import sneps.snebr.ControllerState;
+
+/**
+ * A snapshot of the network and of the contexts of SNeBR pinned at some
+ * version of the network. The nodes built after that version are not seen by
+ * the code reading the network inside the snapshot, and the nodes removed
+ * after it are still seen, so a query reads the same network however long it
+ * runs. The nodes the query builds itself are seen as well.
+ * The removed nodes are only taken out of the network once no snapshot
+ * pinned before their removal is open, so a snapshot must be closed when the
+ * query is done.
+ */
+public class NetworkSnapshot implements AutoCloseable {
+
+	private static final ThreadLocal<NetworkSnapshot> entered = new ThreadLocal<NetworkSnapshot>();
+
+	private final KnowledgeBase knowledgeBase;
+	private final long version;
+	private final ControllerState controllerState;
+	private final Set<Node> built = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>()));
+	private boolean closed;
+
+	NetworkSnapshot(KnowledgeBase knowledgeBase, long version, ControllerState controllerState) {
+		this.knowledgeBase = knowledgeBase;
+		this.version = version;
+		this.controllerState = controllerState;
+	}
+
+	/**
+	 * @return the snapshot entered by the current thread, or null if it is
+	 *         reading the current network.
+	 */
+	static NetworkSnapshot current() {
+		return entered.get();
+	}
+
+	KnowledgeBase getKnowledgeBase() {
+		return knowledgeBase;
+	}
+
+	/**
+	 * @return the version of the network this snapshot is pinned at.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @param node
+	 *            a node.
+	 *
+	 * @return true if the node is in the network as seen by this snapshot.
+	 */
+	public boolean isVisible(Node node) {
+		return node.isVisibleAt(version) || (!node.isRemoved() && built.contains(node));
+	}
+
+	/**
+	 * Record a node built by a thread that entered this snapshot.
+	 */
+	void built(Node node) {
+		built.add(node);
+	}
+
+	/**
+	 * @param name
+	 *            the name of a context.
+	 *
+	 * @return the context having the name when the snapshot was pinned, or null
+	 *         if there was none.
+	 */
+	public Context getContext(String name) {
+		return controllerState.getContext(name);
+	}
+
+	/**
+	 * @return the current context of SNeBR when the snapshot was pinned.
+	 */
+	public Context getCurrentContext() {
+		return controllerState.getContext(controllerState.getCurrContext());
+	}
+
+	/**
+	 * Make the current thread read the network inside this snapshot until
+	 * exit is called.
+	 *
+	 * @return the snapshot the thread was in before, to be given to exit.
+	 */
+	public NetworkSnapshot enter() {
+		if (closed)
+			throw new IllegalStateException("The snapshot is closed");
+		NetworkSnapshot previous = entered.get();
+		entered.set(this);
+		return previous;
+	}
+
+	/**
+	 * Make the current thread leave this snapshot.
+	 *
+	 * @param previous
+	 *            the snapshot returned by enter.
+	 */
+	public void exit(NetworkSnapshot previous) {
+		if (previous == null)
+			entered.remove();
+		else
+			entered.set(previous);
+	}
+
+	/**
+	 * Run a reader inside this snapshot.
+	 *
+	 * @param reader
+	 *            the code reading the network.
+	 *
+	 * @return the result of the reader.
+	 */
+	public <T> T read(Supplier<T> reader) {
+		NetworkSnapshot previous = enter();
+		try {
+			return reader.get();
+		} finally {
+			exit(previous);
+		}
+	}
+
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Unpin this snapshot, letting the network drop the nodes removed since it
+	 * was pinned.
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+		knowledgeBase.run(() -> {
+			Network.unpin(this);
+			return null;
+		});
+	}
+
+}
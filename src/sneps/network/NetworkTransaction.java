@@ -0,0 +1,71 @@
+package sneps.network;
+
+import java.util.ArrayList;
+
+import sneps.snebr.Controller;
+import sneps.snebr.ControllerLog;
+
+/**
+ * The undo log of a transaction over the network: the state of the network
+ * counters when the transaction began, the nodes, relations and case frames
+ * defined since, and the changes made to SNeBR by the thread that began it.
+ * Transactions nest; a nested transaction has its own log that is merged into
+ * the log of its parent when it is committed.
+ */
+class NetworkTransaction {
+
+	final NetworkTransaction parent;
+
+	/**
+	 * The stamp of the write lock of the network taken when the outermost
+	 * transaction began, or 0 for a nested transaction.
+	 */
+	final long stamp;
+
+	final int nodeCount;
+	final int indexSize;
+	final int molCounter;
+	final int patternCounter;
+	final int varCounter;
+	final ControllerLog controllerLog;
+
+	/**
+	 * The nodes built in the transaction, in the order they were built.
+	 */
+	final ArrayList<Node> nodes = new ArrayList<Node>();
+	final ArrayList<String> relations = new ArrayList<String>();
+	final ArrayList<String> caseFrames = new ArrayList<String>();
+
+	/**
+	 * The suffixes reserved by the identifiers given to the base nodes built in
+	 * the transaction.
+	 */
+	final ArrayList<Integer> molSuffixes = new ArrayList<Integer>();
+	final ArrayList<Integer> patSuffixes = new ArrayList<Integer>();
+	final ArrayList<Integer> varSuffixes = new ArrayList<Integer>();
+
+	NetworkTransaction(NetworkTransaction parent, long stamp, int indexSize, int molCounter, int patternCounter,
+			int varCounter) {
+		this.parent = parent;
+		this.stamp = stamp;
+		this.nodeCount = Node.getCount();
+		this.indexSize = indexSize;
+		this.molCounter = molCounter;
+		this.patternCounter = patternCounter;
+		this.varCounter = varCounter;
+		this.controllerLog = Controller.beginLog();
+	}
+
+	/**
+	 * Hand the log of this transaction over to its parent.
+	 */
+	void mergeIntoParent() {
+		parent.nodes.addAll(nodes);
+		parent.relations.addAll(relations);
+		parent.caseFrames.addAll(caseFrames);
+		parent.molSuffixes.addAll(molSuffixes);
+		parent.patSuffixes.addAll(patSuffixes);
+		parent.varSuffixes.addAll(varSuffixes);
+	}
+
+}
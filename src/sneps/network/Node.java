@@ -16,15 +16,22 @@ public class Node implements Serializable {
 
 	protected Term term;
 	protected Semantic semanticType;
-	private static int count = 0;
 	private int id;
 
+	/**
+	 * The version of the network at which the node was built, and the version at
+	 * which it was removed or 0 if it was not removed. The snapshots of the
+	 * network pinned at the versions in between see the node.
+	 */
+	private long createdVersion;
+	private long removedVersion;
+
 	public Node() {
 	}
 
 	public Node(Term trm) {
 		term = trm;
-		id = count++;
+		id = Network.state().nodeCount++;
 		if(this.getTerm() instanceof Molecular) {
 			this.updateUpCables();
 		}
@@ -32,13 +39,13 @@ public class Node implements Serializable {
 
 	public Node(Semantic sem) {
 		semanticType = sem;
-		id = count++;
+		id = Network.state().nodeCount++;
 	}
 
 	public Node(Semantic sem, Term trm) {
 		semanticType = sem;
 		term = trm;
-		id = count++;
+		id = Network.state().nodeCount++;
 		if(this.getTerm() instanceof Molecular) {
 			this.updateUpCables();
 		}
@@ -235,11 +242,11 @@ public class Node implements Serializable {
 	}
 
 	public static int getCount() {
-		return count;
+		return Network.state().nodeCount;
 	}
 
 	public static void setCount(int count) {
-		Node.count = count;
+		Network.state().nodeCount = count;
 	}
 
 	public int getId() {
@@ -250,6 +257,42 @@ public class Node implements Serializable {
 		this.id = id;
 	}
 
+	long getCreatedVersion() {
+		return createdVersion;
+	}
+
+	void setCreatedVersion(long version) {
+		this.createdVersion = version;
+	}
+
+	long getRemovedVersion() {
+		return removedVersion;
+	}
+
+	void setRemovedVersion(long version) {
+		this.removedVersion = version;
+	}
+
+	/**
+	 *
+	 * @return true if the node was removed from the network, even though the
+	 *         snapshots pinned before its removal may still see it.
+	 */
+	public boolean isRemoved() {
+		return removedVersion != 0;
+	}
+
+	/**
+	 *
+	 * @param version
+	 *            a version of the network.
+	 *
+	 * @return true if the node was in the network at the given version.
+	 */
+	public boolean isVisibleAt(long version) {
+		return createdVersion <= version && (removedVersion == 0 || removedVersion > version);
+	}
+
 	public boolean isTemp() {
 		return this.term.isTemp();
 	}
@@ -56,13 +56,12 @@ public class PropositionNode extends Node implements Serializable{
 	public void processSingleChannelReports(Channel currentChannel) {
 		ReportSet reports = currentChannel.getReportsBuffer();
 		for (Report currentReport : reports) {
-			Report alteredReport = new Report(currentReport.getSubstitutions(), currentReport.getSupports(),
-					currentReport.getSign(), currentReport.getContextName());
-			if (knownInstances.contains(alteredReport)) {
+			if (knownInstances.contains(currentReport)) {
 				continue;
 			}
+			knownInstances.addReport(currentReport);
 			for (Channel outChannel : outgoingChannels)
-				outChannel.addReport(alteredReport);
+				outChannel.addReport(currentReport);
 			currentChannel.clearReportsBuffer();
 		}
 		currentChannel.clearReportsBuffer();
@@ -70,7 +69,8 @@ public class PropositionNode extends Node implements Serializable{
 
 	public void processReports() {
 		for (Channel inChannel : incomingChannels)
-			processSingleChannelReports(inChannel);
+			if (inChannel.isValveOpen())
+				processSingleChannelReports(inChannel);
 	}
 
 	public void broadcastReport(Report report) {
@@ -118,19 +118,7 @@ public class PropositionNode extends Node implements Serializable{
 							currentChannel.getContextID(), ChannelTypes.RuleCons);
 					// System.out.println("#$#$#$#$# 1");
 					if (!(currentChannel instanceof MatchChannel)) {
-						try {
-							List<Object[]> matchesReturned = Matcher.Match(this);
-							if(matchesReturned != null) {
-								ArrayList<Pair> matches = new ArrayList<Pair>();
-								for(Object[] match : matchesReturned) {
-									Pair newPair = new Pair((Substitutions)match[1], (Substitutions)match[2], (Node)match[0]);
-									matches.add(newPair);
-								}
-								sendRequests(matches, currentChannel.getContextID(), ChannelTypes.MATCHED);
-							}
-						} catch (Exception e) {
-							e.printStackTrace();
-						}
+						sendRequests(Matcher.match(this), currentChannel.getContextID(), ChannelTypes.MATCHED);
 					}
 				}
 			}
@@ -215,6 +203,20 @@ public class PropositionNode extends Node implements Serializable{
 	public ReportSet getKnownInstances() {
 		return knownInstances;
 	}
+	/**
+	 * Put the reports this node keeps, in its instances and in the buffers of
+	 * its channels, in the buckets of their hashes again, once Report.rehash
+	 * changed them.
+	 */
+	public void rehashReports() {
+		knownInstances.rehash();
+		if (newInstances != null)
+			newInstances.rehash();
+		for (Channel channel : outgoingChannels)
+			channel.getReportsBuffer().rehash();
+		for (Channel channel : incomingChannels)
+			channel.getReportsBuffer().rehash();
+	}
 	public void setKnownInstances(ReportSet knownInstances) {
 		this.knownInstances = knownInstances;
 	}
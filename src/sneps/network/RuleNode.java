@@ -17,12 +17,15 @@ import sneps.network.classes.term.Open;
 import sneps.network.classes.term.Term;
 import sneps.snebr.Context;
 import sneps.snebr.Controller;
+import sneps.snebr.Support;
 import sneps.snip.Report;
 import sneps.snip.channels.AntecedentToRuleChannel;
 import sneps.snip.channels.Channel;
 import sneps.snip.channels.ChannelTypes;
 import sneps.snip.channels.RuleToConsequentChannel;
 import sneps.snip.classes.FlagNode;
+import sneps.snip.classes.RuleCounter;
+import sneps.snip.classes.RuleCounterSet;
 import sneps.snip.classes.RuleUseInfo;
 import sneps.snip.classes.SIndex;
 
@@ -67,6 +70,12 @@ public abstract class RuleNode extends PropositionNode implements Serializable{
 
 	private Hashtable<Integer, RuleUseInfo> contextConstantRUI;
 
+	/**
+	 * the counters of the reports of the antecedents, per context and per
+	 * substitution
+	 */
+	private transient RuleCounterSet ruleCounters;
+
 	
 	public RuleNode(){}
 	
@@ -78,6 +87,7 @@ public abstract class RuleNode extends PropositionNode implements Serializable{
 		antNodesWithVarsIDs = new HashSet<Integer>();
 		contextRuisSet = new ContextRuisSet();
 		contextConstantRUI = new Hashtable<Integer, RuleUseInfo>();
+		ruleCounters = new RuleCounterSet();
 	}
 
 	protected void processNodes(NodeSet antNodes) {
@@ -125,10 +135,114 @@ public abstract class RuleNode extends PropositionNode implements Serializable{
 
 	abstract protected void sendRui(RuleUseInfo tRui, String contextID);
 
-	
+	public RuleCounterSet getRuleCounters() {
+		if (ruleCounters == null)
+			ruleCounters = new RuleCounterSet();
+		return ruleCounters;
+	}
+
+	/**
+	 * Counts a report of an antecedent in the counter of its context and
+	 * substitution. This takes constant time in the number of antecedents.
+	 * 
+	 * @param report
+	 *            the report sent by the antecedent
+	 * @param signature
+	 *            the antecedent
+	 * @return the counter, or null if the report was not counted since the
+	 *         counter is already decided or the antecedent was already counted
+	 */
+	protected RuleCounter countReport(Report report, Node signature) {
+		RuleCounter counter = getRuleCounters().getCounter(report.getContextName(), report.getSubstitutions());
+		if (!counter.count(signature, report.isPositive(), report.getSupports()))
+			return null;
+		return counter;
+	}
+
+	/**
+	 * Decides a counter: reports the conclusion to the requesters it concludes
+	 * to, then closes the valves of the channels through which the remaining
+	 * antecedents would report under the substitution of the counter, since
+	 * their reports cannot change the outcome any more. The conclusion is
+	 * supported by the rule and by the reports the firing condition needs
+	 * only, so that its support is minimal.
+	 * 
+	 * @param counter
+	 *            the counter to be decided
+	 * @param contextName
+	 *            the context of the counter
+	 * @param sign
+	 *            the sign of the conclusion
+	 * @param positives
+	 *            the number of positive reports the firing condition needs
+	 * @param negatives
+	 *            the number of negative reports the firing condition needs
+	 */
+	protected void fireCounter(RuleCounter counter, String contextName, boolean sign, int positives,
+			int negatives) {
+		fireCounter(counter, contextName, sign, counter.getSupports(positives, negatives));
+	}
+
+	/**
+	 * Decides a counter as fireCounter does, the conclusion being supported by
+	 * the rule and by the given supports of the reports it was derived from.
+	 */
+	protected void fireCounter(RuleCounter counter, String contextName, boolean sign, Set<Support> supports) {
+		counter.decide();
+		if (getBasicSupport() != null)
+			supports.add(getBasicSupport());
+		Report reply = new Report(counter.getSubstitutions(), supports, sign, contextName);
+		for (Channel outChannel : outgoingChannels) {
+			if (contextName.equals(outChannel.getContextName()) && concludesTo(outChannel.getRequester(), counter))
+				outChannel.addReport(reply);
+		}
+		closeAntecedentValves(counter, contextName);
+	}
+
+	/**
+	 * Checks if the conclusion of a decided counter is to be reported to a
+	 * requester. By default it is reported to every requester that did not
+	 * report to the counter.
+	 */
+	protected boolean concludesTo(Node requester, RuleCounter counter) {
+		return !counter.isReported(requester.getId());
+	}
+
+	/**
+	 * Closes the valves of the antecedent channels of a context that did not
+	 * report to a counter, and whose filter only lets the substitution of the
+	 * counter pass.
+	 */
+	protected void closeAntecedentValves(RuleCounter counter, String contextName) {
+		for (Channel inChannel : incomingChannels) {
+			if (inChannel instanceof AntecedentToRuleChannel && contextName.equals(inChannel.getContextName())
+					&& !counter.isReported(inChannel.getReporter().getId())
+					&& inChannel.getFilter().getSubstitution().isSubSet(counter.getSubstitutions()))
+				inChannel.setValve(false);
+		}
+	}
+
 	public void clear() {
 		contextRuisSet.clear();
 		contextConstantRUI.clear();
+		getRuleCounters().clear();
+	}
+
+	/**
+	 * Recomputes the ids this rule keeps of its antecedents and their shared
+	 * variables after the network was compacted, and drops the rule use infos
+	 * and counters, which hold the old ids of the reporters.
+	 */
+	protected void renumbered() {
+		antNodesWithVarsIDs.clear();
+		for (Node n : antNodesWithVars)
+			antNodesWithVarsIDs.add(n.getId());
+		antNodesWithoutVarsIDs.clear();
+		for (Node n : antNodesWithoutVars)
+			antNodesWithoutVarsIDs.add(n.getId());
+		if (sharedVars != null)
+			sharedVars = getSharedVarsInts(antNodesWithVars);
+		clear();
 	}
 
 	public boolean allShareVars(NodeSet nodes) {
@@ -296,6 +410,8 @@ public abstract class RuleNode extends PropositionNode implements Serializable{
 	@Override
 	public void processReports() {
 		for (Channel currentChannel : incomingChannels) {
+			if (!currentChannel.isValveOpen())
+				continue;
 			ReportSet channelReports = currentChannel.getReportsBuffer();
 			for (Report currentReport : channelReports) {
 				if (currentChannel instanceof AntecedentToRuleChannel) {
@@ -0,0 +1,205 @@
+package sneps.network.classes;
+
+import java.util.ArrayList;
+import java.util.Hashtable;
+import java.util.LinkedList;
+
+import sneps.network.Node;
+import sneps.network.classes.setClasses.NodeSet;
+
+/**
+ * The case frame signatures of a case frame compiled into flat tables. Every
+ * distinct pair of a relation and a semantic type constrained by any of the
+ * signatures gets a counter slot. Matching a down cable set counts, in one pass
+ * over the nodes of each relation, the nodes of each type, then checks the
+ * signatures in their priority order against these counts. Nothing is
+ * allocated while matching.
+ *
+ * A matcher is compiled by its case frame and thrown away when a signature is
+ * added to or removed from it.
+ */
+public class CFSignatureMatcher {
+
+	/**
+	 * The relations constrained by the signatures, and for each of them the range
+	 * of its counter slots in the arrays below.
+	 */
+	private final String[] relations;
+	private final int[] slotsStart;
+
+	/**
+	 * The semantic type counted by each slot, and its id in the compiled semantic
+	 * hierarchy of version hierarchyVersion.
+	 */
+	private final String[] types;
+	private final int[] slotRelations;
+	private final int[] typeIds;
+	private int hierarchyVersion = -1;
+
+	/**
+	 * The cable type constraints: the slot each of them counts in and its limits,
+	 * -1 standing for no limit. A constraint with no limits requires all the
+	 * nodes of its relation to be of its type.
+	 */
+	private final int[] checkSlots;
+	private final int[] checkMins;
+	private final int[] checkMaxs;
+
+	/**
+	 * The signatures in their priority order: the range of each in checkSlots and
+	 * the semantic type it results in.
+	 */
+	private final int[] signaturesStart;
+	private final String[] results;
+
+	private final int[] counts;
+	private final int[] sizes;
+
+	/**
+	 * Compile the signatures of a case frame.
+	 *
+	 * @param caseFrame
+	 *            the case frame whose signatures are compiled.
+	 */
+	public CFSignatureMatcher(RelationsRestrictedCaseFrame caseFrame) {
+		ArrayList<String> relationList = new ArrayList<String>();
+		ArrayList<ArrayList<String>> typeLists = new ArrayList<ArrayList<String>>();
+		ArrayList<CFSignature> signatureList = new ArrayList<CFSignature>();
+		int checkCount = 0;
+		for (String id : caseFrame.getSignatureIDs()) {
+			CFSignature signature = caseFrame.getSignatures().get(id);
+			if (signature == null)
+				continue;
+			signatureList.add(signature);
+			for (SubDomainConstraint rule : signature.getSubDomainConstraints()) {
+				int relation = relationList.indexOf(rule.getRelation());
+				if (relation < 0) {
+					relation = relationList.size();
+					relationList.add(rule.getRelation());
+					typeLists.add(new ArrayList<String>());
+				}
+				for (CableTypeConstraint check : rule.getNodeChecks()) {
+					if (!typeLists.get(relation).contains(check.getSemanticType()))
+						typeLists.get(relation).add(check.getSemanticType());
+					checkCount++;
+				}
+			}
+		}
+
+		relations = relationList.toArray(new String[relationList.size()]);
+		slotsStart = new int[relations.length + 1];
+		ArrayList<String> typeList = new ArrayList<String>();
+		for (int r = 0; r < relations.length; r++) {
+			slotsStart[r] = typeList.size();
+			typeList.addAll(typeLists.get(r));
+		}
+		slotsStart[relations.length] = typeList.size();
+		types = typeList.toArray(new String[typeList.size()]);
+		slotRelations = new int[types.length];
+		for (int r = 0; r < relations.length; r++) {
+			for (int t = slotsStart[r]; t < slotsStart[r + 1]; t++)
+				slotRelations[t] = r;
+		}
+		typeIds = new int[types.length];
+		counts = new int[types.length];
+		sizes = new int[relations.length];
+
+		checkSlots = new int[checkCount];
+		checkMins = new int[checkCount];
+		checkMaxs = new int[checkCount];
+		signaturesStart = new int[signatureList.size() + 1];
+		results = new String[signatureList.size()];
+		int c = 0;
+		for (int s = 0; s < results.length; s++) {
+			CFSignature signature = signatureList.get(s);
+			signaturesStart[s] = c;
+			results[s] = signature.getResultingType();
+			for (SubDomainConstraint rule : signature.getSubDomainConstraints()) {
+				int relation = relationList.indexOf(rule.getRelation());
+				LinkedList<CableTypeConstraint> checks = rule.getNodeChecks();
+				for (CableTypeConstraint check : checks) {
+					checkSlots[c] = slotsStart[relation] + typeLists.get(relation).indexOf(check.getSemanticType());
+					checkMins[c] = check.getLowerLimit() == null ? -1 : check.getLowerLimit();
+					checkMaxs[c] = check.getUpperLimit() == null ? -1 : check.getUpperLimit();
+					c++;
+				}
+			}
+		}
+		signaturesStart[results.length] = c;
+	}
+
+	/**
+	 * Find the first signature, in priority order, satisfied by a down cable set.
+	 *
+	 * @param relNodeSet
+	 *            a hash table with entry having the relation name as the key and
+	 *            the node set of nodes pointed to by the corresponding relation
+	 *            as the value.
+	 *
+	 * @return the semantic type the satisfied signature results in, or null if
+	 *         no signature is satisfied.
+	 */
+	public synchronized String match(Hashtable<String, NodeSet> relNodeSet) {
+		resolveTypes();
+		for (int r = 0; r < relations.length; r++) {
+			for (int t = slotsStart[r]; t < slotsStart[r + 1]; t++)
+				counts[t] = 0;
+			NodeSet ns = relNodeSet.get(relations[r]);
+			sizes[r] = ns == null ? 0 : ns.size();
+			for (int l = 0; l < sizes[r]; l++) {
+				Node node = ns.getNode(l);
+				Semantic semantic = node.getSemantic();
+				int id = semantic == null || semantic.getSemanticType() == null ? -1
+						: SemanticHierarchy.getTypeId(semantic.getSemanticType());
+				for (int t = slotsStart[r]; t < slotsStart[r + 1]; t++) {
+					if (isOfType(node, semantic, id, t))
+						counts[t]++;
+				}
+			}
+		}
+		for (int s = 0; s < results.length; s++) {
+			boolean satisfied = true;
+			for (int c = signaturesStart[s]; c < signaturesStart[s + 1] && satisfied; c++)
+				satisfied = passes(c);
+			if (satisfied)
+				return results[s];
+		}
+		return null;
+	}
+
+	public int getSignaturesCount() {
+		return results.length;
+	}
+
+	private boolean isOfType(Node node, Semantic semantic, int id, int slot) {
+		if (id >= 0 && typeIds[slot] >= 0) {
+			if (SemanticHierarchy.isSubtypeOf(id, typeIds[slot]))
+				return true;
+		} else if (semantic != null && semantic.isSubtypeOf(types[slot])) {
+			return true;
+		}
+		return node.getSemanticSuperClass().equals(types[slot]);
+	}
+
+	private boolean passes(int check) {
+		int slot = checkSlots[check];
+		int counter = counts[slot];
+		if (checkMins[check] < 0 && checkMaxs[check] < 0)
+			return counter == sizes[slotRelations[slot]];
+		return counter >= Math.max(checkMins[check], 0) && (checkMaxs[check] < 0 || counter <= checkMaxs[check]);
+	}
+
+	/**
+	 * Look the ids of the constrained types up again if the semantic hierarchy
+	 * was compiled again since they were.
+	 */
+	private void resolveTypes() {
+		int version = SemanticHierarchy.getVersion();
+		if (version == hierarchyVersion)
+			return;
+		for (int t = 0; t < types.length; t++)
+			typeIds[t] = SemanticHierarchy.getTypeId(types[t]);
+		hierarchyVersion = version;
+	}
+
+}
@@ -51,6 +51,13 @@ public class RelationsRestrictedCaseFrame extends CaseFrame implements Serializa
 	 */
 	private Hashtable<String, CFSignature> signatures;
 
+	/**
+	 * The signatures compiled for matching down cable sets against them. It is
+	 * compiled when first needed, and again after a signature is added or
+	 * removed.
+	 */
+	private transient CFSignatureMatcher signatureMatcher;
+
 	/**
 	 * A string id that is automatically generated by concatenating all names of the
 	 * relations included in the case frame separated by commas after sorting them
@@ -141,6 +148,7 @@ public class RelationsRestrictedCaseFrame extends CaseFrame implements Serializa
 				this.signatureIDs.add(priority.intValue(), sig.getId());
 			}
 			this.signatures.put(sig.getId(), sig);
+			this.signatureMatcher = null;
 			return true;
 		}
 		return false;
@@ -161,6 +169,7 @@ public class RelationsRestrictedCaseFrame extends CaseFrame implements Serializa
 			for (int i = 0; i < this.signatureIDs.size(); i++) {
 				if (this.signatureIDs.get(i).equals(id)) {
 					this.signatureIDs.remove(i);
+					this.signatureMatcher = null;
 					return true;
 				}
 			}
@@ -183,6 +192,7 @@ public class RelationsRestrictedCaseFrame extends CaseFrame implements Serializa
 			for (int i = 0; i < this.signatureIDs.size(); i++) {
 				if (this.signatureIDs.get(i).equals(sig.getId())) {
 					this.signatureIDs.remove(i);
+					this.signatureMatcher = null;
 					return true;
 				}
 			}
@@ -207,6 +217,17 @@ public class RelationsRestrictedCaseFrame extends CaseFrame implements Serializa
 		return this.signatures;
 	}
 
+	/**
+	 * 
+	 * @return the case frame signatures compiled in their priority order.
+	 */
+	public synchronized CFSignatureMatcher getSignatureMatcher() {
+		if (this.signatureMatcher == null) {
+			this.signatureMatcher = new CFSignatureMatcher(this);
+		}
+		return this.signatureMatcher;
+	}
+
 	/**
 	 * 
 	 * @return the name of the default semantic class specified by the current case
@@ -328,7 +349,7 @@ public class RelationsRestrictedCaseFrame extends CaseFrame implements Serializa
 		LinkedList<RCFP> doif = new LinkedList<RCFP>();
 		doif.add(RCFP.doo);
 		doif.add(RCFP.iff);
-		doIf = Network.defineCaseFrameWithConstraints("Prorposition", doif);
+		doIf = Network.defineCaseFrameWithConstraints("Proposition", doif);
 
 		LinkedList<RCFP> acteffect = new LinkedList<RCFP>();
 		acteffect.add(RCFP.act);
@@ -52,6 +52,28 @@ public class Semantic implements Serializable {
 		return semanticType;
 	}
 
+	public String getSuperClass() {
+		return superClass;
+	}
+
+	/**
+	 * Check whether this semantic is of a type or of one of its descendants,
+	 * using the compiled hierarchy if the type of this semantic is defined
+	 * 
+	 * @param type
+	 *            the name of the semantic type
+	 * @return true if this semantic is of the type or below it
+	 */
+	public boolean isSubtypeOf(String type) {
+		if (type.equals(semanticType))
+			return true;
+		if (semanticType == null)
+			return false;
+		if (SemanticHierarchy.isDefined(semanticType))
+			return SemanticHierarchy.isSubtypeOf(semanticType, type);
+		return getSuperClassesNames().contains(type);
+	}
+
 	public boolean isAsserted(Object contextByName) {
 		// TODO Auto-generated method stub
 		return false;
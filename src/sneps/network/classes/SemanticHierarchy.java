@@ -8,35 +8,84 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.LinkedList;
 
 import sneps.exceptions.SemanticNotFoundInNetworkException;
+import sneps.network.KnowledgeBase;
 import sneps.network.Network;
 
 public class SemanticHierarchy implements Serializable{
 
-	private static Hashtable<String, Semantic> semantics = new Hashtable<String, Semantic>();
+	/**
+	 * The semantic types of a knowledge base, with their compiled hierarchy.
+	 * The State is the lock taken to compile the hierarchy. A new State has no
+	 * types.
+	 */
+	public static class State {
+		private Hashtable<String, Semantic> semantics = new Hashtable<String, Semantic>();
+
+		/**
+		 * The compiled hierarchy, or null if a type was defined since it was
+		 * compiled. It is compiled again the first time it is used after a type
+		 * is defined.
+		 */
+		private volatile Compiled compiled;
+		private int version;
+	}
+
+	/**
+	 * A compiled hierarchy: an id for every semantic type, and for every id the
+	 * set of the ids of the type and its ancestors. It is not changed once
+	 * compiled, so it is read without taking a lock.
+	 */
+	private static class Compiled {
+		private final HashMap<String, Integer> typeIds;
+		private final BitSet[] ancestors;
+		private final int size;
+		private final int version;
+
+		private Compiled(HashMap<String, Integer> typeIds, BitSet[] ancestors, int size, int version) {
+			this.typeIds = typeIds;
+			this.ancestors = ancestors;
+			this.size = size;
+			this.version = version;
+		}
+	}
+
+	/**
+	 * Return the semantic types of the knowledge base the current thread works
+	 * on
+	 */
+	private static State state() {
+		return KnowledgeBase.getActive().getSemanticHierarchy();
+	}
 
 	public static Semantic createSemanticType(String identifier) {
-		if (semantics.containsKey(identifier)) {
-			return semantics.get(identifier);
+		if (state().semantics.containsKey(identifier)) {
+			return state().semantics.get(identifier);
 		} else {
 			Semantic semantic = new Semantic(identifier);
-			semantics.put(identifier, semantic);
-			return semantics.get(identifier);
+			state().semantics.put(identifier, semantic);
+			state().compiled = null;
+			return state().semantics.get(identifier);
 		}
 	}
 	
 	public static Semantic createSemanticType(String identifier, String superClassIdentifier) throws SemanticNotFoundInNetworkException {
-		if(semantics.containsKey(identifier)) {
-			return semantics.get(identifier);
+		if(state().semantics.containsKey(identifier)) {
+			return state().semantics.get(identifier);
 		} 
 		else {
-			if(semantics.containsKey(superClassIdentifier)) {
+			if(state().semantics.containsKey(superClassIdentifier)) {
 				Semantic semantic = new Semantic(identifier, superClassIdentifier);
-				semantics.put(identifier, semantic);
-				return semantics.get(identifier);
+				state().semantics.put(identifier, semantic);
+				state().compiled = null;
+				return state().semantics.get(identifier);
 			}
 			else {
 				throw new SemanticNotFoundInNetworkException("The super class named '" + superClassIdentifier + "' does not exist!");
@@ -45,8 +94,8 @@ public class SemanticHierarchy implements Serializable{
 	}
 
 	public static Semantic getSemantic(String identifier) throws SemanticNotFoundInNetworkException {
-		if (semantics.containsKey(identifier)) {
-			return semantics.get(identifier);
+		if (state().semantics.containsKey(identifier)) {
+			return state().semantics.get(identifier);
 		} else {
 			throw new SemanticNotFoundInNetworkException(
 					"There is no semantic type named '" + identifier + "' in the system");
@@ -54,19 +103,132 @@ public class SemanticHierarchy implements Serializable{
 	}
 
 	public static Hashtable<String, Semantic> getSemantics() {
-		return semantics;
+		return state().semantics;
 	}
 	
+	/**
+	 * Return the id of a semantic type in the compiled hierarchy, or -1 if the
+	 * type is not defined
+	 */
+	public static int getTypeId(String identifier) {
+		Integer id = compiled().typeIds.get(identifier);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Check whether a semantic type is a type or a descendant of another one.
+	 * Both types are looked up in the compiled hierarchy, so the check is a
+	 * single bit test.
+	 * 
+	 * @param identifier
+	 *            the semantic type
+	 * @param ancestor
+	 *            the semantic type it may descend from
+	 * @return true if the type is the ancestor or one of its descendants
+	 */
+	public static boolean isSubtypeOf(String identifier, String ancestor) {
+		Compiled compiled = compiled();
+		Integer id = compiled.typeIds.get(identifier);
+		Integer ancestorId = compiled.typeIds.get(ancestor);
+		if (id == null || ancestorId == null)
+			return identifier.equals(ancestor);
+		return compiled.ancestors[id].get(ancestorId);
+	}
+
+	/**
+	 * Check whether a type is a type or a descendant of another one, both given
+	 * by their ids in the current version of the compiled hierarchy
+	 */
+	public static boolean isSubtypeOf(int id, int ancestorId) {
+		Compiled compiled = compiled();
+		if (id < 0 || ancestorId < 0 || id >= compiled.ancestors.length)
+			return id == ancestorId && id >= 0;
+		return compiled.ancestors[id].get(ancestorId);
+	}
+
+	/**
+	 * Return the version of the compiled hierarchy. The ids of the types only
+	 * hold within a version, and change when the hierarchy is compiled again.
+	 */
+	public static int getVersion() {
+		return compiled().version;
+	}
+
+	public static boolean isDefined(String identifier) {
+		return state().semantics.containsKey(identifier);
+	}
+
+	/**
+	 * Return the compiled hierarchy of the knowledge base the current thread
+	 * works on, compiling it if a type was defined since it was compiled.
+	 */
+	private static Compiled compiled() {
+		State state = state();
+		Compiled compiled = state.compiled;
+		if (compiled != null && compiled.size == state.semantics.size())
+			return compiled;
+		synchronized (state) {
+			compiled = state.compiled;
+			if (compiled == null || compiled.size != state.semantics.size()) {
+				compiled = compile(state.semantics, ++state.version);
+				state.compiled = compiled;
+			}
+			return compiled;
+		}
+	}
+
+	/**
+	 * Give every semantic type an id and compute the ancestors of each. The
+	 * super classes that are not defined as types are given ids too, so the
+	 * types below them are still their descendants.
+	 */
+	private static Compiled compile(Hashtable<String, Semantic> semantics, int version) {
+		HashMap<String, Integer> typeIds = new HashMap<String, Integer>();
+		ArrayList<BitSet> ancestors = new ArrayList<BitSet>();
+		for (String identifier : semantics.keySet())
+			idOf(typeIds, ancestors, identifier);
+		for (String identifier : semantics.keySet()) {
+			BitSet bits = ancestors.get(typeIds.get(identifier));
+			HashSet<String> visited = new HashSet<String>();
+			Semantic current = semantics.get(identifier);
+			while (current != null && visited.add(current.getSemanticType())) {
+				bits.set(idOf(typeIds, ancestors, current.getSemanticType()));
+				String superClass = current.getSuperClass();
+				if (superClass == null)
+					break;
+				if (!semantics.containsKey(superClass)) {
+					bits.set(idOf(typeIds, ancestors, superClass));
+					break;
+				}
+				current = semantics.get(superClass);
+			}
+		}
+		return new Compiled(typeIds, ancestors.toArray(new BitSet[ancestors.size()]), semantics.size(), version);
+	}
+
+	private static int idOf(HashMap<String, Integer> typeIds, ArrayList<BitSet> ancestors, String identifier) {
+		Integer id = typeIds.get(identifier);
+		if (id == null) {
+			id = ancestors.size();
+			typeIds.put(identifier, id);
+			BitSet bits = new BitSet();
+			bits.set(id);
+			ancestors.add(bits);
+		}
+		return id;
+	}
+
 	public static void save(String f) throws FileNotFoundException, IOException {
 		ObjectOutputStream fos = new ObjectOutputStream(new FileOutputStream(new File(f)));
-		fos.writeObject(semantics);
+		fos.writeObject(state().semantics);
 		fos.close();
 	}
 	
 	public static void load(String f) throws FileNotFoundException, IOException, ClassNotFoundException {
 		ObjectInputStream sems= new ObjectInputStream(new FileInputStream(new File(f)));
 		Hashtable<String, Semantic> tempSems = (Hashtable<String, Semantic>) sems.readObject();
-		SemanticHierarchy.semantics = tempSems;
+		state().semantics = tempSems;
+		state().compiled = null;
 		sems.close();
 		
 		try {
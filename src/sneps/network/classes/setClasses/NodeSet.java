@@ -2,6 +2,7 @@ package sneps.network.classes.setClasses;
 
 import java.io.Serializable;
 import java.util.Iterator;
+import java.util.Set;
 import java.util.Vector;
 
 import sneps.network.Node;
@@ -37,6 +38,13 @@ public class NodeSet implements Iterable<Node>, Serializable {
 		this.nodes.remove(node);
 	}
 
+	/**
+	 * Removes the nodes of a set in one pass over this set.
+	 */
+	public void removeAll(Set<Node> nodes) {
+		this.nodes.removeIf(nodes::contains);
+	}
+
 	public void clear() {
 		this.nodes.clear();
 	}
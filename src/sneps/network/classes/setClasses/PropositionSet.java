@@ -196,6 +196,30 @@ public class PropositionSet implements Serializable{
         return new PropositionSet();
     }
 
+    /**
+     * Returns this set with the ids of its props replaced by the ids they were given when the network was
+     * compacted. The new ids keep the order of the old ones, so the props stay sorted.
+     *
+     * @param newIds the new id of every old id, or -1 for the ids of the removed nodes
+     * @return a new PropositionSet holding the new ids, without the removed ones
+     */
+    public PropositionSet renumber(int[] newIds) {
+        int[] renumbered = new int[props.length];
+        int k = 0;
+        StringBuilder newHash = new StringBuilder();
+        for (int prop : props) {
+            int id = prop < newIds.length ? newIds[prop] : -1;
+            if (id < 0)
+                continue;
+            renumbered[k++] = id;
+            newHash.append(id).append(',');
+        }
+        PropositionSet result = new PropositionSet();
+        result.props = k == renumbered.length ? renumbered : Arrays.copyOf(renumbered, k);
+        result.hash = newHash.toString();
+        return result;
+    }
+
     public String getHash() {
         return hash;
     }
@@ -14,8 +14,11 @@ public class ReportSet implements Iterable<Report>, Serializable {
 		reports = new HashSet<Report>();
 	}
 	
+	/**
+	 * Add a report, interned so that equal reports are shared between sets
+	 */
 	public void addReport(Report rport){
-		reports.add(rport);
+		reports.add(Report.intern(rport));
 	}
 	
 	@Override
@@ -31,6 +34,22 @@ public class ReportSet implements Iterable<Report>, Serializable {
 		reports = new HashSet<Report>();
 	}
 
+	public boolean isEmpty() {
+		return reports.isEmpty();
+	}
+
+	public int size() {
+		return reports.size();
+	}
+
+	/**
+	 * Put the reports in the buckets of their hashes again, once Report.rehash
+	 * changed them
+	 */
+	public void rehash() {
+		reports = new HashSet<Report>(reports);
+	}
+
 	
 
 }
@@ -19,8 +19,8 @@ import sneps.network.classes.PathTrace;
 import sneps.network.classes.Relation;
 import sneps.network.cables.UpCable;
 import sneps.network.cables.UpCableSet;
+import sneps.network.Network;
 import sneps.network.Node;
-import sneps.network.classes.setClasses.NodeSet;
 
 public class BUnitPath extends Path implements Serializable{
 
@@ -57,9 +57,11 @@ public class BUnitPath extends Path implements Serializable{
 		UpCableSet upSet = node.getUpCableSet();
 		UpCable upCable = upSet.getUpCable(this.relation.getName());
 		if(upCable != null){
-			NodeSet ns = upCable.getNodeSet();
-			for(int i = 0; i < ns.size(); i++){
-				Node n = ns.getNode(i);
+			// copied since the cable may be changed while it is followed
+			for (Node n : Network.copyOf(upCable.getNodeSet())) {
+				// skip the parents the reader does not see
+				if (!Network.isVisible(n))
+					continue;
 				PathTrace t = trace.clone();
 				t.compose(new BUnitPath(this.relation));
 				Object[] o = new Object[2];
@@ -52,8 +52,7 @@ public class BangPath extends Path implements Serializable{
 		}
 		
 		// check it's proposition and it's asserted
-		if ((node.getSemanticType().getSuperClassesNames().contains("Proposition") ||
-				node.getSemanticType().getSemanticType().equals("Proposition")) &&
+		if (node.getSemanticType().isSubtypeOf("Proposition") &&
 					propositionIsAsserted
 		)
 		{
@@ -96,8 +95,7 @@ public class BangPath extends Path implements Serializable{
 		}
 		
 		// check it's proposition and it's asserted
-		if ((node.getSemanticType().getSuperClassesNames().contains("Proposition") ||
-				node.getSemanticType().getSemanticType().equals("Proposition")) &&
+		if (node.getSemanticType().isSubtypeOf("Proposition") &&
 					propositionIsAsserted
 		)
 		{
@@ -25,6 +25,32 @@ public class Context implements Serializable{
 
     private BitSet hypsBitset;
 
+    /**
+     * Gives the hyps of this context the ids they got when the network was compacted. The bitset is
+     * replaced rather than changed since contexts built from each other share it.
+     *
+     * @param newIds the new id of every old id, or -1 for the ids of the removed nodes
+     */
+    void renumber(int[] newIds) {
+        hyps = hyps.renumber(newIds);
+        hypsBitset = renumber(hypsBitset, newIds);
+    }
+
+    /**
+     * Returns a bitset of ids with the ids replaced by the ids they got when the network was compacted.
+     *
+     * @param bits   a bitset of ids
+     * @param newIds the new id of every old id, or -1 for the ids of the removed nodes
+     * @return a new bitset of the new ids
+     */
+    static BitSet renumber(BitSet bits, int[] newIds) {
+        BitSet renumbered = new BitSet();
+        for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1))
+            if (id < newIds.length && newIds[id] >= 0)
+                renumbered.set(newIds[id]);
+        return renumbered;
+    }
+
     /**
      * Constructs a new empty Context
      */
@@ -96,6 +122,33 @@ public class Context implements Serializable{
             this.hypsBitset.set(arr[i]);
     }
 
+    /**
+     * Constructs a new Context using its name, its hyps and an already computed BitSet of these hyps.
+     * This is used by the ContextBuilder to avoid recomputing the BitSet.
+     *
+     * @param contextName name of the new Context
+     * @param hyps        the hyps the Context's hyps should be set to
+     * @param hypsBitset  a BitSet having exactly the ids of the hyps set
+     */
+    protected Context(String contextName, PropositionSet hyps, BitSet hypsBitset) {
+        this(contextName);
+        this.hyps = hyps;
+        this.hypsBitset = hypsBitset;
+    }
+
+    /**
+     * Constructs a new Context having a set of names, its hyps and an already computed BitSet of these hyps.
+     *
+     * @param names      the names of the new Context
+     * @param hyps       the hyps the Context's hyps should be set to
+     * @param hypsBitset a BitSet having exactly the ids of the hyps set
+     */
+    protected Context(HashSet<String> names, PropositionSet hyps, BitSet hypsBitset) {
+        this.names = new HashSet<String>(names);
+        this.hyps = hyps;
+        this.hypsBitset = hypsBitset;
+    }
+
     /**
      * Returns the hyps of this Context
      *
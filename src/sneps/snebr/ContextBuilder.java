@@ -0,0 +1,118 @@
+package sneps.snebr;
+
+import sneps.exceptions.NodeNotFoundInNetworkException;
+import sneps.exceptions.NotAPropositionNodeException;
+import sneps.network.classes.setClasses.PropositionSet;
+
+import java.util.BitSet;
+
+/**
+ * A mutable accumulator of hyps used to build a new Context in one pass.
+ * Contexts are immutable, so asserting hyps one by one copies the PropositionSet
+ * and the hyps BitSet after every single addition. A ContextBuilder instead keeps
+ * one BitSet that is updated in place and only materializes the Context in build().
+ */
+public class ContextBuilder {
+
+    private String contextName;
+
+    private BitSet hypsBitset;
+
+    private BitSet addedHyps;
+
+    /**
+     * Constructs a new ContextBuilder starting from the hyps of an existing Context.
+     *
+     * @param contextName the name of the Context to be built
+     * @param base        the Context whose hyps the new Context starts with
+     */
+    public ContextBuilder(String contextName, Context base) {
+        this.contextName = contextName;
+        this.hypsBitset = (BitSet) base.getHypsBitset().clone();
+        this.addedHyps = new BitSet();
+    }
+
+    /**
+     * Constructs a new ContextBuilder for an empty Context.
+     *
+     * @param contextName the name of the Context to be built
+     */
+    public ContextBuilder(String contextName) {
+        this.contextName = contextName;
+        this.hypsBitset = new BitSet();
+        this.addedHyps = new BitSet();
+    }
+
+    /**
+     * Adds a hyp to the Context being built.
+     *
+     * @param hyp the id of the hyp to be added
+     * @return <code>true</code> if the hyp was not already in the Context, <code>false</code> otherwise.
+     */
+    public boolean add(int hyp) {
+        if (hypsBitset.get(hyp))
+            return false;
+        hypsBitset.set(hyp);
+        addedHyps.set(hyp);
+        return true;
+    }
+
+    /**
+     * Checks if a hyp is in the Context being built.
+     *
+     * @param hyp the id of the hyp to be checked
+     * @return <code>true</code> if the hyp is present, <code>false</code> otherwise.
+     */
+    public boolean contains(int hyp) {
+        return hypsBitset.get(hyp);
+    }
+
+    /**
+     * Checks if a hyp was added by this builder and was not part of the base Context.
+     *
+     * @param hyp the id of the hyp to be checked
+     * @return <code>true</code> if the hyp is newly added, <code>false</code> otherwise.
+     */
+    public boolean isAdded(int hyp) {
+        return addedHyps.get(hyp);
+    }
+
+    /**
+     * Returns the ids of the hyps added by this builder in ascending order.
+     *
+     * @return an int array of the newly added hyps
+     */
+    public int[] getAddedHyps() {
+        return addedHyps.stream().toArray();
+    }
+
+    /**
+     * Returns a copy of the BitSet of the hyps added by this builder.
+     *
+     * @return a BitSet of the newly added hyps
+     */
+    public BitSet getAddedHypsBitset() {
+        return (BitSet) addedHyps.clone();
+    }
+
+    /**
+     * Returns a copy of the BitSet of all the hyps in the Context being built.
+     *
+     * @return a BitSet of the hyps
+     */
+    public BitSet getHypsBitset() {
+        return (BitSet) hypsBitset.clone();
+    }
+
+    /**
+     * Materializes the Context. The PropositionSet of the hyps is created once from the accumulated BitSet.
+     *
+     * @return a new Context having all the accumulated hyps
+     * @throws NotAPropositionNodeException   if one of the hyps is not a proposition
+     * @throws NodeNotFoundInNetworkException if one of the hyps doesn't exist in the network
+     */
+    public Context build() throws NotAPropositionNodeException, NodeNotFoundInNetworkException {
+        return new Context(contextName, new PropositionSet(hypsBitset.stream().toArray()), (BitSet) hypsBitset.clone());
+    }
+
+}
@@ -3,6 +3,7 @@ package sneps.snebr;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Set;
 
@@ -27,6 +28,15 @@ public class ContextSet implements Serializable{
         this.contexts.put(name, new Context(name));
     }
 
+    /**
+     * @return a new ContextSet mapping the names of this one to the same Contexts
+     */
+    ContextSet copy() {
+        ContextSet set = new ContextSet();
+        set.contexts.putAll(contexts);
+        return set;
+    }
+
     public void clear() {
         contexts.clear();
     }
@@ -62,6 +72,15 @@ public class ContextSet implements Serializable{
         return contexts.remove(name) != null;
     }
 
+    /**
+     * Maps a name to a Context as is, without merging it with an identical Context.
+     * @param name the name of the Context
+     * @param c the Context
+     */
+    void put(String name, Context c) {
+        contexts.put(name, c);
+    }
+
     /**
      * updates the hashtable of names to the correct context moreover it ensures no duplicate contexts exists
      * @param c context to be added/merged in the contexts hashtable
@@ -93,6 +112,28 @@ public class ContextSet implements Serializable{
         return context;
     }
 
+    /**
+     * Builds a ContextSet from Contexts each holding all the names it should be mapped to. Contexts having the same
+     * hyps are merged as add does, but they are found by the hash of their hyps instead of by a scan of the set, so
+     * the ContextSet is built in time linear in the number of the Contexts.
+     * @param contexts the Contexts, none of them already merged into another one
+     * @return the new ContextSet
+     */
+    static ContextSet merge(Collection<Context> contexts) {
+        ContextSet set = new ContextSet();
+        HashMap<String, Context> byHyps = new HashMap<String, Context>();
+        for (Context c : contexts) {
+            Context identical = byHyps.putIfAbsent(c.getHypothesisSet().getHash(), c);
+            if (identical != null)
+                identical.addNames(c.getNames());
+            else
+                identical = c;
+            for (String name : c.getNames())
+                set.contexts.put(name, identical);
+        }
+        return set;
+    }
+
     public Collection<Context> getContexts() {
         return this.contexts.values();
     }
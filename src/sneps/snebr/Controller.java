@@ -1,17 +1,20 @@
 package sneps.snebr;
 
 import sneps.exceptions.*;
+import sneps.network.KnowledgeBase;
 import sneps.network.Network;
 import sneps.network.Node;
 import sneps.network.PropositionNode;
 import sneps.network.cables.Cable;
 import sneps.network.cables.DownCable;
+import sneps.network.cables.DownCableSet;
 import sneps.network.cables.UpCable;
 import sneps.network.cables.UpCableSet;
 import sneps.network.classes.Semantic;
 import sneps.network.classes.setClasses.NodeSet;
 import sneps.network.classes.setClasses.PropositionSet;
 import sneps.network.classes.term.Molecular;
+import sneps.snip.rete.ReteNetwork;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -21,21 +24,27 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Controller {
-    private static String currContext = "default";
-    private static ContextSet contextSet = new ContextSet(currContext);
-    private static ArrayList<BitSet> minimalNoGoods = new ArrayList<>();
-    private static String conflictingContext = null;
-    private static PropositionSet conflictingHyps;
-    private static boolean automaticBR = false;
+
+    /**
+     * The log of the changes the current thread makes to SNeBR while it has a transaction over the network open, or
+     * null if it has none open.
+     */
+    private static final ThreadLocal<ControllerLog> log = new ThreadLocal<ControllerLog>();
 
     public static boolean isAutomaticBR() {
-        return automaticBR;
+        return state().automaticBR;
     }
 
     public static void setAutomaticBR(boolean automaticBR) {
-        Controller.automaticBR = automaticBR;
+        state().automaticBR = automaticBR;
     }
 
     /**
@@ -46,11 +55,11 @@ public class Controller {
      * @throws DuplicateContextNameException If a context with the same name exists in SNeBR's ContextSet
      */
     public static Context createContext(String contextName) throws DuplicateContextNameException{
-        if (contextSet.getContext(contextName) != null)
+        if (state().contextSet.getContext(contextName) != null)
             throw new DuplicateContextNameException(contextName);
 
         Context c = new Context(contextName);
-        return contextSet.add(c);
+        return install(c);
     }
 
     /**
@@ -76,10 +85,205 @@ public class Controller {
      * Clears the global data strctures of SNeBR
      */
     public static void clearSNeBR() {
-        contextSet.clear();
-        minimalNoGoods.clear();
-        currContext = "default";
-        contextSet.add(new Context(currContext));
+        State state = state();
+        synchronized (state) {
+            state.minimalNoGoods.clear();
+            state.currContext = "default";
+            state.contextSet = new ContextSet(state.currContext);
+        }
+    }
+
+    /**
+     * The contexts of a knowledge base, which is also the lock guarding their replacement, and the pool maintaining
+     * them. A ContextSet is never changed once it is installed: every change builds a new one and installs it
+     * holding the lock, so publish notices any change made since a ContextSet was read. A new State has only the
+     * default context.
+     */
+    public static class State {
+        private String currContext = "default";
+        private volatile ContextSet contextSet = new ContextSet(currContext);
+        private ArrayList<BitSet> minimalNoGoods = new ArrayList<>();
+        private String conflictingContext;
+        private PropositionSet conflictingHyps;
+        private boolean automaticBR;
+        private int maintenanceParallelism = 1;
+        private ExecutorService maintenanceExecutor;
+    }
+
+    /**
+     * @return the contexts of the knowledge base the current thread works on
+     */
+    private static State state() {
+        return KnowledgeBase.getActive().getContexts();
+    }
+
+    /**
+     * Gives the hyps of the contexts, the minimal nogoods and the conflicting hyps the ids their propositions
+     * got when the network was compacted.
+     *
+     * @param newIds the new id of every old id, or -1 for the ids of the removed nodes
+     */
+    public static void renumber(int[] newIds) {
+        State state = state();
+        synchronized (state) {
+            Set<Context> renumbered = Collections.newSetFromMap(new IdentityHashMap<Context, Boolean>());
+            for (String name : state.contextSet.getNames()) {
+                Context c = state.contextSet.getContext(name);
+                if (renumbered.add(c))
+                    c.renumber(newIds);
+            }
+            ArrayList<BitSet> noGoods = new ArrayList<>(state.minimalNoGoods.size());
+            for (BitSet noGood : state.minimalNoGoods)
+                noGoods.add(Context.renumber(noGood, newIds));
+            state.minimalNoGoods = noGoods;
+            if (state.conflictingHyps != null)
+                state.conflictingHyps = state.conflictingHyps.renumber(newIds);
+        }
+    }
+
+    /**
+     * Saves the contexts and the current context of SNeBR, e.g. for a snapshot of the network to read them.
+     *
+     * @return the saved state
+     */
+    public static ControllerState saveState() {
+        State state = state();
+        synchronized (state) {
+            return new ControllerState(state.currContext, state.contextSet);
+        }
+    }
+
+    /**
+     * Starts logging the changes the current thread makes to SNeBR, nested in the log it already has if any.
+     *
+     * @return the new log
+     */
+    public static ControllerLog beginLog() {
+        ControllerLog l = new ControllerLog(log.get());
+        log.set(l);
+        return l;
+    }
+
+    /**
+     * Stops logging the changes of the current thread in a log, keeping the changes. They are handed over to the
+     * log it was nested in if any.
+     *
+     * @param l the innermost log of the current thread
+     */
+    public static void commitLog(ControllerLog l) {
+        log.set(l.getParent());
+        if (l.getParent() != null)
+            l.mergeIntoParent();
+    }
+
+    /**
+     * Stops logging the changes of the current thread in a log, undoing them in reverse order. A context name is
+     * mapped back to the Context it was mapped to before unless another thread mapped it to another Context since,
+     * in which case the hyps added and removed by the logged change are removed and added back in the current
+     * Context only. The propositions the undone changes asserted that are no longer asserted in any context stop
+     * being hyps.
+     *
+     * @param l the innermost log of the current thread
+     */
+    public static void rollbackLog(ControllerLog l) throws NotAPropositionNodeException, NodeNotFoundInNetworkException {
+        State state = state();
+        synchronized (state) {
+            log.set(l.getParent());
+            ContextSet set = state.contextSet.copy();
+            BitSet dropped = new BitSet();
+            ArrayList<ControllerLog.Mapping> mappings = l.getMappings();
+            for (int i = mappings.size() - 1; i >= 0; i--) {
+                ControllerLog.Mapping m = mappings.get(i);
+                BitSet added = m.after == null ? new BitSet() : (BitSet) m.after.getHypsBitset().clone();
+                BitSet removed = m.before == null ? new BitSet() : (BitSet) m.before.getHypsBitset().clone();
+                if (m.before != null)
+                    added.andNot(m.before.getHypsBitset());
+                if (m.after != null)
+                    removed.andNot(m.after.getHypsBitset());
+                dropped.or(added);
+                Context current = set.getContext(m.name);
+                if (current == m.after || m.before == null) {
+                    if (current != null) {
+                        current.removeName(m.name);
+                        set.remove(m.name);
+                    }
+                    if (m.before != null) {
+                        m.before.addName(m.name);
+                        set.put(m.name, m.before);
+                    }
+                } else if (current != null && m.after != null) {
+                    BitSet hyps = (BitSet) current.getHypsBitset().clone();
+                    hyps.andNot(added);
+                    hyps.or(removed);
+                    if (!hyps.equals(current.getHypsBitset())) {
+                        current.removeName(m.name);
+                        set.put(m.name, new Context(new HashSet<String>(Collections.singleton(m.name)),
+                                new PropositionSet(hyps.stream().toArray()), hyps));
+                    }
+                }
+            }
+            ArrayList<String[]> currentContexts = l.getCurrentContexts();
+            for (int i = currentContexts.size() - 1; i >= 0; i--)
+                if (state.currContext.equals(currentContexts.get(i)[1]))
+                    state.currContext = currentContexts.get(i)[0];
+            ArrayList<ControllerLog.NoGood> noGoods = l.getNoGoods();
+            for (int i = noGoods.size() - 1; i >= 0; i--) {
+                ControllerLog.NoGood n = noGoods.get(i);
+                if (n.added)
+                    state.minimalNoGoods.remove(n.noGood);
+                else if (!state.minimalNoGoods.contains(n.noGood))
+                    state.minimalNoGoods.add(n.noGood);
+            }
+            state.contextSet = set;
+            for (Context c : set.getContexts())
+                dropped.andNot(c.getHypsBitset());
+            for (int hyp = dropped.nextSetBit(0); hyp >= 0; hyp = dropped.nextSetBit(hyp + 1)) {
+                if (hyp < Network.getNodesWithIDs().size() && Network.getNodesWithIDs().get(hyp) instanceof PropositionNode)
+                    ((PropositionNode) Network.getNodesWithIDs().get(hyp)).setHyp(false);
+            }
+        }
+    }
+
+    /**
+     * Adds a Context to a copy of SNeBR's ContextSet as ContextSet.add does and installs the copy, logging the
+     * Contexts its names were mapped to in the log of the current thread if it has one. The Rete networks of the
+     * names losing hyps are discarded, since the facts they matched no longer hold.
+     *
+     * @param c the Context to be added
+     * @return the Context the names of c are mapped to
+     */
+    private static Context install(Context c) {
+        State state = state();
+        synchronized (state) {
+            ContextSet set = state.contextSet.copy();
+            ControllerLog l = log.get();
+            HashMap<String, Context> before = new HashMap<String, Context>();
+            for (String name : c.getNames()) {
+                Context old = set.getContext(name);
+                if (l != null)
+                    before.put(name, old);
+                if (old != null) {
+                    BitSet removed = (BitSet) old.getHypsBitset().clone();
+                    removed.andNot(c.getHypsBitset());
+                    if (!removed.isEmpty())
+                        ReteNetwork.discardNetwork(name);
+                }
+            }
+            Context added = set.add(c);
+            state.contextSet = set;
+            for (Map.Entry<String, Context> entry : before.entrySet())
+                l.mapped(entry.getKey(), entry.getValue(), added);
+            return added;
+        }
+    }
+
+    /**
+     * Logs a change to the minimal nogoods in the log of the current thread if it has one.
+     */
+    private static void logNoGood(BitSet noGood, boolean added) {
+        ControllerLog l = log.get();
+        if (l != null)
+            l.noGood(noGood, added);
     }
 
     /**
@@ -89,12 +293,21 @@ public class Controller {
      * @return <code>true</code> if a context with this name exists, <code>false</code> otherwise
      */
     public static boolean removeContext(String contextName) {
-        Context c = contextSet.getContext(contextName);
-        if (c == null)
-            return false;
-
-        boolean bool = c.removeName(contextName);
-        return contextSet.remove(contextName) && bool;
+        State state = state();
+        synchronized (state) {
+            Context c = state.contextSet.getContext(contextName);
+            if (c == null)
+                return false;
+
+            boolean bool = c.removeName(contextName);
+            ControllerLog l = log.get();
+            if (l != null)
+                l.mapped(contextName, c, null);
+            ContextSet set = state.contextSet.copy();
+            boolean removed = set.remove(contextName);
+            state.contextSet = set;
+            return removed && bool;
+        }
     }
 
     /**
@@ -106,12 +319,12 @@ public class Controller {
      * @throws DuplicateContextNameException if a Context with this name exists in SNeBr's ContextSet
      */
     public static Context createContext(String contextName, PropositionSet hyps) throws DuplicateContextNameException, ContradictionFoundException, NotAPropositionNodeException, NodeNotFoundInNetworkException, ContextNameDoesntExistException, DuplicatePropositionException, NodeNotFoundInPropSetException {
-        if (contextSet.getContext(contextName) != null) {
+        if (state().contextSet.getContext(contextName) != null) {
             throw new DuplicateContextNameException(contextName);
         }
 
         Context newContext = new Context(contextName);
-        contextSet.add(newContext);
+        install(newContext);
 
         return addPropsToContext(contextName, hyps);
     }
@@ -127,7 +340,7 @@ public class Controller {
      * @throws NodeNotFoundInNetworkException
      */
     public static Context addPropToContext(String contextName, int hyp) throws ContextNameDoesntExistException, NotAPropositionNodeException, DuplicatePropositionException, NodeNotFoundInNetworkException, ContradictionFoundException {
-        Context oldContext = contextSet.getContext(contextName);
+        Context oldContext = state().contextSet.getContext(contextName);
 
         if (oldContext == null)
             throw new ContextNameDoesntExistException(contextName);
@@ -139,8 +352,8 @@ public class Controller {
         ArrayList<NodeSet> contradictions = checkForContradiction((PropositionNode) Network.getNodeById(hyp), temp, false);
 
         if (contradictions != null) {
-            conflictingContext = contextName;
-            conflictingHyps = new PropositionSet(new int[] {hyp});
+            state().conflictingContext = contextName;
+            state().conflictingHyps = new PropositionSet(new int[] {hyp});
             throw new ContradictionFoundException(contradictions);
         }
 
@@ -150,7 +363,7 @@ public class Controller {
 
         Context newContext = new Context(contextName, hypSet);
 
-        return contextSet.add(newContext);
+        return install(newContext);
     }
 
     /**
@@ -164,7 +377,7 @@ public class Controller {
      * @throws CustomException
      */
     public static Context addPropsToContext(String contextName, PropositionSet hyps) throws ContextNameDoesntExistException, NotAPropositionNodeException, NodeNotFoundInNetworkException, ContradictionFoundException, DuplicatePropositionException, NodeNotFoundInPropSetException {
-        Context oldContext = contextSet.getContext(contextName);
+        Context oldContext = state().contextSet.getContext(contextName);
 
         if (oldContext == null)
             throw new ContextNameDoesntExistException(contextName);
@@ -182,8 +395,8 @@ public class Controller {
         contradictions = checkForContradiction((PropositionNode) Network.getNodeById(hypsArr[hypsArr.length - 1]), temp, false);
 
         if (contradictions != null) {
-            conflictingContext = contextName;
-            conflictingHyps = hyps;
+            state().conflictingContext = contextName;
+            state().conflictingHyps = hyps;
             throw new ContradictionFoundException(contradictions);
         }
 
@@ -193,12 +406,144 @@ public class Controller {
         	 node.setHyp(true);
 		}
         temp = new Context(contextName, oldContext.getHypothesisSet().union(hyps));
-        contextSet.add(temp);
+        install(temp);
         return temp;
     }
 
+    /**
+     * Asserts a set of hyps in an existing Context in a single pass.
+     * The hyps are accumulated in a ContextBuilder, contradiction detection runs once over the whole batch using the
+     * negation up and down cables of the newly added hyps only, and a single new Context is published at the end.
+     *
+     * @param contextName the name of the context to assert the hyps in
+     * @param hyps        the set of hyps to be asserted
+     * @return a new Context object containing the old Context with the set of hyps asserted in it
+     * @throws ContextNameDoesntExistException if no Context with this name exists in SNeBr's ContextSet
+     * @throws ContradictionFoundException     if asserting the hyps makes the Context inconsistent
+     * @throws NodeNotFoundInNetworkException
+     */
+    public static Context bulkAddPropsToContext(String contextName, PropositionSet hyps) throws ContextNameDoesntExistException, NotAPropositionNodeException, NodeNotFoundInNetworkException, ContradictionFoundException, DuplicatePropositionException {
+        Context oldContext = state().contextSet.getContext(contextName);
+
+        if (oldContext == null)
+            throw new ContextNameDoesntExistException(contextName);
+
+        ContextBuilder builder = new ContextBuilder(contextName, oldContext);
+        int[] hypsArr = PropositionSet.getPropsSafely(hyps);
+        for (int i = 0; i < hypsArr.length; i++)
+            builder.add(hypsArr[i]);
+
+        int[] added = builder.getAddedHyps();
+        if (added.length == 0)
+            return oldContext;
+
+        ArrayList<NodeSet> contradictions = checkForContradictionInBatch(builder);
+
+        if (contradictions != null) {
+            state().conflictingContext = contextName;
+            state().conflictingHyps = hyps;
+            throw new ContradictionFoundException(contradictions);
+        }
+
+        for (int i = 0; i < added.length; i++) {
+            PropositionNode node = (PropositionNode) Network.getNodeById(added[i]);
+            node.setHyp(true);
+        }
+
+        oldContext.removeName(contextName);
+        return install(builder.build());
+    }
+
+    /**
+     * Checks if the hyps newly added to a ContextBuilder introduce a contradiction.
+     * The minimalNoGoods are first updated from the negation cables of the added hyps only, and then matched once
+     * against the hyps of the whole batch.
+     *
+     * @param builder the ContextBuilder holding the batch
+     * @return An ArrayList of NodeSets, each having a set of conflicting hyps asserted in the batch,
+     * or <code>null</code> if the batch is consistent.
+     */
+    private static ArrayList<NodeSet> checkForContradictionInBatch(ContextBuilder builder) throws NotAPropositionNodeException, NodeNotFoundInNetworkException, DuplicatePropositionException {
+        BitSet tempContextBitset = builder.getHypsBitset();
+        BitSet newHyps = builder.getAddedHypsBitset();
+
+        for (int i = newHyps.nextSetBit(0); i != -1; i = newHyps.nextSetBit(i + 1)) {
+            PropositionNode node = (PropositionNode) Network.getNodeById(i);
+            addSupportsToBitset(node, tempContextBitset);
+            updateMinimalNoGoodsFromCables(node, newHyps);
+        }
+
+        ArrayList<BitSet> conflictingHypsInContext = getConflictingHypsFromMinimalNoGoods(tempContextBitset);
+        if (conflictingHypsInContext != null)
+            return generateNodeSetsFromBitSets(conflictingHypsInContext);
+        return null;
+    }
+
+    /**
+     * Updates the minimalNoGoods with the contradictions a node is involved in. Only the negation down cables
+     * (the node negates other props) and the negation up cables (the node is negated by other props) are examined.
+     * Unlike checkForContradictionCore this does not depend on any context, so it is done once per node.
+     *
+     * @param node    the node whose contradictions are added to the minimalNoGoods
+     * @param newHyps the ids of the props that are about to be asserted as hyps
+     * @throws NotAPropositionNodeException
+     * @throws NodeNotFoundInNetworkException
+     */
+    private static void updateMinimalNoGoodsFromCables(PropositionNode node, BitSet newHyps) throws NotAPropositionNodeException, NodeNotFoundInNetworkException {
+        /*          check in downcables          */
+        if (node.getTerm() instanceof Molecular) {
+            DownCableSet downCables = ((Molecular) node.getTerm()).getDownCableSet();
+            DownCable arg = downCables.getDownCable("arg");
+            if (negationExists(downCables.getDownCable("min"), downCables.getDownCable("max"), arg)) {
+                for (Node negatedNode : arg.getNodeSet())
+                    updateMinimalNoGoods(combine(getSupports(node, newHyps), getSupports((PropositionNode) negatedNode, newHyps)));
+            }
+        }
+
+        /*          check in upcables            */
+        UpCable argUp = node.getUpCableSet().getUpCable("arg");
+        if (argUp != null) {
+            for (Node negatingNode : argUp.getNodeSet()) {
+                if (!(negatingNode.getTerm() instanceof Molecular) || newHyps.get(negatingNode.getId()))
+                    continue;
+                DownCableSet downCables = ((Molecular) negatingNode.getTerm()).getDownCableSet();
+                if (negationExists(downCables.getDownCable("min"), downCables.getDownCable("max"), downCables.getDownCable("arg")))
+                    updateMinimalNoGoods(combine(getSupports((PropositionNode) negatingNode, newHyps), getSupports(node, newHyps)));
+            }
+        }
+    }
+
+    /**
+     * Returns the assumption based supports of a node, where a node that is about to be asserted as a hyp is
+     * also supported by itself.
+     *
+     * @param node    the node whose supports are returned
+     * @param newHyps the ids of the props that are about to be asserted as hyps
+     * @return a Collection of the PropositionSets supporting the node
+     */
+    private static Collection<PropositionSet> getSupports(PropositionNode node, BitSet newHyps) throws NotAPropositionNodeException, NodeNotFoundInNetworkException {
+        Collection<PropositionSet> supports = new ArrayList<>(node.getAssumptionBasedSupport().values());
+        if (newHyps.get(node.getId()))
+            supports.add(new PropositionSet(node.getId()));
+        return supports;
+    }
+
+    /**
+     * Sets the bits of all the props in the assumption based supports of a node.
+     *
+     * @param node   the node whose supports are added
+     * @param bitset the BitSet to be updated
+     */
+    private static void addSupportsToBitset(PropositionNode node, BitSet bitset) throws NotAPropositionNodeException, NodeNotFoundInNetworkException {
+        for (PropositionSet propSet : node.getAssumptionBasedSupport().values()) {
+            int[] props = PropositionSet.getPropsSafely(propSet);
+            for (int j = 0; j < props.length; j++)
+                bitset.set(props[j]);
+        }
+    }
+
     public static ArrayList<BitSet> getMinimalNoGoods() {
-        return minimalNoGoods;
+        return state().minimalNoGoods;
     }
 
     /**
@@ -211,11 +556,11 @@ public class Controller {
      * @throws NodeNotFoundInNetworkException
      */
     public static Context addPropToCurrentContext(int hyp) throws ContextNameDoesntExistException, DuplicatePropositionException, NotAPropositionNodeException, NodeNotFoundInNetworkException, ContradictionFoundException {
-        return addPropToContext(currContext, hyp);
+        return addPropToContext(state().currContext, hyp);
     }
 
     public static String getCurrentContextName() {
-        return currContext;
+        return state().currContext;
     }
 
     /**
@@ -228,7 +573,7 @@ public class Controller {
      * @throws CustomException
      */
     public static Context addPropsToCurrentContext(PropositionSet hyps) throws ContextNameDoesntExistException, NotAPropositionNodeException, NodeNotFoundInNetworkException, ContradictionFoundException, DuplicatePropositionException, NodeNotFoundInPropSetException {
-        return addPropsToContext(currContext, hyps);
+        return addPropsToContext(state().currContext, hyps);
     }
 
     /**
@@ -238,11 +583,14 @@ public class Controller {
      * @return Context object containing the current Context
      */
     public static Context setCurrentContext(String contextName) throws ContradictionFoundException, ContextNameDoesntExistException {
-        Context context = contextSet.getContext(contextName);
+        Context context = state().contextSet.getContext(contextName);
         if (context == null) {
             throw new ContextNameDoesntExistException(contextName);
         }
-        currContext = contextName;
+        ControllerLog l = log.get();
+        if (l != null)
+            l.currentContextSet(state().currContext, contextName);
+        state().currContext = contextName;
 
         return context;
     }
@@ -253,7 +601,7 @@ public class Controller {
      * @return Context object of the current Context
      */
     public static Context getCurrentContext() {
-        return contextSet.getContext(currContext);
+        return state().contextSet.getContext(state().currContext);
     }
 
     /**
@@ -262,7 +610,7 @@ public class Controller {
      * @return A string representing the context.
      */
     public static String contextToString(String contextName) {
-        return "Context: " + contextName + "\n" + contextSet.getContext(contextName).getHypothesisSet().toString();
+        return "Context: " + contextName + "\n" + state().contextSet.getContext(contextName).getHypothesisSet().toString();
     }
 
     /**
@@ -272,7 +620,7 @@ public class Controller {
     public static PropositionSet allAsserted() throws NotAPropositionNodeException, NodeNotFoundInNetworkException {
         PropositionSet p = new PropositionSet();
         boolean first = true;
-        for (Context c : contextSet.getContexts()) {
+        for (Context c : state().contextSet.getContexts()) {
             if (first) {
                 p = new PropositionSet(PropositionSet.getPropsSafely(c.getHypothesisSet()));
                 first = false;
@@ -342,7 +690,7 @@ public class Controller {
      */
     public static ArrayList<BitSet> getConflictingHypsFromMinimalNoGoods(BitSet contextBitset) {
         ArrayList<BitSet> conflictingHypsInContext = new ArrayList<>();
-        for (BitSet bitSet : minimalNoGoods) {
+        for (BitSet bitSet : state().minimalNoGoods) {
             BitSet temp = (BitSet) bitSet.clone();
             temp.and(contextBitset);
             if (temp.equals(bitSet))
@@ -375,30 +723,17 @@ public class Controller {
     }
 
     /**
-     * Given a negating node, it's arg downcable, and a BitSet representation of some context's hyps;
-     * it first updates the minimalNoGoods with the supports of the negating proposition node and the supports of the negated proposition node.
-     * @param arg Downcable having the negated node.
-     * @param tempContextBitset a BitSet representation of some context's hyps with a newly asserted hyp added to it to test for contradiction.
-     * @return An ArrayList of NodeSets, each having a combination of the supports, asserted in some context, of the two conflicting propsositions.
-     * If not a single such combination exists <code>null</code> is returned.
+     * Adds combinations of contradictory supports to the minimalNoGoods, keeping only the minimal sets.
+     * This is a helper method for getConflictingHypsCollectionForNegating and getConflictingHypsCollectionForNegated.
+     * @param combinedContradictorySupports PropositionSets each of which supports a contradiction.
      * @throws NotAPropositionNodeException
      * @throws NodeNotFoundInNetworkException
-     * @throws DuplicatePropositionException
      */
-    public static ArrayList<NodeSet> getConflictingHypsCollectionForNegating(PropositionNode negatingNode, DownCable arg, BitSet tempContextBitset) throws NotAPropositionNodeException, NodeNotFoundInNetworkException, DuplicatePropositionException {
-        Collection<PropositionSet> negatingPropSupports = negatingNode.getAssumptionBasedSupport().values();
-        Collection<PropositionSet> combinedContradictorySupports = new ArrayList<>();
-
-        for (Node dominatedNode : arg.getNodeSet()) {
-            Collection<PropositionSet> negatedNodeSupports = ((PropositionNode) dominatedNode).getAssumptionBasedSupport().values();
-            combinedContradictorySupports.addAll(combine(negatingPropSupports, negatedNodeSupports));
-        }
-
-        /*                    add to minimalNoGoods  */
+    private static void updateMinimalNoGoods(Collection<PropositionSet> combinedContradictorySupports) throws NotAPropositionNodeException, NodeNotFoundInNetworkException {
         Collection<BitSet> combinedContradictorySupportsBitSetCollection = generateBitSetsFromPropositionSets(combinedContradictorySupports);
 
 //        to avoid ConcurrentModificationException
-        ArrayList<BitSet> minimalNoGoodsClone = (ArrayList<BitSet>) minimalNoGoods.clone();
+        ArrayList<BitSet> minimalNoGoodsClone = (ArrayList<BitSet>) state().minimalNoGoods.clone();
 
         for (BitSet bitSet : combinedContradictorySupportsBitSetCollection) {
             boolean intersects = false;
@@ -406,12 +741,11 @@ public class Controller {
                 BitSet temp = (BitSet) bitSet.clone();
                 temp.and(bitSet1);
                 if (temp.equals(bitSet)) {
-                    int index = minimalNoGoods.indexOf(bitSet1);
-                    if (intersects)
-                        minimalNoGoods.remove(index);
-                    else {
-                        minimalNoGoods.remove(index);
-                        minimalNoGoods.add(index, temp);
+                    int index = state().minimalNoGoods.indexOf(bitSet1);
+                    logNoGood(state().minimalNoGoods.remove(index), false);
+                    if (!intersects) {
+                        state().minimalNoGoods.add(index, temp);
+                        logNoGood(temp, true);
                         intersects = true;
                     }
 
@@ -420,10 +754,36 @@ public class Controller {
                     break;
                 }
             }
-            if (!intersects)
-                minimalNoGoods.add(bitSet);
+            if (!intersects) {
+                state().minimalNoGoods.add(bitSet);
+                logNoGood(bitSet, true);
+            }
+        }
+    }
+
+    /**
+     * Given a negating node, it's arg downcable, and a BitSet representation of some context's hyps;
+     * it first updates the minimalNoGoods with the supports of the negating proposition node and the supports of the negated proposition node.
+     * @param arg Downcable having the negated node.
+     * @param tempContextBitset a BitSet representation of some context's hyps with a newly asserted hyp added to it to test for contradiction.
+     * @return An ArrayList of NodeSets, each having a combination of the supports, asserted in some context, of the two conflicting propsositions.
+     * If not a single such combination exists <code>null</code> is returned.
+     * @throws NotAPropositionNodeException
+     * @throws NodeNotFoundInNetworkException
+     * @throws DuplicatePropositionException
+     */
+    public static ArrayList<NodeSet> getConflictingHypsCollectionForNegating(PropositionNode negatingNode, DownCable arg, BitSet tempContextBitset) throws NotAPropositionNodeException, NodeNotFoundInNetworkException, DuplicatePropositionException {
+        Collection<PropositionSet> negatingPropSupports = negatingNode.getAssumptionBasedSupport().values();
+        Collection<PropositionSet> combinedContradictorySupports = new ArrayList<>();
+
+        for (Node dominatedNode : arg.getNodeSet()) {
+            Collection<PropositionSet> negatedNodeSupports = ((PropositionNode) dominatedNode).getAssumptionBasedSupport().values();
+            combinedContradictorySupports.addAll(combine(negatingPropSupports, negatedNodeSupports));
         }
 
+        /*                    add to minimalNoGoods  */
+        updateMinimalNoGoods(combinedContradictorySupports);
+
         ArrayList<BitSet> conlifctingHypsInContextCollection = getConflictingHypsFromMinimalNoGoods(tempContextBitset);
         if (conlifctingHypsInContextCollection != null)
             return generateNodeSetsFromBitSets(conlifctingHypsInContextCollection);
@@ -440,35 +800,7 @@ public class Controller {
         Collection<PropositionSet> combinedContradictorySupports = combine(negatingPropSupports, negatedPropSupports);
 
         /*                    add to minimalNoGoods  */
-        Collection<BitSet> combinedContradictorySupportsBitSetCollection = generateBitSetsFromPropositionSets(combinedContradictorySupports);
-
-//        to avoid ConcurrentModificationException
-        ArrayList<BitSet> minimalNoGoodsClone = (ArrayList<BitSet>) minimalNoGoods.clone();
-
-        for (BitSet bitSet : combinedContradictorySupportsBitSetCollection) {
-            boolean intersects = false;
-            for (BitSet bitSet1 : minimalNoGoodsClone) {
-                BitSet temp = (BitSet) bitSet.clone();
-                temp.and(bitSet1);
-                if (temp.equals(bitSet)) {
-                    int index = minimalNoGoods.indexOf(bitSet1);
-                    if (intersects)
-                        minimalNoGoods.remove(index);
-                    else {
-                        minimalNoGoods.remove(index);
-                        minimalNoGoods.add(index, temp);
-                        intersects = true;
-                    }
-
-                }
-                else if (temp.equals(bitSet1)) {
-                    intersects = true;
-                    break;
-                }
-            }
-            if (!intersects)
-                minimalNoGoods.add(bitSet);
-        }
+        updateMinimalNoGoods(combinedContradictorySupports);
 
         ArrayList<BitSet> conlifctingHypsInContextCollection = getConflictingHypsFromMinimalNoGoods(tempContextBitset);
         if (conlifctingHypsInContextCollection != null)
@@ -489,7 +821,7 @@ public class Controller {
      */
     public static ArrayList<NodeSet> checkForContradiction(PropositionNode node, Context c, boolean skipCache) throws NodeNotFoundInNetworkException, DuplicatePropositionException, NotAPropositionNodeException {
 
-        if (c.getNames().contains(conflictingContext)) {
+        if (c.getNames().contains(state().conflictingContext)) {
             checkForContradictionCore(node, c, true);
             return checkForContradictionCore(node, c, false);
         }
@@ -566,20 +898,20 @@ public class Controller {
      */
     public static void handleContradiction(PropositionSet hypsToBeRemoved, boolean ignore) throws NodeNotFoundInNetworkException, NotAPropositionNodeException, ContextNameDoesntExistException, NodeNotFoundInPropSetException, DuplicatePropositionException {
         if (ignore) {
-            Context inconsistentContext = new Context(conflictingContext, contextSet.getContext(conflictingContext).getHypothesisSet().union(conflictingHyps));
-            contextSet.add(inconsistentContext);
+            Context inconsistentContext = new Context(state().conflictingContext, state().contextSet.getContext(state().conflictingContext).getHypothesisSet().union(state().conflictingHyps));
+            install(inconsistentContext);
             return;
         }
         else {
 
             if (hypsToBeRemoved != null) {
-                removeHypsFromContext(hypsToBeRemoved, conflictingContext);
-                PropositionSet modifiedHyps = conflictingHyps.removeProps(hypsToBeRemoved);
-                Context resolvedContext = new Context(conflictingContext, contextSet.getContext(conflictingContext).getHypothesisSet().union(modifiedHyps));
-                contextSet.add(resolvedContext);
+                removeHypsFromContext(hypsToBeRemoved, state().conflictingContext);
+                PropositionSet modifiedHyps = state().conflictingHyps.removeProps(hypsToBeRemoved);
+                Context resolvedContext = new Context(state().conflictingContext, state().contextSet.getContext(state().conflictingContext).getHypothesisSet().union(modifiedHyps));
+                install(resolvedContext);
             }
-            conflictingContext = null;
-            conflictingHyps = null;
+            state().conflictingContext = null;
+            state().conflictingHyps = null;
         }
 
     }
@@ -594,11 +926,11 @@ public class Controller {
      * @throws NodeNotFoundInNetworkException
      */
     public static Context removeHypsFromContext(PropositionSet hyps, String contextName) throws ContextNameDoesntExistException, NotAPropositionNodeException, NodeNotFoundInNetworkException{
-        Context c = contextSet.getContext(contextName);
+        Context c = state().contextSet.getContext(contextName);
         if (c == null) throw new ContextNameDoesntExistException(contextName);
         PropositionSet propSet = c.getHypothesisSet().removeProps(hyps);
         c = new Context(contextName, propSet);
-        return contextSet.add(c);
+        return install(c);
     /*
         c =  contextSet.add(c);
         Network.defineDefaults();
@@ -621,10 +953,16 @@ public class Controller {
      * @throws NodeNotFoundInNetworkException
      */
     public static void removePropositionFromAllContexts(PropositionNode node) throws NodeNotFoundInPropSetException, NotAPropositionNodeException, NodeNotFoundInNetworkException {
+        if (state().maintenanceParallelism > 1) {
+            removePropositionFromAllContextsInParallel(node);
+            return;
+        }
         int hyp = node.getId();
-        for (String contextName: contextSet.getNames()) {
-            Context c = new Context(contextName, contextSet.getContext(contextName).getHypothesisSet().remove(hyp));
-            contextSet.add(c);
+        for (String contextName: state().contextSet.getNames()) {
+            if (!state().contextSet.getContext(contextName).getHypsBitset().get(hyp))
+                continue;
+            Context c = new Context(contextName, state().contextSet.getContext(contextName).getHypothesisSet().remove(hyp));
+            install(c);
             /*c = contextSet.add(c);
             Network.defineDefaults();
             if (conflictingContext != null && contextName == conflictingContext) {
@@ -636,12 +974,347 @@ public class Controller {
         }
     }
 
+    /**
+     * Removes a set of propositions from all contexts at once. Each distinct Context is rebuilt once whatever the
+     * number of the propositions it has and of its names, contexts having none of the propositions are kept as they
+     * are, and SNeBR's ContextSet is replaced by the updated one in a single step at the end. The contexts are
+     * processed concurrently over the maintenance thread pool when the maintenance parallelism is greater than one.
+     *
+     * @param nodes the propositions to be removed
+     * @throws NodeNotFoundInPropSetException
+     * @throws NotAPropositionNodeException
+     * @throws NodeNotFoundInNetworkException
+     */
+    public static void removePropositionsFromAllContexts(Collection<PropositionNode> nodes) throws NodeNotFoundInPropSetException, NotAPropositionNodeException, NodeNotFoundInNetworkException {
+        BitSet removed = new BitSet();
+        for (PropositionNode node : nodes)
+            removed.set(node.getId());
+        ContextSet oldSet;
+        ContextSet newSet;
+        do {
+            oldSet = state().contextSet;
+            ArrayList<Callable<Context>> tasks = new ArrayList<>();
+            for (Map.Entry<Context, HashSet<String>> group : groupNamesByContext(oldSet, oldSet.getNames()).entrySet()) {
+                Context c = group.getKey();
+                HashSet<String> names = group.getValue();
+                tasks.add(() -> {
+                    if (!c.getHypsBitset().intersects(removed))
+                        return new Context(names, c.getHypothesisSet(), c.getHypsBitset());
+                    BitSet hypsBitset = (BitSet) c.getHypsBitset().clone();
+                    hypsBitset.andNot(removed);
+                    return new Context(names, new PropositionSet(hypsBitset.stream().toArray()), hypsBitset);
+                });
+            }
+
+            ArrayList<Context> updated;
+            try {
+                if (state().maintenanceParallelism > 1) {
+                    updated = invokeAllMaintenanceTasks(tasks);
+                } else {
+                    updated = new ArrayList<>(tasks.size());
+                    for (Callable<Context> task : tasks)
+                        updated.add(task.call());
+                }
+            } catch (NodeNotFoundInPropSetException | NotAPropositionNodeException | NodeNotFoundInNetworkException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            newSet = ContextSet.merge(updated);
+        } while (!publish(oldSet, newSet));
+    }
+
+    /**
+     * Sets the number of threads used by the parallel context maintenance path of the knowledge base the current
+     * thread works on.
+     * When it is greater than one, removePropositionFromAllContexts and removePropositionsFromAllContexts (and hence Network.removeNode) process the
+     * contexts concurrently.
+     *
+     * @param parallelism the number of threads, at least one
+     */
+    public static void setMaintenanceParallelism(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("The parallelism must be at least one");
+        State state = state();
+        synchronized (state) {
+            state.maintenanceParallelism = parallelism;
+            if (state.maintenanceExecutor != null) {
+                state.maintenanceExecutor.shutdown();
+                state.maintenanceExecutor = null;
+            }
+        }
+    }
+
+    public static int getMaintenanceParallelism() {
+        return state().maintenanceParallelism;
+    }
+
+    /**
+     * Removes a proposition from all contexts, processing the contexts concurrently over the maintenance thread pool.
+     * Each distinct Context is rebuilt once whatever the number of its names, contexts not having the proposition
+     * are kept as they are, and SNeBR's ContextSet is replaced by the updated one in a single step at the end.
+     *
+     * @param node the proposition to be removed
+     * @throws NodeNotFoundInPropSetException
+     * @throws NotAPropositionNodeException
+     * @throws NodeNotFoundInNetworkException
+     */
+    public static void removePropositionFromAllContextsInParallel(PropositionNode node) throws NodeNotFoundInPropSetException, NotAPropositionNodeException, NodeNotFoundInNetworkException {
+        int hyp = node.getId();
+        ContextSet oldSet;
+        ContextSet newSet;
+        do {
+            oldSet = state().contextSet;
+            ArrayList<Callable<Context>> tasks = new ArrayList<>();
+            for (Map.Entry<Context, HashSet<String>> group : groupNamesByContext(oldSet, oldSet.getNames()).entrySet()) {
+                Context c = group.getKey();
+                HashSet<String> names = group.getValue();
+                tasks.add(() -> {
+                    if (!c.getHypsBitset().get(hyp))
+                        return new Context(names, c.getHypothesisSet(), c.getHypsBitset());
+                    BitSet hypsBitset = (BitSet) c.getHypsBitset().clone();
+                    hypsBitset.clear(hyp);
+                    return new Context(names, c.getHypothesisSet().remove(hyp), hypsBitset);
+                });
+            }
+
+            try {
+                newSet = ContextSet.merge(invokeAllMaintenanceTasks(tasks));
+            } catch (DuplicatePropositionException e) {
+                throw new IllegalStateException(e);
+            }
+        } while (!publish(oldSet, newSet));
+    }
+
+    /**
+     * Checks concurrently, over the maintenance thread pool, if asserting a node in each of a set of contexts
+     * introduces a contradiction. The minimalNoGoods are updated from the negation cables of the node once, since
+     * this does not depend on the context, then every distinct Context is matched against them in parallel.
+     *
+     * @param node         the node to be checked
+     * @param contextNames the names of the contexts to check the node against
+     * @return A Hashtable mapping the name of each context in which a contradiction is found to the sets of
+     * conflicting hyps found in it. Consistent contexts are not included.
+     * @throws ContextNameDoesntExistException if one of the names doesn't exist in SNeBR's ContextSet
+     * @throws NotAPropositionNodeException
+     * @throws NodeNotFoundInNetworkException
+     */
+    public static Hashtable<String, ArrayList<NodeSet>> checkForContradictionInContextsInParallel(PropositionNode node, Collection<String> contextNames) throws ContextNameDoesntExistException, NotAPropositionNodeException, NodeNotFoundInNetworkException, DuplicatePropositionException {
+        return checkForContradictionInContextsInParallel(node, state().contextSet, contextNames);
+    }
+
+    private static Hashtable<String, ArrayList<NodeSet>> checkForContradictionInContextsInParallel(PropositionNode node, ContextSet set, Collection<String> contextNames) throws ContextNameDoesntExistException, NotAPropositionNodeException, NodeNotFoundInNetworkException, DuplicatePropositionException {
+        for (String contextName : contextNames)
+            if (set.getContext(contextName) == null)
+                throw new ContextNameDoesntExistException(contextName);
+
+        BitSet newHyps = new BitSet();
+        newHyps.set(node.getId());
+        updateMinimalNoGoodsFromCables(node, newHyps);
+
+        BitSet nodeBitset = new BitSet();
+        nodeBitset.set(node.getId());
+        addSupportsToBitset(node, nodeBitset);
+
+        ArrayList<HashSet<String>> groups = new ArrayList<>();
+        ArrayList<Callable<ArrayList<NodeSet>>> tasks = new ArrayList<>();
+        for (Map.Entry<Context, HashSet<String>> group : groupNamesByContext(set, contextNames).entrySet()) {
+            Context c = group.getKey();
+            groups.add(group.getValue());
+            tasks.add(() -> {
+                BitSet tempContextBitset = (BitSet) c.getHypsBitset().clone();
+                tempContextBitset.or(nodeBitset);
+                ArrayList<BitSet> conflictingHypsInContext = getConflictingHypsFromMinimalNoGoods(tempContextBitset);
+                if (conflictingHypsInContext == null)
+                    return null;
+                return generateNodeSetsFromBitSets(conflictingHypsInContext);
+            });
+        }
+
+        ArrayList<ArrayList<NodeSet>> results;
+        try {
+            results = invokeAllMaintenanceTasks(tasks);
+        } catch (NodeNotFoundInPropSetException e) {
+            throw new IllegalStateException(e);
+        }
+
+        Hashtable<String, ArrayList<NodeSet>> contradictions = new Hashtable<>();
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == null)
+                continue;
+            for (String contextName : groups.get(i))
+                contradictions.put(contextName, results.get(i));
+        }
+        return contradictions;
+    }
+
+    /**
+     * Asserts a hyp in a set of existing contexts, checking for contradictions and rebuilding the contexts
+     * concurrently over the maintenance thread pool. Either the hyp is asserted in all the contexts or, if it
+     * introduces a contradiction in any of them, in none. SNeBR's ContextSet is replaced by the updated one in a
+     * single step at the end.
+     *
+     * @param contextNames the names of the contexts to assert the hyp in
+     * @param hyp          the hyp to be asserted
+     * @throws ContextNameDoesntExistException if one of the names doesn't exist in SNeBR's ContextSet
+     * @throws ContradictionFoundException     if the hyp introduces a contradiction in one of the contexts
+     * @throws NotAPropositionNodeException
+     * @throws NodeNotFoundInNetworkException
+     */
+    public static void addPropToContextsInParallel(Collection<String> contextNames, int hyp) throws ContextNameDoesntExistException, ContradictionFoundException, NotAPropositionNodeException, NodeNotFoundInNetworkException, DuplicatePropositionException {
+        PropositionNode node = (PropositionNode) Network.getNodeById(hyp);
+        ContextSet oldSet;
+        ContextSet newSet;
+        do {
+            oldSet = state().contextSet;
+
+            Hashtable<String, ArrayList<NodeSet>> contradictions = checkForContradictionInContextsInParallel(node, oldSet, contextNames);
+            if (!contradictions.isEmpty()) {
+                ArrayList<NodeSet> allContradictions = new ArrayList<>();
+                for (ArrayList<NodeSet> c : contradictions.values())
+                    for (NodeSet ns : c)
+                        if (!allContradictions.contains(ns))
+                            allContradictions.add(ns);
+                state().conflictingContext = contradictions.keys().nextElement();
+                state().conflictingHyps = new PropositionSet(new int[] {hyp});
+                throw new ContradictionFoundException(allContradictions);
+            }
+
+            HashSet<String> untouchedNames = new HashSet<>(oldSet.getNames());
+            untouchedNames.removeAll(contextNames);
+
+            ArrayList<Callable<Context>> tasks = new ArrayList<>();
+            for (Map.Entry<Context, HashSet<String>> group : groupNamesByContext(oldSet, contextNames).entrySet()) {
+                Context c = group.getKey();
+                HashSet<String> names = group.getValue();
+                tasks.add(() -> {
+                    if (c.getHypsBitset().get(hyp))
+                        return new Context(names, c.getHypothesisSet(), c.getHypsBitset());
+                    BitSet hypsBitset = (BitSet) c.getHypsBitset().clone();
+                    hypsBitset.set(hyp);
+                    return new Context(names, c.getHypothesisSet().add(hyp), hypsBitset);
+                });
+            }
+
+            ArrayList<Context> updated;
+            try {
+                updated = invokeAllMaintenanceTasks(tasks);
+            } catch (NodeNotFoundInPropSetException e) {
+                throw new IllegalStateException(e);
+            }
+
+            for (Map.Entry<Context, HashSet<String>> group : groupNamesByContext(oldSet, untouchedNames).entrySet())
+                updated.add(new Context(group.getValue(), group.getKey().getHypothesisSet(), group.getKey().getHypsBitset()));
+            newSet = ContextSet.merge(updated);
+        } while (!publish(oldSet, newSet));
+        node.setHyp(true);
+    }
+
+    /**
+     * Replaces SNeBR's ContextSet by one built from it, unless another thread changed it since it was read, in
+     * which case the caller builds the new ContextSet again from the current one. Every change replaces the
+     * ContextSet holding the lock of the contexts of the knowledge base, and so do the check and the replacement,
+     * so no update is lost.
+     *
+     * @param oldSet the ContextSet the new one was built from
+     * @param newSet the new ContextSet
+     * @return <code>true</code> if the new ContextSet was installed, otherwise <code>false</code>.
+     */
+    private static boolean publish(ContextSet oldSet, ContextSet newSet) {
+        State state = state();
+        synchronized (state) {
+            if (state.contextSet != oldSet)
+                return false;
+            state.contextSet = newSet;
+            ControllerLog l = log.get();
+            if (l != null) {
+                HashSet<String> names = new HashSet<String>(oldSet.getNames());
+                names.addAll(newSet.getNames());
+                for (String name : names)
+                    l.mapped(name, oldSet.getContext(name), newSet.getContext(name));
+            }
+            if (state.conflictingContext != null && newSet.getContext(state.conflictingContext) != null
+                    && getConflictingHypsFromMinimalNoGoods(newSet.getContext(state.conflictingContext).getHypsBitset()) == null) {
+                state.conflictingContext = null;
+                state.conflictingHyps = null;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Groups context names by the Context object they are mapped to, so that a Context shared by several names is
+     * processed once.
+     */
+    private static IdentityHashMap<Context, HashSet<String>> groupNamesByContext(ContextSet set, Collection<String> contextNames) {
+        IdentityHashMap<Context, HashSet<String>> groups = new IdentityHashMap<>();
+        for (String contextName : contextNames)
+            groups.computeIfAbsent(set.getContext(contextName), c -> new HashSet<>()).add(contextName);
+        return groups;
+    }
+
+    private static ExecutorService getMaintenanceExecutor() {
+        State state = state();
+        synchronized (state) {
+            if (state.maintenanceExecutor == null) {
+                AtomicInteger threadCount = new AtomicInteger();
+                state.maintenanceExecutor = Executors.newFixedThreadPool(state.maintenanceParallelism, r -> {
+                    Thread t = new Thread(r, "snebr-maintenance-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            return state.maintenanceExecutor;
+        }
+    }
+
+    /**
+     * Runs a list of tasks on the maintenance thread pool and returns their results in the same order,
+     * rethrowing the checked exceptions thrown by any of them. The tasks work on the knowledge base of the
+     * current thread.
+     */
+    private static <T> ArrayList<T> invokeAllMaintenanceTasks(ArrayList<Callable<T>> tasks) throws NodeNotFoundInPropSetException, NotAPropositionNodeException, NodeNotFoundInNetworkException, DuplicatePropositionException {
+        KnowledgeBase kb = KnowledgeBase.getActive();
+        ArrayList<Callable<T>> inKnowledgeBase = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks)
+            inKnowledgeBase.add(() -> {
+                KnowledgeBase previous = kb.enter();
+                try {
+                    return task.call();
+                } finally {
+                    kb.exit(previous);
+                }
+            });
+        ArrayList<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : getMaintenanceExecutor().invokeAll(inKnowledgeBase))
+                results.add(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while maintaining the contexts", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof NodeNotFoundInPropSetException)
+                throw (NodeNotFoundInPropSetException) cause;
+            if (cause instanceof NotAPropositionNodeException)
+                throw (NotAPropositionNodeException) cause;
+            if (cause instanceof NodeNotFoundInNetworkException)
+                throw (NodeNotFoundInNetworkException) cause;
+            if (cause instanceof DuplicatePropositionException)
+                throw (DuplicatePropositionException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        }
+        return results;
+    }
+
     /**
      * Returns all the names of contexts available in the system.
      * @return
      */
     public static Set<String> getAllNamesOfContexts() {
-        return contextSet.getNames();
+        return state().contextSet.getNames();
     }
 
     /**
@@ -651,7 +1324,7 @@ public class Controller {
      * @return Context object
      */
     public static Context getContextByName(String contextName) {
-        return contextSet.getContext(contextName);
+        return state().contextSet.getContext(contextName);
     }
     
    
@@ -659,14 +1332,17 @@ public class Controller {
     
     public static void save(String f) throws FileNotFoundException, IOException {
     	ObjectOutputStream cos = new ObjectOutputStream(new FileOutputStream(new File(f)));
-		cos.writeObject(contextSet);
+		cos.writeObject(state().contextSet);
 		cos.close();
     }
     
     public static void load(String f) throws IOException, ClassNotFoundException {
     	ObjectInputStream cis= new ObjectInputStream(new FileInputStream(new File(f)));
     	ContextSet tempSet = (ContextSet) cis.readObject();
-		Controller.contextSet = tempSet;
+		State state = state();
+		synchronized (state) {
+			state.contextSet = tempSet;
+		}
 		cis.close();
 		tempSet = null;
     }
@@ -0,0 +1,97 @@
+package sneps.snebr;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * The changes a thread made to SNeBR while it had a transaction over the network open: the Contexts it mapped
+ * context names to, the current contexts it set and the minimal nogoods it added and removed, in the order they
+ * were made. Logs nest like the transactions they belong to. Rolling a log back undoes the changes in it only, so
+ * the changes other threads made to SNeBR in the meantime are kept.
+ */
+public class ControllerLog {
+
+    /**
+     * A context name mapped from one Context to another. The Context before is null if the name was created, and
+     * the Context after is null if the name was removed.
+     */
+    static class Mapping {
+        final String name;
+        final Context before;
+        final Context after;
+
+        Mapping(String name, Context before, Context after) {
+            this.name = name;
+            this.before = before;
+            this.after = after;
+        }
+    }
+
+    /**
+     * A minimal nogood added to or removed from the minimal nogoods.
+     */
+    static class NoGood {
+        final BitSet noGood;
+        final boolean added;
+
+        NoGood(BitSet noGood, boolean added) {
+            this.noGood = noGood;
+            this.added = added;
+        }
+    }
+
+    private final ControllerLog parent;
+
+    private final ArrayList<Mapping> mappings = new ArrayList<Mapping>();
+
+    /**
+     * The current contexts set, each as the name of the current context before and the name it was set to.
+     */
+    private final ArrayList<String[]> currentContexts = new ArrayList<String[]>();
+
+    private final ArrayList<NoGood> noGoods = new ArrayList<NoGood>();
+
+    ControllerLog(ControllerLog parent) {
+        this.parent = parent;
+    }
+
+    ControllerLog getParent() {
+        return parent;
+    }
+
+    ArrayList<Mapping> getMappings() {
+        return mappings;
+    }
+
+    ArrayList<String[]> getCurrentContexts() {
+        return currentContexts;
+    }
+
+    ArrayList<NoGood> getNoGoods() {
+        return noGoods;
+    }
+
+    void mapped(String name, Context before, Context after) {
+        if (before != after)
+            mappings.add(new Mapping(name, before, after));
+    }
+
+    void currentContextSet(String before, String after) {
+        if (!before.equals(after))
+            currentContexts.add(new String[] { before, after });
+    }
+
+    void noGood(BitSet noGood, boolean added) {
+        noGoods.add(new NoGood(noGood, added));
+    }
+
+    /**
+     * Hands the changes in this log over to its parent.
+     */
+    void mergeIntoParent() {
+        parent.mappings.addAll(mappings);
+        parent.currentContexts.addAll(currentContexts);
+        parent.noGoods.addAll(noGoods);
+    }
+
+}
@@ -0,0 +1,36 @@
+package sneps.snebr;
+
+import java.util.Hashtable;
+
+/**
+ * The state of SNeBR at some point: its contexts by name and the current
+ * context. Contexts are replaced rather than changed when hyps are added to or
+ * removed from them, so the state only keeps references to them.
+ * The state is saved by the Controller, e.g. when a snapshot of the network is
+ * pinned.
+ */
+public class ControllerState {
+
+    private final String currContext;
+
+    private final Hashtable<String, Context> contexts = new Hashtable<String, Context>();
+
+    ControllerState(String currContext, ContextSet contextSet) {
+        this.currContext = currContext;
+        for (String name : contextSet.getNames())
+            contexts.put(name, contextSet.getContext(name));
+    }
+
+    public String getCurrContext() {
+        return currContext;
+    }
+
+    /**
+     * @param name the name of a context.
+     * @return the context having the name in this state, or null if there was none.
+     */
+    public Context getContext(String name) {
+        return contexts.get(name);
+    }
+
+}
@@ -2,9 +2,12 @@ package sneps.snebr;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-
+import java.util.Collections;
 import java.util.Hashtable;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 
 import sneps.exceptions.CannotInsertJustificationSupportException;
 import sneps.exceptions.DuplicatePropositionException;
@@ -343,6 +346,51 @@ public class Support implements Serializable{
 		
 	}
 
+	/**
+	 * Gives the node ids this support holds the ids they got when the network was compacted.
+	 * The supports are keyed by the hash of their proposition set, or by the id of the node for a hypothesis,
+	 * so they are rekeyed as well.
+	 * @param newIds the new id of every old id, or -1 for the ids of the removed nodes
+	 */
+	public void renumber(int[] newIds) {
+		id = newIds[id];
+		justificationSupport = renumber(justificationSupport, newIds);
+		assumptionBasedSupport = renumber(assumptionBasedSupport, newIds);
+		// the tree sets may share their lists, so each list is renumbered once
+		Set<ArrayList<Integer>> renumbered = Collections.newSetFromMap(new IdentityHashMap<ArrayList<Integer>, Boolean>());
+		for (ArrayList<ArrayList<Integer>> treeSet : mySupportsTree)
+			for (ArrayList<Integer> tree : treeSet)
+				if (renumbered.add(tree))
+					renumber(tree, newIds);
+		for (ArrayList<Integer> tree : intialTreeSet)
+			if (renumbered.add(tree))
+				renumber(tree, newIds);
+		renumber(parentNodes, newIds);
+	}
+
+	private static Hashtable<String, PropositionSet> renumber(Hashtable<String, PropositionSet> supports, int[] newIds) {
+		Hashtable<String, PropositionSet> renumbered = new Hashtable<String, PropositionSet>();
+		for (Map.Entry<String, PropositionSet> entry : supports.entrySet()) {
+			PropositionSet set = entry.getValue().renumber(newIds);
+			String key = entry.getKey();
+			if (key.equals(entry.getValue().getHash()))
+				key = set.getHash();
+			else if (key.matches("\\d+"))
+				key = Integer.toString(newIds[Integer.parseInt(key)]);
+			renumbered.put(key, set);
+		}
+		return renumbered;
+	}
+
+	private static void renumber(ArrayList<Integer> ids, int[] newIds) {
+		ArrayList<Integer> renumbered = new ArrayList<Integer>(ids.size());
+		for (int old : ids)
+			if (old < newIds.length && newIds[old] >= 0)
+				renumbered.add(newIds[old]);
+		ids.clear();
+		ids.addAll(renumbered);
+	}
+
 	/**
 	 * 
 	 * @return int representing the id of this proposition node
@@ -11,23 +11,19 @@
 package sneps.snepslog;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.LinkedList;
 import java.util.Set;
 
-import java_cup.runtime.Symbol;
 import sneps.exceptions.CannotBuildNodeException;
 import sneps.exceptions.CannotFindCaseFrameException;
 import sneps.exceptions.CaseFrameCannotBeRemovedException;
 import sneps.exceptions.CaseFrameMissMatchException;
 import sneps.exceptions.CaseFrameWithSetOfRelationsNotFoundException;
+import sneps.exceptions.ContextNameDoesntExistException;
 import sneps.exceptions.ContradictionFoundException;
 import sneps.exceptions.DuplicateContextNameException;
 import sneps.exceptions.DuplicatePropositionException;
@@ -46,6 +42,8 @@ import sneps.exceptions.RelationDoesntExistException;
 import sneps.exceptions.SemanticAlreadySetException;
 import sneps.exceptions.SemanticNotFoundInNetworkException;
 import sneps.gui.Main;
+import sneps.network.ActNode;
+import sneps.network.KnowledgeBase;
 import sneps.network.Network;
 import sneps.network.Node;
 import sneps.network.PropositionNode;
@@ -62,66 +60,87 @@ import sneps.network.classes.setClasses.PropositionSet;
 import sneps.network.classes.term.Closed;
 import sneps.network.classes.term.Molecular;
 import sneps.snebr.Controller;
+import sneps.snip.Runner;
+import sneps.snip.matching.Matcher;
+import sneps.snip.rete.ReteNetwork;
+import sneps.snip.tabling.AnswerStream;
+import sneps.snip.tabling.TabledDeduction;
+import sneps.snip.tabling.TableSpace;
 
 @SuppressWarnings("deprecation")
 public class AP {
 
 	/**
-	 * This is a Hashtable to store the CaseFrames used in mode 3 where the key is
-	 * the name used in creating the CaseFrame.
+	 * The SNePSLOG state of a knowledge base: its mode three case frames, the
+	 * descriptions of its case frames and nodes, and its modes.
 	 */
-	private static Hashtable<String, CaseFrame> modeThreeCaseFrames = new Hashtable<String, CaseFrame>();
+	public static class State {
 
-	/**
-	 * This is a Hashtable to store the descriptions of CaseFrames created in mode 3
-	 * where the key is the name of the CaseFrame.
-	 */
-	private static Hashtable<String, String> cfsDescriptions = new Hashtable<String, String>();
+		/**
+		 * This is a Hashtable to store the CaseFrames used in mode 3 where the key is
+		 * the name used in creating the CaseFrame.
+		 */
+		private Hashtable<String, CaseFrame> modeThreeCaseFrames = new Hashtable<String, CaseFrame>();
 
-	/**
-	 * This is a Hashtable to store the descriptions of Nodes created in mode 3
-	 * where the key is the node itself.
-	 */
-	private static Hashtable<Node, String> nodesDescriptions = new Hashtable<Node, String>();
+		/**
+		 * This is a Hashtable to store the descriptions of CaseFrames created in mode 3
+		 * where the key is the name of the CaseFrame.
+		 */
+		private Hashtable<String, String> cfsDescriptions = new Hashtable<String, String>();
 
-	/**
-	 * An integer which holds the number of the SNePSLOG mode currently in use. It
-	 * is initially set to 1.
-	 */
-	private static int snepslogMode = 1;
+		/**
+		 * This is a Hashtable to store the descriptions of Nodes created in mode 3
+		 * where the key is the node itself.
+		 */
+		private Hashtable<Node, String> nodesDescriptions = new Hashtable<Node, String>();
+
+		/**
+		 * An integer which holds the number of the SNePSLOG mode currently in use. It
+		 * is initially set to 1.
+		 */
+		private int snepslogMode = 1;
+
+		/**
+		 * A String which holds the name of the printing mode currently in use. It is
+		 * initially set to normal.
+		 */
+		private String printingMode = "normal";
+	}
 
 	/**
-	 * A String which holds the name of the printing mode currently in use. It is
-	 * initially set to normal.
+	 * @return the SNePSLOG state of the knowledge base the current thread works
+	 *         on.
 	 */
-	private static String printingMode = "normal";
+	private static State state() {
+		return KnowledgeBase.getActive().getSnepslog();
+	}
 
 	/**
 	 * @return A Hashtable representing the field modeThreeCaseFrames.
 	 */
 	protected static Hashtable<String, CaseFrame> getModeThreeCaseFrames() {
-		return modeThreeCaseFrames;
+		return state().modeThreeCaseFrames;
 	}
 
 	/**
 	 * @return A Hashtable representing the field cfsDescriptions.
 	 */
 	protected static Hashtable<String, String> getCfsDescriptions() {
-		return cfsDescriptions;
+		return state().cfsDescriptions;
 	}
 
 	/**
 	 * @return A Hashtable representing the field nodesDescriptions.
 	 */
 	protected static Hashtable<Node, String> getNodesDescriptions() {
-		return nodesDescriptions;
+		return state().nodesDescriptions;
 	}
 
 	/**
 	 * @return An int representing the number of the SNePSLOG mode currently in use.
 	 */
 	protected static int getSnepslogMode() {
-		return snepslogMode;
+		return state().snepslogMode;
 	}
 
 	/**
@@ -129,14 +148,14 @@ public class AP {
 	 *            The number of the SNePSLOG mode to be used.
 	 */
 	protected static void setSnepslogMode(int snepslogMode) {
-		AP.snepslogMode = snepslogMode;
+		state().snepslogMode = snepslogMode;
 	}
 
 	/**
 	 * @return A String representing the name of the printing mode currently in use.
 	 */
 	protected static String getPrintingMode() {
-		return printingMode;
+		return state().printingMode;
 	}
 
 	/**
@@ -144,7 +163,7 @@ public class AP {
 	 *            The name of the printing mode to be used.
 	 */
 	protected static void setPrintingMode(String printingMode) {
-		AP.printingMode = printingMode;
+		state().printingMode = printingMode;
 	}
 
 	/**
@@ -206,8 +225,8 @@ public class AP {
 	protected static CaseFrame createModeThreeCaseFrame(String name, String semanticType, ArrayList<String> relations,
 			String description) throws RelationDoesntExistException {
 		// check if already exists
-		if (modeThreeCaseFrames.containsKey(name)) {
-			return modeThreeCaseFrames.get(name);
+		if (state().modeThreeCaseFrames.containsKey(name)) {
+			return state().modeThreeCaseFrames.get(name);
 		}
 		LinkedList<Relation> rels = new LinkedList<Relation>();
 		if (!relations.get(0).equals("nil")) {
@@ -218,12 +237,12 @@ public class AP {
 		}
 		CaseFrame cf = Network.defineCaseFrame(semanticType, rels);
 		if (!relations.get(0).equals("nil")) {
-			modeThreeCaseFrames.put(name, cf);
+			state().modeThreeCaseFrames.put(name, cf);
 		} else {
-			modeThreeCaseFrames.put(name + "$", cf);
+			state().modeThreeCaseFrames.put(name + "$", cf);
 		}
 		if (description != null) {
-			cfsDescriptions.put(name, description);
+			state().cfsDescriptions.put(name, description);
 		}
 		return cf;
 	}
@@ -886,10 +905,12 @@ public class AP {
 	 */
 	protected static ArrayList<Node> getAllMolecularNodesFromTheNetwork() {
 		ArrayList<Node> molecular = new ArrayList<>();
-		Set<String> keys = Network.getNodes().keySet();
-		for (String key : keys) {
-			if (Network.getNodes().get(key).getTerm() instanceof Molecular) {
-				molecular.add(0, Network.getNodes().get(key));
+		// Copying the nodes first, since terms can be built while this is
+		// iterating when commands are served concurrently.
+		ArrayList<Node> nodes = new ArrayList<Node>(Network.getNodes().values());
+		for (Node node : nodes) {
+			if (node.getTerm() instanceof Molecular) {
+				molecular.add(0, node);
 			}
 		}
 		return molecular;
@@ -920,10 +941,10 @@ public class AP {
 	 */
 	protected static ArrayList<Node> getAllClosedNodesFromTheNetwork() {
 		ArrayList<Node> closed = new ArrayList<>();
-		Set<String> keys = Network.getNodes().keySet();
-		for (String key : keys) {
-			if (Network.getNodes().get(key).getTerm() instanceof Closed) {
-				closed.add(0, Network.getNodes().get(key));
+		ArrayList<Node> nodes = new ArrayList<Node>(Network.getNodes().values());
+		for (Node node : nodes) {
+			if (node.getTerm() instanceof Closed) {
+				closed.add(0, node);
 			}
 		}
 		return closed;
@@ -972,7 +993,7 @@ public class AP {
 			return result;
 		}
 		for (int i = 0; i < nodes.size(); i++) {
-			if (nodesDescriptions.get(nodes.get(i)) != null) {
+			if (state().nodesDescriptions.get(nodes.get(i)) != null) {
 				String temp = "";
 				if (nodes.get(i) instanceof PropositionNode) {
 					PropositionNode pNode = (PropositionNode) nodes.get(i);
@@ -981,7 +1002,7 @@ public class AP {
 					}
 				}
 				result += "WFF" + nodes.get(i).getIdentifier().substring(1) + temp + ": "
-						+ nodesDescriptions.get(nodes.get(i)) + '\n';
+						+ state().nodesDescriptions.get(nodes.get(i)) + '\n';
 			}
 		}
 		if (result.length() != 0) {
@@ -1029,10 +1050,23 @@ public class AP {
 		return SemanticHierarchy.createSemanticType(identifier);
 	}
 
-	// TODO A wrapper for match
+	/**
+	 * A wrapper for match returning the node followed by the closed nodes of the
+	 * network that unify with it, i.e. its instances.
+	 *
+	 * @param node
+	 *            the node to be matched.
+	 *
+	 * @return an ArrayList of nodes.
+	 */
 	protected static ArrayList<Node> match(Node node) {
 		ArrayList<Node> output = new ArrayList<Node>();
 		output.add(node);
+		for (Node n : Network.match(node)) {
+			if (!Matcher.isPattern(n)) {
+				output.add(n);
+			}
+		}
 		return output;
 	}
 
@@ -1056,21 +1090,52 @@ public class AP {
 		}
 	}
 
-	// TODO A wrapper for deduce
-	protected static ArrayList<Node> deduce(Node node, String type, int i, int j) {
+	/**
+	 * A wrapper for deduce. The instances of the wff that are asserted or can be
+	 * derived in the current context are found by tabled backward inference, so
+	 * repeating a query in a context whose hyps did not change reads the answers
+	 * of the previous one. The inference stops as soon as i instances are found.
+	 * 
+	 * @param node
+	 *            the wff.
+	 * @param type
+	 *            "ask", "askifnot", "askwh", "askwhnot" or "?".
+	 * @param i
+	 *            the maximum number of positive instances, or -1 for all of
+	 *            them.
+	 * @param j
+	 *            the maximum number of negative instances, or -1 for all of
+	 *            them. Negative instances are not derived yet.
+	 * @return an ArrayList of the instances of the wff.
+	 */
+	protected static ArrayList<Node> deduce(Node node, String type, int i, int j) throws CannotBuildNodeException,
+			EquivalentNodeException, NotAPropositionNodeException, NodeNotFoundInNetworkException,
+			CaseFrameMissMatchException, SemanticNotFoundInNetworkException, NodeNotFoundInPropSetException,
+			DuplicatePropositionException {
 		ArrayList<Node> output = new ArrayList<Node>();
 		switch (type) {
 		case "ask":
+		case "askwh":
+		case "?":
+			TabledDeduction deduction = new TabledDeduction(Controller.getCurrentContextName(),
+					Controller.getCurrentContext());
+			// answers with the same instance count once towards i
+			AnswerStream answers = deduction.stream(node);
+			try {
+				while ((i < 0 || output.size() < i) && answers.hasNext()) {
+					Node instance = TabledDeduction.instance(node, answers.next().getSubstitutions());
+					if (!output.contains(instance)) {
+						output.add(instance);
+					}
+				}
+			} finally {
+				answers.close();
+			}
 			break;
 		case "askifnot":
 			break;
-		case "askwh":
-			break;
 		case "askwhnot":
 			break;
-		case "?":
-			// Handle the optional i and j parameters if there
-			break;
 		}
 		return output;
 	}
@@ -1079,21 +1144,54 @@ public class AP {
 	protected static void clearInfer() {
 	}
 
-	// TODO A wrapper for perform.
+	/**
+	 * A wrapper for perform. The act is intended in the current context and the
+	 * Runner runs until it and the acts it triggers are done.
+	 * 
+	 * @param node
+	 *            the act.
+	 */
 	protected static void perform(Node node) {
+		if (!(node instanceof ActNode))
+			return;
+		Runner.initiate();
+		((ActNode) node).intend(Controller.getCurrentContextName());
+		Runner.run();
 	}
 
-	// TODO A wrapper for forward inference
-	protected static ArrayList<Node> forwardInference(Node node, String type) {
+	/**
+	 * This method is used to forward chain from a wff in the current context
+	 * using the forward chaining network of that context. The wff is asserted
+	 * first in case of "activate!" and "!".
+	 * 
+	 * @param node
+	 *            the wff.
+	 * @param type
+	 *            "activate", "activate!" or "!".
+	 * @return an ArrayList holding the wff followed by the wffs derived from it.
+	 * @throws ContradictionFoundException
+	 *             if asserting the wff makes the current context contradictory.
+	 */
+	protected static ArrayList<Node> forwardInference(Node node, String type) throws NotAPropositionNodeException,
+			NodeNotFoundInNetworkException, ContradictionFoundException, CannotBuildNodeException,
+			EquivalentNodeException, CaseFrameMissMatchException, SemanticNotFoundInNetworkException,
+			NodeNotFoundInPropSetException, DuplicatePropositionException {
 		ArrayList<Node> output = new ArrayList<Node>();
 		switch (type) {
-		case "activate":
-			break;
 		case "activate!":
-			break;
 		case "!":
+			try {
+				Controller.addPropToCurrentContext(node.getId());
+			} catch (DuplicatePropositionException e) {
+				// The wff is already asserted.
+			} catch (ContextNameDoesntExistException e) {
+				throw new IllegalStateException(e.getMessage());
+			}
 			break;
 		}
+		output.add(node);
+		output.addAll(ReteNetwork.getNetwork(Controller.getCurrentContextName())
+				.activate(Controller.getCurrentContext(), (PropositionNode) node));
 		return output;
 	}
 
@@ -1101,12 +1199,14 @@ public class AP {
 	 * This method is used to clear the knowledge base entirely.
 	 */
 	protected static void clearKnowledgeBase() {
+		ReteNetwork.clearNetworks();
+		TableSpace.clearTableSpaces();
 		Controller.clearSNeBR();
 		Network.clearNetwork();
 		SemanticHierarchy.getSemantics().clear();
-		cfsDescriptions.clear();
-		nodesDescriptions.clear();
-		modeThreeCaseFrames.clear();
+		state().cfsDescriptions.clear();
+		state().nodesDescriptions.clear();
+		state().modeThreeCaseFrames.clear();
 		Network.defineDefaults();
 	}
 
@@ -1120,22 +1220,16 @@ public class AP {
 	 * 
 	 */
 	public static String executeSnepslogCommand(String command) {
+		SnepslogSession session = SnepslogSession.acquire();
 		try {
-			InputStream is = new ByteArrayInputStream(command.getBytes(StandardCharsets.UTF_8));
-			DataInputStream dis = new DataInputStream(is);
-			parser parser = new parser(new Lexer(dis));
-			parser.command = command;
-			Symbol res;
-			res = parser.parse();
-			String output = (String) res.value;
-			is.close();
-			dis.close();
-			return output;
+			return session.execute(command);
 		} catch (ContradictionFoundException e) {
 			Main.userAction(e.getContradictoryHyps());
 			return "The GUI is used to handle the contradiction!";
 		} catch (Exception e) {
 			return e.getMessage();
+		} finally {
+			SnepslogSession.release(session);
 		}
 	}
 
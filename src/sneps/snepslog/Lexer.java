@@ -16,6 +16,29 @@ class Lexer implements java_cup.runtime.Scanner {
 	private final int YY_EOF = 129;
 
 //initialize  variables to be used by class
+	/**
+	 * Resets this lexer over a new Reader so that it can be reused for another
+	 * command without unpacking its transition tables again.
+	 * 
+	 * @param reader
+	 *            the Reader of the next command.
+	 */
+	void yyreset(java.io.Reader reader) {
+		if (null == reader) {
+			throw (new Error("Error: Bad input stream initializer."));
+		}
+		yy_reader = new java.io.BufferedReader(reader);
+		yy_buffer_read = 0;
+		yy_buffer_index = 0;
+		yy_buffer_start = 0;
+		yy_buffer_end = 0;
+		yychar = 0;
+		yyline = 0;
+		yy_at_bol = true;
+		yy_lexical_state = YYINITIAL;
+		yy_eof_done = false;
+		yy_last_was_cr = false;
+	}
 	private java.io.BufferedReader yy_reader;
 	private int yy_buffer_index;
 	private int yy_buffer_read;
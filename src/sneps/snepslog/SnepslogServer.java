@@ -0,0 +1,296 @@
+/**
+ * @className SnepslogServer.java
+ *
+ * @ClassDescription A local TCP server for SNePSLOG. Every line received on a
+ *  connection is a command, and every command is answered by its output
+ *  followed by a line holding a single dot. Output lines starting with a dot
+ *  are sent with an extra leading dot. Clients may pipeline commands without
+ *  waiting for the answers; the answers of a connection are always sent in the
+ *  order of its commands.
+ *
+ *  Commands changing the knowledge base are executed one at a time. Read-only
+ *  commands (list-terms and describe-terms) are executed concurrently with
+ *  each other, but never while a mutation is running, so each of them sees a
+ *  consistent knowledge base. The ask family is executed as a mutation, since
+ *  inference fills the answer tables of the context and builds and supports
+ *  the instances it derives. Within one connection a command never overtakes
+ *  an earlier mutation of the same connection.
+ */
+package sneps.snepslog;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import sneps.network.Network;
+
+public class SnepslogServer {
+
+	/**
+	 * The commands that only read the knowledge base.
+	 */
+	private static final Set<String> readOnlyCommands = new HashSet<String>(
+			Arrays.asList("list-terms", "describe-terms"));
+
+	private ServerSocket serverSocket;
+
+	private ExecutorService workers;
+
+	private ReentrantReadWriteLock kbLock = new ReentrantReadWriteLock(true);
+
+	private Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+	private Thread acceptor;
+
+	private volatile boolean running;
+
+	/**
+	 * Creates a server listening on the loopback interface.
+	 *
+	 * @param port
+	 *            the port to listen on, or 0 for any free port.
+	 * @param threads
+	 *            the number of threads executing the commands.
+	 *
+	 * @throws IOException
+	 *             if the port cannot be bound.
+	 */
+	public SnepslogServer(int port, int threads) throws IOException {
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must be at least one");
+		}
+		serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		AtomicInteger threadCount = new AtomicInteger();
+		workers = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "snepslog-server-" + threadCount.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	public SnepslogServer(int port) throws IOException {
+		this(port, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @return the port this server is listening on.
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * This method is used to start accepting connections in a background thread.
+	 */
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		acceptor = new Thread(this::acceptConnections, "snepslog-server-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * This method is used to stop the server, closing all of its connections.
+	 * Commands that are already running are allowed to finish.
+	 */
+	public synchronized void stop() {
+		running = false;
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+		}
+		for (Socket socket : connections) {
+			try {
+				socket.close();
+			} catch (IOException e) {
+			}
+		}
+		workers.shutdown();
+		try {
+			workers.awaitTermination(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * A method checking if a command only reads the knowledge base.
+	 *
+	 * @param command
+	 *            A String holding a SNePSLOG command.
+	 *
+	 * @return true if the command is read-only, and false otherwise.
+	 */
+	public static boolean isReadOnly(String command) {
+		String keyword = command.trim().split("[\\s.{(]", 2)[0];
+		return readOnlyCommands.contains(keyword);
+	}
+
+	/**
+	 * This method is used to execute a command holding the lock of the knowledge
+	 * base, shared if the command is read-only and exclusive otherwise.
+	 *
+	 * @param command
+	 *            A String holding the command that is to be executed.
+	 *
+	 * @return A String representing the output of that command.
+	 */
+	public String execute(String command) {
+		Lock lock = isReadOnly(command) ? kbLock.readLock() : kbLock.writeLock();
+		lock.lock();
+		try {
+			String output = AP.executeSnepslogCommand(command);
+			return output == null ? "" : output;
+		} catch (RuntimeException e) {
+			return "Error executing the command: " + command;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void acceptConnections() {
+		while (running) {
+			try {
+				Socket socket = serverSocket.accept();
+				connections.add(socket);
+				Thread t = new Thread(() -> serve(socket), "snepslog-server-connection");
+				t.setDaemon(true);
+				t.start();
+			} catch (IOException e) {
+				// The server socket is closed by stop().
+			}
+		}
+	}
+
+	/**
+	 * Reads the commands of a connection and schedules them. A read-only command
+	 * waits for the last mutation of the connection, and a mutation waits for
+	 * every earlier command of the connection. The answers are chained so that
+	 * they are written in the order of the commands.
+	 */
+	private void serve(Socket socket) {
+		CompletableFuture<Void> lastMutation = CompletableFuture.completedFuture(null);
+		ArrayList<CompletableFuture<String>> readsSinceMutation = new ArrayList<CompletableFuture<String>>();
+		CompletableFuture<Void> lastAnswer = CompletableFuture.completedFuture(null);
+		AtomicBoolean failed = new AtomicBoolean();
+		Writer out = null;
+		try {
+			BufferedReader in = new BufferedReader(
+					new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+			String line;
+			while ((line = in.readLine()) != null) {
+				String command = line.trim();
+				if (command.isEmpty()) {
+					continue;
+				}
+				CompletableFuture<String> result;
+				if (isReadOnly(command)) {
+					result = lastMutation.thenApplyAsync(v -> execute(command), workers);
+					readsSinceMutation.add(result);
+				} else {
+					ArrayList<CompletableFuture<?>> earlier = new ArrayList<CompletableFuture<?>>(readsSinceMutation);
+					earlier.add(lastMutation);
+					result = CompletableFuture.allOf(earlier.toArray(new CompletableFuture<?>[earlier.size()]))
+							.thenApplyAsync(v -> execute(command), workers);
+					lastMutation = result.thenApply(output -> null);
+					readsSinceMutation.clear();
+				}
+				Writer answers = out;
+				lastAnswer = lastAnswer.thenCombine(result, (v, output) -> {
+					writeAnswer(answers, output);
+					return null;
+				});
+				lastAnswer.exceptionally(e -> {
+					closeWithError(socket, answers, failed, e);
+					return null;
+				});
+			}
+			lastAnswer.join();
+		} catch (SocketException e) {
+			// The connection is closed by the client or by stop().
+		} catch (Exception e) {
+			if (out != null) {
+				try {
+					lastAnswer.join();
+				} catch (CompletionException | CancellationException ignored) {
+				}
+				closeWithError(socket, out, failed, e);
+			}
+		} finally {
+			connections.remove(socket);
+			try {
+				socket.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	/**
+	 * Tells the client why its connection is closed, after the answers of the
+	 * commands that did not fail, and closes the connection. Only the first
+	 * failure of a connection is reported.
+	 */
+	private static void closeWithError(Socket socket, Writer out, AtomicBoolean failed, Throwable e) {
+		if (!failed.compareAndSet(false, true)) {
+			return;
+		}
+		Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+		writeAnswer(out, "Error serving the connection: " + cause);
+		try {
+			socket.close();
+		} catch (IOException ignored) {
+		}
+	}
+
+	private static void writeAnswer(Writer out, String output) {
+		try {
+			for (String line : output.split("\n", -1)) {
+				if (line.startsWith(".")) {
+					out.write('.');
+				}
+				out.write(line);
+				out.write('\n');
+			}
+			out.write(".\n");
+			out.flush();
+		} catch (IOException e) {
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 7777;
+		Network.defineDefaults();
+		SnepslogServer server = new SnepslogServer(port);
+		server.start();
+		System.out.println("SNePSLOG server listening on port " + server.getPort());
+		server.acceptor.join();
+	}
+
+}
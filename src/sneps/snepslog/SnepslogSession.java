@@ -0,0 +1,148 @@
+/**
+ * @className SnepslogSession.java
+ *
+ * @ClassDescription A reusable pair of a SNePSLOG lexer and parser. Creating a
+ *  new Lexer for every command unpacks its transition tables again, so a
+ *  session keeps one Lexer and one parser and only resets them over the
+ *  Reader of the next command. Sessions are not thread-safe; they are served
+ *  from a thread-local pool through acquire() and release().
+ */
+package sneps.snepslog;
+
+import java.io.StringReader;
+import java.util.ArrayDeque;
+
+import java_cup.runtime.Symbol;
+import java_cup.runtime.SymbolFactory;
+import sneps.exceptions.ContradictionFoundException;
+import sneps.network.Network;
+
+public class SnepslogSession {
+
+	/**
+	 * The idle sessions of each thread. A stack is used rather than a single
+	 * session since a command (e.g. load) can execute other commands while it is
+	 * being parsed.
+	 */
+	private static final ThreadLocal<ArrayDeque<SnepslogSession>> pool = new ThreadLocal<ArrayDeque<SnepslogSession>>() {
+		@Override
+		protected ArrayDeque<SnepslogSession> initialValue() {
+			return new ArrayDeque<SnepslogSession>();
+		}
+	};
+
+	private Lexer lexer;
+
+	private parser parser;
+
+	public SnepslogSession() {
+		lexer = new Lexer(new StringReader(""));
+		parser = new parser(lexer, new Symbols());
+	}
+
+	/**
+	 * Creates the symbols of the parser as plain Symbols, like the deprecated
+	 * DefaultSymbolFactory the generated one-argument constructor uses. The
+	 * ComplexSymbolFactory cannot be used instead, since it expects the Lexer
+	 * to return ComplexSymbols.
+	 */
+	private static class Symbols implements SymbolFactory {
+
+		public Symbol newSymbol(String name, int id, Symbol left, Symbol right, Object value) {
+			return new Symbol(id, left, right, value);
+		}
+
+		public Symbol newSymbol(String name, int id, Symbol left, Symbol right) {
+			return new Symbol(id, left, right);
+		}
+
+		public Symbol newSymbol(String name, int id, Symbol left, Object value) {
+			return new Symbol(id, left, value);
+		}
+
+		public Symbol newSymbol(String name, int id, Object value) {
+			return new Symbol(id, value);
+		}
+
+		public Symbol newSymbol(String name, int id) {
+			return new Symbol(id);
+		}
+
+		public Symbol startSymbol(String name, int id, int state) {
+			Symbol start = new Symbol(id);
+			start.parse_state = state;
+			return start;
+		}
+
+	}
+
+	/**
+	 * This method is used to get an idle session of the current thread, creating
+	 * one if there is none.
+	 *
+	 * @return a SnepslogSession that must be given back using release().
+	 */
+	public static SnepslogSession acquire() {
+		SnepslogSession session = pool.get().pollFirst();
+		if (session == null) {
+			session = new SnepslogSession();
+		}
+		return session;
+	}
+
+	/**
+	 * This method is used to give a session back to the pool of the current
+	 * thread.
+	 *
+	 * @param session
+	 *            the SnepslogSession to be reused by later commands.
+	 */
+	public static void release(SnepslogSession session) {
+		pool.get().addFirst(session);
+	}
+
+	/**
+	 * This method is used to parse and execute a SNePSLOG command using the lexer
+	 * and the parser of this session. The command is executed in a transaction
+	 * over the network, since the parser builds the terms of a command while
+	 * reading it: if the command cannot be parsed or executed, the terms it
+	 * built and the changes it made to the contexts are rolled back. A command
+	 * finding a contradiction keeps them, since the contradiction is resolved
+	 * with them. perform is executed outside of a transaction, since it waits
+	 * for acts performed by other threads, which could not use the network
+	 * while the transaction holds its lock.
+	 *
+	 * @param command
+	 *            A String holding the command that is to be executed.
+	 *
+	 * @return A String representing the output of that command.
+	 *
+	 * @throws Exception
+	 *             if the command cannot be parsed or executed.
+	 */
+	public String execute(String command) throws Exception {
+		lexer.yyreset(new StringReader(command));
+		parser.command = command;
+		if (command.trim().startsWith("perform"))
+			return (String) parser.parse().value;
+		Network.beginTransaction();
+		boolean done = false;
+		try {
+			Symbol res = parser.parse();
+			done = true;
+			return (String) res.value;
+		} catch (ContradictionFoundException e) {
+			done = true;
+			throw e;
+		} finally {
+			// clearkb drops the transaction along with the network
+			if (Network.inTransaction()) {
+				if (done)
+					Network.commitTransaction();
+				else
+					Network.rollbackTransaction();
+			}
+		}
+	}
+
+}
@@ -1155,7 +1155,8 @@ class CUP$parser$actions {
 							for(int i=0;i<matchingNodes.size();i++){
 								ArrayList<Node> temp = AP.deduce(matchingNodes.get(i), "?", -1, -1);
 								for(int j=0;j<temp.size();j++){
-									nodes.add(temp.get(j));
+									if(!nodes.contains(temp.get(j)))
+										nodes.add(temp.get(j));
 								}
 							}
 							RESULT = AP.displayWffs(nodes);
@@ -1172,10 +1173,11 @@ class CUP$parser$actions {
 						if (tp.startsWith("ONE")) {
 							int i = Integer.parseInt(tp.substring(3));
 							matchingNodes = AP.match(w);
-					    		for(int a=0;a<matchingNodes.size();a++){
+					    		for(int a=0;a<matchingNodes.size() && nodes.size()<i;a++){
 								ArrayList<Node> temp = AP.deduce(matchingNodes.get(a), "?", i, -1);
-								for(int b=0;b<temp.size();b++){
-									nodes.add(temp.get(b));
+								for(int b=0;b<temp.size() && nodes.size()<i;b++){
+									if(!nodes.contains(temp.get(b)))
+										nodes.add(temp.get(b));
 								}
 							}
 							RESULT = AP.displayWffs(nodes);
@@ -1183,10 +1185,11 @@ class CUP$parser$actions {
 							int i = Integer.parseInt(tp.substring(3).split(",")[0]);
 							int j = Integer.parseInt(tp.substring(3).split(",")[1]);
 							matchingNodes = AP.match(w);
-							for(int a=0;a<matchingNodes.size();a++){
+							for(int a=0;a<matchingNodes.size() && nodes.size()<i;a++){
 								ArrayList<Node> temp = AP.deduce(matchingNodes.get(a), "?", i, j);
-								for(int b=0;b<temp.size();b++){
-									nodes.add(temp.get(b));
+								for(int b=0;b<temp.size() && nodes.size()<i;b++){
+									if(!nodes.contains(temp.get(b)))
+										nodes.add(temp.get(b));
 								}
 							}
 							RESULT = AP.displayWffs(nodes);
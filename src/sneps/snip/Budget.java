@@ -0,0 +1,42 @@
+package sneps.snip;
+
+/**
+ * The work a query may do in the Runner: the number of node activations, the
+ * number of reports sent through channels and the time it may run. A negative
+ * limit means no limit.
+ */
+public class Budget {
+
+	public static final Budget UNLIMITED = new Budget(-1, -1, -1);
+
+	private int maxActivations;
+	private int maxReports;
+	private long timeoutMillis;
+
+	/**
+	 * @param maxActivations
+	 *            the maximum number of nodes the Runner processes.
+	 * @param maxReports
+	 *            the maximum number of reports sent through channels.
+	 * @param timeoutMillis
+	 *            the maximum time the Runner runs, in milliseconds.
+	 */
+	public Budget(int maxActivations, int maxReports, long timeoutMillis) {
+		this.maxActivations = maxActivations;
+		this.maxReports = maxReports;
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	public int getMaxActivations() {
+		return maxActivations;
+	}
+
+	public int getMaxReports() {
+		return maxReports;
+	}
+
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+}
@@ -1,15 +1,36 @@
 package sneps.snip;
 
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import sneps.snebr.Support;
+import sneps.snip.matching.Binding;
 import sneps.snip.matching.Substitutions;
 
+/**
+ * A report of an instance of a node: the substitution of its variables, its
+ * sign, the context it holds in and its supports. Two reports are equal if they
+ * have equal substitutions, the same sign and context, and the same supports.
+ * 
+ * Reports are interned as they are added to report sets, so that equal
+ * reports sent through many channels or kept in the known instances of many
+ * nodes are a single object. A report must not be changed once it is added to
+ * a report set.
+ */
 public class Report {
 	private Substitutions substitution;
 	private Set<Support> supports;
 	private boolean sign;
 	private String contextName;
+	private int hash;
+
+	private static Map<Report, WeakReference<Report>> reports = new WeakHashMap<Report, WeakReference<Report>>();
+	private static Map<Set<Support>, WeakReference<Set<Support>>> supportSets = new WeakHashMap<Set<Support>, WeakReference<Set<Support>>>();
 
 	public Report(Substitutions substitution, Set<Support> set, boolean sign, String contextID) {
 		this.substitution = substitution;
@@ -18,6 +39,60 @@ public class Report {
 		this.contextName = contextID;
 	}
 
+	/**
+	 * Return the report equal to a report that is in use, or the report itself
+	 * if there is none. The supports of the report are shared the same way.
+	 * 
+	 * @param report
+	 *            the report
+	 * @return the canonical report
+	 */
+	public static synchronized Report intern(Report report) {
+		WeakReference<Report> canonical = reports.get(report);
+		Report result = canonical == null ? null : canonical.get();
+		if (result != null)
+			return result;
+		report.supports = internSupports(report.supports);
+		reports.put(report, new WeakReference<Report>(report));
+		return report;
+	}
+
+	private static Set<Support> internSupports(Set<Support> supports) {
+		if (supports == null)
+			return null;
+		WeakReference<Set<Support>> canonical = supportSets.get(supports);
+		Set<Support> result = canonical == null ? null : canonical.get();
+		if (result != null)
+			return result;
+		result = Collections.unmodifiableSet(new HashSet<Support>(supports));
+		supportSets.put(result, new WeakReference<Set<Support>>(result));
+		return result;
+	}
+
+	/**
+	 * Forget the hashes of the reports in use, computed from the ids of the
+	 * nodes and variables of their substitutions, and intern them again by
+	 * their new hashes. Called once the ids of the nodes are renumbered; the
+	 * sets holding the reports must be rehashed as well.
+	 */
+	public static synchronized void rehash() {
+		Map<Report, WeakReference<Report>> rehashed = new WeakHashMap<Report, WeakReference<Report>>();
+		for (Report report : reports.keySet().toArray(new Report[0])) {
+			if (report == null)
+				continue;
+			report.hash = 0;
+			rehashed.put(report, new WeakReference<Report>(report));
+		}
+		reports = rehashed;
+	}
+
+	/**
+	 * @return the number of distinct reports in use.
+	 */
+	public static synchronized int internedCount() {
+		return reports.size();
+	}
+
 	public Substitutions getSubstitutions() {
 		return substitution;
 	}
@@ -28,9 +103,34 @@ public class Report {
 
 	@Override
 	public boolean equals(Object report) {
+		if (this == report)
+			return true;
+		if (!(report instanceof Report))
+			return false;
 		Report castedReport = (Report) report;
-		return this.substitution.equals(castedReport.substitution) && this.sign == castedReport.sign
-				&& this.contextName == castedReport.contextName;
+		return this.sign == castedReport.sign && Objects.equals(this.contextName, castedReport.contextName)
+				&& hashCode() == castedReport.hashCode() && this.substitution.isEqual(castedReport.substitution)
+				&& Objects.equals(this.supports, castedReport.supports);
+	}
+
+	/**
+	 * The hash of the substitution does not depend on the order of its
+	 * bindings. It is computed once, the report being unchanged afterwards.
+	 */
+	@Override
+	public int hashCode() {
+		if (hash == 0) {
+			int h = 0;
+			for (int i = 0; i < substitution.cardinality(); i++) {
+				Binding b = substitution.getBinding(i);
+				h += 31 * b.getVariable().getId() + b.getNode().getId();
+			}
+			h = 31 * h + (sign ? 1 : 0);
+			h = 31 * h + Objects.hashCode(contextName);
+			h = 31 * h + Objects.hashCode(supports);
+			hash = h == 0 ? 1 : h;
+		}
+		return hash;
 	}
 
 	public boolean getSign() {
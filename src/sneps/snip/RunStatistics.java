@@ -0,0 +1,99 @@
+package sneps.snip;
+
+/**
+ * What the Runner did in its last run, and why it stopped. A run stopped by its
+ * budget leaves the reports sent so far in the channels and the nodes not yet
+ * processed in the queues.
+ */
+public class RunStatistics {
+
+	public enum StopReason {
+		COMPLETED, ACTIVATIONS, REPORTS, DEADLINE
+	}
+
+	private int highActivations;
+	private int lowActivations;
+	private int actActivations;
+	private int reports;
+	private long elapsedNanos;
+	private int pending;
+	private StopReason stopReason = StopReason.COMPLETED;
+
+	void highActivation() {
+		highActivations++;
+	}
+
+	void lowActivation() {
+		lowActivations++;
+	}
+
+	void actActivation() {
+		actActivations++;
+	}
+
+	void report() {
+		reports++;
+	}
+
+	void stop(StopReason stopReason, long elapsedNanos, int pending) {
+		this.stopReason = stopReason;
+		this.elapsedNanos = elapsedNanos;
+		this.pending = pending;
+	}
+
+	/**
+	 * @return the number of nodes processed from all the queues.
+	 */
+	public int getActivations() {
+		return highActivations + lowActivations + actActivations;
+	}
+
+	public int getHighActivations() {
+		return highActivations;
+	}
+
+	public int getLowActivations() {
+		return lowActivations;
+	}
+
+	public int getActActivations() {
+		return actActivations;
+	}
+
+	/**
+	 * @return the number of reports sent through channels.
+	 */
+	public int getReports() {
+		return reports;
+	}
+
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * @return the number of nodes left in the queues.
+	 */
+	public int getPending() {
+		return pending;
+	}
+
+	public StopReason getStopReason() {
+		return stopReason;
+	}
+
+	/**
+	 * @return true if the run stopped before the queues were empty.
+	 */
+	public boolean isPartial() {
+		return stopReason != StopReason.COMPLETED;
+	}
+
+	@Override
+	public String toString() {
+		return "activations: " + getActivations() + " (H " + highActivations + ", L " + lowActivations + ", A "
+				+ actActivations + "), reports: " + reports + ", pending: " + pending + ", elapsed: "
+				+ elapsedNanos / 1000000 + " ms, stopped: " + stopReason;
+	}
+
+}
@@ -1,69 +1,354 @@
 package sneps.snip;
 
 import java.util.ArrayDeque;
+import java.util.Comparator;
 import java.util.Deque;
+import java.util.Enumeration;
+import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
 
 import sneps.network.ActNode;
+import sneps.network.KnowledgeBase;
 import sneps.network.Node;
+import sneps.network.cables.DownCable;
+import sneps.network.classes.term.Molecular;
+import sneps.snip.RunStatistics.StopReason;
+import sneps.snip.acting.PrimitiveAction;
 
 public class Runner {
+
+	/**
+	 * The order in which the nodes of the low queue process their requests:
+	 * in the order they were queued, the last queued first, or the cheapest
+	 * first according to the cost estimator.
+	 */
+	public enum RequestOrder {
+		BREADTH_FIRST, DEPTH_FIRST, BEST_FIRST
+	}
+
+	private static class QueuedNode {
+		private Node node;
+		private long sequence;
+		private int cost;
+
+		private QueuedNode(Node node, long sequence, int cost) {
+			this.node = node;
+			this.sequence = sequence;
+			this.cost = cost;
+		}
+	}
 	
-	private static Queue<Node> highQueue;
-	private static Queue<Node> lowQueue;
-	private static Deque<ActNode> actQueue;
-	
+	private static int actParallelism = 1;
+	private static ExecutorService actExecutor;
+
+	/**
+	 * The queues, the settings and the acts being performed of the runner of a
+	 * knowledge base
+	 */
+	public static class State {
+		private Queue<Node> highQueue;
+		private PriorityQueue<QueuedNode> lowQueue;
+		private Deque<ActNode.Intention> actQueue;
+		private RequestOrder requestOrder = RequestOrder.BREADTH_FIRST;
+		private ToIntFunction<Node> costEstimator = Runner::estimateCost;
+		private long queued;
+		private Budget budget = Budget.UNLIMITED;
+		private long start;
+		private RunStatistics statistics = new RunStatistics();
+		private LinkedBlockingQueue<ActNode.Intention> completedActs = new LinkedBlockingQueue<ActNode.Intention>();
+		private int actsInFlight;
+	}
+
+	/**
+	 * Return the runner of the knowledge base the current thread works on
+	 */
+	private static State state() {
+		return KnowledgeBase.getActive().getRunner();
+	}
+
 	public static void initiate() {
-		highQueue = new ArrayDeque<Node>();
-		lowQueue = new ArrayDeque<Node>();
-		actQueue = new ArrayDeque<ActNode>();
+		State state = state();
+		state.highQueue = new ArrayDeque<Node>();
+		state.lowQueue = new PriorityQueue<QueuedNode>(comparator(state.requestOrder));
+		state.actQueue = new ArrayDeque<ActNode.Intention>();
+		state.queued = 0;
+		state.statistics = new RunStatistics();
+	}
+
+	/**
+	 * Set the order of the low queue, keeping the nodes queued
+	 */
+	public static void setRequestOrder(RequestOrder order) {
+		State state = state();
+		state.requestOrder = order;
+		if (state.lowQueue != null) {
+			PriorityQueue<QueuedNode> reordered = new PriorityQueue<QueuedNode>(comparator(order));
+			reordered.addAll(state.lowQueue);
+			state.lowQueue = reordered;
+		}
+	}
+
+	public static RequestOrder getRequestOrder() {
+		return state().requestOrder;
+	}
+
+	/**
+	 * Set the estimate of the cost of the requests of a node used by the
+	 * best-first order. It applies to the nodes queued afterwards.
+	 */
+	public static void setCostEstimator(ToIntFunction<Node> estimator) {
+		state().costEstimator = estimator;
+	}
+
+	/**
+	 * The default cost of a node: the number of nodes it points to, so smaller
+	 * goals are tried first
+	 */
+	public static int estimateCost(Node node) {
+		if (!(node.getTerm() instanceof Molecular))
+			return 0;
+		int cost = 0;
+		Enumeration<DownCable> cables = ((Molecular) node.getTerm()).getDownCableSet().getDownCables().elements();
+		while (cables.hasMoreElements())
+			cost += cables.nextElement().getNodeSet().size();
+		return cost;
+	}
+
+	private static Comparator<QueuedNode> comparator(RequestOrder order) {
+		switch (order) {
+		case DEPTH_FIRST:
+			return (n1, n2) -> Long.compare(n2.sequence, n1.sequence);
+		case BEST_FIRST:
+			return (n1, n2) -> n1.cost != n2.cost ? Integer.compare(n1.cost, n2.cost)
+					: Long.compare(n1.sequence, n2.sequence);
+		default:
+			return (n1, n2) -> Long.compare(n1.sequence, n2.sequence);
+		}
 	}
 
 	public static String run() {
+		return run(Budget.UNLIMITED);
+	}
+
+	/**
+	 * Process the queued nodes until the queues are empty or the budget is
+	 * spent. A run stopped by its budget leaves the nodes it did not process
+	 * in the queues and the reports already sent in the channels; the
+	 * statistics of the run tell why it stopped.
+	 * 
+	 * @param budget
+	 *            the work the run may do
+	 * @return the sequence of the queues the processed nodes were taken from
+	 */
+	public static String run(Budget budget) {
+		State state = state();
+		state.budget = budget;
+		state.statistics = new RunStatistics();
+		state.start = System.nanoTime();
 		String sequence = "";
-		main: while(!highQueue.isEmpty() || !lowQueue.isEmpty() || !actQueue.isEmpty()) {
-			while(!highQueue.isEmpty()) {
+		StopReason stopReason = StopReason.COMPLETED;
+		main: while(!state.highQueue.isEmpty() || !state.lowQueue.isEmpty() || !state.actQueue.isEmpty() || state.actsInFlight > 0) {
+			if (state.highQueue.isEmpty() && state.lowQueue.isEmpty() && state.actQueue.isEmpty()
+					&& (stopReason = awaitCompletedAct()) != StopReason.COMPLETED)
+				break main;
+			collectCompletedActs();
+			while(!state.highQueue.isEmpty()) {
+				if ((stopReason = spentBudget()) != StopReason.COMPLETED)
+					break main;
 				System.out.println("\n\n");
 				System.out.println(" AT HIGH QUEUE ");
-				Node toRunNext = highQueue.poll();
+				Node toRunNext = state.highQueue.poll();
 				System.out.println(toRunNext);
 				System.out.println("\n\n");
+				state.statistics.highActivation();
 				toRunNext.processReports();
 				sequence += 'H';
 			}
-			while(!lowQueue.isEmpty()) {
+			while(!state.lowQueue.isEmpty()) {
+				if ((stopReason = spentBudget()) != StopReason.COMPLETED)
+					break main;
 				System.out.println("in");
-				Node toRunNext = lowQueue.poll();
+				Node toRunNext = state.lowQueue.poll().node;
+				state.statistics.lowActivation();
 				toRunNext.processRequests();
 				sequence += 'L';
-				if(!highQueue.isEmpty())
+				if(!state.highQueue.isEmpty())
 					continue main;
 			}
-			while(!actQueue.isEmpty()) {
+			while(!state.actQueue.isEmpty()) {
+				if ((stopReason = spentBudget()) != StopReason.COMPLETED)
+					break main;
 				System.out.println("AT ACT QUEUE");
-				ActNode toRunNext = actQueue.removeLast();
-				System.out.println(toRunNext + " agenda: " + toRunNext.getAgenda());
+				ActNode.Intention toRunNext = state.actQueue.removeLast();
+				System.out.println(toRunNext.getAct() + " agenda: " + toRunNext.getAgenda());
 				System.out.println("\n\n");
-				toRunNext.processIntends();
+				state.statistics.actActivation();
+				toRunNext.getAct().processIntends(toRunNext);
 				sequence += 'A';
-				if(!highQueue.isEmpty() || !lowQueue.isEmpty()) {
+				if(!state.highQueue.isEmpty() || !state.lowQueue.isEmpty()) {
 					continue main;
 				}
 			}
 		}
+		state.statistics.stop(stopReason, System.nanoTime() - state.start,
+				state.highQueue.size() + state.lowQueue.size() + state.actQueue.size() + state.actsInFlight);
 		return sequence;
 	}
+
+	/**
+	 * Wait until an act being performed completes, as long as the deadline of
+	 * the run allows
+	 */
+	private static StopReason awaitCompletedAct() {
+		State state = state();
+		try {
+			ActNode.Intention intention;
+			if (state.budget.getTimeoutMillis() < 0) {
+				intention = state.completedActs.take();
+			} else {
+				long remaining = state.budget.getTimeoutMillis() * 1000000 - (System.nanoTime() - state.start);
+				intention = state.completedActs.poll(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+				if (intention == null)
+					return StopReason.DEADLINE;
+			}
+			state.actsInFlight--;
+			intention.getAct().completed(intention);
+			addToHighQueue(intention.getAct());
+			return StopReason.COMPLETED;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return StopReason.DEADLINE;
+		}
+	}
+
+	/**
+	 * Queue the acts whose performance completed so that they report it
+	 */
+	private static void collectCompletedActs() {
+		State state = state();
+		ActNode.Intention intention;
+		while ((intention = state.completedActs.poll()) != null) {
+			state.actsInFlight--;
+			intention.getAct().completed(intention);
+			addToHighQueue(intention.getAct());
+		}
+	}
+
+	/**
+	 * Perform an intention of a primitive act on the act executor without
+	 * waiting for it. The act is performed inside the knowledge base of the
+	 * current thread, and is queued in the high queue of its runner with the
+	 * outcome of the intention once it completes.
+	 * 
+	 * @param intention
+	 *            the intention of the act
+	 * @param action
+	 *            its primitive action
+	 */
+	public static void perform(ActNode.Intention intention, PrimitiveAction action) {
+		KnowledgeBase kb = KnowledgeBase.getActive();
+		State state = kb.getRunner();
+		state.actsInFlight++;
+		actExecutor().execute(() -> {
+			CompletableFuture<?> future;
+			try {
+				future = kb.run(() -> action.perform(intention.getAct()));
+			} catch (RuntimeException e) {
+				complete(state, intention, null, e);
+				return;
+			}
+			if (future == null)
+				complete(state, intention, null, null);
+			else
+				future.whenComplete((result, failure) -> complete(state, intention, result, failure));
+		});
+	}
+
+	private static void complete(State state, ActNode.Intention intention, Object result, Throwable failure) {
+		intention.completed(result, failure);
+		state.completedActs.add(intention);
+	}
+
+	/**
+	 * Set the number of primitive acts performed at the same time
+	 */
+	public static synchronized void setActParallelism(int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("The act parallelism must be positive");
+		actParallelism = parallelism;
+		if (actExecutor != null) {
+			actExecutor.shutdown();
+			actExecutor = null;
+		}
+	}
+
+	public static int getActParallelism() {
+		return actParallelism;
+	}
+
+	/**
+	 * @return the number of primitive acts being performed.
+	 */
+	public static int getActsInFlight() {
+		return state().actsInFlight;
+	}
+
+	private static synchronized ExecutorService actExecutor() {
+		if (actExecutor == null)
+			actExecutor = Executors.newFixedThreadPool(actParallelism, task -> {
+				Thread thread = new Thread(task, "act-executor");
+				thread.setDaemon(true);
+				return thread;
+			});
+		return actExecutor;
+	}
+
+	/**
+	 * Return the limit of the budget the run reached, or COMPLETED if it can
+	 * go on
+	 */
+	private static StopReason spentBudget() {
+		State state = state();
+		if (state.budget.getMaxActivations() >= 0 && state.statistics.getActivations() >= state.budget.getMaxActivations())
+			return StopReason.ACTIVATIONS;
+		if (state.budget.getMaxReports() >= 0 && state.statistics.getReports() >= state.budget.getMaxReports())
+			return StopReason.REPORTS;
+		if (state.budget.getTimeoutMillis() >= 0 && System.nanoTime() - state.start >= state.budget.getTimeoutMillis() * 1000000)
+			return StopReason.DEADLINE;
+		return StopReason.COMPLETED;
+	}
+
+	/**
+	 * @return the statistics of the last run.
+	 */
+	public static RunStatistics getStatistics() {
+		return state().statistics;
+	}
+
+	/**
+	 * Count a report sent through a channel against the budget of the run
+	 */
+	public static void reportSent() {
+		state().statistics.report();
+	}
 	
 	public static void addToHighQueue(Node node) {
-		highQueue.add(node);
+		state().highQueue.add(node);
 	}
 	
 	public static void addToLowQueue(Node node) {
-		lowQueue.add(node);
+		State state = state();
+		state.lowQueue.add(new QueuedNode(node, state.queued++, state.costEstimator.applyAsInt(node)));
 	}
 	
-	public static void addToActStack(ActNode node) {
-		actQueue.addLast(node);
+	public static void addToActStack(ActNode.Intention intention) {
+		state().actQueue.addLast(intention);
 	}
 
 }
@@ -17,26 +17,29 @@ public class Switch {
 		this.substitution = substitution;
 	}
 
-	public void switchReport(Report r) {
+	/**
+	 * Return the report seen by the requester: the variables of the reporter
+	 * bound by the report are renamed to those of the requester, and the
+	 * bindings of the switch for the other variables are added. The report
+	 * itself is left unchanged, since it may be sent through other channels.
+	 */
+	public Report switchReport(Report r) {
+		if (this.substitution.cardinality() == 0)
+			return r;
+		Substitutions reported = r.getSubstitutions();
+		Substitutions switched = new LinearSubstitutions();
+		for (int i = 0; i < reported.cardinality(); i++) {
+			Binding b = reported.getBinding(i);
+			Binding s = this.substitution.getBindingByVariable(b.getVariable());
+			switched.putIn(new Binding(s == null ? b.getVariable() : (VariableNode) s.getNode(), b.getNode()));
+		}
 		for (int i = 0; i < this.substitution.cardinality(); i++) {
-			
-			Binding b = r.getSubstitutions().getBindingByVariable(
-					this.substitution.getBinding(i).getVariable());
-			System.out.println(this.substitution.getBinding(i).getVariable());
-			System.out.println("i: " + i + " binding: " + b);
-			if (b != null) {
-				b.setVariable( (VariableNode) this.substitution.getBinding(i).getNode());
-			}else {
-				System.out.println("there u go " + this.substitution.getBinding(i));
-				r.getSubstitutions().putIn(this.substitution.getBinding(i));
-				System.out.println("size now " + r.getSubstitutions().cardinality());
-			}
-			
+			Binding s = this.substitution.getBinding(i);
+			if (reported.getBindingByVariable(s.getVariable()) == null)
+				switched.putIn(s);
 		}
-		System.out.println(r.getSubstitutions().isNew());
-		System.out.println("Done Switching:\n" + r.getSubstitutions());
 		// {a/X, b/Y}, {X/W, Y/Z, K/C} => {a/W, b/Z, K/C}
-		// r.getSubstitutions().unionIn(s);
+		return new Report(switched, r.getSupports(), r.getSign(), r.getContextName());
 	}
 	
 	public String toString() {
@@ -0,0 +1,16 @@
+package sneps.snip.acting;
+
+import java.util.concurrent.CompletableFuture;
+
+import sneps.network.ActNode;
+
+/**
+ * A primitive action, performed by Java code. The Runner calls it on one of the
+ * threads of its act executor and goes on with inference; the act is done when
+ * the returned future completes, and failed if it completes exceptionally.
+ */
+public interface PrimitiveAction {
+
+	public CompletableFuture<?> perform(ActNode act);
+
+}
@@ -0,0 +1,44 @@
+package sneps.snip.acting;
+
+import java.util.Hashtable;
+
+/**
+ * The primitive actions, by the name of the action node they are attached to.
+ */
+public class PrimitiveActions {
+
+	private static Hashtable<String, PrimitiveAction> actions = new Hashtable<String, PrimitiveAction>();
+
+	private PrimitiveActions() {
+	}
+
+	/**
+	 * Attach a primitive action to the action node having a name, replacing
+	 * the one attached to it before if any
+	 *
+	 * @param name
+	 *            the name of the action node
+	 * @param action
+	 *            the primitive action
+	 */
+	public static void define(String name, PrimitiveAction action) {
+		actions.put(name, action);
+	}
+
+	public static void undefine(String name) {
+		actions.remove(name);
+	}
+
+	/**
+	 * Return the primitive action attached to an action node, or null if it
+	 * has none
+	 */
+	public static PrimitiveAction get(String name) {
+		return actions.get(name);
+	}
+
+	public static void clear() {
+		actions.clear();
+	}
+
+}
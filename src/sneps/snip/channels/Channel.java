@@ -1,5 +1,7 @@
 package sneps.snip.channels;
 
+import java.util.Objects;
+
 import sneps.network.Node;
 import sneps.network.classes.setClasses.ReportSet;
 import sneps.snip.Filter;
@@ -40,18 +42,45 @@ public abstract class Channel {
 
 	
 
+	/**
+	 * Add a report passing the filter of the channel to its buffer. The
+	 * requester is scheduled to process it if the valve is open; a closed
+	 * valve keeps the report in the buffer until it is opened.
+	 * 
+	 * @param report
+	 *            the report
+	 * @return true if the report passed the filter
+	 */
 	public boolean addReport(Report report) {
-		System.out.println("Can pass " + filter.canPass(report));
-		if (filter.canPass(report) && contextName == report.getContextName()) {
-			System.out.println("\n\nThe Switch data:\n" + switch_);
-			switch_.switchReport(report);
-			reportsBuffer.addReport(report);
-			Runner.addToHighQueue(requester);
+		if (filter.canPass(report) && Objects.equals(contextName, report.getContextName())) {
+			reportsBuffer.addReport(switch_.switchReport(report));
+			Runner.reportSent();
+			if (valve)
+				Runner.addToHighQueue(requester);
 			return true;
 		}
 		return false;
 	}
 
+	/**
+	 * Close the valve, suspending the flow of reports to the requester
+	 */
+	public void closeValve() {
+		valve = false;
+	}
+
+	/**
+	 * Open the valve, scheduling the requester once to process the reports
+	 * buffered while it was closed
+	 */
+	public void openValve() {
+		if (valve)
+			return;
+		valve = true;
+		if (!reportsBuffer.isEmpty())
+			Runner.addToHighQueue(requester);
+	}
+
 
 	public String getContextName() {
 		return contextName;
@@ -75,7 +104,10 @@ public abstract class Channel {
 		return reportsBuffer;
 	}
 	public void setValve(boolean valve) {
-		this.valve = valve;
+		if (valve)
+			openValve();
+		else
+			closeValve();
 	}
 	public void clearReportsBuffer() {
 		reportsBuffer.clear();
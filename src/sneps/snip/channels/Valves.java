@@ -0,0 +1,112 @@
+package sneps.snip.channels;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.PropositionNode;
+
+/**
+ * Suspends and resumes the flow of reports in whole parts of the inference
+ * graph. Closing the valves of a channel does not remove it: the reports it
+ * receives wait in its buffer, and are processed in one batch once it is
+ * opened again.
+ */
+public class Valves {
+
+	private Valves() {
+	}
+
+	/**
+	 * Close the valves of the channels feeding a query in a context: the
+	 * incoming channels of the query, and those of the nodes reporting to it
+	 * through them, recursively
+	 *
+	 * @param query
+	 *            the query node
+	 * @param contextName
+	 *            the context of the query
+	 * @return the number of channels suspended
+	 */
+	public static int suspendQuery(PropositionNode query, String contextName) {
+		return setQueryValves(query, contextName, false);
+	}
+
+	/**
+	 * Open the valves of the channels feeding a query in a context, flushing
+	 * the reports they buffered
+	 *
+	 * @param query
+	 *            the query node
+	 * @param contextName
+	 *            the context of the query
+	 * @return the number of channels resumed
+	 */
+	public static int resumeQuery(PropositionNode query, String contextName) {
+		return setQueryValves(query, contextName, true);
+	}
+
+	/**
+	 * Close the valves of all the channels of a context
+	 *
+	 * @param contextName
+	 *            the context
+	 * @return the number of channels suspended
+	 */
+	public static int suspendContext(String contextName) {
+		return setContextValves(contextName, false);
+	}
+
+	/**
+	 * Open the valves of all the channels of a context, flushing the reports
+	 * they buffered
+	 *
+	 * @param contextName
+	 *            the context
+	 * @return the number of channels resumed
+	 */
+	public static int resumeContext(String contextName) {
+		return setContextValves(contextName, true);
+	}
+
+	private static int setQueryValves(PropositionNode query, String contextName, boolean valve) {
+		int count = 0;
+		HashSet<Node> visited = new HashSet<Node>();
+		ArrayDeque<PropositionNode> toVisit = new ArrayDeque<PropositionNode>();
+		visited.add(query);
+		toVisit.add(query);
+		while (!toVisit.isEmpty()) {
+			PropositionNode node = toVisit.poll();
+			for (Channel channel : node.getIncomingChannels()) {
+				if (!contextName.equals(channel.getContextName()))
+					continue;
+				count += setValve(channel, valve);
+				Node reporter = channel.getReporter();
+				if (reporter instanceof PropositionNode && visited.add(reporter))
+					toVisit.add((PropositionNode) reporter);
+			}
+		}
+		return count;
+	}
+
+	private static int setContextValves(String contextName, boolean valve) {
+		int count = 0;
+		for (Node node : Network.getNodes().values()) {
+			if (!(node instanceof PropositionNode))
+				continue;
+			for (Channel channel : ((PropositionNode) node).getIncomingChannels())
+				if (contextName.equals(channel.getContextName()))
+					count += setValve(channel, valve);
+		}
+		return count;
+	}
+
+	private static int setValve(Channel channel, boolean valve) {
+		if (channel.isValveOpen() == valve)
+			return 0;
+		channel.setValve(valve);
+		return 1;
+	}
+
+}
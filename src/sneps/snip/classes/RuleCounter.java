@@ -0,0 +1,154 @@
+package sneps.snip.classes;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+import sneps.network.Node;
+import sneps.snebr.Support;
+import sneps.snip.matching.Substitutions;
+
+public class RuleCounter {
+
+	private Substitutions substitutions;
+	private int posCount;
+	private int negCount;
+	private HashSet<Integer> reporters;
+	private ArrayList<Integer> positiveReporters;
+	private ArrayList<Set<Support>> positiveSupports;
+	private ArrayList<Set<Support>> negativeSupports;
+	private boolean decided;
+
+	/**
+	 * Create a new counter of the reports of the antecedents of a rule under a
+	 * substitution
+	 * 
+	 * @param substitutions
+	 *            the substitution the counted reports agree on
+	 */
+	public RuleCounter(Substitutions substitutions) {
+		this.substitutions = substitutions;
+		reporters = new HashSet<Integer>();
+		positiveReporters = new ArrayList<Integer>();
+		positiveSupports = new ArrayList<Set<Support>>();
+		negativeSupports = new ArrayList<Set<Support>>();
+	}
+
+	/**
+	 * Count a report of an antecedent. A report is not counted if the counter
+	 * is decided or if the antecedent was already counted.
+	 * 
+	 * @param reporter
+	 *            the antecedent that sent the report
+	 * @param positive
+	 *            the sign of the report
+	 * @param reportSupports
+	 *            the supports of the report
+	 * @return true if the report was counted, false otherwise
+	 */
+	public boolean count(Node reporter, boolean positive, Set<Support> reportSupports) {
+		if (decided || !reporters.add(reporter.getId()))
+			return false;
+		Set<Support> supports = reportSupports == null ? new HashSet<Support>() : reportSupports;
+		if (positive) {
+			posCount++;
+			positiveReporters.add(reporter.getId());
+			positiveSupports.add(supports);
+		} else {
+			negCount++;
+			negativeSupports.add(supports);
+		}
+		return true;
+	}
+
+	/**
+	 * Check if an antecedent was counted
+	 * 
+	 * @param nodeId
+	 *            the id of the antecedent
+	 * @return true or false
+	 */
+	public boolean isReported(int nodeId) {
+		return reporters.contains(nodeId);
+	}
+
+	/**
+	 * Mark the counter as decided, so that no more reports are counted
+	 */
+	public void decide() {
+		decided = true;
+	}
+
+	public boolean isDecided() {
+		return decided;
+	}
+
+	public Substitutions getSubstitutions() {
+		return substitutions;
+	}
+
+	public int getPosCount() {
+		return posCount;
+	}
+
+	public int getNegCount() {
+		return negCount;
+	}
+
+	/**
+	 * Return the ids of the antecedents that reported positively, in the order
+	 * they were counted
+	 * 
+	 * @return ArrayList of ids
+	 */
+	public ArrayList<Integer> getPositiveReporters() {
+		return positiveReporters;
+	}
+
+	/**
+	 * Return the union of the supports of the first positive and negative
+	 * reports counted, which are the reports a firing condition needs
+	 * 
+	 * @param positives
+	 *            the number of positive reports
+	 * @param negatives
+	 *            the number of negative reports
+	 * @return Set of support
+	 */
+	public Set<Support> getSupports(int positives, int negatives) {
+		HashSet<Support> supports = new HashSet<Support>();
+		for (int i = 0; i < positives && i < positiveSupports.size(); i++)
+			supports.addAll(positiveSupports.get(i));
+		for (int i = 0; i < negatives && i < negativeSupports.size(); i++)
+			supports.addAll(negativeSupports.get(i));
+		return supports;
+	}
+
+	/**
+	 * Return the ids of the antecedents of the last positive reports counted,
+	 * in the order they were counted
+	 * 
+	 * @param positives
+	 *            the number of positive reports
+	 * @return ArrayList of ids
+	 */
+	public ArrayList<Integer> getLastPositiveReporters(int positives) {
+		int from = Math.max(positiveReporters.size() - positives, 0);
+		return new ArrayList<Integer>(positiveReporters.subList(from, positiveReporters.size()));
+	}
+
+	/**
+	 * Return the union of the supports of the last positive reports counted
+	 * 
+	 * @param positives
+	 *            the number of positive reports
+	 * @return Set of support
+	 */
+	public Set<Support> getLastPositiveSupports(int positives) {
+		HashSet<Support> supports = new HashSet<Support>();
+		for (int i = Math.max(positiveSupports.size() - positives, 0); i < positiveSupports.size(); i++)
+			supports.addAll(positiveSupports.get(i));
+		return supports;
+	}
+
+}
@@ -0,0 +1,80 @@
+package sneps.snip.classes;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Hashtable;
+
+import sneps.snip.matching.Binding;
+import sneps.snip.matching.Substitutions;
+
+public class RuleCounterSet {
+
+	/**
+	 * The counters of each context, indexed by the key of their substitution
+	 */
+	private Hashtable<String, HashMap<String, RuleCounter>> counters;
+
+	public RuleCounterSet() {
+		counters = new Hashtable<String, HashMap<String, RuleCounter>>();
+	}
+
+	/**
+	 * Return the counter of a substitution in a context, creating it if it does
+	 * not exist
+	 * 
+	 * @param contextName
+	 *            the name of the context
+	 * @param substitutions
+	 *            the substitution
+	 * @return RuleCounter
+	 */
+	public RuleCounter getCounter(String contextName, Substitutions substitutions) {
+		HashMap<String, RuleCounter> contextCounters = counters.get(contextName);
+		if (contextCounters == null) {
+			contextCounters = new HashMap<String, RuleCounter>();
+			counters.put(contextName, contextCounters);
+		}
+		String key = keyOf(substitutions);
+		RuleCounter counter = contextCounters.get(key);
+		if (counter == null) {
+			counter = new RuleCounter(substitutions);
+			contextCounters.put(key, counter);
+		}
+		return counter;
+	}
+
+	/**
+	 * Return a key identifying a substitution regardless of the order of its
+	 * bindings
+	 * 
+	 * @param substitutions
+	 *            the substitution
+	 * @return String
+	 */
+	public static String keyOf(Substitutions substitutions) {
+		int size = substitutions == null ? 0 : substitutions.cardinality();
+		long[] bindings = new long[size];
+		for (int i = 0; i < size; i++) {
+			Binding b = substitutions.getBinding(i);
+			bindings[i] = ((long) b.getVariable().getId() << 32) | (b.getNode().getId() & 0xffffffffL);
+		}
+		Arrays.sort(bindings);
+		StringBuilder key = new StringBuilder();
+		for (long b : bindings)
+			key.append(b >> 32).append('=').append((int) b).append(';');
+		return key.toString();
+	}
+
+	public boolean hasContext(String contextName) {
+		return counters.containsKey(contextName);
+	}
+
+	public void clear(String contextName) {
+		counters.remove(contextName);
+	}
+
+	public void clear() {
+		counters.clear();
+	}
+
+}
@@ -0,0 +1,333 @@
+package sneps.snip.matching;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+
+import sneps.network.KnowledgeBase;
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.VariableNode;
+import sneps.network.cables.DownCable;
+import sneps.network.cables.DownCableSet;
+import sneps.network.classes.term.Molecular;
+
+/**
+ * An index over the molecular nodes of the network used to find the nodes that
+ * may unify with a pattern without scanning the network. The nodes are keyed by
+ * their case frame and then, for every relation, by the constant nodes they
+ * point to by that relation. The nodes pointing to a variable or to an open
+ * node by a relation are kept apart, since they may unify with any node at
+ * that position.
+ *
+ * The index is kept up to date by the Network as molecular nodes are built and
+ * removed. It is built again from the network the first time it is used after
+ * being cleared, e.g. after a network is loaded. Every knowledge base has its
+ * own index, over its own network.
+ */
+public class MatchIndex {
+
+	/**
+	 * The index of the network of a knowledge base, which is also the lock
+	 * guarding it. A new State is not built.
+	 */
+	public static class State {
+		private final Hashtable<String, CaseFrameIndex> caseFrames = new Hashtable<String, CaseFrameIndex>();
+
+		private volatile boolean built = false;
+
+		/**
+		 * The number of times the index was cleared or missed a node built or
+		 * removed while it was not built, by which a build finds out whether the
+		 * nodes it copied from the network are still those of the network.
+		 */
+		private long missed = 0;
+	}
+
+	private static class CaseFrameIndex {
+		private HashSet<Node> nodes = new HashSet<Node>();
+		private HashMap<String, HashMap<Integer, HashSet<Node>>> constants = new HashMap<String, HashMap<Integer, HashSet<Node>>>();
+		private HashMap<String, HashSet<Node>> open = new HashMap<String, HashSet<Node>>();
+
+		private void add(Node node) {
+			nodes.add(node);
+			Enumeration<DownCable> cables = downCables(node).getDownCables().elements();
+			while (cables.hasMoreElements()) {
+				DownCable cable = cables.nextElement();
+				String relation = cable.getRelation().getName();
+				for (Node n : cable.getNodeSet())
+					positions(relation, n).add(node);
+			}
+		}
+
+		private void remove(Node node) {
+			nodes.remove(node);
+			Enumeration<DownCable> cables = downCables(node).getDownCables().elements();
+			while (cables.hasMoreElements()) {
+				DownCable cable = cables.nextElement();
+				String relation = cable.getRelation().getName();
+				for (Node n : cable.getNodeSet())
+					positions(relation, n).remove(node);
+			}
+		}
+
+		/**
+		 * Return the set of the nodes having n at the position of the relation
+		 */
+		private HashSet<Node> positions(String relation, Node n) {
+			if (Matcher.isPattern(n)) {
+				HashSet<Node> result = open.get(relation);
+				if (result == null) {
+					result = new HashSet<Node>();
+					open.put(relation, result);
+				}
+				return result;
+			}
+			HashMap<Integer, HashSet<Node>> byNode = constants.get(relation);
+			if (byNode == null) {
+				byNode = new HashMap<Integer, HashSet<Node>>();
+				constants.put(relation, byNode);
+			}
+			HashSet<Node> result = byNode.get(n.getId());
+			if (result == null) {
+				result = new HashSet<Node>();
+				byNode.put(n.getId(), result);
+			}
+			return result;
+		}
+
+		/**
+		 * Return the nodes that may have the constant n at the position of the
+		 * relation: those pointing to n by it, and those having a variable or an
+		 * open node there.
+		 */
+		private ArrayList<HashSet<Node>> compatible(String relation, Node n) {
+			ArrayList<HashSet<Node>> result = new ArrayList<HashSet<Node>>(2);
+			HashMap<Integer, HashSet<Node>> byNode = constants.get(relation);
+			if (byNode != null && byNode.containsKey(n.getId()))
+				result.add(byNode.get(n.getId()));
+			if (open.containsKey(relation))
+				result.add(open.get(relation));
+			return result;
+		}
+	}
+
+	private MatchIndex() {
+	}
+
+	/**
+	 * Return the index of the knowledge base the current thread works on
+	 */
+	private static State state() {
+		return KnowledgeBase.getActive().getMatchIndex();
+	}
+
+	/**
+	 * Index a molecular node built in the network
+	 */
+	public static void addNode(Node node) {
+		State state = state();
+		synchronized (state) {
+			add(state, node);
+		}
+	}
+
+	/**
+	 * Add a batch of nodes built in the network to the index
+	 */
+	public static void addNodes(Collection<Node> nodes) {
+		State state = state();
+		synchronized (state) {
+			for (Node node : nodes)
+				add(state, node);
+		}
+	}
+
+	private static void add(State state, Node node) {
+		if (!state.built)
+			state.missed++;
+		if (!state.built || !(node.getTerm() instanceof Molecular))
+			return;
+		String caseFrame = downCables(node).getCaseFrame().getId();
+		CaseFrameIndex index = state.caseFrames.get(caseFrame);
+		if (index == null) {
+			index = new CaseFrameIndex();
+			state.caseFrames.put(caseFrame, index);
+		}
+		index.add(node);
+	}
+
+	/**
+	 * Remove a node removed from the network from the index
+	 */
+	public static void removeNode(Node node) {
+		State state = state();
+		synchronized (state) {
+			if (!state.built)
+				state.missed++;
+			if (!state.built || !(node.getTerm() instanceof Molecular))
+				return;
+			CaseFrameIndex index = state.caseFrames.get(downCables(node).getCaseFrame().getId());
+			if (index != null)
+				index.remove(node);
+		}
+	}
+
+	/**
+	 * Empty the index. It is built again from the network when it is next used.
+	 */
+	public static void clear() {
+		State state = state();
+		synchronized (state) {
+			state.caseFrames.clear();
+			state.built = false;
+			state.missed++;
+		}
+	}
+
+	/**
+	 * Return the molecular nodes that may unify with a node, in the order of
+	 * their ids. A candidate has the case frame of the node, and for every
+	 * constant the node points to by a relation, the candidate either points to
+	 * it by the same relation or has a variable or an open node there. Variables
+	 * may unify with any molecular node, and closed nodes that are not molecular
+	 * with none other than themselves.
+	 *
+	 * @param pattern
+	 *            the node
+	 * @return ArrayList of Node
+	 */
+	public static ArrayList<Node> candidates(Node pattern) {
+		return candidates(pattern, new LinearSubstitutions());
+	}
+
+	/**
+	 * Return the molecular nodes that may unify with a node once its variables
+	 * are replaced by their values in a substitution, the values being used as
+	 * constants of the node.
+	 *
+	 * @param pattern
+	 *            the node
+	 * @param s
+	 *            the bindings of the variables of the node
+	 * @return ArrayList of Node
+	 */
+	public static ArrayList<Node> candidates(Node pattern, Substitutions s) {
+		State state = state();
+		ensureBuilt(state);
+		synchronized (state) {
+			return candidatesOf(state, pattern, s);
+		}
+	}
+
+	private static ArrayList<Node> candidatesOf(State state, Node pattern, Substitutions s) {
+		ArrayList<Node> result = new ArrayList<Node>();
+		if (pattern.getSyntacticType().equals("Variable")) {
+			for (CaseFrameIndex index : state.caseFrames.values())
+				result.addAll(index.nodes);
+		} else if (pattern.getTerm() instanceof Molecular) {
+			CaseFrameIndex index = state.caseFrames.get(downCables(pattern).getCaseFrame().getId());
+			if (index != null)
+				result.addAll(candidates(index, pattern, s));
+		}
+		// drop the nodes the reader does not see, the removed nodes being kept
+		// in the index while open snapshots see them
+		result.removeIf(node -> !Network.isVisible(node));
+		Collections.sort(result, new Comparator<Node>() {
+			@Override
+			public int compare(Node n1, Node n2) {
+				return Integer.compare(n1.getId(), n2.getId());
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Intersect the nodes compatible with every constant of the pattern,
+	 * starting from the most selective position.
+	 */
+	private static HashSet<Node> candidates(CaseFrameIndex index, Node pattern, Substitutions s) {
+		ArrayList<ArrayList<HashSet<Node>>> positions = new ArrayList<ArrayList<HashSet<Node>>>();
+		Enumeration<DownCable> cables = downCables(pattern).getDownCables().elements();
+		while (cables.hasMoreElements()) {
+			DownCable cable = cables.nextElement();
+			if (cable.getRelation().isQuantifier())
+				continue;
+			for (Node n : cable.getNodeSet()) {
+				if (n instanceof VariableNode && s.isBound((VariableNode) n))
+					n = s.term((VariableNode) n);
+				if (!Matcher.isPattern(n))
+					positions.add(index.compatible(cable.getRelation().getName(), n));
+			}
+		}
+		if (positions.isEmpty())
+			return index.nodes;
+		ArrayList<HashSet<Node>> smallest = null;
+		for (ArrayList<HashSet<Node>> position : positions)
+			if (smallest == null || size(position) < size(smallest))
+				smallest = position;
+		HashSet<Node> result = new HashSet<Node>();
+		for (HashSet<Node> part : smallest)
+			for (Node candidate : part)
+				if (inAll(candidate, positions))
+					result.add(candidate);
+		return result;
+	}
+
+	private static int size(ArrayList<HashSet<Node>> position) {
+		int size = 0;
+		for (HashSet<Node> part : position)
+			size += part.size();
+		return size;
+	}
+
+	private static boolean inAll(Node candidate, ArrayList<ArrayList<HashSet<Node>>> positions) {
+		for (ArrayList<HashSet<Node>> position : positions) {
+			boolean found = false;
+			for (HashSet<Node> part : position)
+				if (part.contains(candidate)) {
+					found = true;
+					break;
+				}
+			if (!found)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Build the index from the nodes of the network if it is not built. The
+	 * nodes are copied holding the lock of the network for reading but not the
+	 * lock of the index, since a writer holding the lock of the network may be
+	 * waiting to update the index. The copy is taken again if the network
+	 * changed before the index was built from it.
+	 */
+	private static void ensureBuilt(State state) {
+		while (!state.built) {
+			long seen;
+			synchronized (state) {
+				seen = state.missed;
+			}
+			// the index holds the removed nodes open snapshots still see
+			Object[] nodes = Network.read(() -> Network.getNodesWithIDs().toArray());
+			synchronized (state) {
+				if (state.built || state.missed != seen)
+					continue;
+				state.built = true;
+				for (Object node : nodes)
+					if (node != null)
+						add(state, (Node) node);
+			}
+		}
+	}
+
+	private static DownCableSet downCables(Node node) {
+		return ((Molecular) node.getTerm()).getDownCableSet();
+	}
+
+}
@@ -0,0 +1,169 @@
+package sneps.snip.matching;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import sneps.network.Node;
+import sneps.network.VariableNode;
+import sneps.network.cables.DownCable;
+import sneps.network.cables.DownCableSet;
+import sneps.network.classes.setClasses.NodeSet;
+import sneps.network.classes.term.Molecular;
+import sneps.snip.Pair;
+
+/**
+ * Finds the nodes of the network unifying with a node. The candidates are
+ * taken from the MatchIndex and unified with the node, the node sets of each
+ * relation being unified as sets. Every unifier is returned as the switch and
+ * filter substitutions of the match channel from the node, the requester, to
+ * the matched node, the reporter:
+ *
+ * - the switch binds every variable of the reporter bound to a variable of the
+ * requester to that variable, and every variable of the requester bound to a
+ * term of the reporter to that term.
+ *
+ * - the filter binds every variable of the reporter bound to a term of the
+ * requester to that term.
+ */
+public class Matcher {
+
+	private Matcher() {
+	}
+
+	/**
+	 * A unifier: the bindings of the variables of the requester to the terms of
+	 * the reporter, and of the variables of the reporter to the terms of the
+	 * requester. The two sides are kept apart so that a variable shared by both
+	 * nodes is bound on each side independently.
+	 */
+	private static class Unifier {
+		private LinkedHashMap<VariableNode, Node> requester = new LinkedHashMap<VariableNode, Node>();
+		private LinkedHashMap<VariableNode, Node> reporter = new LinkedHashMap<VariableNode, Node>();
+
+		private Unifier bind(boolean requesterSide, VariableNode variable, Node term) {
+			Unifier extended = new Unifier();
+			extended.requester.putAll(requester);
+			extended.reporter.putAll(reporter);
+			(requesterSide ? extended.requester : extended.reporter).put(variable, term);
+			return extended;
+		}
+	}
+
+	/**
+	 * Return a pair of switch and filter substitutions for every way a node of
+	 * the network, other than the node itself, unifies with the node
+	 *
+	 * @param node
+	 *            the requester
+	 * @return ArrayList of Pair
+	 */
+	public static ArrayList<Pair> match(Node node) {
+		ArrayList<Pair> result = new ArrayList<Pair>();
+		for (Node candidate : MatchIndex.candidates(node)) {
+			if (candidate == node)
+				continue;
+			for (Unifier u : unify(node, candidate, new Unifier()))
+				result.add(toPair(u, candidate));
+		}
+		return result;
+	}
+
+	/**
+	 * Return every unifier extending u of the requester node p and the reporter
+	 * node t
+	 */
+	private static ArrayList<Unifier> unify(Node p, Node t, Unifier u) {
+		ArrayList<Unifier> result = new ArrayList<Unifier>();
+		if (p instanceof VariableNode) {
+			Node bound = u.requester.get(p);
+			if (bound == null)
+				result.add(u.bind(true, (VariableNode) p, t));
+			else if (bound == t)
+				result.add(u);
+			return result;
+		}
+		if (t instanceof VariableNode) {
+			Node bound = u.reporter.get(t);
+			if (bound == null)
+				result.add(u.bind(false, (VariableNode) t, p));
+			else if (bound == p)
+				result.add(u);
+			return result;
+		}
+		if (p == t) {
+			result.add(u);
+			return result;
+		}
+		if (!(isPattern(p) || isPattern(t)) || !(p.getTerm() instanceof Molecular)
+				|| !(t.getTerm() instanceof Molecular))
+			return result;
+		DownCableSet pCables = ((Molecular) p.getTerm()).getDownCableSet();
+		DownCableSet tCables = ((Molecular) t.getTerm()).getDownCableSet();
+		if (!pCables.getCaseFrame().getId().equals(tCables.getCaseFrame().getId()))
+			return result;
+		ArrayList<Unifier> partial = new ArrayList<Unifier>();
+		partial.add(u);
+		Enumeration<DownCable> cables = pCables.getDownCables().elements();
+		while (cables.hasMoreElements() && !partial.isEmpty()) {
+			DownCable cable = cables.nextElement();
+			if (cable.getRelation().isQuantifier())
+				continue;
+			DownCable tCable = tCables.getDownCable(cable.getRelation().getName());
+			if (tCable == null || tCable.getNodeSet().size() != cable.getNodeSet().size())
+				return result;
+			ArrayList<Unifier> next = new ArrayList<Unifier>();
+			for (Unifier partialUnifier : partial)
+				unifySet(cable.getNodeSet(), tCable.getNodeSet(), 0, new boolean[cable.getNodeSet().size()],
+						partialUnifier, next);
+			partial = next;
+		}
+		result.addAll(partial);
+		return result;
+	}
+
+	/**
+	 * Unify the nodes of ps from index i on with the unused nodes of ts,
+	 * backtracking over the possible pairings
+	 */
+	private static void unifySet(NodeSet ps, NodeSet ts, int i, boolean[] used, Unifier u,
+			ArrayList<Unifier> result) {
+		if (i == ps.size()) {
+			result.add(u);
+			return;
+		}
+		for (int j = 0; j < ts.size(); j++) {
+			if (used[j])
+				continue;
+			used[j] = true;
+			for (Unifier extended : unify(ps.getNode(i), ts.getNode(j), u))
+				unifySet(ps, ts, i + 1, used, extended, result);
+			used[j] = false;
+		}
+	}
+
+	private static Pair toPair(Unifier u, Node reporter) {
+		Substitutions switchSubs = new LinearSubstitutions();
+		Substitutions filterSubs = new LinearSubstitutions();
+		for (Map.Entry<VariableNode, Node> e : u.requester.entrySet()) {
+			if (e.getValue() instanceof VariableNode)
+				switchSubs.putIn(new Binding((VariableNode) e.getValue(), e.getKey()));
+			else
+				switchSubs.putIn(new Binding(e.getKey(), e.getValue()));
+		}
+		for (Map.Entry<VariableNode, Node> e : u.reporter.entrySet())
+			filterSubs.putIn(new Binding(e.getKey(), e.getValue()));
+		return new Pair(filterSubs, switchSubs, reporter);
+	}
+
+	/**
+	 * Check if a node dominates free variables, i.e. is a variable or an open
+	 * molecular node
+	 */
+	public static boolean isPattern(Node node) {
+		String type = node.getSyntacticType();
+		return type.equals("Variable") || type.equals("Open");
+	}
+
+}
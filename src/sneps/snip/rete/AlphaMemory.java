@@ -0,0 +1,179 @@
+package sneps.snip.rete;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+
+import sneps.exceptions.CannotBuildNodeException;
+import sneps.exceptions.CaseFrameMissMatchException;
+import sneps.exceptions.DuplicatePropositionException;
+import sneps.exceptions.EquivalentNodeException;
+import sneps.exceptions.NodeNotFoundInNetworkException;
+import sneps.exceptions.NodeNotFoundInPropSetException;
+import sneps.exceptions.NotAPropositionNodeException;
+import sneps.exceptions.SemanticNotFoundInNetworkException;
+import sneps.network.Node;
+import sneps.network.PropositionNode;
+import sneps.network.VariableNode;
+import sneps.network.cables.DownCable;
+import sneps.network.cables.DownCableSet;
+import sneps.network.classes.setClasses.NodeSet;
+import sneps.network.classes.term.Molecular;
+import sneps.snip.matching.Binding;
+import sneps.snip.matching.LinearSubstitutions;
+import sneps.snip.matching.Substitutions;
+
+/**
+ * The memory of an antecedent pattern: a token for every way a fact matches
+ * the pattern. Alpha memories are shared by all the rules having the same
+ * pattern node among their antecedents.
+ */
+public class AlphaMemory {
+
+	private Node pattern;
+	private ArrayList<Token> tokens;
+	private ArrayList<JoinNode> successors;
+
+	public AlphaMemory(Node pattern) {
+		this.pattern = pattern;
+		tokens = new ArrayList<Token>();
+		successors = new ArrayList<JoinNode>();
+	}
+
+	/**
+	 * Match a fact against the pattern, storing a token for every match and
+	 * passing it to the join nodes of the pattern
+	 * 
+	 * @param fact
+	 *            the fact
+	 */
+	public void activate(PropositionNode fact) throws CannotBuildNodeException, EquivalentNodeException,
+			NotAPropositionNodeException, NodeNotFoundInNetworkException, CaseFrameMissMatchException,
+			SemanticNotFoundInNetworkException, NodeNotFoundInPropSetException, DuplicatePropositionException {
+		for (Substitutions s : match(pattern, fact, new LinearSubstitutions())) {
+			Token token = new Token(null, fact, s);
+			tokens.add(token);
+			for (JoinNode join : successors)
+				join.rightActivate(token);
+		}
+	}
+
+	public void addSuccessor(JoinNode join) {
+		successors.add(join);
+	}
+
+	public Node getPattern() {
+		return pattern;
+	}
+
+	public ArrayList<Token> getTokens() {
+		return tokens;
+	}
+
+	/**
+	 * Return every substitution extending s under which the pattern is the
+	 * fact. Both nodes must have the same case frame, and the node sets of each
+	 * relation are matched as sets.
+	 * 
+	 * @param pattern
+	 *            the pattern
+	 * @param fact
+	 *            the node it is matched against
+	 * @param s
+	 *            the bindings made so far, which are not changed
+	 * @return ArrayList of Substitutions
+	 */
+	public static ArrayList<Substitutions> match(Node pattern, Node fact, Substitutions s) {
+		ArrayList<Substitutions> result = new ArrayList<Substitutions>();
+		if (pattern instanceof VariableNode) {
+			Binding b = s.getBindingByVariable((VariableNode) pattern);
+			if (b == null) {
+				LinearSubstitutions extended = new LinearSubstitutions();
+				extended.insert(s);
+				extended.putIn(new Binding((VariableNode) pattern, fact));
+				result.add(extended);
+			} else if (b.getNode() == fact) {
+				result.add(s);
+			}
+			return result;
+		}
+		if (pattern == fact) {
+			result.add(s);
+			return result;
+		}
+		if (!isPattern(pattern) || !(fact.getTerm() instanceof Molecular))
+			return result;
+		DownCableSet patternCables = ((Molecular) pattern.getTerm()).getDownCableSet();
+		DownCableSet factCables = ((Molecular) fact.getTerm()).getDownCableSet();
+		if (!patternCables.getCaseFrame().getId().equals(factCables.getCaseFrame().getId()))
+			return result;
+		ArrayList<Substitutions> partial = new ArrayList<Substitutions>();
+		partial.add(s);
+		Enumeration<DownCable> cables = patternCables.getDownCables().elements();
+		while (cables.hasMoreElements() && !partial.isEmpty()) {
+			DownCable cable = cables.nextElement();
+			if (cable.getRelation().isQuantifier())
+				continue;
+			DownCable factCable = factCables.getDownCable(cable.getRelation().getName());
+			if (factCable == null || factCable.getNodeSet().size() != cable.getNodeSet().size())
+				return result;
+			ArrayList<Substitutions> next = new ArrayList<Substitutions>();
+			for (Substitutions p : partial)
+				matchSet(cable.getNodeSet(), factCable.getNodeSet(), 0, new boolean[cable.getNodeSet().size()], p,
+						next);
+			partial = next;
+		}
+		result.addAll(partial);
+		return result;
+	}
+
+	/**
+	 * Match the patterns of a node set from index i on against the unused
+	 * nodes of the facts node set, backtracking over the possible pairings.
+	 */
+	private static void matchSet(NodeSet patterns, NodeSet facts, int i, boolean[] used, Substitutions s,
+			ArrayList<Substitutions> result) {
+		if (i == patterns.size()) {
+			result.add(s);
+			return;
+		}
+		for (int j = 0; j < facts.size(); j++) {
+			if (used[j])
+				continue;
+			used[j] = true;
+			for (Substitutions extended : match(patterns.getNode(i), facts.getNode(j), s))
+				matchSet(patterns, facts, i + 1, used, extended, result);
+			used[j] = false;
+		}
+	}
+
+	/**
+	 * Check if a node dominates free variables, i.e. is a variable or an open
+	 * molecular node
+	 */
+	public static boolean isPattern(Node node) {
+		String type = node.getSyntacticType();
+		return type.equals("Variable") || type.equals("Open");
+	}
+
+	/**
+	 * Collect the variables a pattern dominates, excluding quantified ones
+	 */
+	public static void collectVariables(Node node, LinkedHashSet<VariableNode> variables) {
+		if (node instanceof VariableNode) {
+			variables.add((VariableNode) node);
+			return;
+		}
+		if (!isPattern(node))
+			return;
+		Enumeration<DownCable> cables = ((Molecular) node.getTerm()).getDownCableSet().getDownCables().elements();
+		while (cables.hasMoreElements()) {
+			DownCable cable = cables.nextElement();
+			if (cable.getRelation().isQuantifier())
+				continue;
+			for (Node n : cable.getNodeSet())
+				collectVariables(n, variables);
+		}
+	}
+
+}
@@ -0,0 +1,124 @@
+package sneps.snip.rete;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import sneps.exceptions.CannotBuildNodeException;
+import sneps.exceptions.CaseFrameMissMatchException;
+import sneps.exceptions.DuplicatePropositionException;
+import sneps.exceptions.EquivalentNodeException;
+import sneps.exceptions.NodeNotFoundInNetworkException;
+import sneps.exceptions.NodeNotFoundInPropSetException;
+import sneps.exceptions.NotAPropositionNodeException;
+import sneps.exceptions.SemanticNotFoundInNetworkException;
+import sneps.network.VariableNode;
+
+/**
+ * Joins the tokens of the previous antecedents of a rule (the left input) with
+ * the tokens of the alpha memory of the next antecedent (the right input). Both
+ * inputs are indexed by the values of the variables the next antecedent shares
+ * with the previous ones, so a new token only meets the tokens it agrees with.
+ * The first join of a rule has no left input and passes the alpha tokens on.
+ */
+public class JoinNode {
+
+	private AlphaMemory alpha;
+	private VariableNode[] joinVariables;
+	private boolean first;
+	private HashMap<String, ArrayList<Token>> leftIndex;
+	private HashMap<String, ArrayList<Token>> rightIndex;
+	private JoinNode child;
+	private Production production;
+
+	/**
+	 * Create a join node
+	 * 
+	 * @param alpha
+	 *            the alpha memory of the antecedent joined by this node
+	 * @param joinVariables
+	 *            the variables that antecedent shares with the previous ones
+	 * @param first
+	 *            true if this node joins the first antecedent of the rule
+	 */
+	public JoinNode(AlphaMemory alpha, VariableNode[] joinVariables, boolean first) {
+		this.alpha = alpha;
+		this.joinVariables = joinVariables;
+		this.first = first;
+		leftIndex = new HashMap<String, ArrayList<Token>>();
+		rightIndex = new HashMap<String, ArrayList<Token>>();
+	}
+
+	/**
+	 * Receive a token of the previous antecedents
+	 */
+	public void leftActivate(Token token) throws CannotBuildNodeException, EquivalentNodeException,
+			NotAPropositionNodeException, NodeNotFoundInNetworkException, CaseFrameMissMatchException,
+			SemanticNotFoundInNetworkException, NodeNotFoundInPropSetException, DuplicatePropositionException {
+		String key = token.key(joinVariables);
+		index(leftIndex, key, token);
+		ArrayList<Token> matches = rightIndex.get(key);
+		if (matches == null)
+			return;
+		for (Token alphaToken : new ArrayList<Token>(matches))
+			emit(token.join(alphaToken));
+	}
+
+	/**
+	 * Receive a new token of the alpha memory
+	 */
+	public void rightActivate(Token alphaToken) throws CannotBuildNodeException, EquivalentNodeException,
+			NotAPropositionNodeException, NodeNotFoundInNetworkException, CaseFrameMissMatchException,
+			SemanticNotFoundInNetworkException, NodeNotFoundInPropSetException, DuplicatePropositionException {
+		if (first) {
+			emit(alphaToken);
+			return;
+		}
+		String key = alphaToken.key(joinVariables);
+		index(rightIndex, key, alphaToken);
+		ArrayList<Token> matches = leftIndex.get(key);
+		if (matches == null)
+			return;
+		for (Token token : new ArrayList<Token>(matches))
+			emit(token.join(alphaToken));
+	}
+
+	/**
+	 * Store a token of the alpha memory without joining it. This is used to
+	 * fill a new join node with the tokens its alpha memory already has.
+	 */
+	public void addRight(Token alphaToken) {
+		if (!first)
+			index(rightIndex, alphaToken.key(joinVariables), alphaToken);
+	}
+
+	private void emit(Token token) throws CannotBuildNodeException, EquivalentNodeException,
+			NotAPropositionNodeException, NodeNotFoundInNetworkException, CaseFrameMissMatchException,
+			SemanticNotFoundInNetworkException, NodeNotFoundInPropSetException, DuplicatePropositionException {
+		if (child != null)
+			child.leftActivate(token);
+		else
+			production.fire(token);
+	}
+
+	private static void index(HashMap<String, ArrayList<Token>> index, String key, Token token) {
+		ArrayList<Token> tokens = index.get(key);
+		if (tokens == null) {
+			tokens = new ArrayList<Token>();
+			index.put(key, tokens);
+		}
+		tokens.add(token);
+	}
+
+	public AlphaMemory getAlphaMemory() {
+		return alpha;
+	}
+
+	public void setChild(JoinNode child) {
+		this.child = child;
+	}
+
+	public void setProduction(Production production) {
+		this.production = production;
+	}
+
+}
@@ -0,0 +1,126 @@
+package sneps.snip.rete;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+
+import sneps.exceptions.CannotBuildNodeException;
+import sneps.exceptions.CannotInsertJustificationSupportException;
+import sneps.exceptions.CaseFrameMissMatchException;
+import sneps.exceptions.DuplicatePropositionException;
+import sneps.exceptions.EquivalentNodeException;
+import sneps.exceptions.NodeNotFoundInNetworkException;
+import sneps.exceptions.NodeNotFoundInPropSetException;
+import sneps.exceptions.NotAPropositionNodeException;
+import sneps.exceptions.SemanticNotFoundInNetworkException;
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.PropositionNode;
+import sneps.network.VariableNode;
+import sneps.network.cables.DownCable;
+import sneps.network.cables.DownCableSet;
+import sneps.network.classes.CaseFrame;
+import sneps.network.classes.RelationsRestrictedCaseFrame;
+import sneps.network.classes.Wire;
+import sneps.network.classes.setClasses.NodeSet;
+import sneps.network.classes.setClasses.PropositionSet;
+import sneps.network.classes.term.Molecular;
+import sneps.snebr.Context;
+import sneps.snip.matching.Binding;
+import sneps.snip.matching.Substitutions;
+
+/**
+ * The end of the join chain of a rule. A complete token is an instance of all
+ * the antecedents of the rule, so the instances of the consequents under its
+ * substitution are derived, supported by the rule and the facts of the token.
+ */
+public class Production {
+
+	private PropositionNode rule;
+	private NodeSet consequents;
+	private ReteNetwork network;
+
+	public Production(PropositionNode rule, NodeSet consequents, ReteNetwork network) {
+		this.rule = rule;
+		this.consequents = consequents;
+		this.network = network;
+	}
+
+	/**
+	 * Derive the consequents of a complete token. Nothing is derived if the rule
+	 * or one of the facts is no longer asserted in the context of the network,
+	 * which is how tokens of retracted facts are discarded. Consequents already
+	 * asserted are not derived again, but still added as facts.
+	 * 
+	 * @param token
+	 *            a token matching all the antecedents of the rule
+	 */
+	public void fire(Token token) throws CannotBuildNodeException, EquivalentNodeException,
+			NotAPropositionNodeException, NodeNotFoundInNetworkException, CaseFrameMissMatchException,
+			SemanticNotFoundInNetworkException, NodeNotFoundInPropSetException, DuplicatePropositionException {
+		Context context = network.getContext();
+		if (!context.isAsserted(rule))
+			return;
+		ArrayList<PropositionNode> facts = token.getFacts();
+		int[] support = new int[facts.size() + 1];
+		for (int i = 0; i < facts.size(); i++) {
+			if (!context.isAsserted(facts.get(i)))
+				return;
+			support[i] = facts.get(i).getId();
+		}
+		support[facts.size()] = rule.getId();
+		for (Node consequent : consequents) {
+			Node instance = instantiate(consequent, token.getSubstitutions());
+			if (!(instance instanceof PropositionNode))
+				continue;
+			if (context.isAsserted((PropositionNode) instance)) {
+				network.addAsserted((PropositionNode) instance);
+				continue;
+			}
+			try {
+				((PropositionNode) instance).addJustificationBasedSupport(new PropositionSet(support));
+			} catch (CannotInsertJustificationSupportException e) {
+				continue;
+			}
+			if (context.isAsserted((PropositionNode) instance))
+				network.addDerived((PropositionNode) instance);
+		}
+	}
+
+	/**
+	 * Return the node obtained by replacing the variables of a node by their
+	 * values in a substitution, building it if it does not exist
+	 * 
+	 * @param node
+	 *            the node
+	 * @param s
+	 *            the substitution
+	 * @return Node
+	 */
+	public static Node instantiate(Node node, Substitutions s) throws CannotBuildNodeException,
+			EquivalentNodeException, NotAPropositionNodeException, NodeNotFoundInNetworkException,
+			CaseFrameMissMatchException, SemanticNotFoundInNetworkException {
+		if (node instanceof VariableNode) {
+			Binding b = s.getBindingByVariable((VariableNode) node);
+			return b == null ? node : b.getNode();
+		}
+		if (!AlphaMemory.isPattern(node))
+			return node;
+		DownCableSet cables = ((Molecular) node.getTerm()).getDownCableSet();
+		ArrayList<Wire> wires = new ArrayList<Wire>();
+		Enumeration<DownCable> e = cables.getDownCables().elements();
+		while (e.hasMoreElements()) {
+			DownCable cable = e.nextElement();
+			for (Node n : cable.getNodeSet())
+				wires.add(new Wire(cable.getRelation(), instantiate(n, s)));
+		}
+		CaseFrame caseFrame = cables.getCaseFrame();
+		if (caseFrame instanceof RelationsRestrictedCaseFrame)
+			return Network.buildMolecularNode(wires, (RelationsRestrictedCaseFrame) caseFrame);
+		return Network.buildMolecularNode(wires, caseFrame);
+	}
+
+	public PropositionNode getRule() {
+		return rule;
+	}
+
+}
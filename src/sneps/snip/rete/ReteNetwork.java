@@ -0,0 +1,365 @@
+package sneps.snip.rete;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+
+import sneps.exceptions.CannotBuildNodeException;
+import sneps.exceptions.CaseFrameMissMatchException;
+import sneps.exceptions.DuplicatePropositionException;
+import sneps.exceptions.EquivalentNodeException;
+import sneps.exceptions.NodeNotFoundInNetworkException;
+import sneps.exceptions.NodeNotFoundInPropSetException;
+import sneps.exceptions.NotAPropositionNodeException;
+import sneps.exceptions.SemanticNotFoundInNetworkException;
+import sneps.network.KnowledgeBase;
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.PropositionNode;
+import sneps.network.VariableNode;
+import sneps.network.cables.DownCable;
+import sneps.network.cables.DownCableSet;
+import sneps.network.classes.setClasses.NodeSet;
+import sneps.network.classes.setClasses.PropositionSet;
+import sneps.network.classes.term.Molecular;
+import sneps.snebr.Context;
+
+/**
+ * The forward chaining network of a context. The antecedents of the rules
+ * asserted in the context are compiled into alpha memories, one per pattern
+ * node, reached through a discrimination index on the case frame of the
+ * pattern and one of its constant (relation, node) pairs. The alpha memories of
+ * the antecedents of a rule feed a chain of join nodes ending with a production
+ * deriving the consequents.
+ * 
+ * The network persists between activations: the facts it has seen, the
+ * matches of its alpha memories and the partial matches of its join nodes are
+ * kept, so activating a new proposition only propagates that proposition.
+ * They are only kept while the hyps they were built from are asserted: once a
+ * hyp is removed from the context, the matches of the hyp and of the
+ * propositions derived from it no longer hold, and the network is built again
+ * from the hyps left. SNeBR discards the network when it removes hyps from the
+ * context, and an activation finding a hyp it has seen gone clears it.
+ * 
+ * And-entailments (&ant, cq), numerical entailments whose i is the number of
+ * their antecedents and or-entailments (ant, cq), quantified or not, are
+ * compiled. Other rules are left to backward inference.
+ */
+public class ReteNetwork {
+
+	private String contextName;
+	private Context context;
+	private HashMap<Integer, AlphaMemory> alphaMemories;
+	private HashMap<String, ArrayList<AlphaMemory>> discrimination;
+	private ArrayList<AlphaMemory> variablePatterns;
+	private HashSet<Integer> inspectedNodes;
+	private ArrayList<PropositionNode> rules;
+	private HashSet<Integer> compiledRules;
+	private LinkedHashMap<Integer, PropositionNode> facts;
+	private ArrayDeque<PropositionNode> agenda;
+	private ArrayList<PropositionNode> derived;
+
+	/**
+	 * the hyps of the context added as facts
+	 */
+	private BitSet hyps;
+
+	private ReteNetwork(String contextName) {
+		this.contextName = contextName;
+		clear();
+	}
+
+	/**
+	 * Forget the rules, the facts and the matches of the network
+	 */
+	private void clear() {
+		alphaMemories = new HashMap<Integer, AlphaMemory>();
+		discrimination = new HashMap<String, ArrayList<AlphaMemory>>();
+		variablePatterns = new ArrayList<AlphaMemory>();
+		inspectedNodes = new HashSet<Integer>();
+		rules = new ArrayList<PropositionNode>();
+		compiledRules = new HashSet<Integer>();
+		facts = new LinkedHashMap<Integer, PropositionNode>();
+		agenda = new ArrayDeque<PropositionNode>();
+		hyps = new BitSet();
+	}
+
+	/**
+	 * Return the network of a context of the knowledge base the current thread
+	 * works on, creating it if it does not exist
+	 * 
+	 * @param contextName
+	 *            the name of the context
+	 * @return ReteNetwork
+	 */
+	public static ReteNetwork getNetwork(String contextName) {
+		Hashtable<String, ReteNetwork> networks = KnowledgeBase.getActive().getReteNetworks();
+		synchronized (networks) {
+			ReteNetwork network = networks.get(contextName);
+			if (network == null) {
+				network = new ReteNetwork(contextName);
+				networks.put(contextName, network);
+			}
+			return network;
+		}
+	}
+
+	/**
+	 * Discard the network of a context
+	 * 
+	 * @param contextName
+	 *            the name of the context
+	 */
+	public static void discardNetwork(String contextName) {
+		KnowledgeBase.getActive().getReteNetworks().remove(contextName);
+	}
+
+	/**
+	 * Discard the networks of all the contexts
+	 */
+	public static void clearNetworks() {
+		KnowledgeBase.getActive().getReteNetworks().clear();
+	}
+
+	/**
+	 * Forward chain from a proposition. The hyps of the context the network has
+	 * not seen yet and the proposition, if it is asserted, are added as facts,
+	 * and every derived proposition is added as a fact in turn. Rules asserted
+	 * since the last activation are compiled first. If a hyp the network has
+	 * seen was removed from the context since, the network is built again.
+	 * 
+	 * @param context
+	 *            the current state of the context of this network
+	 * @param node
+	 *            the activated proposition
+	 * @return the propositions derived by this activation
+	 */
+	public synchronized ArrayList<PropositionNode> activate(Context context, PropositionNode node)
+			throws NotAPropositionNodeException, NodeNotFoundInNetworkException, CannotBuildNodeException,
+			EquivalentNodeException, CaseFrameMissMatchException, SemanticNotFoundInNetworkException,
+			NodeNotFoundInPropSetException, DuplicatePropositionException {
+		int[] contextHyps = PropositionSet.getPropsSafely(context.getHypothesisSet());
+		BitSet removed = (BitSet) hyps.clone();
+		for (int hyp : contextHyps)
+			removed.clear(hyp);
+		if (!removed.isEmpty())
+			clear();
+		this.context = context;
+		derived = new ArrayList<PropositionNode>();
+		compileNewRules();
+		for (int hyp : contextHyps) {
+			hyps.set(hyp);
+			if (!facts.containsKey(hyp))
+				agenda.add((PropositionNode) Network.getNodeById(hyp));
+		}
+		if (context.isAsserted(node))
+			agenda.add(node);
+		while (!agenda.isEmpty())
+			addFact(agenda.poll());
+		return derived;
+	}
+
+	private void addFact(PropositionNode fact) throws CannotBuildNodeException, EquivalentNodeException,
+			NotAPropositionNodeException, NodeNotFoundInNetworkException, CaseFrameMissMatchException,
+			SemanticNotFoundInNetworkException, NodeNotFoundInPropSetException, DuplicatePropositionException {
+		if (facts.containsKey(fact.getId()))
+			return;
+		facts.put(fact.getId(), fact);
+		if (isRule(fact) && !compiledRules.contains(fact.getId()))
+			compile(fact);
+		for (AlphaMemory alpha : candidates(fact))
+			alpha.activate(fact);
+	}
+
+	/**
+	 * Called by the productions for every proposition they derive
+	 */
+	void addDerived(PropositionNode node) {
+		derived.add(node);
+		agenda.add(node);
+	}
+
+	/**
+	 * Called by the productions for the consequents already asserted in the
+	 * context, which a network built again does not have as facts yet
+	 */
+	void addAsserted(PropositionNode node) {
+		agenda.add(node);
+	}
+
+	Context getContext() {
+		return context;
+	}
+
+	public String getContextName() {
+		return contextName;
+	}
+
+	/**
+	 * Compile the rules asserted in the context that are not compiled yet. Each
+	 * proposition of the network is inspected for the shape of a rule once.
+	 */
+	private void compileNewRules() throws NotAPropositionNodeException, NodeNotFoundInNetworkException,
+			CannotBuildNodeException, EquivalentNodeException, CaseFrameMissMatchException,
+			SemanticNotFoundInNetworkException, NodeNotFoundInPropSetException, DuplicatePropositionException {
+		for (PropositionNode p : new ArrayList<PropositionNode>(Network.getPropositionNodes().values()))
+			if (inspectedNodes.add(p.getId()) && isRule(p))
+				rules.add(p);
+		for (PropositionNode rule : rules)
+			if (!compiledRules.contains(rule.getId()) && context.isAsserted(rule))
+				compile(rule);
+	}
+
+	/**
+	 * Check if a proposition has the cables of a rule this network compiles
+	 */
+	public static boolean isRule(PropositionNode p) {
+		if (!(p.getTerm() instanceof Molecular))
+			return false;
+		DownCableSet cables = ((Molecular) p.getTerm()).getDownCableSet();
+		if (!cables.contains("cq"))
+			return false;
+		if (cables.contains("&ant"))
+			return !cables.contains("i") || Integer.parseInt(cables.getDownCable("i").getNodeSet().getNode(0)
+					.getIdentifier()) == cables.getDownCable("&ant").getNodeSet().size();
+		return cables.contains("ant");
+	}
+
+	private void compile(PropositionNode rule) throws CannotBuildNodeException, EquivalentNodeException,
+			NotAPropositionNodeException, NodeNotFoundInNetworkException, CaseFrameMissMatchException,
+			SemanticNotFoundInNetworkException, NodeNotFoundInPropSetException, DuplicatePropositionException {
+		compiledRules.add(rule.getId());
+		DownCableSet cables = ((Molecular) rule.getTerm()).getDownCableSet();
+		NodeSet consequents = cables.getDownCable("cq").getNodeSet();
+		if (cables.contains("&ant")) {
+			ArrayList<Node> antecedents = new ArrayList<Node>();
+			for (Node n : cables.getDownCable("&ant").getNodeSet())
+				antecedents.add(n);
+			buildChain(rule, antecedents, consequents);
+		} else {
+			for (Node n : cables.getDownCable("ant").getNodeSet()) {
+				ArrayList<Node> antecedent = new ArrayList<Node>();
+				antecedent.add(n);
+				buildChain(rule, antecedent, consequents);
+			}
+		}
+	}
+
+	/**
+	 * Build the join chain of a list of antecedents, then propagate the tokens
+	 * their alpha memories already have through it
+	 */
+	private void buildChain(PropositionNode rule, ArrayList<Node> antecedents, NodeSet consequents)
+			throws CannotBuildNodeException, EquivalentNodeException, NotAPropositionNodeException,
+			NodeNotFoundInNetworkException, CaseFrameMissMatchException, SemanticNotFoundInNetworkException,
+			NodeNotFoundInPropSetException, DuplicatePropositionException {
+		LinkedHashSet<VariableNode> bound = new LinkedHashSet<VariableNode>();
+		ArrayList<JoinNode> joins = new ArrayList<JoinNode>();
+		for (Node antecedent : antecedents) {
+			LinkedHashSet<VariableNode> variables = new LinkedHashSet<VariableNode>();
+			AlphaMemory.collectVariables(antecedent, variables);
+			ArrayList<VariableNode> shared = new ArrayList<VariableNode>();
+			for (VariableNode v : variables)
+				if (bound.contains(v))
+					shared.add(v);
+			bound.addAll(variables);
+			AlphaMemory alpha = getAlphaMemory(antecedent);
+			JoinNode join = new JoinNode(alpha, shared.toArray(new VariableNode[shared.size()]), joins.isEmpty());
+			if (!joins.isEmpty())
+				joins.get(joins.size() - 1).setChild(join);
+			joins.add(join);
+		}
+		joins.get(joins.size() - 1).setProduction(new Production(rule, consequents, this));
+		for (int i = 1; i < joins.size(); i++)
+			for (Token token : joins.get(i).getAlphaMemory().getTokens())
+				joins.get(i).addRight(token);
+		for (JoinNode join : joins)
+			join.getAlphaMemory().addSuccessor(join);
+		for (Token token : new ArrayList<Token>(joins.get(0).getAlphaMemory().getTokens()))
+			joins.get(0).rightActivate(token);
+	}
+
+	/**
+	 * Return the alpha memory of a pattern, creating and filling it with the
+	 * known facts if it does not exist
+	 */
+	private AlphaMemory getAlphaMemory(Node pattern) throws CannotBuildNodeException, EquivalentNodeException,
+			NotAPropositionNodeException, NodeNotFoundInNetworkException, CaseFrameMissMatchException,
+			SemanticNotFoundInNetworkException, NodeNotFoundInPropSetException, DuplicatePropositionException {
+		AlphaMemory alpha = alphaMemories.get(pattern.getId());
+		if (alpha != null)
+			return alpha;
+		alpha = new AlphaMemory(pattern);
+		alphaMemories.put(pattern.getId(), alpha);
+		if (pattern instanceof VariableNode) {
+			variablePatterns.add(alpha);
+		} else {
+			String key = patternKey(pattern);
+			ArrayList<AlphaMemory> indexed = discrimination.get(key);
+			if (indexed == null) {
+				indexed = new ArrayList<AlphaMemory>();
+				discrimination.put(key, indexed);
+			}
+			indexed.add(alpha);
+		}
+		for (PropositionNode fact : facts.values())
+			alpha.activate(fact);
+		return alpha;
+	}
+
+	/**
+	 * The discrimination key of a pattern: the node itself if it is constant,
+	 * otherwise its case frame and the first constant (relation, node) pair it
+	 * has, if any.
+	 */
+	private static String patternKey(Node pattern) {
+		if (!AlphaMemory.isPattern(pattern))
+			return "#" + pattern.getId();
+		DownCableSet cables = ((Molecular) pattern.getTerm()).getDownCableSet();
+		String caseFrame = cables.getCaseFrame().getId();
+		Enumeration<DownCable> e = cables.getDownCables().elements();
+		while (e.hasMoreElements()) {
+			DownCable cable = e.nextElement();
+			if (cable.getRelation().isQuantifier())
+				continue;
+			for (Node n : cable.getNodeSet())
+				if (!AlphaMemory.isPattern(n))
+					return caseFrame + "|" + cable.getRelation().getName() + "|" + n.getId();
+		}
+		return caseFrame;
+	}
+
+	/**
+	 * Return the alpha memories whose pattern may match a fact: those indexed
+	 * under one of the keys the fact could have been indexed under as a pattern
+	 */
+	private ArrayList<AlphaMemory> candidates(PropositionNode fact) {
+		ArrayList<AlphaMemory> result = new ArrayList<AlphaMemory>(variablePatterns);
+		addIndexed(result, "#" + fact.getId());
+		if (fact.getTerm() instanceof Molecular) {
+			DownCableSet cables = ((Molecular) fact.getTerm()).getDownCableSet();
+			String caseFrame = cables.getCaseFrame().getId();
+			addIndexed(result, caseFrame);
+			Enumeration<DownCable> e = cables.getDownCables().elements();
+			while (e.hasMoreElements()) {
+				DownCable cable = e.nextElement();
+				for (Node n : cable.getNodeSet())
+					addIndexed(result, caseFrame + "|" + cable.getRelation().getName() + "|" + n.getId());
+			}
+		}
+		return result;
+	}
+
+	private void addIndexed(ArrayList<AlphaMemory> result, String key) {
+		ArrayList<AlphaMemory> indexed = discrimination.get(key);
+		if (indexed != null)
+			result.addAll(indexed);
+	}
+
+}
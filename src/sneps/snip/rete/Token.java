@@ -0,0 +1,89 @@
+package sneps.snip.rete;
+
+import java.util.ArrayList;
+
+import sneps.network.PropositionNode;
+import sneps.network.VariableNode;
+import sneps.snip.matching.Binding;
+import sneps.snip.matching.LinearSubstitutions;
+import sneps.snip.matching.Substitutions;
+
+/**
+ * A partial match of the antecedents of a rule: the facts matched so far and
+ * the substitution binding the variables of their patterns. A token matching a
+ * single pattern is kept in the alpha memory of that pattern.
+ */
+public class Token {
+
+	private Token parent;
+	private PropositionNode fact;
+	private Substitutions substitutions;
+
+	/**
+	 * Create a token extending parent (null for the first pattern) by a fact
+	 * 
+	 * @param parent
+	 *            the token of the previous patterns
+	 * @param fact
+	 *            the fact matching the last pattern
+	 * @param substitutions
+	 *            the bindings of all the patterns matched so far
+	 */
+	public Token(Token parent, PropositionNode fact, Substitutions substitutions) {
+		this.parent = parent;
+		this.fact = fact;
+		this.substitutions = substitutions;
+	}
+
+	/**
+	 * Join this token with the alpha token of the next pattern. The tokens are
+	 * assumed to agree on their shared variables.
+	 * 
+	 * @param alphaToken
+	 *            a token of a single pattern
+	 * @return Token
+	 */
+	public Token join(Token alphaToken) {
+		LinearSubstitutions joined = new LinearSubstitutions();
+		joined.insert(substitutions);
+		joined.insert(alphaToken.getSubstitutions());
+		return new Token(this, alphaToken.getFact(), joined);
+	}
+
+	/**
+	 * Return the key of the values of variables in this token, used to index
+	 * tokens on their join variables
+	 * 
+	 * @param variables
+	 *            the variables
+	 * @return String
+	 */
+	public String key(VariableNode[] variables) {
+		StringBuilder key = new StringBuilder();
+		for (VariableNode v : variables) {
+			Binding b = substitutions.getBindingByVariable(v);
+			key.append(b == null ? -1 : b.getNode().getId()).append(',');
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Return the facts of this token, the fact of the first pattern first
+	 * 
+	 * @return ArrayList of PropositionNode
+	 */
+	public ArrayList<PropositionNode> getFacts() {
+		ArrayList<PropositionNode> facts = parent == null ? new ArrayList<PropositionNode>() : parent.getFacts();
+		facts.add(fact);
+		return facts;
+	}
+
+	public PropositionNode getFact() {
+		return fact;
+	}
+
+	public Substitutions getSubstitutions() {
+		return substitutions;
+	}
+
+}
@@ -1,27 +1,18 @@
 package sneps.snip.rules;
 
-import java.util.HashSet;
-import java.util.Set;
-
 import sneps.network.Node;
-import sneps.network.PropositionNode;
 import sneps.network.RuleNode;
-import sneps.network.classes.Semantic;
 import sneps.network.classes.setClasses.NodeSet;
 import sneps.network.classes.term.Term;
 import sneps.snebr.Context;
 import sneps.snebr.Controller;
-import sneps.snebr.Support;
 import sneps.snip.Report;
-import sneps.snip.channels.Channel;
+import sneps.snip.classes.RuleCounter;
 import sneps.snip.classes.RuleUseInfo;
 import sneps.snip.classes.SIndex;
-import sneps.snip.classes.FlagNode;
 
 public class AndOrNode extends RuleNode {
 
-	boolean sign = false;
-	
 	private int min, max, args;
 	
 	public int getAndOrMin() {
@@ -47,34 +38,26 @@ public class AndOrNode extends RuleNode {
 
 //		this.processNodes(antNodes);
 	}
-	
-//	protected void applyRuleOnRui(RuleUseInfo tRui, String contextID) {
-//		
-//		if (tRui.getNegCount() == args - min)
-//			sign = true;
-//		else if (tRui.getPosCount() != max)
-//			return;
-//		
-//		Set<Integer> nodesSentReports = new HashSet<Integer>();
-//		for (FlagNode fn : tRui.getFlagNodeSet()) {
-//			nodesSentReports.add(fn.getNode().getId());
-//		}
-//		
-//		Support originSupports = this.getBasicSupport();
-//		HashSet<Support> sup = new HashSet<Support>();
-//		sup.add(originSupports);
-//		Report forwardReport = new Report(tRui.getSub(), tRui.getSupport(sup), sign,contextID);
-//		
-//		for (Channel outChannel : outgoingChannels) {
-//			if(!nodesSentReports.contains(outChannel.getRequester().getId()))
-//			outChannel.addReport(forwardReport);
-//		}
-//		
-//	}
-	
+
+	/**
+	 * Counts the report of an argument. Once max arguments are true the others
+	 * are reported false, and once args - min arguments are false the others
+	 * are reported true. Either way the counter is decided and the remaining
+	 * arguments are not listened to any more.
+	 */
+	@Override
+	public void applyRuleHandler(Report report, Node signature) {
+		RuleCounter counter = countReport(report, signature);
+		if (counter == null)
+			return;
+		if (counter.getPosCount() == max)
+			fireCounter(counter, report.getContextName(), false, max, 0);
+		else if (counter.getNegCount() == args - min)
+			fireCounter(counter, report.getContextName(), true, 0, args - min);
+	}
 	
 	public NodeSet getDownAntNodeSet() {
-		return this.getDownNodeSet("Xant");
+		return this.getDownNodeSet("arg");
 	}
 
 	
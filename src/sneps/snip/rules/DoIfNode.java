@@ -1,9 +1,12 @@
 package sneps.snip.rules;
 
+import sneps.network.ActNode;
+import sneps.network.Node;
 import sneps.network.RuleNode;
 import sneps.network.classes.Semantic;
 import sneps.network.classes.setClasses.NodeSet;
 import sneps.network.classes.term.Term;
+import sneps.snip.Report;
 import sneps.snip.classes.RuleUseInfo;
 
 public class DoIfNode extends RuleNode {
@@ -19,10 +22,22 @@ public class DoIfNode extends RuleNode {
 //		
 //	}
 
+	/**
+	 * Intend the act of the rule in the context of a positive report of its
+	 * if proposition
+	 */
+	@Override
+	public void applyRuleHandler(Report report, Node signature) {
+		if (!report.isPositive())
+			return;
+		for (Node act : getDownNodeSet("do"))
+			if (act instanceof ActNode)
+				((ActNode) act).intend(report.getContextName());
+	}
+
 	@Override
 	public NodeSet getDownAntNodeSet() {
-		// TODO Auto-generated method stub
-		return null;
+		return getDownNodeSet("if");
 	}
 
 //	@Override
@@ -1,95 +1,100 @@
 package sneps.snip.rules;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
 
+import sneps.exceptions.CannotInsertJustificationSupportException;
+import sneps.exceptions.DuplicatePropositionException;
+import sneps.exceptions.NodeNotFoundInNetworkException;
+import sneps.exceptions.NodeNotFoundInPropSetException;
+import sneps.exceptions.NotAPropositionNodeException;
 import sneps.network.Node;
+import sneps.network.PropositionNode;
 import sneps.network.RuleNode;
-import sneps.network.classes.Semantic;
 import sneps.network.classes.setClasses.NodeSet;
+import sneps.network.classes.setClasses.PropositionSet;
 import sneps.network.classes.term.Term;
-import sneps.snebr.Context;
-import sneps.snebr.Controller;
-import sneps.snebr.Support;
 import sneps.snip.Report;
-import sneps.snip.classes.FlagNode;
+import sneps.snip.classes.RuleCounter;
 import sneps.snip.classes.RuleUseInfo;
-import sneps.snip.classes.SIndex;
 
 public class NumericalEntailment extends RuleNode {
 	private static final long serialVersionUID = 3546852401118194013L;
 	private NodeSet consequents;
+	private Set<Integer> consequentIds;
 	private int i;
 
 	public NumericalEntailment(Term syn) {
 		super(syn);
+		i = Integer.parseInt(getDownNodeSet("i").getNode(0).getIdentifier());
+		consequents = getDownNodeSet("cq");
+		consequentIds = new HashSet<Integer>();
+		for (Node n : consequents)
+			consequentIds.add(n.getId());
 	}
 
-//	@Override
-//	public void applyRuleHandler(Report report, Node signature) {
-//		String contxt = report.getContextName();
-//		if (report.isPositive()) {
-//			FlagNodeSet fns = new FlagNodeSet();
-//			fns.putIn(new FlagNode(signature, report.getSupports(), 1));
-//			RuleUseInfo rui = new RuleUseInfo(report.getSubstitutions(),
-//					1, 0, fns);
-//			addNotSentRui(rui, contxt, signature);
-//		}
-//		int curPos = contextRuisSet.getByContext(contxt).getPositiveNodes().size();
-//		int n = antNodesWithoutVars.size()+antNodesWithVars.size();
-//		if ((curPos >= i) && ((curPos < n-i+1) || (curPos < n-1) ) )
-//			sendSavedRUIs(report.getContextName());
-//	}
-//	@Override
-//	protected void applyRuleOnRui(RuleUseInfo rui, String contextID) {
-//		if (rui.getPosCount() >= i){
-//			Set<Support> originSupports = new HashSet<Support>();
-//			originSupports.add(this.getBasicSupport());
-//			Report reply = new Report(rui.getSub(),rui.getSupport(originSupports), true, contextID);
-//			broadcastReport(reply);
-//		}
-//	}
-//
-//	public void addNotSentRui(RuleUseInfo rui, String contxt, Node signature){
-//		SIndex set = (SIndex) contextRuisSet.getByContext(contxt);
-//		//if (set == null) 
-//		//set = new SIndex(contxt, sharedVars, 0, consequents);
-//		set.insertRUI(rui);
-//		set.getPositiveNodes().addNode(signature);
-//		contextRuisSet.addHandlerSet(contxt, set);
-//	}
-//	private void sendSavedRUIs(String contextID) {
-//		RuleUseInfo addedConstant = getConstantRUI(contextID);
-//		if (addedConstant == null && antNodesWithoutVars.size() != 0)
-//			return;
-//
-//		if (antNodesWithoutVars.size() != addedConstant.getPosCount())
-//			return;
-//
-//		RuleUseInfoSet ruis = ((PTree)contextRuisSet.getByContext(contextID)).getAllRootRuis();
-//		if (ruis == null) {
-//			applyRuleOnRui(addedConstant, contextID);
-//			return;
-//		}
-//
-//		RuleUseInfo combined;
-//		for (RuleUseInfo info : ruis) {
-//			combined = info.combine(addedConstant);
-//			if (combined != null)
-//				applyRuleOnRui(combined, contextID);
-//		}
-//	}
-//
-//	@Override
-//	protected RuisHandler createRuisHandler(String contextName) {//TODO Check
-//		Context contxt = (Context) Controller.getContextByName(contextName);
-//		SIndex index = new SIndex(contextName, getSharedVarsNodes(antNodesWithVars), (byte) 0, getDominatingRules());
-//		return this.addContextRUIS(contxt, index);
-//	}
+	/**
+	 * Counts the positive report of an antecedent. The rule fires once i
+	 * distinct antecedents are true, so the counter stores no combination of
+	 * antecedents and the fired report is supported by exactly the last i
+	 * antecedents reported and the rule. If the consequents cannot be
+	 * justified by these antecedents, e.g. since one of them is a consequent,
+	 * the rule does not fire on them, and tries again with the last i
+	 * antecedents every time another one is reported true.
+	 */
+	@Override
+	public void applyRuleHandler(Report report, Node signature) {
+		if (report.isNegative())
+			return;
+		RuleCounter counter = countReport(report, signature);
+		if (counter == null || counter.getPosCount() < i)
+			return;
+		try {
+			PropositionSet support = getMinimalSupport(counter);
+			for (Node consequent : consequents)
+				((PropositionNode) consequent).addJustificationBasedSupport(support);
+		} catch (NodeNotFoundInPropSetException | NotAPropositionNodeException | NodeNotFoundInNetworkException
+				| DuplicatePropositionException | CannotInsertJustificationSupportException e) {
+			return;
+		}
+		fireCounter(counter, report.getContextName(), true, counter.getLastPositiveSupports(i));
+	}
+
+	/**
+	 * Returns the minimal support of the consequents of a fired counter: the
+	 * rule and the last i antecedents reported true.
+	 * 
+	 * @param counter
+	 *            a counter that reached i positive reports
+	 * @return PropositionSet
+	 */
+	public PropositionSet getMinimalSupport(RuleCounter counter)
+			throws NotAPropositionNodeException, NodeNotFoundInNetworkException {
+		ArrayList<Integer> antecedents = counter.getLastPositiveReporters(i);
+		int[] props = new int[antecedents.size() + 1];
+		for (int k = 0; k < antecedents.size(); k++)
+			props[k] = antecedents.get(k);
+		props[antecedents.size()] = getId();
+		return new PropositionSet(props);
+	}
+
+	@Override
+	protected void renumbered() {
+		super.renumbered();
+		consequentIds.clear();
+		for (Node n : consequents)
+			consequentIds.add(n.getId());
+	}
+
+	@Override
+	protected boolean concludesTo(Node requester, RuleCounter counter) {
+		return consequentIds.contains(requester.getId());
+	}
 
 	@Override
 	public NodeSet getDownAntNodeSet(){
-		return this.getDownNodeSet("iant");
+		return this.getDownNodeSet("&ant");
 	}
 
 	public NodeSet getConsequents() {
@@ -1,28 +1,18 @@
 package sneps.snip.rules;
 
-import java.util.HashSet;
-import java.util.Set;
-
 import sneps.network.Node;
-import sneps.network.PropositionNode;
 import sneps.network.RuleNode;
-import sneps.network.classes.Semantic;
 import sneps.network.classes.setClasses.NodeSet;
-import sneps.network.PropositionNode;
 import sneps.network.classes.term.Term;
 import sneps.snebr.Context;
 import sneps.snebr.Controller;
-import sneps.snebr.Support;
 import sneps.snip.Report;
-import sneps.snip.channels.Channel;
+import sneps.snip.classes.RuleCounter;
 import sneps.snip.classes.RuleUseInfo;
 import sneps.snip.classes.SIndex;
-import sneps.snip.classes.FlagNode;
 
 public class ThreshNode extends RuleNode {
 
-	boolean sign = false;
-	
 	private int min, max, args;
 	
 	public int getThreshMin() {
@@ -48,35 +38,25 @@ public class ThreshNode extends RuleNode {
 		args = antNodes.size();
 //		this.processNodes(antNodes);
 	}
+
+	/**
+	 * Counts the report of an argument. Once at least min arguments are true
+	 * and args - max - 1 are false the others are reported true, and once min -
+	 * 1 arguments are true and args - max are false the others are reported
+	 * false. Either way the counter is decided and the remaining arguments are
+	 * not listened to any more.
+	 */
+	@Override
+	public void applyRuleHandler(Report report, Node signature) {
+		RuleCounter counter = countReport(report, signature);
+		if (counter == null)
+			return;
+		if (counter.getPosCount() >= min && counter.getNegCount() >= args - max - 1)
+			fireCounter(counter, report.getContextName(), true, min, args - max - 1);
+		else if (counter.getPosCount() == min - 1 && counter.getNegCount() >= args - max)
+			fireCounter(counter, report.getContextName(), false, min - 1, args - max);
+	}
 	
-//	protected void applyRuleOnRui(RuleUseInfo tRui, String contextID) {
-//		
-//		if (tRui.getPosCount() == min
-//				&& tRui.getNegCount() == args - max - 1)
-//			sign = true;
-//		else if (tRui.getPosCount() != min - 1 || tRui.getNegCount() != args - max)
-//			sign = false;
-//		
-//		
-//		
-//		Set<Integer> nodesSentReports = new HashSet<Integer>();
-//		for (FlagNode fn : tRui.getFlagNodeSet()) {
-//			nodesSentReports.add(fn.getNode().getId());
-//		}
-//		
-//		Support originSupports = this.getBasicSupport();
-//		HashSet<Support> sup = new HashSet<Support>();
-//		sup.add(originSupports);
-//		Report forwardReport = new Report(tRui.getSub(), tRui.getSupport(sup), sign,contextID);
-//		
-//		for (Channel outChannel : outgoingChannels) {
-//			if(!nodesSentReports.contains(outChannel.getRequester().getId()))
-//			outChannel.addReport(forwardReport);
-//		}
-//		
-//	}
-//	
-//	
 //	protected RuisHandler createRuisHandler(String contextName) {
 //		Context contxt = (Context) Controller.getContextByName(contextName);
 //		SIndex index = new SIndex(contextName, getSharedVarsNodes(antNodesWithVars), (byte) 0, getDominatingRules());
@@ -85,7 +65,7 @@ public class ThreshNode extends RuleNode {
 
 	@Override
 	public NodeSet getDownAntNodeSet() {
-		return this.getDownNodeSet("Tant");
+		return this.getDownNodeSet("arg");
 	}
 
 	@Override
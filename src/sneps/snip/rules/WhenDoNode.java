@@ -1,9 +1,12 @@
 package sneps.snip.rules;
 
+import sneps.network.ActNode;
+import sneps.network.Node;
 import sneps.network.RuleNode;
 import sneps.network.classes.Semantic;
 import sneps.network.classes.setClasses.NodeSet;
 import sneps.network.classes.term.Term;
+import sneps.snip.Report;
 import sneps.snip.classes.RuleUseInfo;
 
 public class WhenDoNode extends RuleNode {
@@ -21,10 +24,22 @@ public class WhenDoNode extends RuleNode {
 //	}
 
 
+	/**
+	 * Intend the act of the rule in the context of a positive report of its
+	 * when proposition
+	 */
+	@Override
+	public void applyRuleHandler(Report report, Node signature) {
+		if (!report.isPositive())
+			return;
+		for (Node act : getDownNodeSet("do"))
+			if (act instanceof ActNode)
+				((ActNode) act).intend(report.getContextName());
+	}
+
 	@Override
 	public NodeSet getDownAntNodeSet() {
-		// TODO Auto-generated method stub
-		return null;
+		return getDownNodeSet("when");
 	}
 
 //	@Override
@@ -0,0 +1,12 @@
+package sneps.snip.tabling;
+
+import sneps.snip.Report;
+
+/**
+ * A subgoal, or a query, consuming the answers of a table
+ */
+public interface AnswerConsumer {
+
+	public void consume(Report answer);
+
+}
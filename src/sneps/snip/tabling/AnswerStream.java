@@ -0,0 +1,93 @@
+package sneps.snip.tabling;
+
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+
+import sneps.exceptions.CannotBuildNodeException;
+import sneps.exceptions.CaseFrameMissMatchException;
+import sneps.exceptions.DuplicatePropositionException;
+import sneps.exceptions.EquivalentNodeException;
+import sneps.exceptions.NodeNotFoundInNetworkException;
+import sneps.exceptions.NodeNotFoundInPropSetException;
+import sneps.exceptions.NotAPropositionNodeException;
+import sneps.exceptions.SemanticNotFoundInNetworkException;
+import sneps.snip.Report;
+
+/**
+ * The answers of a query, read as they reach the query. Asking for the next
+ * answer runs the agenda of the deduction until the query receives one, so the
+ * first answers are read long before the deduction saturates. The deduction is
+ * cancelled when the stream is closed, or when the number of answers asked for
+ * has been read: its remaining tasks are dropped along with the tables it left
+ * incomplete. A stream holds the table space of its context until it is
+ * exhausted or closed, and should be closed if it is not read to the end: the
+ * deductions started meanwhile in the context do not share its tables. A
+ * stream can be read and closed by any thread, one at a time.
+ */
+public class AnswerStream implements AutoCloseable {
+
+	private TabledDeduction deduction;
+	private ArrayDeque<Report> buffer;
+	private int limit;
+	private int read;
+	private boolean running;
+
+	AnswerStream(TabledDeduction deduction, int limit) {
+		this.deduction = deduction;
+		this.limit = limit;
+		buffer = new ArrayDeque<Report>();
+		running = true;
+	}
+
+	void offer(Report answer) {
+		buffer.add(answer);
+	}
+
+	public boolean hasNext() throws CannotBuildNodeException, EquivalentNodeException, NotAPropositionNodeException,
+			NodeNotFoundInNetworkException, CaseFrameMissMatchException, SemanticNotFoundInNetworkException,
+			NodeNotFoundInPropSetException, DuplicatePropositionException {
+		if (limit >= 0 && read >= limit) {
+			close();
+			return false;
+		}
+		while (buffer.isEmpty() && running)
+			if (!deduction.step()) {
+				running = false;
+				deduction.finish();
+			}
+		return !buffer.isEmpty();
+	}
+
+	public Report next() throws CannotBuildNodeException, EquivalentNodeException, NotAPropositionNodeException,
+			NodeNotFoundInNetworkException, CaseFrameMissMatchException, SemanticNotFoundInNetworkException,
+			NodeNotFoundInPropSetException, DuplicatePropositionException {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		read++;
+		Report answer = buffer.poll();
+		if (limit >= 0 && read >= limit)
+			close();
+		return answer;
+	}
+
+	/**
+	 * @return the number of answers read from this stream.
+	 */
+	public int getRead() {
+		return read;
+	}
+
+	/**
+	 * Stop reading the answers, cancelling the deduction if it is still
+	 * running
+	 */
+	@Override
+	public void close() {
+		if (running) {
+			running = false;
+			deduction.cancel();
+		}
+		buffer.clear();
+	}
+
+}
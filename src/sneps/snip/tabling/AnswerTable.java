@@ -0,0 +1,82 @@
+package sneps.snip.tabling;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import sneps.network.Node;
+import sneps.snip.Report;
+import sneps.snip.classes.RuleCounterSet;
+import sneps.snip.matching.Substitutions;
+
+/**
+ * The table of a subgoal: a node, the bindings its variables are restricted to
+ * and the answers found for it so far. The answers are reports whose
+ * substitutions bind the variables of the node. An incomplete table has
+ * consumers, the subgoals waiting for its answers; once complete, its answers
+ * are final and are read instead of solving the subgoal again.
+ */
+public class AnswerTable {
+
+	private Node goal;
+	private Substitutions filter;
+	private ArrayList<Report> answers;
+	private HashSet<String> answerKeys;
+	private ArrayList<AnswerConsumer> consumers;
+	private boolean complete;
+
+	public AnswerTable(Node goal, Substitutions filter) {
+		this.goal = goal;
+		this.filter = filter;
+		answers = new ArrayList<Report>();
+		answerKeys = new HashSet<String>();
+		consumers = new ArrayList<AnswerConsumer>();
+	}
+
+	/**
+	 * Add an answer unless an answer with the same substitution was added
+	 * before
+	 *
+	 * @param answer
+	 *            the answer
+	 * @return true if the answer is new
+	 */
+	public boolean addAnswer(Report answer) {
+		if (!answerKeys.add(RuleCounterSet.keyOf(answer.getSubstitutions())))
+			return false;
+		answers.add(answer);
+		return true;
+	}
+
+	public void addConsumer(AnswerConsumer consumer) {
+		consumers.add(consumer);
+	}
+
+	/**
+	 * Mark the table as complete, dropping its consumers
+	 */
+	public void complete() {
+		complete = true;
+		consumers.clear();
+	}
+
+	public Node getGoal() {
+		return goal;
+	}
+
+	public Substitutions getFilter() {
+		return filter;
+	}
+
+	public ArrayList<Report> getAnswers() {
+		return answers;
+	}
+
+	public ArrayList<AnswerConsumer> getConsumers() {
+		return consumers;
+	}
+
+	public boolean isComplete() {
+		return complete;
+	}
+
+}
@@ -0,0 +1,140 @@
+package sneps.snip.tabling;
+
+import java.util.Hashtable;
+import java.util.concurrent.Semaphore;
+
+import sneps.network.KnowledgeBase;
+import sneps.network.Node;
+import sneps.network.classes.setClasses.PropositionSet;
+import sneps.snebr.Context;
+import sneps.snip.classes.RuleCounterSet;
+import sneps.snip.matching.Substitutions;
+
+/**
+ * The answer tables of a context. The tables are only valid for the hyps the
+ * context had when they were filled: SNeBR replaces the hyps of a context by a
+ * new PropositionSet whenever it changes them, so the table space of a context
+ * is discarded as soon as its hyps are not those it was created for.
+ *
+ * A deduction holds the table space while it runs, since the tables it leaves
+ * incomplete can only be completed by its own agenda. The space is not held by
+ * a thread, so the answer stream of a deduction can be read and closed by any
+ * thread. A deduction started while another one holds the space, e.g. through
+ * a stream that is read slowly or never closed, does not wait for it: it fills
+ * a space of its own, which is dropped when it ends.
+ */
+public class TableSpace {
+
+	private PropositionSet hyps;
+	private Hashtable<String, AnswerTable> tables;
+	private int lookups;
+	private int hits;
+	private Semaphore holder;
+
+	private TableSpace(PropositionSet hyps) {
+		this.hyps = hyps;
+		tables = new Hashtable<String, AnswerTable>();
+		holder = new Semaphore(1);
+	}
+
+	/**
+	 * Return the table space of a context of the knowledge base the current
+	 * thread works on, creating a new one if the context has none or if its
+	 * hyps changed since its table space was created
+	 *
+	 * @param contextName
+	 *            the name of the context
+	 * @param context
+	 *            the current state of the context
+	 * @return TableSpace
+	 */
+	public static TableSpace getTableSpace(String contextName, Context context) {
+		Hashtable<String, TableSpace> spaces = KnowledgeBase.getActive().getTableSpaces();
+		synchronized (spaces) {
+			TableSpace space = spaces.get(contextName);
+			if (space == null || space.hyps != context.getHypothesisSet()) {
+				space = new TableSpace(context.getHypothesisSet());
+				spaces.put(contextName, space);
+			}
+			return space;
+		}
+	}
+
+	/**
+	 * Discard the table spaces of all the contexts
+	 */
+	public static void clearTableSpaces() {
+		KnowledgeBase.getActive().getTableSpaces().clear();
+	}
+
+	/**
+	 * Return the table of a subgoal, or null if it has none
+	 */
+	public AnswerTable getTable(Node goal, Substitutions filter) {
+		lookups++;
+		AnswerTable table = tables.get(keyOf(goal, filter));
+		if (table != null && table.isComplete())
+			hits++;
+		return table;
+	}
+
+	public void putTable(AnswerTable table) {
+		tables.put(keyOf(table.getGoal(), table.getFilter()), table);
+	}
+
+	public void removeTable(AnswerTable table) {
+		tables.remove(keyOf(table.getGoal(), table.getFilter()));
+	}
+
+	/**
+	 * Hold this space for a deduction, unless another deduction holds it
+	 *
+	 * @return false if another deduction holds this space
+	 */
+	boolean tryAcquire() {
+		return holder.tryAcquire();
+	}
+
+	void release() {
+		holder.release();
+	}
+
+	/**
+	 * Return a new space for the hyps of this one that is not shared with other
+	 * deductions, held by the caller
+	 */
+	TableSpace detached() {
+		TableSpace space = new TableSpace(hyps);
+		space.tryAcquire();
+		return space;
+	}
+
+	/**
+	 * @return the number of tables in this space.
+	 */
+	public int size() {
+		return tables.size();
+	}
+
+	/**
+	 * @return the number of subgoals looked up in this space.
+	 */
+	public int getLookups() {
+		return lookups;
+	}
+
+	/**
+	 * @return the number of subgoals answered by a complete table.
+	 */
+	public int getHits() {
+		return hits;
+	}
+
+	/**
+	 * The key of a subgoal: its node and its bindings
+	 */
+	public static String keyOf(Node goal, Substitutions filter) {
+		return goal.getId() + "|" + RuleCounterSet.keyOf(filter);
+	}
+
+}
@@ -0,0 +1,409 @@
+package sneps.snip.tabling;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import sneps.exceptions.CannotBuildNodeException;
+import sneps.exceptions.CannotInsertJustificationSupportException;
+import sneps.exceptions.CaseFrameMissMatchException;
+import sneps.exceptions.DuplicatePropositionException;
+import sneps.exceptions.EquivalentNodeException;
+import sneps.exceptions.NodeNotFoundInNetworkException;
+import sneps.exceptions.NodeNotFoundInPropSetException;
+import sneps.exceptions.NotAPropositionNodeException;
+import sneps.exceptions.SemanticNotFoundInNetworkException;
+import sneps.network.Network;
+import sneps.network.NetworkSnapshot;
+import sneps.network.Node;
+import sneps.network.PropositionNode;
+import sneps.network.VariableNode;
+import sneps.network.cables.DownCable;
+import sneps.network.cables.DownCableSet;
+import sneps.network.cables.UpCable;
+import sneps.network.classes.setClasses.PropositionSet;
+import sneps.network.classes.term.Molecular;
+import sneps.snebr.Context;
+import sneps.snebr.Support;
+import sneps.snip.Report;
+import sneps.snip.matching.Binding;
+import sneps.snip.matching.LinearSubstitutions;
+import sneps.snip.matching.MatchIndex;
+import sneps.snip.matching.Substitutions;
+import sneps.snip.rete.AlphaMemory;
+import sneps.snip.rete.Production;
+import sneps.snip.rete.ReteNetwork;
+
+/**
+ * Backward inference with tabling. Every subgoal, a node and the bindings of
+ * its variables, has an answer table in the table space of the context. A
+ * subgoal is solved once: its asserted instances are found through the
+ * MatchIndex, and the rules having a consequent unifying with it are used by
+ * solving their antecedents as subgoals in turn. A subgoal whose table already
+ * exists consumes the answers of that table instead, so recursive rules
+ * terminate and sibling subgoals share their work. When the agenda is empty,
+ * every table created by the deduction is complete and later deductions in the
+ * same context read it directly. The answers of a query can also be read as
+ * they are found through an AnswerStream, the deduction being cancelled when
+ * the stream is closed. A deduction reads the network through a snapshot
+ * pinned when it starts, so the nodes built or removed by other threads while
+ * it runs do not change its answers.
+ *
+ * The rules used are those compiled by the ReteNetwork: or-entailments,
+ * and-entailments and numerical entailments whose i is the number of their
+ * antecedents. The instances of consequents are built and supported by the
+ * rule and the answers of the antecedents, as forward inference does.
+ */
+public class TabledDeduction {
+
+	private interface Task {
+		public void run() throws CannotBuildNodeException, EquivalentNodeException, NotAPropositionNodeException,
+				NodeNotFoundInNetworkException, CaseFrameMissMatchException, SemanticNotFoundInNetworkException,
+				NodeNotFoundInPropSetException, DuplicatePropositionException;
+	}
+
+	private String contextName;
+	private Context context;
+	private TableSpace space;
+	private NetworkSnapshot snapshot;
+	private ArrayDeque<Task> agenda;
+	private ArrayList<AnswerTable> created;
+	private int steps;
+
+	public TabledDeduction(String contextName, Context context) {
+		this.contextName = contextName;
+		this.context = context;
+		space = TableSpace.getTableSpace(contextName, context);
+		agenda = new ArrayDeque<Task>();
+		created = new ArrayList<AnswerTable>();
+	}
+
+	/**
+	 * Return the answers of a query, a report for every instance of the node
+	 * asserted or derived in the context
+	 *
+	 * @param goal
+	 *            the node
+	 * @return ArrayList of Report
+	 */
+	public ArrayList<Report> deduce(Node goal) throws CannotBuildNodeException, EquivalentNodeException,
+			NotAPropositionNodeException, NodeNotFoundInNetworkException, CaseFrameMissMatchException,
+			SemanticNotFoundInNetworkException, NodeNotFoundInPropSetException, DuplicatePropositionException {
+		ArrayList<Report> result = new ArrayList<Report>();
+		AnswerStream answers = stream(goal);
+		try {
+			while (answers.hasNext())
+				result.add(answers.next());
+		} finally {
+			answers.close();
+		}
+		return result;
+	}
+
+	/**
+	 * Return the answers of a query as they are found. The deduction only
+	 * runs as far as the answers read from the stream require.
+	 *
+	 * @param goal
+	 *            the node
+	 * @return AnswerStream
+	 */
+	public AnswerStream stream(Node goal) {
+		return stream(goal, -1);
+	}
+
+	/**
+	 * Return at most limit answers of a query as they are found, or all of
+	 * them if limit is negative
+	 *
+	 * @param goal
+	 *            the node
+	 * @param limit
+	 *            the number of answers wanted
+	 * @return AnswerStream
+	 */
+	public AnswerStream stream(Node goal, int limit) {
+		if (!space.tryAcquire())
+			space = space.detached();
+		snapshot = Network.pinSnapshot();
+		AnswerStream answers = new AnswerStream(this, limit);
+		call(goal, new LinearSubstitutions(), answer -> answers.offer(answer));
+		return answers;
+	}
+
+	/**
+	 * Run the next task of the agenda
+	 *
+	 * @return false if the agenda is empty
+	 */
+	boolean step() throws CannotBuildNodeException, EquivalentNodeException, NotAPropositionNodeException,
+			NodeNotFoundInNetworkException, CaseFrameMissMatchException, SemanticNotFoundInNetworkException,
+			NodeNotFoundInPropSetException, DuplicatePropositionException {
+		Task task = agenda.poll();
+		if (task == null)
+			return false;
+		steps++;
+		NetworkSnapshot previous = snapshot.enter();
+		try {
+			task.run();
+		} finally {
+			snapshot.exit(previous);
+		}
+		return true;
+	}
+
+	/**
+	 * Complete the tables created by the deduction once its agenda is empty,
+	 * and release the table space
+	 */
+	void finish() {
+		for (AnswerTable table : created)
+			table.complete();
+		created.clear();
+		snapshot.close();
+		space.release();
+	}
+
+	/**
+	 * Stop the deduction before its agenda is empty. The tasks left are
+	 * dropped, and so are the tables created by the deduction since none of
+	 * them is complete. The table space is released.
+	 */
+	void cancel() {
+		agenda.clear();
+		for (AnswerTable table : created)
+			space.removeTable(table);
+		created.clear();
+		snapshot.close();
+		space.release();
+	}
+
+	/**
+	 * @return the number of tasks run by this deduction.
+	 */
+	public int getSteps() {
+		return steps;
+	}
+
+	public TableSpace getTableSpace() {
+		return space;
+	}
+
+	/**
+	 * Give the answers of a subgoal to a consumer, creating the table of the
+	 * subgoal and scheduling its resolution if it has none
+	 */
+	private void call(Node goal, Substitutions filter, AnswerConsumer consumer) {
+		AnswerTable table = space.getTable(goal, filter);
+		if (table == null) {
+			AnswerTable newTable = new AnswerTable(goal, filter);
+			space.putTable(newTable);
+			created.add(newTable);
+			agenda.add(() -> produce(newTable));
+			table = newTable;
+		}
+		for (Report answer : new ArrayList<Report>(table.getAnswers()))
+			consumer.consume(answer);
+		if (!table.isComplete())
+			table.addConsumer(consumer);
+	}
+
+	private void answer(AnswerTable table, Substitutions s, Set<Support> supports) {
+		Report answer = new Report(s, supports, true, contextName);
+		if (table.addAnswer(answer))
+			for (AnswerConsumer consumer : new ArrayList<AnswerConsumer>(table.getConsumers()))
+				consumer.consume(answer);
+	}
+
+	/**
+	 * Find the asserted instances of a subgoal and use the rules concluding it
+	 */
+	private void produce(AnswerTable table) throws CannotBuildNodeException, EquivalentNodeException,
+			NotAPropositionNodeException, NodeNotFoundInNetworkException, CaseFrameMissMatchException,
+			SemanticNotFoundInNetworkException, NodeNotFoundInPropSetException, DuplicatePropositionException {
+		Node goal = table.getGoal();
+		ArrayList<Node> consequents = new ArrayList<Node>();
+		if (goal.getTerm() instanceof Molecular || goal instanceof VariableNode)
+			consequents.addAll(MatchIndex.candidates(goal, table.getFilter()));
+		else
+			consequents.add(goal);
+		if (!AlphaMemory.isPattern(goal)) {
+			if (isAsserted(goal))
+				answer(table, table.getFilter(), supportOf(goal));
+		} else {
+			for (Node candidate : consequents)
+				if (!AlphaMemory.isPattern(candidate) && isAsserted(candidate))
+					for (Substitutions s : AlphaMemory.match(goal, candidate, table.getFilter()))
+						answer(table, s, supportOf(candidate));
+		}
+		for (Node consequent : consequents) {
+			UpCable cq = consequent.getUpCableSet().getUpCable("cq");
+			if (cq == null)
+				continue;
+			for (Node rule : Network.copyOf(cq.getNodeSet()))
+				if (Network.isVisible(rule) && rule instanceof PropositionNode && ReteNetwork.isRule((PropositionNode) rule) && isAsserted(rule))
+					useRule((PropositionNode) rule, consequent, table);
+		}
+	}
+
+	/**
+	 * Solve the antecedents of a rule, its variables bound as far as the
+	 * subgoal determines them
+	 */
+	private void useRule(PropositionNode rule, Node consequent, AnswerTable table) {
+		Substitutions seed = new LinearSubstitutions();
+		seed(consequent, table.getGoal(), table.getFilter(), seed);
+		DownCableSet cables = ((Molecular) rule.getTerm()).getDownCableSet();
+		if (cables.contains("&ant")) {
+			ArrayList<Node> antecedents = new ArrayList<Node>();
+			for (Node n : cables.getDownCable("&ant").getNodeSet())
+				antecedents.add(n);
+			chain(rule, consequent, table, antecedents, 0, seed, new HashSet<Support>());
+		} else {
+			for (Node n : cables.getDownCable("ant").getNodeSet()) {
+				ArrayList<Node> antecedent = new ArrayList<Node>();
+				antecedent.add(n);
+				chain(rule, consequent, table, antecedent, 0, seed, new HashSet<Support>());
+			}
+		}
+	}
+
+	/**
+	 * Solve the antecedents of a rule from index i on, under the bindings made
+	 * by the answers of the previous ones
+	 */
+	private void chain(PropositionNode rule, Node consequent, AnswerTable table, ArrayList<Node> antecedents,
+			int i, Substitutions bindings, Set<Support> supports) {
+		if (i == antecedents.size()) {
+			agenda.add(() -> conclude(rule, consequent, table, bindings, supports));
+			return;
+		}
+		Node antecedent = antecedents.get(i);
+		call(antecedent, restrict(bindings, antecedent), answer -> agenda.add(() -> {
+			LinearSubstitutions extended = new LinearSubstitutions();
+			extended.insert(bindings);
+			extended.insert(answer.getSubstitutions());
+			HashSet<Support> extendedSupports = new HashSet<Support>(supports);
+			extendedSupports.addAll(answer.getSupports());
+			chain(rule, consequent, table, antecedents, i + 1, extended, extendedSupports);
+		}));
+	}
+
+	/**
+	 * Derive the instance of the consequent of a rule whose antecedents are all
+	 * answered, and give it to the subgoal if it is one of its instances
+	 */
+	private void conclude(PropositionNode rule, Node consequent, AnswerTable table, Substitutions bindings,
+			Set<Support> supports) throws CannotBuildNodeException, EquivalentNodeException,
+			NotAPropositionNodeException, NodeNotFoundInNetworkException, CaseFrameMissMatchException,
+			SemanticNotFoundInNetworkException, NodeNotFoundInPropSetException, DuplicatePropositionException {
+		Node instance = instance(consequent, bindings);
+		if (AlphaMemory.isPattern(instance) || !(instance instanceof PropositionNode))
+			return;
+		if (!isAsserted(instance)) {
+			int[] support = new int[supports.size() + 1];
+			int i = 0;
+			for (Support s : supports)
+				support[i++] = s.getId();
+			support[i] = rule.getId();
+			try {
+				((PropositionNode) instance).addJustificationBasedSupport(new PropositionSet(support));
+			} catch (CannotInsertJustificationSupportException e) {
+				return;
+			}
+			if (!isAsserted(instance))
+				return;
+		}
+		for (Substitutions s : AlphaMemory.match(table.getGoal(), instance, table.getFilter()))
+			answer(table, s, supportOf(instance));
+	}
+
+	/**
+	 * Return the node obtained by replacing the variables of a node by their
+	 * values in a substitution. If the substitution binds all the variables,
+	 * the instance is looked up in the MatchIndex, and only built if it does not
+	 * exist.
+	 *
+	 * @param node
+	 *            the node
+	 * @param s
+	 *            the substitution
+	 * @return Node
+	 */
+	public static Node instance(Node node, Substitutions s) throws CannotBuildNodeException,
+			EquivalentNodeException, NotAPropositionNodeException, NodeNotFoundInNetworkException,
+			CaseFrameMissMatchException, SemanticNotFoundInNetworkException {
+		LinkedHashSet<VariableNode> variables = new LinkedHashSet<VariableNode>();
+		AlphaMemory.collectVariables(node, variables);
+		if (variables.isEmpty())
+			return node;
+		for (VariableNode v : variables)
+			if (!s.isBound(v))
+				return Production.instantiate(node, s);
+		for (Node candidate : MatchIndex.candidates(node, s))
+			if (!AlphaMemory.isPattern(candidate) && !AlphaMemory.match(node, candidate, s).isEmpty())
+				return candidate;
+		return Production.instantiate(node, s);
+	}
+
+	/**
+	 * Bind the variables of a consequent to the values the subgoal has at the
+	 * same positions. Only positions holding a single node are followed.
+	 */
+	private static void seed(Node consequent, Node goal, Substitutions filter, Substitutions seed) {
+		if (consequent instanceof VariableNode) {
+			Node value = goal;
+			if (goal instanceof VariableNode) {
+				Binding b = filter.getBindingByVariable((VariableNode) goal);
+				value = b == null ? null : b.getNode();
+			}
+			if (value != null && !AlphaMemory.isPattern(value) && !seed.isBound((VariableNode) consequent))
+				seed.putIn(new Binding((VariableNode) consequent, value));
+			return;
+		}
+		if (!AlphaMemory.isPattern(consequent) || !(goal.getTerm() instanceof Molecular))
+			return;
+		DownCableSet cCables = ((Molecular) consequent.getTerm()).getDownCableSet();
+		DownCableSet gCables = ((Molecular) goal.getTerm()).getDownCableSet();
+		if (!cCables.getCaseFrame().getId().equals(gCables.getCaseFrame().getId()))
+			return;
+		Enumeration<DownCable> cables = cCables.getDownCables().elements();
+		while (cables.hasMoreElements()) {
+			DownCable cable = cables.nextElement();
+			DownCable gCable = gCables.getDownCable(cable.getRelation().getName());
+			if (cable.getRelation().isQuantifier() || gCable == null || cable.getNodeSet().size() != 1
+					|| gCable.getNodeSet().size() != 1)
+				continue;
+			seed(cable.getNodeSet().getNode(0), gCable.getNodeSet().getNode(0), filter, seed);
+		}
+	}
+
+	/**
+	 * Return the bindings of the variables of a node
+	 */
+	private static Substitutions restrict(Substitutions s, Node node) {
+		LinkedHashSet<VariableNode> variables = new LinkedHashSet<VariableNode>();
+		AlphaMemory.collectVariables(node, variables);
+		Substitutions result = new LinearSubstitutions();
+		for (VariableNode v : variables) {
+			Binding b = s.getBindingByVariable(v);
+			if (b != null)
+				result.putIn(b);
+		}
+		return result;
+	}
+
+	private boolean isAsserted(Node node) throws NotAPropositionNodeException, NodeNotFoundInNetworkException {
+		return node instanceof PropositionNode && context.isAsserted((PropositionNode) node);
+	}
+
+	private static Set<Support> supportOf(Node node) {
+		HashSet<Support> supports = new HashSet<Support>();
+		supports.add(((PropositionNode) node).getBasicSupport());
+		return supports;
+	}
+
+}
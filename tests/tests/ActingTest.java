@@ -0,0 +1,210 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import sneps.network.ActNode;
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.classes.Relation;
+import sneps.network.classes.RelationsRestrictedCaseFrame;
+import sneps.network.classes.Semantic;
+import sneps.network.classes.SemanticHierarchy;
+import sneps.network.classes.Wire;
+import sneps.snebr.Controller;
+import sneps.snebr.Support;
+import sneps.snip.Report;
+import sneps.snip.Runner;
+import sneps.snip.acting.PrimitiveActions;
+import sneps.snip.channels.Channel;
+import sneps.snip.channels.MatchChannel;
+import sneps.snip.matching.LinearSubstitutions;
+import sneps.snip.rules.WhenDoNode;
+
+public class ActingTest {
+
+	private static final String context = "default";
+
+	@Before
+	public void setUp() {
+		Network.clearNetwork();
+		Controller.clearSNeBR();
+		Network.defineDefaults();
+		Runner.initiate();
+	}
+
+	@After
+	public void tearDown() {
+		PrimitiveActions.clear();
+		Runner.setActParallelism(1);
+	}
+
+	private static ActNode act(String action, String object) throws Exception {
+		ArrayList<Wire> wires = new ArrayList<Wire>();
+		wires.add(new Wire(Relation.action,
+				Network.buildBaseNode(action, SemanticHierarchy.createSemanticType("Action"))));
+		wires.add(new Wire(Relation.obj, Network.buildBaseNode(object, SemanticHierarchy.createSemanticType("Entity"))));
+		return (ActNode) Network.buildMolecularNode(wires, RelationsRestrictedCaseFrame.act);
+	}
+
+	@Test
+	public void inferenceGoesOnWhileAnActIsPerformed() throws Exception {
+		CompletableFuture<Object> done = new CompletableFuture<Object>();
+		PrimitiveActions.define("wait", act -> done);
+		ActNode act = act("wait", "Bob");
+		ArrayList<Integer> processed = new ArrayList<Integer>();
+		for (int i = 0; i < 3; i++) {
+			int number = i;
+			Runner.addToLowQueue(new Node() {
+				@Override
+				public void processRequests() {
+					processed.add(number);
+					if (number == 2)
+						done.complete("waited");
+				}
+			});
+		}
+		act.intend(context);
+		Runner.run();
+
+		assertEquals(3, processed.size());
+		assertEquals(ActNode.Agenda.DONE, act.getAgenda());
+		assertEquals("waited", act.getResult());
+		assertEquals(1, act.getReports().size());
+		assertTrue(act.getReports().iterator().next().isPositive());
+		assertEquals(0, Runner.getActsInFlight());
+	}
+
+	@Test
+	public void independentActsArePerformedInParallel() throws Exception {
+		Runner.setActParallelism(2);
+		CountDownLatch bothStarted = new CountDownLatch(2);
+		PrimitiveActions.define("meet", act -> {
+			bothStarted.countDown();
+			try {
+				return CompletableFuture.completedFuture(bothStarted.await(5, TimeUnit.SECONDS));
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		ActNode first = act("meet", "Bob");
+		ActNode second = act("meet", "Alice");
+		first.intend(context);
+		second.intend(context);
+		assertEquals("AA", Runner.run().replace("H", ""));
+
+		assertEquals(true, first.getResult());
+		assertEquals(true, second.getResult());
+	}
+
+	@Test
+	public void failedActsReportNegatively() throws Exception {
+		PrimitiveActions.define("fail", act -> {
+			throw new IllegalStateException("cannot");
+		});
+		ActNode failing = act("fail", "Bob");
+		ActNode unknown = act("unknown", "Bob");
+		failing.intend(context);
+		unknown.intend(context);
+		Runner.run();
+
+		assertEquals(ActNode.Agenda.FAILED, failing.getAgenda());
+		assertTrue(failing.getFailure() instanceof IllegalStateException);
+		assertTrue(failing.getReports().iterator().next().isNegative());
+		assertEquals(ActNode.Agenda.FAILED, unknown.getAgenda());
+	}
+
+	@Test
+	public void everyIntentionKeepsItsOutcome() throws Exception {
+		// the act queue performs the last intention first, and the second
+		// performance completes the first one and fails
+		CompletableFuture<Object> first = new CompletableFuture<Object>();
+		AtomicInteger performed = new AtomicInteger();
+		PrimitiveActions.define("try", act -> {
+			if (performed.getAndIncrement() == 0)
+				return first;
+			first.complete("done");
+			CompletableFuture<Object> second = new CompletableFuture<Object>();
+			second.completeExceptionally(new IllegalStateException("cannot"));
+			return second;
+		});
+		ActNode act = act("try", "Bob");
+		act.intend("other");
+		ActNode.Intention failing = act.getLastIntention();
+		act.intend(context);
+		ActNode.Intention succeeding = act.getLastIntention();
+		Runner.run();
+
+		assertEquals(ActNode.Agenda.DONE, succeeding.getAgenda());
+		assertEquals("done", succeeding.getResult());
+		assertEquals(ActNode.Agenda.FAILED, failing.getAgenda());
+		assertTrue(failing.getFailure() instanceof IllegalStateException);
+		assertTrue(act.getReports().contains(
+				new Report(new LinearSubstitutions(), new HashSet<Support>(), true, context)));
+		assertTrue(act.getReports().contains(
+				new Report(new LinearSubstitutions(), new HashSet<Support>(), false, "other")));
+	}
+
+	@Test
+	public void waitingNodesAreReportedTheCompletion() throws Exception {
+		PrimitiveActions.define("greet", act -> CompletableFuture.completedFuture(null));
+		ActNode act = act("greet", "Bob");
+		AtomicInteger reported = new AtomicInteger();
+		Node waiting = new Node() {
+			@Override
+			public void processReports() {
+				reported.incrementAndGet();
+			}
+
+			@Override
+			public String toString() {
+				return "waiting";
+			}
+		};
+		Channel channel = new MatchChannel(new LinearSubstitutions(), new LinearSubstitutions(), context, waiting,
+				act, true);
+		act.receiveRequest(channel);
+		act.intend(context);
+		Runner.run();
+
+		assertEquals(1, reported.get());
+		assertEquals(1, channel.getReportsBuffer().size());
+		assertTrue(channel.getReportsBuffer().iterator().next().isPositive());
+	}
+
+	@Test
+	public void whenDoIntendsItsAct() throws Exception {
+		ArrayList<String> greeted = new ArrayList<String>();
+		PrimitiveActions.define("greet", act -> {
+			greeted.add(act.getDownNodeSet("obj").getNode(0).getIdentifier());
+			return CompletableFuture.completedFuture(null);
+		});
+		ActNode act = act("greet", "Bob");
+		Node when = Network.buildBaseNode("BobArrives", Semantic.proposition);
+		ArrayList<Wire> wires = new ArrayList<Wire>();
+		wires.add(new Wire(Relation.when, when));
+		wires.add(new Wire(Relation.doo, act));
+		WhenDoNode rule = (WhenDoNode) Network.buildMolecularNode(wires, RelationsRestrictedCaseFrame.whenDo);
+
+		rule.applyRuleHandler(new Report(new LinearSubstitutions(), new HashSet<Support>(), false, context), when);
+		Runner.run();
+		assertTrue(greeted.isEmpty());
+
+		rule.applyRuleHandler(new Report(new LinearSubstitutions(), new HashSet<Support>(), true, context), when);
+		Runner.run();
+		assertEquals("[Bob]", greeted.toString());
+		assertEquals(context, act.getContextName());
+		assertEquals(ActNode.Agenda.DONE, act.getAgenda());
+	}
+
+}
@@ -0,0 +1,97 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Hashtable;
+import java.util.LinkedList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import sneps.network.Network;
+import sneps.network.classes.CFSignature;
+import sneps.network.classes.CableTypeConstraint;
+import sneps.network.classes.RCFP;
+import sneps.network.classes.RelationsRestrictedCaseFrame;
+import sneps.network.classes.SemanticHierarchy;
+import sneps.network.classes.SubDomainConstraint;
+import sneps.network.classes.setClasses.NodeSet;
+import sneps.snebr.Controller;
+
+public class CFSignatureMatcherTest {
+
+	private RelationsRestrictedCaseFrame caseFrame;
+
+	@Before
+	public void setUp() throws Exception {
+		Network.clearNetwork();
+		Controller.clearSNeBR();
+		Network.defineDefaults();
+		SemanticHierarchy.createSemanticType("Entity");
+		SemanticHierarchy.createSemanticType("SignatureAnimal", "Entity");
+		SemanticHierarchy.createSemanticType("SignatureDog", "SignatureAnimal");
+		LinkedList<RCFP> relations = new LinkedList<RCFP>();
+		relations.add(new RCFP(Network.defineRelation("sigOwner", "Entity"), "none", 1));
+		relations.add(new RCFP(Network.defineRelation("sigPet", "Entity"), "none", 1));
+		caseFrame = new RelationsRestrictedCaseFrame("Proposition", relations);
+		caseFrame.addSignature(signature("OwnsDogs", "SignatureDog", null, null), null);
+		caseFrame.addSignature(signature("OwnsAFewAnimals", "SignatureAnimal", 1, 2), null);
+	}
+
+	@After
+	public void tearDown() {
+		Network.clearNetwork();
+		Controller.clearSNeBR();
+	}
+
+	private CFSignature signature(String result, String type, Integer min, Integer max) {
+		LinkedList<CableTypeConstraint> checks = new LinkedList<CableTypeConstraint>();
+		checks.add(new CableTypeConstraint(type, min, max));
+		LinkedList<SubDomainConstraint> rules = new LinkedList<SubDomainConstraint>();
+		rules.add(new SubDomainConstraint("sigPet", checks));
+		return new CFSignature(result, rules, caseFrame.getId());
+	}
+
+	private Hashtable<String, NodeSet> cable(String... petTypes) throws Exception {
+		NodeSet owners = new NodeSet();
+		owners.addNode(Network.buildBaseNode("Owner", SemanticHierarchy.getSemantic("Entity")));
+		NodeSet pets = new NodeSet();
+		for (int i = 0; i < petTypes.length; i++)
+			pets.addNode(Network.buildBaseNode("Pet" + i + petTypes[i], SemanticHierarchy.getSemantic(petTypes[i])));
+		Hashtable<String, NodeSet> cable = new Hashtable<String, NodeSet>();
+		cable.put("sigOwner", owners);
+		cable.put("sigPet", pets);
+		return cable;
+	}
+
+	@Test
+	public void signaturesAreCheckedInPriorityOrder() throws Exception {
+		assertEquals("OwnsDogs", Network.getCFSignature(cable("SignatureDog", "SignatureDog"), caseFrame));
+		assertEquals("OwnsAFewAnimals", Network.getCFSignature(cable("SignatureDog", "SignatureAnimal"), caseFrame));
+		assertEquals("Proposition", Network.getCFSignature(
+				cable("SignatureAnimal", "SignatureAnimal", "SignatureAnimal"), caseFrame));
+		assertEquals("Proposition", Network.getCFSignature(cable("Entity"), caseFrame));
+	}
+
+	@Test
+	public void changingTheSignaturesRecompilesTheMatcher() throws Exception {
+		assertEquals(2, caseFrame.getSignatureMatcher().getSignaturesCount());
+		CFSignature any = signature("OwnsAnimals", "SignatureAnimal", 1, null);
+		caseFrame.addSignature(any, 0);
+		assertEquals(3, caseFrame.getSignatureMatcher().getSignaturesCount());
+		assertEquals("OwnsAnimals", Network.getCFSignature(cable("SignatureDog"), caseFrame));
+
+		caseFrame.removeSignature(any);
+		assertEquals("OwnsDogs", Network.getCFSignature(cable("SignatureDog"), caseFrame));
+	}
+
+	@Test
+	public void newSubtypesAreCounted() throws Exception {
+		Hashtable<String, NodeSet> cable = cable("SignatureDog");
+		assertEquals("OwnsDogs", Network.getCFSignature(cable, caseFrame));
+		SemanticHierarchy.createSemanticType("SignaturePuppy", "SignatureDog");
+		assertEquals("OwnsDogs", Network.getCFSignature(cable("SignaturePuppy", "SignatureDog"), caseFrame));
+	}
+
+}
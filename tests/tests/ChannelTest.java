@@ -0,0 +1,95 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import sneps.network.Network;
+import sneps.network.PropositionNode;
+import sneps.network.classes.Semantic;
+import sneps.snebr.Controller;
+import sneps.snebr.Support;
+import sneps.snip.Report;
+import sneps.snip.Runner;
+import sneps.snip.channels.Channel;
+import sneps.snip.channels.MatchChannel;
+import sneps.snip.channels.Valves;
+import sneps.snip.matching.LinearSubstitutions;
+
+public class ChannelTest {
+
+	private static final String context = "default";
+
+	private PropositionNode query;
+	private Channel queryChannel;
+	private Channel innerChannel;
+	private Channel otherContextChannel;
+
+	@Before
+	public void setUp() throws Exception {
+		Network.clearNetwork();
+		Controller.clearSNeBR();
+		Network.defineDefaults();
+		Runner.initiate();
+		query = (PropositionNode) Network.buildBaseNode("q", Semantic.proposition);
+		PropositionNode middle = (PropositionNode) Network.buildBaseNode("m", Semantic.proposition);
+		PropositionNode leaf = (PropositionNode) Network.buildBaseNode("l", Semantic.proposition);
+		queryChannel = connect(query, middle, context);
+		innerChannel = connect(middle, leaf, context);
+		otherContextChannel = connect(middle, leaf, "other");
+	}
+
+	/**
+	 * Connects a reporter to a requester by an open match channel.
+	 */
+	private static Channel connect(PropositionNode requester, PropositionNode reporter, String contextName) {
+		Channel channel = new MatchChannel(new LinearSubstitutions(), new LinearSubstitutions(), contextName,
+				requester, reporter, true);
+		requester.getIncomingChannels().addChannel(channel);
+		reporter.getOutgoingChannels().addChannel(channel);
+		return channel;
+	}
+
+	private static Report report(boolean sign) {
+		return new Report(new LinearSubstitutions(), new HashSet<Support>(), sign, context);
+	}
+
+	@Test
+	public void closedValveBuffersWithoutScheduling() {
+		assertEquals(2, Valves.suspendQuery(query, context));
+		assertFalse(queryChannel.isValveOpen());
+		assertFalse(innerChannel.isValveOpen());
+		assertTrue(otherContextChannel.isValveOpen());
+
+		assertTrue(queryChannel.addReport(report(true)));
+		assertTrue(queryChannel.addReport(report(false)));
+		assertEquals("", Runner.run());
+		assertEquals(2, queryChannel.getReportsBuffer().size());
+	}
+
+	@Test
+	public void openingFlushesInOneBatch() {
+		Valves.suspendQuery(query, context);
+		queryChannel.addReport(report(true));
+		queryChannel.addReport(report(false));
+
+		assertEquals(2, Valves.resumeQuery(query, context));
+		assertEquals(0, Valves.resumeQuery(query, context));
+		assertEquals("H", Runner.run());
+		assertTrue(queryChannel.getReportsBuffer().isEmpty());
+	}
+
+	@Test
+	public void contextControlsOnlyItsChannels() {
+		assertEquals(1, Valves.suspendContext("other"));
+		assertTrue(queryChannel.isValveOpen());
+		assertFalse(otherContextChannel.isValveOpen());
+		assertEquals(2, Valves.suspendContext(context));
+		assertEquals(3, Valves.resumeContext(context) + Valves.resumeContext("other"));
+		assertTrue(otherContextChannel.isValveOpen());
+	}
+
+}
@@ -6,6 +6,7 @@ import org.junit.*;
 import static org.junit.Assert.*;
 
 import sneps.exceptions.*;
+import sneps.network.KnowledgeBase;
 import sneps.network.Network;
 import sneps.network.Node;
 import sneps.network.PropositionNode;
@@ -276,6 +277,178 @@ public class ControllerTest {
         assertArrayEquals(props, new int[]{3, 4, 5, 6});
     }
 
+    @Test
+    public void bulkAddHypsToContext() throws NotAPropositionNodeException, NodeNotFoundInNetworkException, ContextNameDoesntExistException, ContradictionFoundException, DuplicatePropositionException {
+        Controller.addPropToContext(testContextName, 4);
+        Context c = Controller.bulkAddPropsToContext(testContextName, new PropositionSet(new int[]{3, 4, 5, 6}));
+        assertEquals(c, Controller.getContextByName(testContextName));
+        assertArrayEquals(new int[]{3, 4, 5, 6}, PropositionSet.getPropsSafely(c.getHypothesisSet()));
+        assertTrue(((PropositionNode) Network.getNodeById(5)).getAssumptionBasedSupport().containsKey("5"));
+    }
+
+    @Test
+    public void bulkAddConflictingHypsToContext() throws NotAPropositionNodeException, NodeNotFoundInNetworkException, IllegalIdentifierException, CannotBuildNodeException, EquivalentNodeException, CaseFrameMissMatchException, SemanticNotFoundInNetworkException, ContextNameDoesntExistException, DuplicatePropositionException {
+        negatedProp = (PropositionNode) Network.getNodeById(60);
+        Node zero = Network.buildBaseNode("0", Semantic.infimum);
+        ArrayList<Wire> wires = new ArrayList<>();
+        wires.add(new Wire(Relation.arg, negatedProp));
+        wires.add(new Wire(Relation.max, zero));
+        wires.add(new Wire(Relation.min, zero));
+        negatingProp = (PropositionNode) Network.buildMolecularNode(wires, RelationsRestrictedCaseFrame.andOrRule);
+        int negatingId = negatingProp.getId();
+
+        boolean caught = false;
+        try {
+            Controller.bulkAddPropsToContext(testContextName, new PropositionSet(new int[]{45, 60, 62, negatingId}));
+        } catch (ContradictionFoundException e) {
+            caught = true;
+            assertEquals(1, e.getContradictoryHyps().size());
+            assertTrue(e.getContradictoryHyps().contains(genNodeSetFromArrayOfIds(new int[]{60, negatingId})));
+            assertTrue(Controller.getMinimalNoGoods().contains(genBitSetFromArray(new int[]{60, negatingId})));
+        }
+        if (!caught)
+            fail();
+        assertTrue(Controller.getContextByName(testContextName).getHypothesisSet().isEmpty());
+    }
+
+    @Test
+    public void removePropositionFromAllContextsInParallel() throws NotAPropositionNodeException, NodeNotFoundInNetworkException, DuplicateContextNameException, ContradictionFoundException, ContextNameDoesntExistException, DuplicatePropositionException, NodeNotFoundInPropSetException {
+        Controller.setMaintenanceParallelism(4);
+        try {
+            for (int i = 0; i < 20; i++)
+                Controller.createContext("cxt" + i, new PropositionSet(new int[]{10, 20 + i}));
+            Controller.removePropositionFromAllContexts((PropositionNode) Network.getNodeById(10));
+            for (int i = 0; i < 20; i++)
+                assertArrayEquals(new int[]{20 + i}, PropositionSet.getPropsSafely(Controller.getContextByName("cxt" + i).getHypothesisSet()));
+            assertTrue(Controller.getContextByName(testContextName).getHypothesisSet().isEmpty());
+        } finally {
+            Controller.setMaintenanceParallelism(1);
+        }
+    }
+
+    @Test
+    public void concurrentParallelMaintenanceKeepsAllUpdates() throws Throwable {
+        Controller.setMaintenanceParallelism(4);
+        try {
+            int[] hyps = new int[41];
+            for (int j = 0; j < 40; j++)
+                hyps[j] = 100 + j;
+            for (int i = 0; i < 20; i++) {
+                hyps[40] = 200 + i;
+                Controller.createContext("cxt" + i, new PropositionSet(hyps));
+            }
+            List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+            ArrayList<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                int first = 100 + 20 * t;
+                threads.add(new Thread(() -> {
+                    try {
+                        for (int j = first; j < first + 20; j++)
+                            Controller.removePropositionFromAllContexts((PropositionNode) Network.getNodeById(j));
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }));
+            }
+            for (Thread thread : threads)
+                thread.start();
+            for (Thread thread : threads)
+                thread.join();
+            if (!failures.isEmpty())
+                throw failures.get(0);
+            for (int i = 0; i < 20; i++)
+                assertArrayEquals(new int[]{200 + i}, PropositionSet.getPropsSafely(Controller.getContextByName("cxt" + i).getHypothesisSet()));
+        } finally {
+            Controller.setMaintenanceParallelism(1);
+        }
+    }
+
+    @Test
+    public void serialUpdatesDuringParallelMaintenanceAreKept() throws Throwable {
+        Controller.setMaintenanceParallelism(4);
+        try {
+            int[] hyps = new int[40];
+            for (int j = 0; j < 40; j++)
+                hyps[j] = 100 + j;
+            for (int i = 0; i < 20; i++)
+                Controller.createContext("cxt" + i, new PropositionSet(hyps));
+            List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+            Thread maintenance = new Thread(() -> {
+                try {
+                    for (int j = 100; j < 140; j++)
+                        Controller.removePropositionFromAllContexts((PropositionNode) Network.getNodeById(j));
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            Thread serial = new Thread(() -> {
+                try {
+                    for (int k = 0; k < 50; k++)
+                        Controller.createContext("new" + k, new PropositionSet(new int[]{300 + k}));
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            });
+            maintenance.start();
+            serial.start();
+            maintenance.join();
+            serial.join();
+            if (!failures.isEmpty())
+                throw failures.get(0);
+            for (int k = 0; k < 50; k++)
+                assertArrayEquals(new int[]{300 + k}, PropositionSet.getPropsSafely(Controller.getContextByName("new" + k).getHypothesisSet()));
+            for (int i = 0; i < 20; i++)
+                assertTrue(Controller.getContextByName("cxt" + i).getHypothesisSet().isEmpty());
+        } finally {
+            Controller.setMaintenanceParallelism(1);
+        }
+    }
+
+    @Test
+    public void maintenanceParallelismIsPerKnowledgeBase() {
+        Controller.setMaintenanceParallelism(4);
+        try {
+            assertEquals(1, (int) new KnowledgeBase().run(Controller::getMaintenanceParallelism));
+            assertEquals(4, Controller.getMaintenanceParallelism());
+        } finally {
+            Controller.setMaintenanceParallelism(1);
+        }
+    }
+
+    @Test
+    public void addPropToContextsInParallel() throws NotAPropositionNodeException, NodeNotFoundInNetworkException, IllegalIdentifierException, CannotBuildNodeException, EquivalentNodeException, CaseFrameMissMatchException, SemanticNotFoundInNetworkException, DuplicateContextNameException, ContradictionFoundException, ContextNameDoesntExistException, DuplicatePropositionException, NodeNotFoundInPropSetException {
+        Controller.setMaintenanceParallelism(4);
+        try {
+            Controller.createContext(testContext2, new PropositionSet(new int[]{60}));
+            Controller.addPropToContextsInParallel(Arrays.asList(testContextName, testContext2), 45);
+            assertArrayEquals(new int[]{45}, PropositionSet.getPropsSafely(Controller.getContextByName(testContextName).getHypothesisSet()));
+            assertArrayEquals(new int[]{45, 60}, PropositionSet.getPropsSafely(Controller.getContextByName(testContext2).getHypothesisSet()));
+
+            negatedProp = (PropositionNode) Network.getNodeById(60);
+            Node zero = Network.buildBaseNode("0", Semantic.infimum);
+            ArrayList<Wire> wires = new ArrayList<>();
+            wires.add(new Wire(Relation.arg, negatedProp));
+            wires.add(new Wire(Relation.max, zero));
+            wires.add(new Wire(Relation.min, zero));
+            negatingProp = (PropositionNode) Network.buildMolecularNode(wires, RelationsRestrictedCaseFrame.andOrRule);
+            int negatingId = negatingProp.getId();
+
+            boolean caught = false;
+            try {
+                Controller.addPropToContextsInParallel(Arrays.asList(testContextName, testContext2), negatingId);
+            } catch (ContradictionFoundException e) {
+                caught = true;
+                assertTrue(e.getContradictoryHyps().contains(genNodeSetFromArrayOfIds(new int[]{60, negatingId})));
+            }
+            if (!caught)
+                fail();
+            assertArrayEquals(new int[]{45}, PropositionSet.getPropsSafely(Controller.getContextByName(testContextName).getHypothesisSet()));
+            assertArrayEquals(new int[]{45, 60}, PropositionSet.getPropsSafely(Controller.getContextByName(testContext2).getHypothesisSet()));
+        } finally {
+            Controller.setMaintenanceParallelism(1);
+        }
+    }
+
     @Test
     public void addConflictingHypsToContext() throws NotAPropositionNodeException, NodeNotFoundInNetworkException, EquivalentNodeException, IllegalIdentifierException, CannotBuildNodeException, CaseFrameMissMatchException, SemanticNotFoundInNetworkException {
         setupContradiction3();
@@ -0,0 +1,195 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import sneps.exceptions.ContextNameDoesntExistException;
+import sneps.network.KnowledgeBase;
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.classes.Semantic;
+import sneps.snebr.Controller;
+
+public class KnowledgeBaseTest extends NetworkFixture {
+
+	@Before
+	public void setUp() throws Exception {
+		Network.buildBaseNode("p", Semantic.proposition);
+	}
+
+	@Test
+	public void knowledgeBasesDoNotShareNodes() throws Exception {
+		KnowledgeBase kb = new KnowledgeBase();
+		KnowledgeBase previous = kb.enter();
+		try {
+			assertSame(kb, KnowledgeBase.getActive());
+			assertTrue(Network.getNodes().isEmpty());
+			Network.defineDefaults();
+			Node q = Network.buildBaseNode("q", Semantic.proposition);
+			assertEquals(0, q.getId());
+			assertEquals("M1", negate(q).getIdentifier());
+			assertFalse(exists("p"));
+		} finally {
+			kb.exit(previous);
+		}
+
+		assertSame(KnowledgeBase.getDefault(), KnowledgeBase.getActive());
+		assertTrue(exists("p"));
+		assertFalse(exists("q"));
+		assertFalse(exists("M1"));
+		assertEquals("M1", negate(Network.getNode("p")).getIdentifier());
+		assertTrue(kb.run(() -> exists("q") && !exists("p")));
+	}
+
+	@Test
+	public void knowledgeBasesDoNotShareContexts() throws Exception, ContextNameDoesntExistException {
+		KnowledgeBase kb = new KnowledgeBase();
+		KnowledgeBase previous = kb.enter();
+		try {
+			Controller.createContext("tenant");
+			Controller.setCurrentContext("tenant");
+		} finally {
+			kb.exit(previous);
+		}
+
+		assertNull(Controller.getContextByName("tenant"));
+		assertEquals("default", Controller.getCurrentContextName());
+		assertEquals("tenant", kb.run(() -> Controller.getCurrentContextName()));
+	}
+
+	@Test
+	public void threadsWorkOnTheirOwnKnowledgeBases() throws Throwable {
+		List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+		ArrayList<KnowledgeBase> kbs = new ArrayList<KnowledgeBase>();
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+		// every thread waits inside its knowledge base for the others to be
+		// inside theirs, so the threads work on them at the same time
+		CyclicBarrier inside = new CyclicBarrier(4);
+		for (int t = 0; t < 4; t++) {
+			KnowledgeBase kb = new KnowledgeBase();
+			kbs.add(kb);
+			threads.add(new Thread(() -> {
+				try {
+					KnowledgeBase previous = kb.enter();
+					try {
+						Network.defineDefaults();
+						inside.await(10, TimeUnit.SECONDS);
+						for (int i = 0; i < 50; i++) {
+							negate(Network.buildBaseNode("q" + i, Semantic.proposition));
+							if (i == 25)
+								inside.await(10, TimeUnit.SECONDS);
+						}
+						assertSame(kb, KnowledgeBase.getActive());
+						assertEquals(101, Network.getNodes().size());
+						assertFalse(exists("p"));
+					} finally {
+						kb.exit(previous);
+					}
+				} catch (Throwable e) {
+					failures.add(e);
+				}
+			}));
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+
+		if (!failures.isEmpty())
+			throw failures.get(0);
+		for (KnowledgeBase kb : kbs)
+			assertEquals(Integer.valueOf(101), kb.run(() -> Network.getNodes().size()));
+		assertEquals(1, Network.getNodes().size());
+	}
+
+	@Test
+	public void threadsOutsideAKnowledgeBaseWorkOnTheDefaultOne() throws Throwable {
+		KnowledgeBase kb = new KnowledgeBase();
+		CountDownLatch built = new CountDownLatch(1);
+		CountDownLatch checked = new CountDownLatch(1);
+		List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+		Thread tenant = new Thread(() -> {
+			try {
+				kb.run(() -> {
+					try {
+						Network.defineDefaults();
+						Network.buildBaseNode("q", Semantic.proposition);
+						Controller.createContext("tenant");
+						built.countDown();
+						checked.await(10, TimeUnit.SECONDS);
+					} catch (Exception e) {
+						throw new IllegalStateException(e);
+					}
+					return null;
+				});
+			} catch (Throwable e) {
+				failures.add(e);
+			}
+		});
+		tenant.start();
+		try {
+			assertTrue(built.await(10, TimeUnit.SECONDS));
+			assertSame(KnowledgeBase.getDefault(), KnowledgeBase.getActive());
+			assertTrue(exists("p"));
+			assertFalse(exists("q"));
+			assertNull(Controller.getContextByName("tenant"));
+			Network.buildBaseNode("r", Semantic.proposition);
+		} finally {
+			checked.countDown();
+			tenant.join();
+		}
+
+		if (!failures.isEmpty())
+			throw failures.get(0);
+		assertTrue(kb.run(() -> exists("q") && !exists("r")));
+	}
+
+	@Test
+	public void writersOfDifferentKnowledgeBasesDoNotWaitForEachOther() throws Throwable {
+		KnowledgeBase kb = new KnowledgeBase();
+		CountDownLatch begun = new CountDownLatch(1);
+		CountDownLatch built = new CountDownLatch(1);
+		List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+		Thread tenant = new Thread(() -> {
+			try {
+				kb.run(() -> {
+					Network.beginTransaction();
+					try {
+						begun.countDown();
+						built.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						throw new IllegalStateException(e);
+					} finally {
+						Network.commitTransaction();
+					}
+					return null;
+				});
+			} catch (Throwable e) {
+				failures.add(e);
+			}
+		});
+		tenant.start();
+		try {
+			assertTrue(begun.await(10, TimeUnit.SECONDS));
+			// the tenant holds the lock of its network until it commits
+			Network.buildBaseNode("r", Semantic.proposition);
+		} finally {
+			built.countDown();
+			tenant.join();
+		}
+
+		if (!failures.isEmpty())
+			throw failures.get(0);
+		assertTrue(exists("r"));
+	}
+
+}
@@ -0,0 +1,141 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.VariableNode;
+import sneps.network.classes.CaseFrame;
+import sneps.network.classes.Relation;
+import sneps.network.classes.Semantic;
+import sneps.network.classes.Wire;
+import sneps.snebr.Controller;
+import sneps.snip.Pair;
+import sneps.snip.matching.MatchIndex;
+import sneps.snip.matching.Matcher;
+
+public class MatcherTest {
+
+	private Relation agent;
+	private Relation act;
+	private CaseFrame caseFrame;
+
+	@Before
+	public void setUp() {
+		Network.clearNetwork();
+		Controller.clearSNeBR();
+		Network.defineDefaults();
+		agent = Network.defineRelation("matchAgent", "Proposition");
+		act = Network.defineRelation("matchAct", "Proposition");
+		LinkedList<Relation> relations = new LinkedList<Relation>();
+		relations.add(agent);
+		relations.add(act);
+		caseFrame = Network.defineCaseFrame("Proposition", relations);
+	}
+
+	private Node base(String name) throws Exception {
+		try {
+			return Network.getNode(name);
+		} catch (Exception e) {
+			return Network.buildBaseNode(name, Semantic.proposition);
+		}
+	}
+
+	private Node build(Node agentNode, Node actNode) throws Exception {
+		ArrayList<Wire> wires = new ArrayList<Wire>();
+		wires.add(new Wire(agent, agentNode));
+		wires.add(new Wire(act, actNode));
+		return Network.buildMolecularNode(wires, caseFrame);
+	}
+
+	private Pair pairOf(ArrayList<Pair> pairs, Node node) {
+		for (Pair pair : pairs)
+			if (pair.getNode() == node)
+				return pair;
+		return null;
+	}
+
+	@Test
+	public void patternMatchesItsInstances() throws Exception {
+		Node fidoBarks = build(base("Fido"), base("bark"));
+		Node rexBarks = build(base("Rex"), base("bark"));
+		Node fidoSleeps = build(base("Fido"), base("sleep"));
+		VariableNode x = Network.buildVariableNode(Semantic.proposition);
+		Node pattern = build(x, base("bark"));
+
+		ArrayList<Pair> matches = Matcher.match(pattern);
+		assertEquals(2, matches.size());
+		assertNull(pairOf(matches, fidoSleeps));
+		Pair fido = pairOf(matches, fidoBarks);
+		assertEquals(1, fido.getSwitch().cardinality());
+		assertSame(base("Fido"), fido.getSwitch().term(x));
+		assertTrue(fido.getFilter().isNew());
+		assertSame(base("Rex"), pairOf(matches, rexBarks).getSwitch().term(x));
+
+		assertEquals(2, Network.match(pattern).size());
+	}
+
+	@Test
+	public void instanceMatchesThePatternsItUnifiesWith() throws Exception {
+		Node fidoBarks = build(base("Fido"), base("bark"));
+		VariableNode x = Network.buildVariableNode(Semantic.proposition);
+		Node barks = build(x, base("bark"));
+		VariableNode y = Network.buildVariableNode(Semantic.proposition);
+		build(y, base("sleep"));
+
+		ArrayList<Pair> matches = Matcher.match(fidoBarks);
+		assertEquals(1, matches.size());
+		Pair pair = matches.get(0);
+		assertSame(barks, pair.getNode());
+		assertTrue(pair.getSwitch().isNew());
+		assertSame(base("Fido"), pair.getFilter().term(x));
+	}
+
+	@Test
+	public void variablesOfTheReporterAreSwitchedToTheRequesters() throws Exception {
+		VariableNode x = Network.buildVariableNode(Semantic.proposition);
+		Node requester = build(x, base("bark"));
+		VariableNode z = Network.buildVariableNode(Semantic.proposition);
+		Node reporter = build(z, base("bark"));
+
+		Pair pair = pairOf(Matcher.match(requester), reporter);
+		assertNotNull(pair);
+		assertSame(x, pair.getSwitch().term(z));
+		assertTrue(pair.getFilter().isNew());
+	}
+
+	@Test
+	public void indexOnlyReturnsCompatibleCandidates() throws Exception {
+		for (int i = 0; i < 100; i++)
+			build(base("dog" + i), base("run"));
+		Node fidoBarks = build(base("Fido"), base("bark"));
+		VariableNode x = Network.buildVariableNode(Semantic.proposition);
+		Node pattern = build(x, base("bark"));
+
+		ArrayList<Node> candidates = MatchIndex.candidates(pattern);
+		assertEquals(2, candidates.size());
+		assertTrue(candidates.contains(fidoBarks));
+		assertTrue(candidates.contains(pattern));
+		assertEquals(102, MatchIndex.candidates(x).size());
+	}
+
+	@Test
+	public void removedNodesAreNotMatched() throws Exception {
+		build(base("Fido"), base("bark"));
+		Node rexBarks = build(base("Rex"), base("bark"));
+		VariableNode x = Network.buildVariableNode(Semantic.proposition);
+		Node pattern = build(x, base("bark"));
+		assertEquals(2, Matcher.match(pattern).size());
+
+		Network.removeNode(rexBarks);
+		assertEquals(1, Matcher.match(pattern).size());
+		assertNull(pairOf(Matcher.match(pattern), rexBarks));
+	}
+
+}
@@ -0,0 +1,76 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import sneps.network.NameAllocator;
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.classes.Semantic;
+
+public class NameAllocatorTest extends NetworkFixture {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void reservedSuffixesAreSkipped() {
+		NameAllocator names = new NameAllocator("M");
+		assertTrue(names.reserve(1));
+		assertTrue(names.reserve(2));
+		assertTrue(names.reserve(4));
+		assertFalse(names.reserve(4));
+		assertTrue(names.reserve(1000000000));
+		assertEquals("M3", names.next());
+		assertEquals("M5", names.next());
+		names.setLast(999999998);
+		assertEquals("M999999999", names.next());
+		assertEquals("M1000000001", names.next());
+		assertEquals(4, names.getReservedCount());
+	}
+
+	@Test
+	public void userDefinedNamesAreNotGenerated() throws Exception {
+		for (int i = 1; i <= 20000; i++)
+			Network.buildBaseNode("M" + i, Semantic.proposition);
+		assertEquals("M20001", negate(Network.getNode("M1")).getIdentifier());
+		assertEquals("V1", Network.buildVariableNode().getIdentifier());
+	}
+
+	@Test
+	public void rolledBackNamesAreFreed() throws Exception {
+		Node p = Network.buildBaseNode("p", Semantic.proposition);
+		Network.beginTransaction();
+		Network.buildBaseNode("M1", Semantic.proposition);
+		Network.rollbackTransaction();
+
+		assertFalse(Network.getMolNames().isReserved(1));
+		assertEquals("M1", negate(p).getIdentifier());
+	}
+
+	@Test
+	public void namesAreSaved() throws Exception {
+		Network.buildBaseNode("M1", Semantic.infimum);
+		Network.buildBaseNode("M2", Semantic.infimum);
+		Network.buildVariableNode();
+		String[] files = new String[12];
+		for (int i = 0; i < files.length; i++)
+			files[i] = new File(folder.getRoot(), "network" + i).getPath();
+		Network.save(files[0], files[1], files[2], files[3], files[4], files[5], files[6], files[7], files[8],
+				files[9], files[10], files[11]);
+		Network.clearNetwork();
+		assertEquals(0, Network.getVarNames().getLast());
+
+		Network.load(files[0], files[1], files[2], files[3], files[4], files[5], files[6], files[7], files[8],
+				files[9], files[10], files[11]);
+		assertTrue(Network.getMolNames().isReserved(2));
+		assertEquals("M3", Network.getMolNames().next());
+		assertEquals("V2", Network.buildVariableNode().getIdentifier());
+	}
+
+}
@@ -0,0 +1,124 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.BitSet;
+import java.util.HashSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import sneps.exceptions.ContextNameDoesntExistException;
+import sneps.network.Network;
+import sneps.network.NetworkSnapshot;
+import sneps.network.Node;
+import sneps.network.PropositionNode;
+import sneps.network.VariableNode;
+import sneps.network.classes.Semantic;
+import sneps.network.classes.setClasses.PropositionSet;
+import sneps.snebr.Controller;
+import sneps.snebr.Support;
+import sneps.snip.Report;
+import sneps.snip.channels.Channel;
+import sneps.snip.channels.MatchChannel;
+import sneps.snip.matching.Binding;
+import sneps.snip.matching.LinearSubstitutions;
+
+public class NetworkCompactionTest {
+
+	private Node x;
+	private PropositionNode p;
+	private PropositionNode q;
+	private PropositionNode r;
+
+	@Before
+	public void setUp() throws Exception {
+		Network.clearNetwork();
+		Controller.clearSNeBR();
+		Network.defineDefaults();
+		x = Network.buildBaseNode("x", Semantic.proposition);
+		p = (PropositionNode) Network.buildBaseNode("p", Semantic.proposition);
+		q = (PropositionNode) Network.buildBaseNode("q", Semantic.proposition);
+		r = (PropositionNode) Network.buildBaseNode("r", Semantic.proposition);
+	}
+
+	@After
+	public void tearDown() {
+		Network.clearNetwork();
+		Controller.clearSNeBR();
+	}
+
+	@Test
+	public void idsAreMadeContiguous() throws Exception {
+		Network.removeNode(x);
+		Network.compact();
+
+		assertEquals(0, p.getId());
+		assertEquals(1, q.getId());
+		assertEquals(2, r.getId());
+		assertEquals(3, Network.getNodesWithIDs().size());
+		assertSame(q, Network.getNodeById(1));
+	}
+
+	@Test
+	public void dependentStructuresAreRenumbered() throws Exception, ContextNameDoesntExistException {
+		Controller.addPropsToContext("default", new PropositionSet(new int[] { p.getId(), r.getId() }));
+		q.addJustificationBasedSupport(new PropositionSet(new int[] { p.getId(), r.getId() }));
+		BitSet noGood = new BitSet();
+		noGood.set(p.getId());
+		noGood.set(r.getId());
+		Controller.getMinimalNoGoods().add(noGood);
+
+		Network.removeNode(x);
+		Network.compact();
+
+		assertTrue(Controller.getCurrentContext().isAsserted(p));
+		assertTrue(Controller.getCurrentContext().isAsserted(r));
+		assertArrayEquals(new int[] { 0, 2 }, PropositionSet.getPropsSafely(Controller.getCurrentContext().getHypothesisSet()));
+		BitSet renumbered = new BitSet();
+		renumbered.set(0);
+		renumbered.set(2);
+		assertEquals(renumbered, Controller.getMinimalNoGoods().get(0));
+		assertEquals(1, q.getBasicSupport().getId());
+		PropositionSet support = q.getJustificationSupport().get("0,2,");
+		assertNotNull(support);
+		assertArrayEquals(new int[] { 0, 2 }, PropositionSet.getPropsSafely(support));
+	}
+
+	private static Report report(VariableNode v, Node value) {
+		LinearSubstitutions substitution = new LinearSubstitutions();
+		substitution.putIn(new Binding(v, value));
+		return new Report(substitution, new HashSet<Support>(), true, "default");
+	}
+
+	@Test
+	public void reportsBufferedBeforeAreRehashed() throws Exception {
+		VariableNode v = Network.buildVariableNode();
+		Channel channel = new MatchChannel(new LinearSubstitutions(), new LinearSubstitutions(), "default", p, q, false);
+		p.getIncomingChannels().addChannel(channel);
+		q.getOutgoingChannels().addChannel(channel);
+		channel.addReport(report(v, r));
+		p.getKnownInstances().addReport(report(v, r));
+
+		Network.removeNode(x);
+		Network.compact();
+
+		Report equal = report(v, r);
+		assertTrue(channel.getReportsBuffer().contains(equal));
+		assertTrue(p.getKnownInstances().contains(equal));
+		channel.addReport(equal);
+		p.getKnownInstances().addReport(equal);
+		assertEquals(1, channel.getReportsBuffer().size());
+		assertEquals(1, p.getKnownInstances().size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void pinnedSnapshotsKeepTheIds() throws Exception {
+		Network.removeNode(x);
+		try (NetworkSnapshot snapshot = Network.pinSnapshot()) {
+			Network.compact();
+		}
+	}
+
+}
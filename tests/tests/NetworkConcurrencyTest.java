@@ -0,0 +1,94 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.classes.Relation;
+import sneps.network.classes.Semantic;
+import sneps.network.classes.term.Base;
+
+public class NetworkConcurrencyTest extends NetworkFixture {
+
+	private static final int builders = 4;
+	private static final int queriers = 4;
+	private static final int propositions = 100;
+
+	@Test
+	public void buildersAndQueriersRunConcurrently() throws Throwable {
+		List<Node> built = new CopyOnWriteArrayList<Node>();
+		List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+		AtomicBoolean building = new AtomicBoolean(true);
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch buildersDone = new CountDownLatch(builders);
+		ArrayList<Thread> threads = new ArrayList<Thread>();
+
+		for (int b = 0; b < builders; b++) {
+			int builder = b;
+			threads.add(new Thread(() -> {
+				try {
+					start.await();
+					for (int i = 0; i < propositions; i++) {
+						Node p = Network.buildBaseNode("p" + builder + "_" + i, Semantic.proposition);
+						built.add(p);
+						built.add(negate(p));
+					}
+				} catch (Throwable e) {
+					failures.add(e);
+				} finally {
+					buildersDone.countDown();
+				}
+			}));
+		}
+		for (int q = 0; q < queriers; q++) {
+			Random random = new Random(q);
+			threads.add(new Thread(() -> {
+				try {
+					start.await();
+					while (building.get()) {
+						if (built.isEmpty())
+							continue;
+						Node node = built.get(random.nextInt(built.size()));
+						assertSame(node, Network.getNode(node.getIdentifier()));
+						assertSame(node, Network.getNodeById(node.getId()));
+						if (node.getTerm() instanceof Base)
+							assertTrue(parents(Relation.arg, node).size() <= 1);
+						else
+							assertFalse(parents(Relation.min, Network.getNode("0")).isEmpty());
+						Network.getNodesOfType("Proposition");
+					}
+				} catch (Throwable e) {
+					failures.add(e);
+				}
+			}));
+		}
+		for (Thread thread : threads)
+			thread.start();
+		start.countDown();
+		buildersDone.await();
+		building.set(false);
+		for (Thread thread : threads)
+			thread.join();
+
+		if (!failures.isEmpty())
+			throw failures.get(0);
+		assertEquals(2 * builders * propositions, built.size());
+		assertEquals(builders * propositions, parents(Relation.min, Network.getNode("0")).size());
+		for (Node node : built) {
+			assertSame(node, Network.getNodeById(node.getId()));
+			if (node.getTerm() instanceof Base)
+				assertEquals(1, parents(Relation.arg, node).size());
+		}
+	}
+
+}
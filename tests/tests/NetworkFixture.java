@@ -0,0 +1,70 @@
+package tests;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+import org.junit.After;
+import org.junit.Before;
+
+import sneps.exceptions.NodeNotFoundInNetworkException;
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.classes.Relation;
+import sneps.network.classes.RelationsRestrictedCaseFrame;
+import sneps.network.classes.Semantic;
+import sneps.network.classes.Wire;
+import sneps.network.classes.setClasses.NodeSet;
+import sneps.network.paths.FUnitPath;
+import sneps.snebr.Controller;
+
+/**
+ * The setup shared by the tests of the network: every test starts from an
+ * empty network with the defaults defined, and the network is cleared after
+ * it.
+ */
+public abstract class NetworkFixture {
+
+	@Before
+	public void clearNetwork() {
+		Network.clearNetwork();
+		Controller.clearSNeBR();
+		Network.defineDefaults();
+	}
+
+	@After
+	public void tearDown() {
+		Network.clearNetwork();
+		Controller.clearSNeBR();
+	}
+
+	/**
+	 * Build the negation of a node, an andor with min and max 0.
+	 */
+	protected static Node negate(Node arg) throws Exception {
+		ArrayList<Wire> wires = new ArrayList<Wire>();
+		wires.add(new Wire(Relation.arg, arg));
+		wires.add(new Wire(Relation.min, Network.buildBaseNode("0", Semantic.infimum)));
+		wires.add(new Wire(Relation.max, Network.buildBaseNode("0", Semantic.infimum)));
+		return Network.buildMolecularNode(wires, (RelationsRestrictedCaseFrame) RelationsRestrictedCaseFrame.andOrRule);
+	}
+
+	/**
+	 * Find the nodes pointing to a node through a relation.
+	 */
+	protected static LinkedList<Object[]> parents(Relation relation, Node node) {
+		NodeSet ns = new NodeSet();
+		ns.addNode(node);
+		Object[][] array = { { new FUnitPath(relation), ns } };
+		return Network.find(array, Controller.createContext());
+	}
+
+	protected static boolean exists(String identifier) {
+		try {
+			Network.getNode(identifier);
+			return true;
+		} catch (NodeNotFoundInNetworkException e) {
+			return false;
+		}
+	}
+
+}
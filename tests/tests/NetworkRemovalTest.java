@@ -0,0 +1,102 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import sneps.exceptions.ContextNameDoesntExistException;
+import sneps.exceptions.NodeCannotBeRemovedException;
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.PropositionNode;
+import sneps.network.classes.Semantic;
+import sneps.network.classes.setClasses.PropositionSet;
+import sneps.snebr.Controller;
+
+public class NetworkRemovalTest extends NetworkFixture {
+
+	private PropositionNode p;
+	private PropositionNode q;
+
+	@Before
+	public void setUp() throws Exception {
+		p = (PropositionNode) Network.buildBaseNode("p", Semantic.proposition);
+		q = (PropositionNode) Network.buildBaseNode("q", Semantic.proposition);
+	}
+
+	@Test
+	public void sharedChildrenAreRemovedWithTheirLastParent() throws Exception {
+		Node notP = negate(p);
+		Node notQ = negate(q);
+
+		Network.removeNodes(Arrays.asList(notP));
+		assertFalse(exists("p"));
+		assertTrue(exists("0"));
+		assertEquals(1, Network.getNode("0").getUpCableSet().getUpCable("min").getNodeSet().size());
+
+		Network.removeNodes(Arrays.asList(notQ));
+		assertFalse(exists("q"));
+		assertFalse(exists("0"));
+	}
+
+	@Test
+	public void rootsMayDominateEachOther() throws Exception {
+		Node notP = negate(p);
+
+		try {
+			Network.removeNode(p);
+			fail();
+		} catch (NodeCannotBeRemovedException e) {
+			assertTrue(exists("p"));
+		}
+		Network.removeNodes(Arrays.asList(p, notP));
+		assertFalse(exists("p"));
+		assertFalse(exists("0"));
+		assertTrue(p.getUpCableSet().isEmpty());
+	}
+
+	@Test
+	public void nothingIsRemovedIfARootIsNotIsolated() throws Exception {
+		Node notP = negate(p);
+		negate(q);
+
+		try {
+			Network.removeNodes(Arrays.asList(notP, q));
+			fail();
+		} catch (NodeCannotBeRemovedException e) {
+			assertEquals("Cannot remove the node named 'q' because it is not isolated", e.getMessage());
+		}
+		assertTrue(exists(notP.getIdentifier()));
+		assertTrue(exists("p"));
+		assertEquals(5, Network.getNodes().size());
+	}
+
+	@Test
+	public void removedNodesLeaveTheContexts() throws Exception, ContextNameDoesntExistException {
+		Node notP = negate(p);
+		Node notQ = negate(q);
+		Controller.addPropsToContext("default", new PropositionSet(new int[] { p.getId(), q.getId() }));
+		Controller.createContext("other");
+		Controller.addPropsToContext("other", new PropositionSet(new int[] { q.getId() }));
+
+		Network.removeNodes(Arrays.asList(notP, notQ));
+
+		assertTrue(Controller.getContextByName("default").getHypothesisSet().isEmpty());
+		assertTrue(Controller.getContextByName("other").getHypothesisSet().isEmpty());
+	}
+
+	@Test
+	public void deepChainsAreRemovedIteratively() throws Exception {
+		Node top = p;
+		for (int i = 0; i < 5000; i++)
+			top = negate(top);
+
+		Network.removeNode(top);
+		assertEquals(1, Network.getNodes().size());
+		assertTrue(exists("q"));
+	}
+
+}
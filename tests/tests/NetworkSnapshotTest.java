@@ -0,0 +1,164 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import sneps.exceptions.ContextNameDoesntExistException;
+import sneps.exceptions.NodeNotFoundInNetworkException;
+import sneps.network.Network;
+import sneps.network.NetworkSnapshot;
+import sneps.network.Node;
+import sneps.network.PropositionNode;
+import sneps.network.classes.Relation;
+import sneps.network.classes.Semantic;
+import sneps.network.classes.setClasses.PropositionSet;
+import sneps.snebr.Controller;
+import sneps.snip.matching.MatchIndex;
+
+public class NetworkSnapshotTest extends NetworkFixture {
+
+	private PropositionNode p;
+
+	@Before
+	public void setUp() throws Exception {
+		p = (PropositionNode) Network.buildBaseNode("p", Semantic.proposition);
+	}
+
+	@Test
+	public void writesBumpTheVersion() throws Exception {
+		long version = Network.getVersion();
+		Network.buildBaseNode("q", Semantic.proposition);
+		assertTrue(Network.getVersion() > version);
+	}
+
+	@Test
+	public void nodesBuiltLaterAreNotSeen() throws Exception {
+		try (NetworkSnapshot snapshot = Network.pinSnapshot()) {
+			Network.buildBaseNode("q", Semantic.proposition);
+			Node negation = negate(p);
+
+			NetworkSnapshot previous = snapshot.enter();
+			try {
+				assertFalse(exists("q"));
+				assertTrue(parents(Relation.arg, p).isEmpty());
+				assertFalse(MatchIndex.candidates(negation).contains(negation));
+			} finally {
+				snapshot.exit(previous);
+			}
+			assertTrue(exists("q"));
+			assertEquals(1, parents(Relation.arg, p).size());
+		}
+	}
+
+	@Test
+	public void removedNodesAreSeenUntilTheSnapshotIsClosed() throws Exception {
+		Node negation = negate(p);
+		NetworkSnapshot snapshot = Network.pinSnapshot();
+		Network.removeNode(negation);
+
+		assertFalse(exists(negation.getIdentifier()));
+		assertTrue(parents(Relation.arg, p).isEmpty());
+		NetworkSnapshot previous = snapshot.enter();
+		try {
+			assertSame(negation, Network.getNode(negation.getIdentifier()));
+			assertSame(negation, Network.getNodeById(negation.getId()));
+			assertEquals(1, parents(Relation.arg, p).size());
+			assertTrue(MatchIndex.candidates(negation).contains(negation));
+		} finally {
+			snapshot.exit(previous);
+		}
+		assertSame(negation, Network.getNodesWithIDs().get(negation.getId()));
+
+		snapshot.close();
+		assertNull(Network.getNodesWithIDs().get(negation.getId()));
+		assertTrue(p.getUpCableSet().isEmpty());
+		assertFalse(Network.getNodes().containsKey("0"));
+	}
+
+	@Test
+	public void removedNodesAreFoundByTheirIdentifier() throws Exception {
+		Node q = Network.buildBaseNode("q", Semantic.proposition);
+		NetworkSnapshot snapshot = Network.pinSnapshot();
+		Network.removeNode(q);
+		Node rebuilt = Network.buildBaseNode("q", Semantic.proposition);
+
+		assertSame(q, snapshot.read(() -> {
+			try {
+				return Network.getNode("q");
+			} catch (NodeNotFoundInNetworkException e) {
+				return null;
+			}
+		}));
+		snapshot.close();
+		assertSame(rebuilt, Network.getNode("q"));
+	}
+
+	@Test
+	public void nodesOfOpenTransactionsAreNotSeen() throws Exception {
+		Network.beginTransaction();
+		Network.buildBaseNode("q", Semantic.proposition);
+		NetworkSnapshot snapshot = Network.pinSnapshot();
+		Network.commitTransaction();
+
+		assertFalse(snapshot.read(() -> exists("q")));
+		snapshot.close();
+		assertTrue(exists("q"));
+	}
+
+	@Test(timeout = 10000)
+	public void snapshotsAreReadWhileATransactionIsOpen() throws Exception {
+		CountDownLatch begun = new CountDownLatch(1);
+		CountDownLatch read = new CountDownLatch(1);
+		NetworkSnapshot snapshot = Network.pinSnapshot();
+		Thread writer = new Thread(() -> {
+			try {
+				Network.beginTransaction();
+				Network.buildBaseNode("q", Semantic.proposition);
+				begun.countDown();
+				read.await();
+				Network.commitTransaction();
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		});
+		writer.start();
+		begun.await();
+
+		assertTrue(snapshot.read(() -> exists("p")));
+		assertFalse(snapshot.read(() -> exists("q")));
+		read.countDown();
+		writer.join();
+		snapshot.close();
+		assertTrue(exists("q"));
+	}
+
+	@Test
+	public void nodesBuiltInsideTheSnapshotAreSeen() throws Exception {
+		try (NetworkSnapshot snapshot = Network.pinSnapshot()) {
+			NetworkSnapshot previous = snapshot.enter();
+			try {
+				Node negation = negate(p);
+				assertSame(negation, Network.getNode(negation.getIdentifier()));
+				assertEquals(1, parents(Relation.arg, p).size());
+			} finally {
+				snapshot.exit(previous);
+			}
+		}
+	}
+
+	@Test
+	public void contextsArePinned() throws Exception, ContextNameDoesntExistException {
+		try (NetworkSnapshot snapshot = Network.pinSnapshot()) {
+			Controller.addPropsToContext("default", new PropositionSet(new int[] { p.getId() }));
+
+			assertTrue(Controller.getCurrentContext().isAsserted(p));
+			assertFalse(snapshot.getCurrentContext().isAsserted(p));
+			assertFalse(snapshot.getContext("default").isAsserted(p));
+		}
+	}
+
+}
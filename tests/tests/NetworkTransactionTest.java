@@ -0,0 +1,183 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import sneps.exceptions.CannotBuildNodeException;
+import sneps.exceptions.ContextNameDoesntExistException;
+import sneps.exceptions.NodeNotFoundInNetworkException;
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.PropositionNode;
+import sneps.network.classes.Relation;
+import sneps.network.classes.RelationsRestrictedCaseFrame;
+import sneps.network.classes.Semantic;
+import sneps.network.classes.Wire;
+import sneps.network.classes.setClasses.PropositionSet;
+import sneps.snebr.Controller;
+import sneps.snip.matching.MatchIndex;
+
+public class NetworkTransactionTest {
+
+	private PropositionNode p;
+
+	@Before
+	public void setUp() throws Exception {
+		Network.clearNetwork();
+		Controller.clearSNeBR();
+		Network.defineDefaults();
+		p = (PropositionNode) Network.buildBaseNode("p", Semantic.proposition);
+	}
+
+	@After
+	public void tearDown() {
+		Network.clearNetwork();
+		Controller.clearSNeBR();
+	}
+
+	private static Node andor(Node arg, String min, String max) throws Exception {
+		ArrayList<Wire> wires = new ArrayList<Wire>();
+		wires.add(new Wire(Relation.arg, arg));
+		wires.add(new Wire(Relation.min, Network.buildBaseNode(min, Semantic.infimum)));
+		wires.add(new Wire(Relation.max, Network.buildBaseNode(max, Semantic.infimum)));
+		return Network.buildMolecularNode(wires, (RelationsRestrictedCaseFrame) RelationsRestrictedCaseFrame.andOrRule);
+	}
+
+	@Test
+	public void rollbackLeavesNoNodesBehind() throws Exception {
+		int nodes = Network.getNodes().size();
+		int count = Node.getCount();
+		Network.beginTransaction();
+		Node negation = andor(p, "0", "0");
+		assertEquals("M1", negation.getIdentifier());
+		Network.rollbackTransaction();
+
+		assertFalse(Network.inTransaction());
+		assertEquals(nodes, Network.getNodes().size());
+		assertEquals(count, Node.getCount());
+		assertEquals(count, Network.getNodesWithIDs().size());
+		assertTrue(p.getUpCableSet().isEmpty());
+		assertEquals(0, Network.getMolecularNodes().get(RelationsRestrictedCaseFrame.andOrRule.getId()).size());
+		assertEquals("M1", andor(p, "0", "0").getIdentifier());
+	}
+
+	@Test
+	public void commitPublishesTheNodesAtOnce() throws Exception {
+		Network.beginTransaction();
+		Node negation = andor(p, "0", "0");
+		assertFalse(Network.getPropositionNodes().containsKey(negation.getIdentifier()));
+		Network.commitTransaction();
+
+		assertTrue(Network.getPropositionNodes().containsKey(negation.getIdentifier()));
+		assertTrue(Network.getMolecularNodes().get(RelationsRestrictedCaseFrame.andOrRule.getId()).contains(negation));
+		assertTrue(MatchIndex.candidates(negation).contains(negation));
+	}
+
+	@Test
+	public void nestedRollbackKeepsTheOuterTransaction() throws Exception {
+		Network.beginTransaction();
+		Node q = Network.buildBaseNode("q", Semantic.proposition);
+		Network.beginTransaction();
+		Network.buildBaseNode("r", Semantic.proposition);
+		Network.rollbackTransaction();
+		assertTrue(Network.inTransaction());
+		Network.commitTransaction();
+
+		assertSame(q, Network.getNode("q"));
+		assertTrue(Network.getPropositionNodes().containsKey("q"));
+		try {
+			Network.getNode("r");
+			fail("r was rolled back");
+		} catch (NodeNotFoundInNetworkException e) {
+		}
+	}
+
+	@Test
+	public void rollbackRestoresTheContexts() throws Exception, ContextNameDoesntExistException {
+		Network.beginTransaction();
+		PropositionNode q = (PropositionNode) Network.buildBaseNode("q", Semantic.proposition);
+		Controller.addPropsToContext("default", new PropositionSet(new int[] { p.getId(), q.getId() }));
+		Controller.createContext("other");
+		Network.rollbackTransaction();
+
+		assertEquals(0, PropositionSet.getPropsSafely(Controller.getCurrentContext().getHypothesisSet()).length);
+		assertFalse(Controller.getCurrentContext().isAsserted(p));
+		assertFalse(Controller.removeContext("other"));
+	}
+
+	@Test
+	public void failedBuildsCanBeRolledBack() throws Exception {
+		Node entity = Network.buildBaseNode("e", Semantic.infimum);
+		int nodes = Network.getNodes().size();
+		Network.beginTransaction();
+		try {
+			andor(entity, "7", "9");
+			fail("an andor cannot have an infimum argument");
+		} catch (CannotBuildNodeException e) {
+			Network.rollbackTransaction();
+		}
+		assertEquals(nodes, Network.getNodes().size());
+		assertFalse(Network.getNodes().containsKey("7"));
+	}
+
+	@Test
+	public void rollbackKeepsTheChangesOfOtherThreads() throws Exception, ContextNameDoesntExistException {
+		Network.beginTransaction();
+		PropositionNode q = (PropositionNode) Network.buildBaseNode("q", Semantic.proposition);
+		Controller.addPropsToContext("default", new PropositionSet(new int[] { q.getId() }));
+
+		CountDownLatch contextCreated = new CountDownLatch(1);
+		AtomicBoolean otherInTransaction = new AtomicBoolean(true);
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread other = new Thread(() -> {
+			try {
+				otherInTransaction.set(Network.inTransaction());
+				Controller.createContext("other");
+				contextCreated.countDown();
+				Network.buildBaseNode("r", Semantic.proposition);
+			} catch (Throwable e) {
+				failure.set(e);
+				contextCreated.countDown();
+			}
+		});
+		other.start();
+		contextCreated.await();
+		// the other thread waits for the transaction to end to build its node
+		assertFalse(Network.getNodes().containsKey("r"));
+		Network.rollbackTransaction();
+		other.join();
+
+		assertNull(failure.get());
+		assertFalse(otherInTransaction.get());
+		assertFalse(Network.getNodes().containsKey("q"));
+		assertTrue(Network.getPropositionNodes().containsKey("r"));
+		assertNotNull(Controller.getContextByName("other"));
+		assertEquals(0, PropositionSet.getPropsSafely(Controller.getCurrentContext().getHypothesisSet()).length);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void transactionsBelongToTheirThread() throws Throwable {
+		Network.beginTransaction();
+		AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread other = new Thread(() -> {
+			try {
+				Network.commitTransaction();
+			} catch (Throwable e) {
+				failure.set(e);
+			}
+		});
+		other.start();
+		other.join();
+		Network.rollbackTransaction();
+		throw failure.get();
+	}
+
+}
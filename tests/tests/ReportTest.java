@@ -0,0 +1,112 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.PropositionNode;
+import sneps.network.VariableNode;
+import sneps.network.classes.Semantic;
+import sneps.network.classes.setClasses.ReportSet;
+import sneps.snebr.Controller;
+import sneps.snebr.Support;
+import sneps.snip.Report;
+import sneps.snip.Runner;
+import sneps.snip.channels.Channel;
+import sneps.snip.channels.MatchChannel;
+import sneps.snip.matching.Binding;
+import sneps.snip.matching.LinearSubstitutions;
+import sneps.snip.matching.Substitutions;
+
+public class ReportTest {
+
+	private static final String context = "default";
+
+	private VariableNode x;
+	private VariableNode y;
+	private Node a;
+	private Node b;
+
+	@Before
+	public void setUp() throws Exception {
+		Network.clearNetwork();
+		Controller.clearSNeBR();
+		Network.defineDefaults();
+		Runner.initiate();
+		x = Network.buildVariableNode(Semantic.proposition);
+		y = Network.buildVariableNode(Semantic.proposition);
+		a = Network.buildBaseNode("a", Semantic.proposition);
+		b = Network.buildBaseNode("b", Semantic.proposition);
+	}
+
+	private static Substitutions substitution(Binding... bindings) {
+		Substitutions s = new LinearSubstitutions();
+		for (Binding binding : bindings)
+			s.putIn(binding);
+		return s;
+	}
+
+	private static Report report(Substitutions s, boolean sign) {
+		return new Report(s, new HashSet<Support>(), sign, context);
+	}
+
+	@Test
+	public void equalReportsHaveEqualHashes() {
+		Report r1 = report(substitution(new Binding(x, a), new Binding(y, b)), true);
+		Report r2 = report(substitution(new Binding(y, b), new Binding(x, a)), true);
+		assertEquals(r1, r2);
+		assertEquals(r1.hashCode(), r2.hashCode());
+		assertNotEquals(r1, report(substitution(new Binding(x, a), new Binding(y, b)), false));
+		assertNotEquals(r1, report(substitution(new Binding(x, b), new Binding(y, a)), true));
+
+		HashSet<Support> supports = new HashSet<Support>();
+		supports.add(((PropositionNode) a).getBasicSupport());
+		assertNotEquals(r1, new Report(substitution(new Binding(x, a), new Binding(y, b)), supports, true, context));
+	}
+
+	@Test
+	public void reportSetsShareInternedReports() {
+		Report r1 = report(substitution(new Binding(x, a)), true);
+		Report r2 = report(substitution(new Binding(x, a)), true);
+		ReportSet first = new ReportSet();
+		ReportSet second = new ReportSet();
+		first.addReport(r1);
+		first.addReport(r2);
+		second.addReport(r2);
+		assertEquals(1, first.size());
+		assertSame(first.iterator().next(), second.iterator().next());
+		assertSame(Report.intern(r1), Report.intern(r2));
+	}
+
+	@Test
+	public void switchingLeavesTheReportUnchanged() throws Exception {
+		PropositionNode reporter = (PropositionNode) Network.buildBaseNode("reporter", Semantic.proposition);
+		Channel[] fanOut = new Channel[20];
+		for (int i = 0; i < fanOut.length; i++) {
+			PropositionNode requester = (PropositionNode) Network.buildBaseNode("requester" + i,
+					Semantic.proposition);
+			fanOut[i] = new MatchChannel(new LinearSubstitutions(), new LinearSubstitutions(), context, requester,
+					reporter, true);
+		}
+		Channel switching = new MatchChannel(substitution(new Binding(x, y)), new LinearSubstitutions(), context,
+				reporter, reporter, true);
+
+		Report report = report(substitution(new Binding(x, a)), true);
+		switching.addReport(report);
+		for (Channel channel : fanOut)
+			channel.addReport(report);
+
+		assertEquals(x, report.getSubstitutions().getBinding(0).getVariable());
+		Report switched = switching.getReportsBuffer().iterator().next();
+		assertEquals(y, switched.getSubstitutions().getBinding(0).getVariable());
+		Report shared = fanOut[0].getReportsBuffer().iterator().next();
+		for (Channel channel : fanOut)
+			assertSame(shared, channel.getReportsBuffer().iterator().next());
+	}
+
+}
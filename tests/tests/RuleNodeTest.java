@@ -0,0 +1,244 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.PropositionNode;
+import sneps.network.RuleNode;
+import sneps.network.classes.CaseFrame;
+import sneps.network.classes.Relation;
+import sneps.network.classes.RelationsRestrictedCaseFrame;
+import sneps.network.classes.Semantic;
+import sneps.network.classes.Wire;
+import sneps.network.classes.setClasses.PropositionSet;
+import sneps.snebr.Controller;
+import sneps.snebr.Support;
+import sneps.snip.Report;
+import sneps.snip.Runner;
+import sneps.snip.channels.AntecedentToRuleChannel;
+import sneps.snip.channels.Channel;
+import sneps.snip.channels.RuleToConsequentChannel;
+import sneps.snip.matching.LinearSubstitutions;
+import sneps.snip.rules.NumericalEntailment;
+
+public class RuleNodeTest {
+
+	private static final String context = "default";
+
+	private PropositionNode[] args;
+	private AntecedentToRuleChannel[] antChannels;
+	private RuleToConsequentChannel[] consChannels;
+
+	@Before
+	public void setUp() {
+		Network.clearNetwork();
+		Controller.clearSNeBR();
+		Network.defineDefaults();
+		Runner.initiate();
+	}
+
+	/**
+	 * Builds a rule over five arguments and connects them to it.
+	 */
+	private RuleNode buildRule(CaseFrame caseFrame, Relation minRelation, String min, Relation maxRelation,
+			String max) throws Exception {
+		ArrayList<Wire> wires = new ArrayList<Wire>();
+		args = new PropositionNode[5];
+		for (int i = 0; i < args.length; i++) {
+			args[i] = (PropositionNode) Network.buildBaseNode("a" + i, Semantic.proposition);
+			wires.add(new Wire(Relation.arg, args[i]));
+		}
+		wires.add(new Wire(minRelation, Network.buildBaseNode(min, Semantic.infimum)));
+		wires.add(new Wire(maxRelation, Network.buildBaseNode(max, Semantic.infimum)));
+		RuleNode rule = (RuleNode) Network.buildMolecularNode(wires, caseFrame);
+		connect(rule);
+		return rule;
+	}
+
+	/**
+	 * Connects every argument and the consequent to the rule by an antecedent
+	 * channel and a consequent channel.
+	 */
+	private void connect(RuleNode rule) {
+		antChannels = new AntecedentToRuleChannel[args.length];
+		consChannels = new RuleToConsequentChannel[args.length];
+		for (int i = 0; i < args.length; i++) {
+			antChannels[i] = new AntecedentToRuleChannel(new LinearSubstitutions(), new LinearSubstitutions(),
+					context, rule, args[i], true);
+			rule.getIncomingChannels().addChannel(antChannels[i]);
+			consChannels[i] = new RuleToConsequentChannel(new LinearSubstitutions(), new LinearSubstitutions(),
+					context, args[i], rule, true);
+			rule.getOutgoingChannels().addChannel(consChannels[i]);
+		}
+	}
+
+	private static void report(RuleNode rule, Node arg, boolean sign) {
+		rule.applyRuleHandler(new Report(new LinearSubstitutions(), new HashSet<Support>(), sign, context), arg);
+	}
+
+	private static ArrayList<Report> reports(Channel channel) {
+		ArrayList<Report> reports = new ArrayList<Report>();
+		for (Report r : channel.getReportsBuffer())
+			reports.add(r);
+		return reports;
+	}
+
+	@Test
+	public void andOrFiresWhenMaxArgsAreTrue() throws Exception {
+		RuleNode rule = buildRule(RelationsRestrictedCaseFrame.andOrRule, Relation.min, "1", Relation.max, "1");
+		report(rule, args[2], true);
+		for (int i = 0; i < args.length; i++) {
+			ArrayList<Report> reports = reports(consChannels[i]);
+			if (i == 2) {
+				assertTrue(reports.isEmpty());
+				assertTrue(antChannels[i].isValveOpen());
+			} else {
+				assertEquals(1, reports.size());
+				assertTrue(reports.get(0).isNegative());
+				assertFalse(antChannels[i].isValveOpen());
+			}
+		}
+	}
+
+	@Test
+	public void andOrFiresWhenArgsMinusMinAreFalse() throws Exception {
+		RuleNode rule = buildRule(RelationsRestrictedCaseFrame.andOrRule, Relation.min, "2", Relation.max, "4");
+		report(rule, args[0], false);
+		report(rule, args[0], false);
+		report(rule, args[1], true);
+		report(rule, args[2], false);
+		for (Channel c : consChannels)
+			assertTrue(reports(c).isEmpty());
+		report(rule, args[3], false);
+		assertTrue(reports(consChannels[4]).get(0).isPositive());
+		assertFalse(antChannels[4].isValveOpen());
+		for (int i = 0; i < 4; i++)
+			assertTrue(reports(consChannels[i]).isEmpty());
+
+		consChannels[4].clearReportsBuffer();
+		report(rule, args[4], false);
+		assertTrue(reports(consChannels[4]).isEmpty());
+		assertEquals(3, rule.getRuleCounters().getCounter(context, new LinearSubstitutions()).getNegCount());
+	}
+
+	@Test
+	public void threshFiresBothWays() throws Exception {
+		RuleNode rule = buildRule(RelationsRestrictedCaseFrame.threshRule, Relation.thresh, "2", Relation.threshMax,
+				"3");
+		report(rule, args[0], true);
+		report(rule, args[1], true);
+		for (Channel c : consChannels)
+			assertTrue(reports(c).isEmpty());
+		report(rule, args[2], false);
+		for (int i = 3; i < args.length; i++)
+			assertTrue(reports(consChannels[i]).get(0).isPositive());
+
+		rule = buildRule(RelationsRestrictedCaseFrame.threshRule, Relation.thresh, "2", Relation.threshMax, "3");
+		rule.clear();
+		report(rule, args[0], true);
+		report(rule, args[1], false);
+		report(rule, args[2], false);
+		for (int i = 3; i < args.length; i++) {
+			assertTrue(reports(consChannels[i]).get(0).isNegative());
+			assertFalse(antChannels[i].isValveOpen());
+		}
+	}
+
+	@Test
+	public void firedSupportsAreMinimal() throws Exception {
+		RuleNode rule = buildRule(RelationsRestrictedCaseFrame.andOrRule, Relation.min, "2", Relation.max, "4");
+		Support[] supports = new Support[args.length];
+		for (int i = 0; i < args.length; i++)
+			supports[i] = new Support(args[i].getId());
+
+		rule.applyRuleHandler(new Report(new LinearSubstitutions(), support(supports[1]), true, context), args[1]);
+		for (int i : new int[] { 0, 2, 3 })
+			rule.applyRuleHandler(new Report(new LinearSubstitutions(), support(supports[i]), false, context), args[i]);
+		Report fired = reports(consChannels[4]).get(0);
+		assertTrue(fired.isPositive());
+		assertTrue(fired.getSupports().contains(supports[0]));
+		assertTrue(fired.getSupports().contains(supports[2]));
+		assertTrue(fired.getSupports().contains(supports[3]));
+		assertFalse(fired.getSupports().contains(supports[1]));
+	}
+
+	private static HashSet<Support> support(Support support) {
+		HashSet<Support> supports = new HashSet<Support>();
+		supports.add(support);
+		return supports;
+	}
+
+	@Test
+	public void numericalEntailmentFiresAtTheIthAntecedent() throws Exception {
+		ArrayList<Wire> wires = new ArrayList<Wire>();
+		args = new PropositionNode[6];
+		for (int i = 0; i < 5; i++) {
+			args[i] = (PropositionNode) Network.buildBaseNode("a" + i, Semantic.proposition);
+			wires.add(new Wire(Relation.andAnt, args[i]));
+		}
+		args[5] = (PropositionNode) Network.buildBaseNode("c", Semantic.proposition);
+		wires.add(new Wire(Relation.cq, args[5]));
+		wires.add(new Wire(Relation.i, Network.buildBaseNode("3", Semantic.infimum)));
+		NumericalEntailment rule = (NumericalEntailment) Network.buildMolecularNode(wires,
+				RelationsRestrictedCaseFrame.numericalRule);
+		connect(rule);
+
+		report(rule, args[0], true);
+		report(rule, args[1], true);
+		report(rule, args[2], false);
+		report(rule, args[1], true);
+		assertTrue(reports(consChannels[5]).isEmpty());
+		report(rule, args[3], true);
+		assertTrue(reports(consChannels[5]).get(0).isPositive());
+		for (int i = 0; i < 5; i++)
+			assertTrue(reports(consChannels[i]).isEmpty());
+		assertFalse(antChannels[2].isValveOpen());
+		assertFalse(antChannels[4].isValveOpen());
+		assertTrue(antChannels[3].isValveOpen());
+
+		PropositionSet support = new PropositionSet(
+				new int[] { args[0].getId(), args[1].getId(), args[3].getId(), rule.getId() });
+		assertTrue(args[5].getJustificationSupport().containsKey(support.getHash()));
+
+		consChannels[5].clearReportsBuffer();
+		report(rule, args[4], true);
+		assertTrue(reports(consChannels[5]).isEmpty());
+	}
+
+	@Test
+	public void numericalEntailmentTriesAgainWhenTheSupportIsCyclic() throws Exception {
+		ArrayList<Wire> wires = new ArrayList<Wire>();
+		args = new PropositionNode[4];
+		for (int i = 0; i < 3; i++) {
+			args[i] = (PropositionNode) Network.buildBaseNode("a" + i, Semantic.proposition);
+			wires.add(new Wire(Relation.andAnt, args[i]));
+		}
+		args[3] = (PropositionNode) Network.buildBaseNode("c", Semantic.proposition);
+		wires.add(new Wire(Relation.andAnt, args[3]));
+		wires.add(new Wire(Relation.cq, args[3]));
+		wires.add(new Wire(Relation.i, Network.buildBaseNode("2", Semantic.infimum)));
+		NumericalEntailment rule = (NumericalEntailment) Network.buildMolecularNode(wires,
+				RelationsRestrictedCaseFrame.numericalRule);
+		connect(rule);
+
+		// the consequent cannot support itself
+		report(rule, args[3], true);
+		report(rule, args[0], true);
+		assertTrue(reports(consChannels[3]).isEmpty());
+		assertTrue(args[3].getJustificationSupport().isEmpty());
+
+		report(rule, args[1], true);
+		assertTrue(reports(consChannels[3]).get(0).isPositive());
+		PropositionSet support = new PropositionSet(new int[] { args[0].getId(), args[1].getId(), rule.getId() });
+		assertTrue(args[3].getJustificationSupport().containsKey(support.getHash()));
+		assertEquals(1, args[3].getJustificationSupport().size());
+	}
+
+}
@@ -0,0 +1,139 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.PropositionNode;
+import sneps.network.classes.Semantic;
+import sneps.snebr.Support;
+import sneps.snip.Budget;
+import sneps.snip.Report;
+import sneps.snip.RunStatistics;
+import sneps.snip.RunStatistics.StopReason;
+import sneps.snip.Runner;
+import sneps.snip.Runner.RequestOrder;
+import sneps.snip.channels.Channel;
+import sneps.snip.channels.MatchChannel;
+import sneps.snip.matching.LinearSubstitutions;
+
+public class RunnerTest {
+
+	private ArrayList<Integer> processed;
+
+	/**
+	 * A node recording when it processes its requests, and optionally sending
+	 * a report or taking some time to do so.
+	 */
+	private class RequestNode extends Node {
+		private int number;
+		private Channel channel;
+		private long sleepMillis;
+
+		private RequestNode(int number) {
+			this.number = number;
+		}
+
+		@Override
+		public void processRequests() {
+			processed.add(number);
+			if (channel != null)
+				channel.addReport(new Report(new LinearSubstitutions(), new HashSet<Support>(), true, "default"));
+			if (sleepMillis > 0) {
+				try {
+					Thread.sleep(sleepMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	@Before
+	public void setUp() {
+		processed = new ArrayList<Integer>();
+		Runner.initiate();
+	}
+
+	@After
+	public void tearDown() {
+		Runner.setRequestOrder(RequestOrder.BREADTH_FIRST);
+		Runner.setCostEstimator(Runner::estimateCost);
+	}
+
+	private ArrayList<RequestNode> queue(int count) {
+		ArrayList<RequestNode> nodes = new ArrayList<RequestNode>();
+		for (int i = 0; i < count; i++) {
+			RequestNode node = new RequestNode(i);
+			nodes.add(node);
+			Runner.addToLowQueue(node);
+		}
+		return nodes;
+	}
+
+	@Test
+	public void activationBudgetStopsWithPendingNodes() {
+		queue(5);
+		assertEquals("LLL", Runner.run(new Budget(3, -1, -1)));
+		RunStatistics statistics = Runner.getStatistics();
+		assertEquals(StopReason.ACTIVATIONS, statistics.getStopReason());
+		assertTrue(statistics.isPartial());
+		assertEquals(3, statistics.getActivations());
+		assertEquals(2, statistics.getPending());
+
+		assertEquals("LL", Runner.run());
+		assertFalse(Runner.getStatistics().isPartial());
+		assertEquals(0, Runner.getStatistics().getPending());
+	}
+
+	@Test
+	public void reportBudgetKeepsTheReportsSent() throws Exception {
+		Network.clearNetwork();
+		Network.defineDefaults();
+		PropositionNode requester = (PropositionNode) Network.buildBaseNode("requester", Semantic.proposition);
+		for (RequestNode node : queue(5)) {
+			node.channel = new MatchChannel(new LinearSubstitutions(), new LinearSubstitutions(), "default",
+					requester, node, true);
+			requester.getIncomingChannels().addChannel(node.channel);
+		}
+		Runner.run(new Budget(-1, 2, -1));
+		RunStatistics statistics = Runner.getStatistics();
+		assertEquals(StopReason.REPORTS, statistics.getStopReason());
+		assertEquals(2, statistics.getReports());
+		assertEquals(2, processed.size());
+	}
+
+	@Test
+	public void deadlineStopsALongRun() {
+		for (RequestNode node : queue(50))
+			node.sleepMillis = 10;
+		Runner.run(new Budget(-1, -1, 50));
+		RunStatistics statistics = Runner.getStatistics();
+		assertEquals(StopReason.DEADLINE, statistics.getStopReason());
+		assertTrue(processed.size() < 50);
+		assertEquals(50 - processed.size(), statistics.getPending());
+	}
+
+	@Test
+	public void lowQueueOrders() {
+		Runner.setRequestOrder(RequestOrder.DEPTH_FIRST);
+		queue(3);
+		Runner.run();
+		assertEquals("[2, 1, 0]", processed.toString());
+
+		processed.clear();
+		Runner.setRequestOrder(RequestOrder.BEST_FIRST);
+		Runner.setCostEstimator(node -> ((RequestNode) node).number % 2);
+		queue(4);
+		Runner.run();
+		assertEquals("[0, 2, 1, 3]", processed.toString());
+	}
+
+}
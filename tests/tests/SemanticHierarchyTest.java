@@ -0,0 +1,73 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.network.PropositionNode;
+import sneps.network.classes.Semantic;
+import sneps.network.classes.SemanticHierarchy;
+import sneps.network.classes.setClasses.NodeSet;
+import sneps.snebr.Controller;
+
+public class SemanticHierarchyTest {
+
+	@Before
+	public void setUp() throws Exception {
+		Network.clearNetwork();
+		Controller.clearSNeBR();
+		Network.defineDefaults();
+		SemanticHierarchy.createSemanticType("LatticeEntity");
+		SemanticHierarchy.createSemanticType("LatticeAnimal", "LatticeEntity");
+		SemanticHierarchy.createSemanticType("LatticeDog", "LatticeAnimal");
+	}
+
+	@After
+	public void tearDown() {
+		Network.clearNetwork();
+		Controller.clearSNeBR();
+	}
+
+	@Test
+	public void subtypesFollowTheWholeChain() throws Exception {
+		assertTrue(SemanticHierarchy.isSubtypeOf("LatticeDog", "LatticeEntity"));
+		assertTrue(SemanticHierarchy.isSubtypeOf("LatticeDog", "LatticeDog"));
+		assertFalse(SemanticHierarchy.isSubtypeOf("LatticeEntity", "LatticeDog"));
+		assertFalse(SemanticHierarchy.isSubtypeOf("LatticeDog", "Proposition"));
+		assertTrue(SemanticHierarchy.getSemantic("LatticeDog").isSubtypeOf("LatticeAnimal"));
+		assertNotEquals(SemanticHierarchy.getTypeId("LatticeDog"), SemanticHierarchy.getTypeId("LatticeAnimal"));
+		assertEquals(-1, SemanticHierarchy.getTypeId("LatticeCat"));
+	}
+
+	@Test
+	public void definingATypeRecompilesTheHierarchy() throws Exception {
+		assertFalse(SemanticHierarchy.isSubtypeOf("LatticePuppy", "LatticeAnimal"));
+		SemanticHierarchy.createSemanticType("LatticePuppy", "LatticeDog");
+		assertTrue(SemanticHierarchy.isSubtypeOf("LatticePuppy", "LatticeAnimal"));
+		assertTrue(SemanticHierarchy.getTypeId("LatticePuppy") >= 0);
+	}
+
+	@Test
+	public void nodesOfATypeIncludeItsDescendants() throws Exception {
+		Node rex = Network.buildBaseNode("Rex", SemanticHierarchy.getSemantic("LatticeDog"));
+		Node tweety = Network.buildBaseNode("Tweety", SemanticHierarchy.getSemantic("LatticeAnimal"));
+		Network.buildBaseNode("Stone", SemanticHierarchy.getSemantic("LatticeEntity"));
+		NodeSet animals = Network.getNodesOfType("LatticeAnimal");
+		assertEquals(2, animals.size());
+		assertTrue(animals.contains(rex));
+		assertTrue(animals.contains(tweety));
+		assertEquals(3, Network.getNodesOfType("LatticeEntity").size());
+	}
+
+	@Test
+	public void subtypesOfPropositionBuildPropositionNodes() throws Exception {
+		Semantic belief = SemanticHierarchy.createSemanticType("LatticeBelief", "Proposition");
+		assertTrue(Network.buildBaseNode("B", belief) instanceof PropositionNode);
+		assertTrue(Network.getNodesOfType("Proposition").contains(Network.getNode("B")));
+	}
+
+}
@@ -0,0 +1,157 @@
+package tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import sneps.network.Network;
+import sneps.snepslog.AP;
+import sneps.snepslog.SnepslogServer;
+
+public class SnepslogServerTest {
+
+	private SnepslogServer server;
+
+	@Before
+	public void before() throws IOException {
+		Network.defineDefaults();
+		AP.executeSnepslogCommand("clearkb");
+		AP.executeSnepslogCommand("br-mode manual");
+		AP.executeSnepslogCommand("set-mode-1");
+		AP.executeSnepslogCommand("normal");
+		server = new SnepslogServer(0, 4);
+		server.start();
+	}
+
+	@After
+	public void after() {
+		server.stop();
+		AP.executeSnepslogCommand("clearkb");
+		AP.executeSnepslogCommand("set-mode-1");
+	}
+
+	private static String readAnswer(BufferedReader in) throws IOException {
+		StringBuilder answer = new StringBuilder();
+		String line;
+		while (!(line = in.readLine()).equals(".")) {
+			if (line.startsWith(".")) {
+				line = line.substring(1);
+			}
+			if (answer.length() != 0) {
+				answer.append('\n');
+			}
+			answer.append(line);
+		}
+		return answer.toString();
+	}
+
+	@Test
+	public void testIsReadOnly() {
+		assertTrue(SnepslogServer.isReadOnly("list-terms"));
+		assertTrue(SnepslogServer.isReadOnly("list-terms."));
+		assertTrue(SnepslogServer.isReadOnly("describe-terms {dog(Fido)}"));
+		assertFalse(SnepslogServer.isReadOnly("ask dog(Fido)."));
+		assertFalse(SnepslogServer.isReadOnly("askwh dog(?x)."));
+		assertFalse(SnepslogServer.isReadOnly("dog(Fido)."));
+		assertFalse(SnepslogServer.isReadOnly("clearkb"));
+	}
+
+	@Test
+	public void testPipelinedCommands() throws IOException {
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			out.write("dog(Fido).\nlist-terms\ncat(Tom).\nlist-terms\n");
+			out.flush();
+			String first = readAnswer(in);
+			String terms1 = readAnswer(in);
+			String third = readAnswer(in);
+			String terms2 = readAnswer(in);
+			assertEquals(AP.executeSnepslogCommand("list-terms"), terms2);
+			assertTrue(terms1.contains("{Fido}"));
+			assertFalse(terms1.contains("{Tom}"));
+			assertTrue(terms2.contains("{Fido}"));
+			assertTrue(terms2.contains("{Tom}"));
+			assertTrue(first.startsWith("WFF1"));
+			assertTrue(third.startsWith("WFF2"));
+		}
+	}
+
+	@Test
+	public void testConcurrentClients() throws Exception {
+		ExecutorService clients = Executors.newFixedThreadPool(4);
+		ArrayList<Future<String>> results = new ArrayList<Future<String>>();
+		for (int i = 0; i < 4; i++) {
+			final int client = i;
+			results.add(clients.submit(() -> {
+				try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+					Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+					BufferedReader in = new BufferedReader(
+							new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+					for (int j = 0; j < 10; j++) {
+						out.write("owns(c" + client + ", t" + j + ").\nlist-terms\n");
+					}
+					out.flush();
+					String terms = null;
+					for (int j = 0; j < 10; j++) {
+						readAnswer(in);
+						terms = readAnswer(in);
+						assertTrue(terms.contains("a2 {t" + j + "} a1 {c" + client + "}"));
+					}
+					return terms;
+				}
+			}));
+		}
+		for (Future<String> result : results) {
+			result.get();
+		}
+		clients.shutdown();
+		String terms = AP.executeSnepslogCommand("list-terms");
+		for (int i = 0; i < 4; i++) {
+			for (int j = 0; j < 10; j++) {
+				assertTrue(terms.contains("a2 {t" + j + "} a1 {c" + i + "}"));
+			}
+		}
+	}
+
+	@Test
+	public void testFailuresAreReported() throws IOException {
+		server.stop();
+		server = new SnepslogServer(0, 4) {
+			@Override
+			public String execute(String command) {
+				if (command.equals("fail"))
+					throw new AssertionError("failed");
+				return super.execute(command);
+			}
+		};
+		server.start();
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+			Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			out.write("dog(Fido).\nfail\n");
+			out.flush();
+			readAnswer(in);
+			assertTrue(readAnswer(in).startsWith("Error serving the connection: java.lang.AssertionError: failed"));
+			assertEquals(null, in.readLine());
+		}
+	}
+
+}
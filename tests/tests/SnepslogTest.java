@@ -1,12 +1,15 @@
 package tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.LinkedList;
 import java.util.Set;
@@ -36,6 +39,7 @@ import sneps.network.paths.FUnitPath;
 import sneps.network.paths.Path;
 import sneps.snebr.Controller;
 import sneps.snepslog.AP;
+import sneps.snepslog.SnepslogSession;
 
 public class SnepslogTest {
 
@@ -616,4 +620,71 @@ public class SnepslogTest {
 		assertTrue(!Controller.isAutomaticBR());
 	}
 	
-}
\ No newline at end of file
+	@Test
+	public void testSessionReuse() throws Exception {
+		SnepslogSession session = SnepslogSession.acquire();
+		SnepslogSession.release(session);
+		AP.executeSnepslogCommand("normal");
+		SnepslogSession reused = SnepslogSession.acquire();
+		assertSame(session, reused);
+		SnepslogSession nested = SnepslogSession.acquire();
+		assertNotSame(reused, nested);
+		reused.execute("dog(Fido).");
+		nested.execute("expert");
+		reused.execute("cat(Tom).");
+		SnepslogSession.release(nested);
+		SnepslogSession.release(reused);
+		assertTrue(Network.getNodes().containsKey("Fido"));
+		assertTrue(Network.getNodes().containsKey("Tom"));
+	}
+
+	@Test
+	public void testForwardInferenceAfterRetraction() throws Throwable {
+		AP.executeSnepslogCommand("dog(Fido)!");
+		String output = AP.executeSnepslogCommand("list-terms dog(Fido).");
+		PropositionNode dog = (PropositionNode) Network.getNode(output.substring(0, output.indexOf(":")));
+		Controller.removeHypsFromContext(new PropositionSet(new int[] { dog.getId() }),
+				Controller.getCurrentContextName());
+		AP.executeSnepslogCommand("all(x)(dog(x) => animal(x)).");
+		assertTrue(!AP.executeSnepslogCommand("cat(Tom)!").contains("(a1 {Fido} r {animal})"));
+		assertTrue(AP.executeSnepslogCommand("dog(Fido)!").contains("(a1 {Fido} r {animal})"));
+
+		Controller.removeHypsFromContext(new PropositionSet(new int[] { dog.getId() }),
+				Controller.getCurrentContextName());
+		AP.executeSnepslogCommand("all(x)(animal(x) => alive(x)).");
+		assertTrue(AP.executeSnepslogCommand("dog(Fido)!").contains("(a1 {Fido} r {alive})"));
+	}
+
+	@Test
+	public void testFailedCommandLeavesNoTerms() {
+		AP.executeSnepslogCommand("dog(Fido).");
+		Set<String> before = new HashSet<String>(Network.getNodes().keySet());
+		AP.executeSnepslogCommand("s(d) => t(e) u.");
+		assertEquals(before, Network.getNodes().keySet());
+		AP.executeSnepslogCommand("s(d) => t(e).");
+		assertTrue(Network.getNodes().containsKey("d"));
+		assertTrue(Network.getNodes().containsKey("e"));
+	}
+
+	@Test
+	public void testForwardInference() throws Throwable {
+		AP.executeSnepslogCommand("dog(Fido).");
+		AP.executeSnepslogCommand("all(x)(dog(x) => animal(x)).");
+		String output = AP.executeSnepslogCommand("activate dog(Fido).");
+		assertTrue(output.contains("(a1 {Fido} r {animal})"));
+		assertTrue(AP.executeSnepslogCommand("dog(Rex)!").contains("(a1 {Rex} r {animal})"));
+
+		AP.executeSnepslogCommand("parent(Tom,Bob).");
+		AP.executeSnepslogCommand("all(x,y)({parent(x,y), male(x)} &=> father(x,y)).");
+		output = AP.executeSnepslogCommand("male(Tom)!");
+		assertTrue(output.contains("(a2 {Bob} a1 {Tom} r {father})"));
+		output = AP.executeSnepslogCommand("parent(Ann,Sam)!");
+		assertTrue(!output.contains("father"));
+		output = AP.executeSnepslogCommand("activate! male(Ann)");
+		assertTrue(output.contains("(a2 {Sam} a1 {Ann} r {father})"));
+		PropositionNode father = (PropositionNode) Network.getNode(output.substring(output.lastIndexOf("M"),
+				output.lastIndexOf(":")));
+		assertTrue(Controller.getCurrentContext().isAsserted(father));
+	}
+
+}
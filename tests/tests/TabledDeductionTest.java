@@ -0,0 +1,160 @@
+package tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import sneps.network.Network;
+import sneps.network.Node;
+import sneps.snebr.Controller;
+import sneps.snepslog.AP;
+import sneps.snip.Report;
+import sneps.snip.tabling.AnswerStream;
+import sneps.snip.tabling.TableSpace;
+import sneps.snip.tabling.TabledDeduction;
+
+public class TabledDeductionTest {
+
+	@Before
+	public void before() {
+		Network.defineDefaults();
+		AP.executeSnepslogCommand("clearkb");
+		AP.executeSnepslogCommand("set-mode-1");
+	}
+
+	@After
+	public void after() {
+		AP.executeSnepslogCommand("clearkb");
+	}
+
+	private Node term(String term) throws Exception {
+		String output = AP.executeSnepslogCommand("list-terms " + term + ".");
+		return Network.getNode(output.substring(0, output.indexOf(":")));
+	}
+
+	private TabledDeduction deduction() {
+		return new TabledDeduction(Controller.getCurrentContextName(), Controller.getCurrentContext());
+	}
+
+	private void buildFamily() {
+		AP.executeSnepslogCommand("parent(A,B).");
+		AP.executeSnepslogCommand("parent(B,C).");
+		AP.executeSnepslogCommand("parent(C,A).");
+		AP.executeSnepslogCommand("parent(C,D).");
+		AP.executeSnepslogCommand("all(x,y)(parent(x,y) => anc(x,y)).");
+		AP.executeSnepslogCommand("all(x,y,z)({parent(x,y), anc(y,z)} &=> anc(x,z)).");
+	}
+
+	@Test
+	public void askDerivesThroughRules() {
+		AP.executeSnepslogCommand("dog(Fido).");
+		AP.executeSnepslogCommand("all(x)(dog(x) => animal(x)).");
+		assertTrue(AP.executeSnepslogCommand("ask animal(Fido)").contains("(a1 {Fido} r {animal})"));
+		assertEquals("", AP.executeSnepslogCommand("ask animal(Tom)").trim());
+	}
+
+	@Test
+	public void recursiveRulesTerminate() throws Exception {
+		buildFamily();
+		String output = AP.executeSnepslogCommand("askwh anc(A,?z)");
+		for (String z : new String[] { "A", "B", "C", "D" })
+			assertTrue(output.contains("(a2 {" + z + "} a1 {A} r {anc})"));
+		assertEquals("", AP.executeSnepslogCommand("ask anc(D,A)").trim());
+	}
+
+	@Test
+	public void repeatedQueriesReadTheTables() throws Exception {
+		buildFamily();
+		Node goal = term("anc(A,D)");
+		ArrayList<Report> first = deduction().deduce(goal);
+		assertEquals(1, first.size());
+		TableSpace space = deduction().getTableSpace();
+		int tables = space.size();
+		int hits = space.getHits();
+
+		ArrayList<Report> second = deduction().deduce(goal);
+		assertEquals(1, second.size());
+		assertEquals(tables, space.size());
+		assertEquals(hits + 1, space.getHits());
+	}
+
+	@Test
+	public void tablesAreInvalidatedWhenTheHypsChange() throws Exception {
+		buildFamily();
+		Node goal = term("anc(D,A)");
+		assertTrue(deduction().deduce(goal).isEmpty());
+		TableSpace space = deduction().getTableSpace();
+
+		AP.executeSnepslogCommand("parent(D,B).");
+		assertNotSame(space, deduction().getTableSpace());
+		assertEquals(1, deduction().deduce(goal).size());
+	}
+
+	@Test
+	public void streamStopsAtTheRequestedAnswers() throws Exception {
+		for (int i = 0; i < 20; i++)
+			AP.executeSnepslogCommand("parent(p" + i + ",p" + (i + 1) + ").");
+		AP.executeSnepslogCommand("all(x,y)(parent(x,y) => anc(x,y)).");
+		AP.executeSnepslogCommand("all(x,y,z)({parent(x,y), anc(y,z)} &=> anc(x,z)).");
+		Node goal = term("anc(p0,?z)");
+
+		TabledDeduction first = deduction();
+		AnswerStream answers = first.stream(goal, 1);
+		assertTrue(answers.hasNext());
+		answers.next();
+		assertFalse(answers.hasNext());
+		assertEquals(0, first.getTableSpace().size());
+
+		TabledDeduction all = deduction();
+		assertEquals(20, all.deduce(goal).size());
+		assertTrue(first.getSteps() * 10 < all.getSteps());
+	}
+
+	@Test(timeout = 10000)
+	public void abandonedStreamsDoNotBlockTheContext() throws Exception {
+		buildFamily();
+		Node goal = term("anc(A,?z)");
+		AnswerStream abandoned = deduction().stream(goal);
+		assertTrue(abandoned.hasNext());
+		assertEquals(4, deduction().deduce(goal).size());
+
+		Throwable[] failure = new Throwable[1];
+		Thread closer = new Thread(() -> {
+			try {
+				abandoned.close();
+			} catch (Throwable t) {
+				failure[0] = t;
+			}
+		});
+		closer.start();
+		closer.join();
+		assertNull(failure[0]);
+		assertEquals(4, deduction().deduce(goal).size());
+	}
+
+	@Test
+	public void askReturnsAtMostTheRequestedInstances() {
+		buildFamily();
+		String output = AP.executeSnepslogCommand("anc(A,?z)?(2)");
+		assertEquals(2, output.split("\n").length);
+		output = AP.executeSnepslogCommand("askwh anc(A,?z)");
+		assertEquals(4, output.split("\n").length);
+	}
+
+	@Test
+	public void askCountsEveryInstanceOnce() {
+		AP.executeSnepslogCommand("animal(Fido).");
+		AP.executeSnepslogCommand("dog(Fido).");
+		AP.executeSnepslogCommand("dog(Rex).");
+		AP.executeSnepslogCommand("all(x)(dog(x) => animal(x)).");
+		String output = AP.executeSnepslogCommand("animal(?x)?(2)");
+		assertEquals(2, output.split("\n").length);
+		assertTrue(output.contains("Fido"));
+		assertTrue(output.contains("Rex"));
+	}
+
+}